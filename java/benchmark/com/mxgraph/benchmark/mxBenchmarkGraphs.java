@@ -0,0 +1,140 @@
+/**
+ * Copyright (c) 2007-2017, JGraph Ltd
+ */
+package com.mxgraph.benchmark;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.mxgraph.analysis.mxAnalysisGraph;
+import com.mxgraph.analysis.mxGraphGenerator;
+import com.mxgraph.analysis.mxGraphProperties;
+import com.mxgraph.costfunction.mxDoubleValCostFunction;
+import com.mxgraph.model.mxGeometry;
+import com.mxgraph.model.mxIGraphModel;
+import com.mxgraph.view.mxGraph;
+
+/**
+ * Creates the graphs for the benchmarks using mxGraphGenerator.
+ */
+public class mxBenchmarkGraphs
+{
+
+	/**
+	 * Defines the spacing between vertices that are placed on a grid.
+	 */
+	public static final double SPACING = 60;
+
+	/**
+	 * Returns a new analysis graph for the given graph with an undirected
+	 * generator.
+	 */
+	public static mxAnalysisGraph createAnalysisGraph(mxGraph graph)
+	{
+		Map<String, Object> props = new HashMap<String, Object>();
+		mxGraphProperties.setDirected(props, false);
+
+		mxAnalysisGraph aGraph = new mxAnalysisGraph();
+		aGraph.setGraph(graph);
+		aGraph.setProperties(props);
+		aGraph.setGenerator(new mxGraphGenerator(null,
+				new mxDoubleValCostFunction()));
+
+		return aGraph;
+	}
+
+	/**
+	 * Returns a grid graph with the given number of columns and rows.
+	 */
+	public static mxGraph createGridGraph(int columns, int rows)
+	{
+		mxGraph graph = new mxGraph();
+		mxAnalysisGraph aGraph = createAnalysisGraph(graph);
+		graph.getModel().beginUpdate();
+
+		try
+		{
+			aGraph.getGenerator().getGridGraph(aGraph, columns, rows);
+			aGraph.getGenerator().setGridGraphSpacing(aGraph, SPACING,
+					SPACING, columns, rows);
+		}
+		finally
+		{
+			graph.getModel().endUpdate();
+		}
+
+		return graph;
+	}
+
+	/**
+	 * Returns a random connected graph with the given number of vertices and
+	 * edges. The vertices are placed on a grid.
+	 */
+	public static mxGraph createRandomGraph(int vertexCount, int edgeCount)
+	{
+		mxGraph graph = new mxGraph();
+		mxAnalysisGraph aGraph = createAnalysisGraph(graph);
+		graph.getModel().beginUpdate();
+
+		try
+		{
+			aGraph.getGenerator().getSimpleRandomGraph(aGraph, vertexCount,
+					edgeCount, false, true, true);
+			placeOnGrid(graph);
+		}
+		finally
+		{
+			graph.getModel().endUpdate();
+		}
+
+		return graph;
+	}
+
+	/**
+	 * Returns a random directed tree with the given number of vertices. The
+	 * vertices are placed on a grid.
+	 */
+	public static mxGraph createTree(int vertexCount)
+	{
+		mxGraph graph = new mxGraph();
+		mxAnalysisGraph aGraph = createAnalysisGraph(graph);
+		graph.getModel().beginUpdate();
+
+		try
+		{
+			aGraph.getGenerator().getSimpleRandomTree(aGraph, vertexCount);
+			placeOnGrid(graph);
+		}
+		finally
+		{
+			graph.getModel().endUpdate();
+		}
+
+		return graph;
+	}
+
+	/**
+	 * Places the vertices in the default parent of the given graph on a square
+	 * grid.
+	 */
+	public static void placeOnGrid(mxGraph graph)
+	{
+		mxIGraphModel model = graph.getModel();
+		Object[] vertices = graph.getChildVertices(graph.getDefaultParent());
+		int columns = (int) Math.ceil(Math.sqrt(vertices.length));
+
+		for (int i = 0; i < vertices.length; i++)
+		{
+			mxGeometry geo = model.getGeometry(vertices[i]);
+
+			if (geo != null)
+			{
+				geo = (mxGeometry) geo.clone();
+				geo.setX((i % Math.max(1, columns)) * SPACING);
+				geo.setY((i / Math.max(1, columns)) * SPACING);
+				model.setGeometry(vertices[i], geo);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,88 @@
+/**
+ * Copyright (c) 2007-2017, JGraph Ltd
+ */
+package com.mxgraph.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+
+import com.mxgraph.io.mxCodec;
+import com.mxgraph.model.mxGraphModel;
+import com.mxgraph.util.mxXmlUtils;
+import com.mxgraph.view.mxGraph;
+
+/**
+ * Measures encoding and decoding a graph model with mxCodec.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class mxCodecBenchmark
+{
+
+	/**
+	 * Number of columns and rows in the grid graph.
+	 */
+	@Param({ "30", "100" })
+	public int size;
+
+	/**
+	 * Holds the model to be encoded.
+	 */
+	protected mxGraphModel model;
+
+	/**
+	 * Holds the XML of the model.
+	 */
+	protected String xml;
+
+	/**
+	 * Creates the model and its XML.
+	 */
+	@Setup
+	public void setUp()
+	{
+		mxGraph graph = mxBenchmarkGraphs.createGridGraph(size, size);
+		model = (mxGraphModel) graph.getModel();
+		xml = mxXmlUtils.getXml(new mxCodec().encode(model));
+	}
+
+	/**
+	 * Encodes the model into a DOM node.
+	 */
+	@Benchmark
+	public Node encode()
+	{
+		return new mxCodec().encode(model);
+	}
+
+	/**
+	 * Parses the XML and decodes it into a new model.
+	 */
+	@Benchmark
+	public mxGraphModel decode()
+	{
+		Document document = mxXmlUtils.parseXml(xml);
+		mxGraphModel result = new mxGraphModel();
+		new mxCodec(document).decode(document.getDocumentElement(), result);
+
+		return result;
+	}
+
+}
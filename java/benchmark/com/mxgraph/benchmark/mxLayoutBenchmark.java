@@ -0,0 +1,139 @@
+/**
+ * Copyright (c) 2007-2017, JGraph Ltd
+ */
+package com.mxgraph.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.mxgraph.layout.mxCircleLayout;
+import com.mxgraph.layout.mxCompactTreeLayout;
+import com.mxgraph.layout.mxEdgeLabelLayout;
+import com.mxgraph.layout.mxFastOrganicLayout;
+import com.mxgraph.layout.mxIGraphLayout;
+import com.mxgraph.layout.mxOrganicLayout;
+import com.mxgraph.layout.mxParallelEdgeLayout;
+import com.mxgraph.layout.mxPartitionLayout;
+import com.mxgraph.layout.mxStackLayout;
+import com.mxgraph.layout.hierarchical.mxHierarchicalLayout;
+import com.mxgraph.view.mxGraph;
+
+/**
+ * Measures the layouts in com.mxgraph.layout. The tree layouts run on a
+ * random tree, all other layouts on a random graph with twice as many edges
+ * as vertices. A new graph is created for each invocation as the layouts
+ * modify the graph. mxOrthogonalLayout is not included as it does not change
+ * the graph.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class mxLayoutBenchmark
+{
+
+	/**
+	 * Name of the layout.
+	 */
+	@Param({ "circle", "compactTree", "edgeLabel", "fastOrganic", "organic",
+			"parallelEdge", "partition", "stack", "hierarchical" })
+	public String layout;
+
+	/**
+	 * Number of vertices.
+	 */
+	@Param({ "100", "500" })
+	public int size;
+
+	/**
+	 * Holds the graph.
+	 */
+	protected mxGraph graph;
+
+	/**
+	 * Creates the graph for the layout.
+	 */
+	@Setup(Level.Invocation)
+	public void setUp()
+	{
+		if (layout.equals("compactTree") || layout.equals("hierarchical"))
+		{
+			graph = mxBenchmarkGraphs.createTree(size);
+		}
+		else
+		{
+			graph = mxBenchmarkGraphs.createRandomGraph(size, 2 * size);
+		}
+	}
+
+	/**
+	 * Executes the layout on the default parent.
+	 */
+	@Benchmark
+	public mxGraph execute()
+	{
+		createLayout(layout, graph).execute(graph.getDefaultParent());
+
+		return graph;
+	}
+
+	/**
+	 * Returns a new layout for the given name and graph.
+	 */
+	public static mxIGraphLayout createLayout(String name, mxGraph graph)
+	{
+		if (name.equals("circle"))
+		{
+			return new mxCircleLayout(graph);
+		}
+		else if (name.equals("compactTree"))
+		{
+			return new mxCompactTreeLayout(graph);
+		}
+		else if (name.equals("edgeLabel"))
+		{
+			return new mxEdgeLabelLayout(graph);
+		}
+		else if (name.equals("fastOrganic"))
+		{
+			return new mxFastOrganicLayout(graph);
+		}
+		else if (name.equals("organic"))
+		{
+			return new mxOrganicLayout(graph);
+		}
+		else if (name.equals("parallelEdge"))
+		{
+			return new mxParallelEdgeLayout(graph);
+		}
+		else if (name.equals("partition"))
+		{
+			return new mxPartitionLayout(graph);
+		}
+		else if (name.equals("stack"))
+		{
+			return new mxStackLayout(graph);
+		}
+		else if (name.equals("hierarchical"))
+		{
+			return new mxHierarchicalLayout(graph);
+		}
+
+		throw new IllegalArgumentException("Unknown layout: " + name);
+	}
+
+}
@@ -0,0 +1,150 @@
+/**
+ * Copyright (c) 2007-2017, JGraph Ltd
+ */
+package com.mxgraph.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.mxgraph.model.mxCell;
+import com.mxgraph.model.mxGeometry;
+import com.mxgraph.model.mxGraphModel;
+import com.mxgraph.model.mxIGraphModel;
+
+/**
+ * Measures inserting and removing cells in a graph model inside a single
+ * beginUpdate/endUpdate transaction.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class mxModelBenchmark
+{
+
+	/**
+	 * Number of vertices. Each vertex is connected to two other vertices.
+	 */
+	@Param({ "1000", "10000" })
+	public int size;
+
+	/**
+	 * Holds the model for the remove benchmark.
+	 */
+	protected mxGraphModel model;
+
+	/**
+	 * Holds the cells to be removed.
+	 */
+	protected Object[] cells;
+
+	/**
+	 * Creates a new model for each invocation of the remove benchmark.
+	 */
+	@Setup(Level.Invocation)
+	public void setUp()
+	{
+		model = new mxGraphModel();
+		cells = insertCells(model, size);
+	}
+
+	/**
+	 * Inserts the vertices and edges into a new model.
+	 */
+	@Benchmark
+	public mxGraphModel insert()
+	{
+		mxGraphModel result = new mxGraphModel();
+		insertCells(result, size);
+
+		return result;
+	}
+
+	/**
+	 * Removes every second vertex and its connected edges.
+	 */
+	@Benchmark
+	public mxGraphModel remove()
+	{
+		model.beginUpdate();
+
+		try
+		{
+			for (int i = 0; i < size; i += 2)
+			{
+				model.remove(cells[i]);
+			}
+		}
+		finally
+		{
+			model.endUpdate();
+		}
+
+		return model;
+	}
+
+	/**
+	 * Inserts the given number of vertices in a ring with chords into the
+	 * default layer of the given model and returns the vertices.
+	 */
+	public static Object[] insertCells(mxIGraphModel model, int size)
+	{
+		Object parent = model.getChildAt(model.getRoot(), 0);
+		Object[] vertices = new Object[size];
+		model.beginUpdate();
+
+		try
+		{
+			for (int i = 0; i < size; i++)
+			{
+				mxCell vertex = new mxCell(null, new mxGeometry(
+						(i % 100) * 60, (i / 100) * 60, 40, 30), null);
+				vertex.setVertex(true);
+				vertices[i] = model.add(parent, vertex, i);
+			}
+
+			for (int i = 0; i < size; i++)
+			{
+				insertEdge(model, parent, vertices[i], vertices[(i + 1)
+						% size]);
+				insertEdge(model, parent, vertices[i], vertices[(i * 7 + 3)
+						% size]);
+			}
+		}
+		finally
+		{
+			model.endUpdate();
+		}
+
+		return vertices;
+	}
+
+	/**
+	 * Inserts an edge between the given terminals.
+	 */
+	protected static void insertEdge(mxIGraphModel model, Object parent,
+			Object source, Object target)
+	{
+		mxCell edge = new mxCell(null, new mxGeometry(), null);
+		edge.setEdge(true);
+		edge.getGeometry().setRelative(true);
+		model.add(parent, edge, model.getChildCount(parent));
+		model.setTerminal(edge, source, true);
+		model.setTerminal(edge, target, false);
+	}
+
+}
@@ -0,0 +1,67 @@
+/**
+ * Copyright (c) 2007-2017, JGraph Ltd
+ */
+package com.mxgraph.benchmark;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.mxgraph.util.mxCellRenderer;
+import com.mxgraph.view.mxGraph;
+
+/**
+ * Measures rendering a grid graph into a buffered image.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class mxRenderBenchmark
+{
+
+	/**
+	 * Number of columns and rows in the grid graph.
+	 */
+	@Param({ "10", "30" })
+	public int size;
+
+	/**
+	 * Holds the graph.
+	 */
+	protected mxGraph graph;
+
+	/**
+	 * Creates the graph.
+	 */
+	@Setup
+	public void setUp()
+	{
+		graph = mxBenchmarkGraphs.createGridGraph(size, size);
+	}
+
+	/**
+	 * Renders the graph with anti-aliasing.
+	 */
+	@Benchmark
+	public BufferedImage createBufferedImage()
+	{
+		return mxCellRenderer.createBufferedImage(graph, null, 1, Color.WHITE,
+				true, null);
+	}
+
+}
@@ -0,0 +1,90 @@
+/**
+ * Copyright (c) 2007-2017, JGraph Ltd
+ */
+package com.mxgraph.benchmark;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.mxgraph.util.mxConstants;
+import com.mxgraph.view.mxStylesheet;
+
+/**
+ * Measures resolving cell styles with and without the style cache.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class mxStylesheetBenchmark
+{
+
+	/**
+	 * Maximum number of cached styles. 0 disables the cache.
+	 */
+	@Param({ "0", "1000" })
+	public int cacheSize;
+
+	/**
+	 * Holds the stylesheet.
+	 */
+	protected mxStylesheet stylesheet;
+
+	/**
+	 * Holds the style names to be resolved.
+	 */
+	protected String[] styles;
+
+	/**
+	 * Holds the default vertex style.
+	 */
+	protected Map<String, Object> defaultStyle;
+
+	/**
+	 * Creates the stylesheet and 100 distinct styles.
+	 */
+	@Setup
+	public void setUp()
+	{
+		stylesheet = new mxStylesheet();
+		stylesheet.setStyleCacheSize(cacheSize);
+		stylesheet.putCellStyle("rounded", stylesheet.getDefaultVertexStyle());
+		defaultStyle = stylesheet.getDefaultVertexStyle();
+		styles = new String[100];
+
+		for (int i = 0; i < styles.length; i++)
+		{
+			styles[i] = "rounded;" + mxConstants.STYLE_FILLCOLOR + "=#"
+					+ Integer.toHexString(0x100000 + i * 997) + ";"
+					+ mxConstants.STYLE_FONTSIZE + "=" + (10 + i % 5);
+		}
+	}
+
+	/**
+	 * Resolves all styles.
+	 */
+	@Benchmark
+	public void getCellStyle(Blackhole blackhole)
+	{
+		for (int i = 0; i < styles.length; i++)
+		{
+			blackhole.consume(stylesheet.getCellStyle(styles[i], defaultStyle));
+		}
+	}
+
+}
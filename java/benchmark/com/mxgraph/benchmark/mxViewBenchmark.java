@@ -0,0 +1,106 @@
+/**
+ * Copyright (c) 2007-2017, JGraph Ltd
+ */
+package com.mxgraph.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.mxgraph.util.mxRectangle;
+import com.mxgraph.view.mxGraph;
+import com.mxgraph.view.mxGraphView;
+
+/**
+ * Measures the validation of the view for a grid graph.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class mxViewBenchmark
+{
+
+	/**
+	 * Number of columns and rows in the grid graph.
+	 */
+	@Param({ "30", "100" })
+	public int size;
+
+	/**
+	 * Holds the graph.
+	 */
+	protected mxGraph graph;
+
+	/**
+	 * Holds the vertex that is moved in the incremental benchmark.
+	 */
+	protected Object vertex;
+
+	/**
+	 * Creates the graph.
+	 */
+	@Setup
+	public void setUp()
+	{
+		graph = mxBenchmarkGraphs.createGridGraph(size, size);
+		vertex = graph.getChildVertices(graph.getDefaultParent())[0];
+	}
+
+	/**
+	 * Invalidates and validates all cell states.
+	 */
+	@Benchmark
+	public mxRectangle revalidate()
+	{
+		mxGraphView view = graph.getView();
+		view.revalidate();
+
+		return view.getGraphBounds();
+	}
+
+	/**
+	 * Invalidates and validates all cell states with parallel validation.
+	 */
+	@Benchmark
+	public mxRectangle revalidateParallel()
+	{
+		mxGraphView view = graph.getView();
+		view.setParallelValidation(true);
+
+		try
+		{
+			view.revalidate();
+		}
+		finally
+		{
+			view.setParallelValidation(false);
+		}
+
+		return view.getGraphBounds();
+	}
+
+	/**
+	 * Moves a single vertex, which validates the view for the change.
+	 */
+	@Benchmark
+	public mxRectangle moveCell()
+	{
+		graph.moveCells(new Object[] { vertex }, 1, 1);
+
+		return graph.getView().getGraphBounds();
+	}
+
+}
@@ -279,7 +279,7 @@ public class BasicGraphEditor extends JPanel
 				{
 					public void invoke(Object source, mxEventObject evt)
 					{
-						String buffer = (graphComponent.getTripleBuffer() != null) ? ""
+						String buffer = (graphComponent.getTiledTripleBuffer() != null) ? ""
 								: " (unbuffered)";
 						mxRectangle dirty = (mxRectangle) evt
 								.getProperty("region");
@@ -5,32 +5,25 @@ package com.mxgraph.examples.web;
 
 import java.awt.Color;
 import java.awt.Graphics2D;
-import java.awt.Image;
-import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.StringReader;
 import java.io.UnsupportedEncodingException;
 import java.net.URLDecoder;
-import java.util.Hashtable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 
-import javax.imageio.ImageIO;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.parsers.SAXParserFactory;
 
-import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
-import org.xml.sax.XMLReader;
 
 import com.mxpdf.text.Document;
 import com.mxpdf.text.DocumentException;
 import com.mxpdf.text.pdf.PdfWriter;
-import com.mxgraph.canvas.mxGraphicsCanvas2D;
-import com.mxgraph.canvas.mxICanvas2D;
-import com.mxgraph.reader.mxSaxOutputHandler;
+import com.mxgraph.reader.mxExportEngine;
 import com.mxgraph.util.mxUtils;
 
 /**
@@ -45,14 +38,17 @@ public class ExportServlet extends HttpServlet
 	private static final long serialVersionUID = -5040708166131034515L;
 
 	/**
-	 * 
+	 * Renders the images with a bounded number of worker threads, parsers and
+	 * canvases. The images in the XML are cached in the image cache of the
+	 * engine.
 	 */
-	private transient SAXParserFactory parserFactory = SAXParserFactory.newInstance();
+	protected transient mxExportEngine engine = new mxExportEngine();
 
 	/**
-	 * Cache for all images.
+	 * Maximum time in milliseconds that an export waits for a free slot in
+	 * the engine. Default is 10000.
 	 */
-	protected transient Hashtable<String, Image> imageCache = new Hashtable<String, Image>();
+	protected long exportTimeout = 10000;
 
 	/**
 	 * @see HttpServlet#HttpServlet()
@@ -62,6 +58,15 @@ public class ExportServlet extends HttpServlet
 		super();
 	}
 
+	/**
+	 * Stops the worker threads of the engine.
+	 */
+	public void destroy()
+	{
+		engine.shutdown();
+		super.destroy();
+	}
+
 	/**
 	 * Handles exceptions and the output stream buffer.
 	 */
@@ -86,6 +91,11 @@ public class ExportServlet extends HttpServlet
 				response.setStatus(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE);
 			}
 		}
+		catch (RejectedExecutionException e)
+		{
+			// Too many pending exports
+			response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+		}
 		catch (OutOfMemoryError e)
 		{
 			e.printStackTrace();
@@ -140,16 +150,14 @@ public class ExportServlet extends HttpServlet
 				fname = fname.substring(0, fname.length() - 4) + format;
 			}
 
-			String url = request.getRequestURL().toString();
-
 			// Writes response
 			if (format.equals("pdf"))
 			{
-				writePdf(url, fname, w, h, bg, xml, response);
+				writePdf(fname, w, h, bg, xml, response);
 			}
 			else
 			{
-				writeImage(url, format, fname, w, h, bg, xml, response);
+				writeImage(format, fname, w, h, bg, xml, response);
 			}
 
 			response.setStatus(HttpServletResponse.SC_OK);
@@ -177,45 +185,43 @@ public class ExportServlet extends HttpServlet
 	}
 
 	/**
-	 * @throws ParserConfigurationException
-	 * @throws SAXException
-	 * @throws IOException
+	 * Renders the image in a worker thread of the engine and writes it to the
+	 * response. Throws a RejectedExecutionException if the engine is busy
+	 * after the export timeout.
 	 * 
+	 * @throws IOException
+	 * @throws InterruptedException
+	 * @throws ExecutionException
 	 */
-	protected void writeImage(String url, String format, String fname, int w, int h, Color bg, String xml, HttpServletResponse response)
-			throws IOException, SAXException, ParserConfigurationException
+	protected void writeImage(String format, String fname, int w, int h, Color bg, String xml, HttpServletResponse response)
+			throws IOException, InterruptedException, ExecutionException
 	{
-		BufferedImage image = mxUtils.createBufferedImage(w, h, bg);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		engine.submit(xml, w, h, bg, format, out, exportTimeout, TimeUnit.MILLISECONDS).get();
 
-		if (image != null)
+		if (fname != null)
 		{
-			Graphics2D g2 = image.createGraphics();
-			mxUtils.setAntiAlias(g2, true, true);
-			renderXml(xml, createCanvas(url, g2));
-
-			if (fname != null)
-			{
-				response.setContentType("application/x-unknown");
-				response.setHeader("Content-Disposition", "attachment; filename=\"" + fname + "\"; filename*=UTF-8''" + fname);
-			}
-			else if (format != null)
-			{
-				response.setContentType("image/" + format.toLowerCase());
-			}
-
-			ImageIO.write(image, format, response.getOutputStream());
+			response.setContentType("application/x-unknown");
+			response.setHeader("Content-Disposition", "attachment; filename=\"" + fname + "\"; filename*=UTF-8''" + fname);
 		}
+		else if (format != null)
+		{
+			response.setContentType("image/" + format.toLowerCase());
+		}
+
+		out.writeTo(response.getOutputStream());
 	}
 
 	/**
-	 * Creates and returns the canvas for rendering.
+	 * Renders the PDF in the calling thread using the parsers and canvases of
+	 * the engine.
+	 * 
 	 * @throws IOException 
 	 * @throws DocumentException 
-	 * @throws ParserConfigurationException 
 	 * @throws SAXException 
 	 */
-	protected void writePdf(String url, String fname, int w, int h, Color bg, String xml, HttpServletResponse response)
-			throws DocumentException, IOException, SAXException, ParserConfigurationException
+	protected void writePdf(String fname, int w, int h, Color bg, String xml, HttpServletResponse response)
+			throws DocumentException, IOException, SAXException
 	{
 		response.setContentType("application/pdf");
 
@@ -232,79 +238,16 @@ public class ExportServlet extends HttpServlet
 		PdfWriter writer = PdfWriter.getInstance(document, response.getOutputStream());
 		document.open();
 
-		mxGraphicsCanvas2D gc = createCanvas(url, writer.getDirectContent().createGraphics(w, h));
+		Graphics2D g2 = writer.getDirectContent().createGraphics(w, h);
 
 		// Fixes PDF offset
-		gc.translate(1, 1);
+		g2.translate(1, 1);
 
-		renderXml(xml, gc);
-		gc.getGraphics().dispose();
+		engine.render(xml, g2);
+		g2.dispose();
 		document.close();
 		writer.flush();
 		writer.close();
 	}
-	
-	/**
-	 * Renders the XML to the given canvas.
-	 */
-	protected void renderXml(String xml, mxICanvas2D canvas) throws SAXException, ParserConfigurationException, IOException
-	{
-		XMLReader reader = parserFactory.newSAXParser().getXMLReader();
-		reader.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
-		reader.setFeature("http://apache.org/xml/features/nonvalidating/load-external-dtd", false);
-		reader.setFeature("http://xml.org/sax/features/external-general-entities", false);
-		reader.setFeature("http://xml.org/sax/features/external-parameter-entities", false);
-		reader.setContentHandler(new mxSaxOutputHandler(canvas));
-		reader.parse(new InputSource(new StringReader(xml)));
-	}
-
-	/**
-	 * Creates a graphics canvas with an image cache.
-	 */
-	protected mxGraphicsCanvas2D createCanvas(String url, Graphics2D g2)
-	{
-		// Caches custom images for the time of the request
-		final Hashtable<String, Image> shortCache = new Hashtable<String, Image>();
-		final String domain = url.substring(0, url.lastIndexOf("/"));
-
-		mxGraphicsCanvas2D g2c = new mxGraphicsCanvas2D(g2)
-		{
-			public Image loadImage(String src)
-			{
-				// Uses local image cache by default
-				Hashtable<String, Image> cache = shortCache;
-
-				// Uses global image cache for local images
-				if (src.startsWith(domain))
-				{
-					cache = imageCache;
-				}
-
-				Image image = cache.get(src);
-
-				if (image == null)
-				{
-					image = super.loadImage(src);
-
-					if (image != null)
-					{
-						cache.put(src, image);
-					}
-					else
-					{
-						cache.put(src, Constants.EMPTY_IMAGE);
-					}
-				}
-				else if (image == Constants.EMPTY_IMAGE)
-				{
-					image = null;
-				}
-
-				return image;
-			}
-		};
-
-		return g2c;
-	}
 
 }
@@ -0,0 +1,217 @@
+/**
+ * Copyright (c) 2007-2017, JGraph Ltd
+ */
+package com.mxgraph.analysis;
+
+import java.util.Arrays;
+
+/**
+ * This class implements an indexed priority queue for the integers 0 to
+ * capacity - 1 using a binary heap of primitives. Each integer is contained at
+ * most once and the key of a contained integer can be changed in O(log n).
+ */
+public class mxBinaryHeap
+{
+
+	/**
+	 * Holds the elements in heap order.
+	 */
+	protected int[] heap;
+
+	/**
+	 * Holds the position of each element in the heap or -1.
+	 */
+	protected int[] positions;
+
+	/**
+	 * Holds the key of each element.
+	 */
+	protected double[] keys;
+
+	/**
+	 * Holds the number of elements in the heap.
+	 */
+	protected int size;
+
+	/**
+	 * Constructs a new empty heap for the elements 0 to capacity - 1.
+	 */
+	public mxBinaryHeap(int capacity)
+	{
+		heap = new int[capacity];
+		positions = new int[capacity];
+		keys = new double[capacity];
+		Arrays.fill(positions, -1);
+	}
+
+	/**
+	 * Returns true if the heap is empty.
+	 */
+	public boolean isEmpty()
+	{
+		return size == 0;
+	}
+
+	/**
+	 * Returns the number of elements in the heap.
+	 */
+	public int size()
+	{
+		return size;
+	}
+
+	/**
+	 * Returns true if the given element is in the heap.
+	 */
+	public boolean contains(int element)
+	{
+		return positions[element] >= 0;
+	}
+
+	/**
+	 * Returns the key of the given element. The key of an element that has
+	 * been removed is the last key it had in the heap.
+	 */
+	public double getKey(int element)
+	{
+		return keys[element];
+	}
+
+	/**
+	 * Returns the smallest key in the heap. The heap must not be empty.
+	 */
+	public double getMinKey()
+	{
+		return keys[heap[0]];
+	}
+
+	/**
+	 * Inserts the given element with the given key or changes the key of the
+	 * element if it is already in the heap.
+	 */
+	public void update(int element, double key)
+	{
+		int pos = positions[element];
+
+		if (pos < 0)
+		{
+			pos = size++;
+			heap[pos] = element;
+			positions[element] = pos;
+			keys[element] = key;
+			up(pos);
+		}
+		else
+		{
+			double old = keys[element];
+			keys[element] = key;
+
+			if (key < old)
+			{
+				up(pos);
+			}
+			else
+			{
+				down(pos);
+			}
+		}
+	}
+
+	/**
+	 * Removes and returns the element with the smallest key. The heap must not
+	 * be empty.
+	 */
+	public int removeMin()
+	{
+		int min = heap[0];
+		positions[min] = -1;
+		size--;
+
+		if (size > 0)
+		{
+			heap[0] = heap[size];
+			positions[heap[0]] = 0;
+			down(0);
+		}
+
+		return min;
+	}
+
+	/**
+	 * Removes all elements.
+	 */
+	public void clear()
+	{
+		for (int i = 0; i < size; i++)
+		{
+			positions[heap[i]] = -1;
+		}
+
+		size = 0;
+	}
+
+	/**
+	 * Moves the element at the given position up until the heap order is
+	 * restored.
+	 */
+	protected void up(int pos)
+	{
+		int element = heap[pos];
+		double key = keys[element];
+
+		while (pos > 0)
+		{
+			int parent = (pos - 1) >>> 1;
+
+			if (keys[heap[parent]] <= key)
+			{
+				break;
+			}
+
+			heap[pos] = heap[parent];
+			positions[heap[pos]] = pos;
+			pos = parent;
+		}
+
+		heap[pos] = element;
+		positions[element] = pos;
+	}
+
+	/**
+	 * Moves the element at the given position down until the heap order is
+	 * restored.
+	 */
+	protected void down(int pos)
+	{
+		int element = heap[pos];
+		double key = keys[element];
+
+		while (true)
+		{
+			int child = 2 * pos + 1;
+
+			if (child >= size)
+			{
+				break;
+			}
+
+			if (child + 1 < size && keys[heap[child + 1]] < keys[heap[child]])
+			{
+				child++;
+			}
+
+			if (keys[heap[child]] >= key)
+			{
+				break;
+			}
+
+			heap[pos] = heap[child];
+			positions[heap[pos]] = pos;
+			pos = child;
+		}
+
+		heap[pos] = element;
+		positions[element] = pos;
+	}
+
+}
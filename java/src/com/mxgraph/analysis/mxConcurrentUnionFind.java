@@ -0,0 +1,267 @@
+/**
+ * Copyright (c) 2007-2017, JGraph Ltd
+ */
+package com.mxgraph.analysis;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Implements a union find structure for the integers 0 to size - 1 that can
+ * be used from multiple threads without locks. The parents are stored in an
+ * array and changed with compare-and-set operations. Find uses path
+ * compression by halving.
+ *
+ * Instead of the union by rank in mxUnionFind, which needs to update the rank
+ * and the parent of a set at the same time, the roots are linked by a random
+ * priority that is fixed when the structure is created. This gives the same
+ * expected find time of O(log N) without path compression and ensures that
+ * concurrent unions never create cycles, since a root is always linked to a
+ * root with a higher priority.
+ */
+public class mxConcurrentUnionFind
+{
+
+	/**
+	 * Defines the number of pairs per task for parallel unions. Default is
+	 * 4096.
+	 */
+	public static int GRAIN = 4096;
+
+	/**
+	 * Holds the parent of each element. Roots are their own parent.
+	 */
+	protected AtomicIntegerArray parents;
+
+	/**
+	 * Holds the priority of each element, which is a random permutation of
+	 * the elements.
+	 */
+	protected int[] priorities;
+
+	/**
+	 * Constructs a union find structure where each of the given number of
+	 * elements is in its own set.
+	 */
+	public mxConcurrentUnionFind(int size)
+	{
+		parents = new AtomicIntegerArray(size);
+		priorities = new int[size];
+		Random random = new Random();
+
+		for (int i = 0; i < size; i++)
+		{
+			parents.set(i, i);
+
+			// Shuffles the priorities while filling them in
+			int j = random.nextInt(i + 1);
+			priorities[i] = priorities[j];
+			priorities[j] = i;
+		}
+	}
+
+	/**
+	 * Returns the number of elements.
+	 */
+	public int size()
+	{
+		return priorities.length;
+	}
+
+	/**
+	 * Returns the root of the set that contains the given element. This
+	 * implementation provides path compression by halving.
+	 */
+	public int find(int element)
+	{
+		while (true)
+		{
+			int parent = parents.get(element);
+
+			if (parent == element)
+			{
+				return element;
+			}
+
+			int grandParent = parents.get(parent);
+
+			if (grandParent != parent)
+			{
+				// Fails if another thread has changed the parent
+				parents.compareAndSet(element, parent, grandParent);
+			}
+
+			element = grandParent;
+		}
+	}
+
+	/**
+	 * Unifies the sets that contain the given elements. Returns true if the
+	 * elements were in different sets, ie. if this call joined the sets.
+	 */
+	public boolean union(int a, int b)
+	{
+		while (true)
+		{
+			int rootA = find(a);
+			int rootB = find(b);
+
+			if (rootA == rootB)
+			{
+				return false;
+			}
+
+			// Links the root with the lower priority
+			if (priorities[rootA] > priorities[rootB])
+			{
+				int tmp = rootA;
+				rootA = rootB;
+				rootB = tmp;
+			}
+
+			if (parents.compareAndSet(rootA, rootA, rootB))
+			{
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * Returns true if the given elements are in the same set. If the sets
+	 * are unified at the same time then the result may be either value.
+	 */
+	public boolean sameSet(int a, int b)
+	{
+		while (true)
+		{
+			int rootA = find(a);
+			int rootB = find(b);
+
+			if (rootA == rootB)
+			{
+				return true;
+			}
+
+			// Repeats if rootA is no longer a root
+			if (parents.get(rootA) == rootA)
+			{
+				return false;
+			}
+		}
+	}
+
+	/**
+	 * Unifies the sets of a[i] and b[i] for all i. If a pool is specified
+	 * then the pairs are processed in parallel.
+	 *
+	 * @param a The first elements of the pairs.
+	 * @param b The second elements of the pairs.
+	 * @param pool Optional pool for processing the pairs in parallel.
+	 */
+	public void union(int[] a, int[] b, ForkJoinPool pool)
+	{
+		if (pool != null && a.length > GRAIN)
+		{
+			pool.invoke(new mxUnionTask(a, b, 0, a.length));
+		}
+		else
+		{
+			union(a, b, 0, a.length);
+		}
+	}
+
+	/**
+	 * Unifies the sets of a[i] and b[i] for the given range of i.
+	 */
+	protected void union(int[] a, int[] b, int from, int to)
+	{
+		for (int i = from; i < to; i++)
+		{
+			union(a[i], b[i]);
+		}
+	}
+
+	/**
+	 * Returns the number of sets. This should not be called while other
+	 * threads change the sets.
+	 */
+	public int getSetCount()
+	{
+		int count = 0;
+
+		for (int i = 0; i < priorities.length; i++)
+		{
+			if (parents.get(i) == i)
+			{
+				count++;
+			}
+		}
+
+		return count;
+	}
+
+	/**
+	 * Unifies the sets of a range of pairs by splitting the range until it
+	 * has at most GRAIN pairs.
+	 */
+	protected class mxUnionTask extends RecursiveAction
+	{
+
+		/**
+		 *
+		 */
+		private static final long serialVersionUID = -4723587314591390258L;
+
+		/**
+		 * Holds the first elements of the pairs.
+		 */
+		protected int[] a;
+
+		/**
+		 * Holds the second elements of the pairs.
+		 */
+		protected int[] b;
+
+		/**
+		 * Holds the first pair of the range.
+		 */
+		protected int from;
+
+		/**
+		 * Holds the pair after the last pair of the range.
+		 */
+		protected int to;
+
+		/**
+		 * Constructs a new task for the given range of pairs.
+		 */
+		public mxUnionTask(int[] a, int[] b, int from, int to)
+		{
+			this.a = a;
+			this.b = b;
+			this.from = from;
+			this.to = to;
+		}
+
+		/**
+		 * Unifies the sets of the pairs.
+		 */
+		protected void compute()
+		{
+			if (to - from <= GRAIN)
+			{
+				union(a, b, from, to);
+			}
+			else
+			{
+				int mid = (from + to) >>> 1;
+				invokeAll(new mxUnionTask(a, b, from, mid), new mxUnionTask(a,
+						b, mid, to));
+			}
+		}
+
+	}
+
+}
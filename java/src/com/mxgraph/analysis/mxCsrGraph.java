@@ -0,0 +1,522 @@
+/**
+ * Copyright (c) 2012-2017, JGraph Ltd
+ */
+package com.mxgraph.analysis;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.mxgraph.view.mxCellState;
+import com.mxgraph.view.mxGraph;
+import com.mxgraph.view.mxGraphView;
+
+/**
+ * Immutable snapshot of the structure of an mxAnalysisGraph in compressed
+ * sparse row format. The vertices and edges are numbered from 0 and the
+ * algorithms work on these numbers instead of calling mxGraph.getEdges and
+ * resolving the terminals for each step. The snapshot does not change if the
+ * graph is changed afterwards.
+ *
+ * The arcs leaving vertex v are offsets[v] to offsets[v + 1] - 1, where
+ * targets holds the opposite vertex and arcEdges holds the edge of each arc.
+ * In an undirected snapshot each edge has an arc for both terminals. In a
+ * directed snapshot each edge has one arc from its source and the incoming
+ * arcs are stored in inOffsets, inSources and inArcEdges. For undirected
+ * snapshots the incoming arrays are the outgoing arrays.
+ *
+ * The snapshot contains the child vertices of the default parent and the
+ * edges between them in the same order as mxAnalysisGraph.getEdges, so the
+ * traversals visit the vertices in the same order as the traversals of the
+ * graph. Loops and edges to cells outside of the vertices are ignored. The
+ * arrays are returned without copying and must not be changed.
+ *
+ * <pre>
+ * mxCsrGraph csr = new mxCsrGraph(aGraph);
+ * mxTraversal.bfs(csr, csr.getIndex(startVertex), visitor);
+ * </pre>
+ */
+public class mxCsrGraph
+{
+
+	/**
+	 * Holds the graph of the snapshot.
+	 */
+	protected mxGraph graph;
+
+	/**
+	 * Holds the vertices by index.
+	 */
+	protected Object[] vertices;
+
+	/**
+	 * Maps from vertices to their index.
+	 */
+	protected Map<Object, Integer> indices;
+
+	/**
+	 * Specifies if the edges are directed.
+	 */
+	protected boolean directed;
+
+	/**
+	 * Holds the edges by index.
+	 */
+	protected Object[] edges;
+
+	/**
+	 * Holds the source vertex of each edge.
+	 */
+	protected int[] edgeSources;
+
+	/**
+	 * Holds the target vertex of each edge.
+	 */
+	protected int[] edgeTargets;
+
+	/**
+	 * Holds the cost of each edge.
+	 */
+	protected double[] weights;
+
+	/**
+	 * Holds the center of the state of each vertex as x and y pairs.
+	 */
+	protected double[] centers;
+
+	/**
+	 * Holds the smallest ratio between the cost of an edge and the distance
+	 * between the centers of its terminals.
+	 */
+	protected double minimumCostRatio;
+
+	/**
+	 * Holds the offsets of the outgoing arcs of each vertex. The last entry is
+	 * the number of arcs.
+	 */
+	protected int[] offsets;
+
+	/**
+	 * Holds the target vertex of each outgoing arc.
+	 */
+	protected int[] targets;
+
+	/**
+	 * Holds the edge of each outgoing arc.
+	 */
+	protected int[] arcEdges;
+
+	/**
+	 * Holds the offsets of the incoming arcs of each vertex.
+	 */
+	protected int[] inOffsets;
+
+	/**
+	 * Holds the source vertex of each incoming arc.
+	 */
+	protected int[] inSources;
+
+	/**
+	 * Holds the edge of each incoming arc.
+	 */
+	protected int[] inArcEdges;
+
+	/**
+	 * Constructs a snapshot of the given graph using the directed property and
+	 * the cost function of the generator of the graph.
+	 */
+	public mxCsrGraph(mxAnalysisGraph aGraph)
+	{
+		this(aGraph, mxGraphProperties.isDirected(aGraph.getProperties(),
+				mxGraphProperties.DEFAULT_DIRECTED), aGraph.getGenerator()
+				.getCostFunction());
+	}
+
+	/**
+	 * Constructs a snapshot of the given graph. The cost function is called
+	 * with the state of each edge in the view. If the cost function is null
+	 * then all edges have a cost of 1.
+	 *
+	 * @param aGraph Graph to take the snapshot of.
+	 * @param directed Specifies if the edges should be directed.
+	 * @param costFunction Optional cost function for the weights.
+	 */
+	public mxCsrGraph(mxAnalysisGraph aGraph, boolean directed,
+			mxICostFunction costFunction)
+	{
+		this.directed = directed;
+		graph = aGraph.getGraph();
+		mxGraphView view = graph.getView();
+		vertices = aGraph.getChildVertices(graph.getDefaultParent());
+		int vertexCount = vertices.length;
+		indices = new HashMap<Object, Integer>(vertexCount * 2);
+
+		for (int i = 0; i < vertexCount; i++)
+		{
+			indices.put(vertices[i], i);
+		}
+
+		// Collects the edges and arcs in the order of getEdges
+		Map<Object, Integer> edgeIndices = new HashMap<Object, Integer>();
+		Object[][] connected = new Object[vertexCount][];
+		int[][] opposites = new int[vertexCount][];
+		boolean[][] outgoing = new boolean[vertexCount][];
+		int edgeCount = 0;
+		int outCount = 0;
+		int inCount = 0;
+
+		for (int v = 0; v < vertexCount; v++)
+		{
+			Object[] cells = aGraph.getEdges(vertices[v], null, true, true,
+					false, true);
+			connected[v] = cells;
+			opposites[v] = new int[cells.length];
+			outgoing[v] = new boolean[cells.length];
+
+			for (int i = 0; i < cells.length; i++)
+			{
+				mxCellState state = view.getState(cells[i]);
+				Object source = (state != null) ? state.getVisibleTerminal(true)
+						: view.getVisibleTerminal(cells[i], true);
+				Object target = (state != null) ? state
+						.getVisibleTerminal(false) : view.getVisibleTerminal(
+						cells[i], false);
+				boolean out = source == vertices[v];
+				Integer opposite = indices.get((out) ? target : source);
+
+				if (opposite == null || opposite == v)
+				{
+					opposites[v][i] = -1;
+				}
+				else
+				{
+					opposites[v][i] = opposite;
+					outgoing[v][i] = out;
+
+					if (!edgeIndices.containsKey(cells[i]))
+					{
+						edgeIndices.put(cells[i], edgeCount++);
+					}
+
+					if (out || !directed)
+					{
+						outCount++;
+					}
+
+					if (!out)
+					{
+						inCount++;
+					}
+				}
+			}
+		}
+
+		edges = new Object[edgeCount];
+		edgeSources = new int[edgeCount];
+		edgeTargets = new int[edgeCount];
+		weights = new double[edgeCount];
+		offsets = new int[vertexCount + 1];
+		targets = new int[outCount];
+		arcEdges = new int[outCount];
+
+		if (directed)
+		{
+			inOffsets = new int[vertexCount + 1];
+			inSources = new int[inCount];
+			inArcEdges = new int[inCount];
+		}
+		else
+		{
+			inOffsets = offsets;
+			inSources = targets;
+			inArcEdges = arcEdges;
+		}
+
+		int outArc = 0;
+		int inArc = 0;
+
+		for (int v = 0; v < vertexCount; v++)
+		{
+			offsets[v] = outArc;
+
+			if (directed)
+			{
+				inOffsets[v] = inArc;
+			}
+
+			for (int i = 0; i < connected[v].length; i++)
+			{
+				int opposite = opposites[v][i];
+
+				if (opposite >= 0)
+				{
+					int e = edgeIndices.get(connected[v][i]);
+					boolean out = outgoing[v][i];
+
+					if (out)
+					{
+						edges[e] = connected[v][i];
+						edgeSources[e] = v;
+						edgeTargets[e] = opposite;
+					}
+
+					if (out || !directed)
+					{
+						targets[outArc] = opposite;
+						arcEdges[outArc++] = e;
+					}
+					else
+					{
+						inSources[inArc] = opposite;
+						inArcEdges[inArc++] = e;
+					}
+				}
+			}
+		}
+
+		offsets[vertexCount] = outArc;
+
+		if (directed)
+		{
+			inOffsets[vertexCount] = inArc;
+		}
+
+		for (int e = 0; e < edgeCount; e++)
+		{
+			if (costFunction != null)
+			{
+				mxCellState state = view.getState(edges[e]);
+
+				// Uses a new state if the edge has not been validated
+				weights[e] = costFunction.getCost((state != null) ? state
+						: new mxCellState(view, edges[e], null));
+			}
+			else
+			{
+				weights[e] = 1;
+			}
+		}
+
+		centers = new double[2 * vertexCount];
+		minimumCostRatio = Double.POSITIVE_INFINITY;
+
+		for (int v = 0; v < vertexCount; v++)
+		{
+			mxCellState state = view.getState(vertices[v]);
+
+			if (state == null)
+			{
+				// Distances are unknown without states
+				minimumCostRatio = 0;
+				break;
+			}
+
+			centers[2 * v] = state.getCenterX();
+			centers[2 * v + 1] = state.getCenterY();
+		}
+
+		for (int e = 0; e < edgeCount && minimumCostRatio > 0; e++)
+		{
+			double distance = getCenterDistance(edgeSources[e], edgeTargets[e]);
+
+			if (distance > 0)
+			{
+				minimumCostRatio = Math.min(minimumCostRatio, weights[e]
+						/ distance);
+			}
+		}
+
+		if (minimumCostRatio == Double.POSITIVE_INFINITY)
+		{
+			minimumCostRatio = 0;
+		}
+	};
+
+	/**
+	 * Returns the graph of the snapshot.
+	 */
+	public mxGraph getGraph()
+	{
+		return graph;
+	};
+
+	/**
+	 * Returns true if the edges are directed.
+	 */
+	public boolean isDirected()
+	{
+		return directed;
+	};
+
+	/**
+	 * Returns the number of vertices.
+	 */
+	public int getVertexCount()
+	{
+		return vertices.length;
+	};
+
+	/**
+	 * Returns the number of edges.
+	 */
+	public int getEdgeCount()
+	{
+		return edges.length;
+	};
+
+	/**
+	 * Returns the vertex for the given index.
+	 */
+	public Object getVertex(int index)
+	{
+		return vertices[index];
+	};
+
+	/**
+	 * Returns the index of the given vertex or -1 if the vertex is not in the
+	 * snapshot.
+	 */
+	public int getIndex(Object vertex)
+	{
+		Integer index = indices.get(vertex);
+
+		return (index != null) ? index : -1;
+	};
+
+	/**
+	 * Returns the vertices by index.
+	 */
+	public Object[] getVertices()
+	{
+		return vertices;
+	};
+
+	/**
+	 * Returns the edge for the given index.
+	 */
+	public Object getEdge(int index)
+	{
+		return edges[index];
+	};
+
+	/**
+	 * Returns the edges by index.
+	 */
+	public Object[] getEdges()
+	{
+		return edges;
+	};
+
+	/**
+	 * Returns the source vertex of each edge.
+	 */
+	public int[] getEdgeSources()
+	{
+		return edgeSources;
+	};
+
+	/**
+	 * Returns the target vertex of each edge.
+	 */
+	public int[] getEdgeTargets()
+	{
+		return edgeTargets;
+	};
+
+	/**
+	 * Returns the cost of each edge.
+	 */
+	public double[] getWeights()
+	{
+		return weights;
+	};
+
+	/**
+	 * Returns the distance between the centers of the states of the given
+	 * vertices at the time the snapshot was taken.
+	 */
+	public double getCenterDistance(int source, int target)
+	{
+		double dx = centers[2 * source] - centers[2 * target];
+		double dy = centers[2 * source + 1] - centers[2 * target + 1];
+
+		return Math.sqrt(dx * dx + dy * dy);
+	};
+
+	/**
+	 * Returns the largest factor f such that the cost of each edge is at least
+	 * f times the distance between the centers of its terminals. The factor
+	 * is 0 if an edge has no cost or if a vertex has no state. Since the
+	 * distance satisfies the triangle inequality, f times the distance from
+	 * a vertex to another vertex never exceeds the cost of a path between
+	 * them, whichever cost function was used.
+	 */
+	public double getMinimumCostRatio()
+	{
+		return minimumCostRatio;
+	};
+
+	/**
+	 * Returns the offsets of the outgoing arcs of each vertex.
+	 */
+	public int[] getOffsets()
+	{
+		return offsets;
+	};
+
+	/**
+	 * Returns the target vertex of each outgoing arc.
+	 */
+	public int[] getTargets()
+	{
+		return targets;
+	};
+
+	/**
+	 * Returns the edge of each outgoing arc.
+	 */
+	public int[] getArcEdges()
+	{
+		return arcEdges;
+	};
+
+	/**
+	 * Returns the offsets of the incoming arcs of each vertex.
+	 */
+	public int[] getInOffsets()
+	{
+		return inOffsets;
+	};
+
+	/**
+	 * Returns the source vertex of each incoming arc.
+	 */
+	public int[] getInSources()
+	{
+		return inSources;
+	};
+
+	/**
+	 * Returns the edge of each incoming arc.
+	 */
+	public int[] getInArcEdges()
+	{
+		return inArcEdges;
+	};
+
+	/**
+	 * Returns the number of outgoing arcs of the given vertex.
+	 */
+	public int getOutDegree(int vertex)
+	{
+		return offsets[vertex + 1] - offsets[vertex];
+	};
+
+	/**
+	 * Returns the number of incoming arcs of the given vertex.
+	 */
+	public int getInDegree(int vertex)
+	{
+		return inOffsets[vertex + 1] - inOffsets[vertex];
+	};
+
+};
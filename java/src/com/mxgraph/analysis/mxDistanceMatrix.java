@@ -0,0 +1,171 @@
+/**
+ * Copyright (c) 2012-2017, JGraph Ltd
+ */
+package com.mxgraph.analysis;
+
+/**
+ * Holds the shortest distances between all pairs of vertices of an
+ * mxCsrGraph and the next vertex on each shortest path, as computed by
+ * mxTraversal.floydRoyWarshall. The matrices are stored row by row in flat
+ * arrays, ie. the distance from vertex i to vertex j is distances[i * n + j]
+ * where n is the number of vertices. Unreachable vertices have a distance of
+ * Double.POSITIVE_INFINITY and a next vertex of -1.
+ */
+public class mxDistanceMatrix
+{
+
+	/**
+	 * Holds the snapshot of the graph.
+	 */
+	protected mxCsrGraph csr;
+
+	/**
+	 * Holds the number of vertices.
+	 */
+	protected int n;
+
+	/**
+	 * Holds the distances row by row.
+	 */
+	protected double[] distances;
+
+	/**
+	 * Holds the index of the next vertex on the shortest paths row by row.
+	 */
+	protected int[] next;
+
+	/**
+	 * Constructs a new matrix for the given snapshot and arrays.
+	 */
+	public mxDistanceMatrix(mxCsrGraph csr, double[] distances, int[] next)
+	{
+		this.csr = csr;
+		this.n = csr.getVertexCount();
+		this.distances = distances;
+		this.next = next;
+	};
+
+	/**
+	 * Returns the snapshot of the graph.
+	 */
+	public mxCsrGraph getCsrGraph()
+	{
+		return csr;
+	};
+
+	/**
+	 * Returns the number of vertices.
+	 */
+	public int getVertexCount()
+	{
+		return n;
+	};
+
+	/**
+	 * Returns the distances row by row.
+	 */
+	public double[] getDistances()
+	{
+		return distances;
+	};
+
+	/**
+	 * Returns the index of the next vertex on the shortest paths row by row.
+	 */
+	public int[] getNext()
+	{
+		return next;
+	};
+
+	/**
+	 * Returns the distance between the vertices with the given indices.
+	 */
+	public double getDistance(int source, int target)
+	{
+		return distances[source * n + target];
+	};
+
+	/**
+	 * Returns the distance between the given vertices. Vertices that are not
+	 * in the snapshot are not reachable.
+	 */
+	public double getDistance(Object source, Object target)
+	{
+		int s = csr.getIndex(source);
+		int t = csr.getIndex(target);
+
+		return (s >= 0 && t >= 0) ? getDistance(s, t) : Double.POSITIVE_INFINITY;
+	};
+
+	/**
+	 * Returns the index of the vertex after the given source on the shortest
+	 * path to the given target or -1 if the target is not reachable.
+	 */
+	public int getNext(int source, int target)
+	{
+		return next[source * n + target];
+	};
+
+	/**
+	 * Returns true if the target is reachable from the source.
+	 */
+	public boolean isReachable(int source, int target)
+	{
+		return next[source * n + target] >= 0;
+	};
+
+	/**
+	 * Returns the indices of the vertices on the shortest path including the
+	 * source and target or null if the target is not reachable.
+	 */
+	public int[] getPath(int source, int target)
+	{
+		if (!isReachable(source, target))
+		{
+			return null;
+		}
+
+		int length = 1;
+
+		for (int v = source; v != target; v = getNext(v, target))
+		{
+			length++;
+		}
+
+		int[] path = new int[length];
+		path[0] = source;
+
+		for (int i = 1; i < length; i++)
+		{
+			path[i] = getNext(path[i - 1], target);
+		}
+
+		return path;
+	};
+
+	/**
+	 * Returns the vertices on the shortest path including the source and
+	 * target or null if the target is not reachable.
+	 */
+	public Object[] getPath(Object source, Object target)
+	{
+		int s = csr.getIndex(source);
+		int t = csr.getIndex(target);
+		int[] path = (s >= 0 && t >= 0) ? getPath(s, t) : null;
+
+		if (path == null)
+		{
+			return null;
+		}
+
+		Object[] result = new Object[path.length];
+
+		for (int i = 0; i < path.length; i++)
+		{
+			result[i] = csr.getVertex(path[i]);
+		}
+
+		return result;
+	};
+
+};
@@ -16,6 +16,10 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.Hashtable;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 
 import com.mxgraph.view.mxCellState;
 import com.mxgraph.view.mxGraph;
@@ -37,6 +41,13 @@ import com.mxgraph.view.mxGraphView;
  * selected cell in a graph use the following code: <br>
  * <br>
  * <code>Object[] path = mga.getShortestPath(graph, from, to, cf, v.length, true);</code>
+ * <br>
+ * <br>
+ * For repeated queries on large graphs create a snapshot once and use the
+ * binary heap, A* or bidirectional search: <br>
+ * <br>
+ * <code>mxCsrGraph csr = mga.createCsrGraph(graph, cf, true);<br>
+ * Object[] path = mga.getShortestPathBidirectional(csr, from, to);</code>
  * 
  * <h3>Minimum Spanning Tree</h3>
  * 
@@ -46,6 +57,8 @@ import com.mxgraph.view.mxGraphView;
  * <code>mga.getMinimumSpanningTree(graph, v, cf, true))</code>
  * <h5>Kruskal</h5>
  * <code>mga.getMinimumSpanningTree(graph, v, e, cf))</code>
+ * <h5>Boruvka</h5>
+ * <code>mga.getMinimumSpanningForest(mga.createCsrGraph(graph, cf, false), pool))</code>
  * 
  * <h3>Connection Components</h3>
  * 
@@ -205,6 +218,286 @@ public class mxGraphAnalysis
 		return list.toArray();
 	}
 
+	/**
+	 * Returns a snapshot of the child vertices of the default parent of the
+	 * given graph and the edges between them for the shortest path methods
+	 * that take an mxCsrGraph. The snapshot can be used for any number of
+	 * queries as long as the graph does not change.
+	 * 
+	 * @param graph The object that defines the graph structure
+	 * @param cf The cost function that defines the edge length.
+	 * @param directed If edge directions should be taken into account.
+	 * @return Returns the snapshot of the graph.
+	 */
+	public mxCsrGraph createCsrGraph(mxGraph graph, mxICostFunction cf,
+			boolean directed)
+	{
+		mxAnalysisGraph aGraph = new mxAnalysisGraph();
+		aGraph.setGraph(graph);
+
+		return new mxCsrGraph(aGraph, directed, cf);
+	}
+
+	/**
+	 * Returns the shortest path between two vertices of the given snapshot
+	 * using the Dijkstra algorithm with an indexed binary heap. The costs of
+	 * the edges must not be negative.
+	 * 
+	 * @param csr The snapshot of the graph.
+	 * @param from The source vertex.
+	 * @param to The target vertex.
+	 * @return Returns the shortest path as an alternating array of vertices
+	 * and edges, starting with <code>from</code> and ending with
+	 * <code>to</code>, or an empty array if there is no path.
+	 * 
+	 * @see #createCsrGraph(mxGraph, mxICostFunction, boolean)
+	 */
+	public Object[] getShortestPath(mxCsrGraph csr, Object from, Object to)
+	{
+		return search(csr, from, to, false);
+	}
+
+	/**
+	 * Returns the shortest path between two vertices of the given snapshot
+	 * using the A* algorithm with the scaled Euclidean distance between the
+	 * vertex centers as the heuristic (see getHeuristic). The distance is
+	 * scaled by mxCsrGraph.getMinimumCostRatio, so the heuristic is
+	 * consistent for any cost function, including mxDistanceCostFunction,
+	 * which measures edges between the perimeters of their terminals. The
+	 * result therefore has the same cost as for getShortestPath, and fewer
+	 * vertices are visited if the costs are close to the distances. If the
+	 * ratio is 0 this is the same as getShortestPath.
+	 * 
+	 * @param csr The snapshot of the graph.
+	 * @param from The source vertex.
+	 * @param to The target vertex.
+	 * @return Returns the shortest path as an alternating array of vertices
+	 * and edges, starting with <code>from</code> and ending with
+	 * <code>to</code>, or an empty array if there is no path.
+	 */
+	public Object[] getShortestPathAStar(mxCsrGraph csr, Object from,
+			Object to)
+	{
+		return search(csr, from, to, true);
+	}
+
+	/**
+	 * Returns the shortest path between two vertices of the given snapshot
+	 * using a Dijkstra search from both vertices that stops when the
+	 * searches meet. The costs of the edges must not be negative.
+	 * 
+	 * @param csr The snapshot of the graph.
+	 * @param from The source vertex.
+	 * @param to The target vertex.
+	 * @return Returns the shortest path as an alternating array of vertices
+	 * and edges, starting with <code>from</code> and ending with
+	 * <code>to</code>, or an empty array if there is no path.
+	 */
+	public Object[] getShortestPathBidirectional(mxCsrGraph csr, Object from,
+			Object to)
+	{
+		int source = csr.getIndex(from);
+		int target = csr.getIndex(to);
+
+		if (source < 0 || target < 0 || source == target)
+		{
+			return new Object[0];
+		}
+
+		int n = csr.getVertexCount();
+		double[] weights = csr.getWeights();
+		double[] forward = new double[n];
+		double[] backward = new double[n];
+		int[] forwardPred = new int[n];
+		int[] backwardPred = new int[n];
+		Arrays.fill(forward, Double.POSITIVE_INFINITY);
+		Arrays.fill(backward, Double.POSITIVE_INFINITY);
+		Arrays.fill(forwardPred, -1);
+		Arrays.fill(backwardPred, -1);
+
+		mxBinaryHeap forwardQueue = new mxBinaryHeap(n);
+		mxBinaryHeap backwardQueue = new mxBinaryHeap(n);
+		forward[source] = 0;
+		backward[target] = 0;
+		forwardQueue.update(source, 0);
+		backwardQueue.update(target, 0);
+
+		// Length and middle vertex of the shortest path found so far
+		double best = Double.POSITIVE_INFINITY;
+		int middle = -1;
+
+		while (!forwardQueue.isEmpty() && !backwardQueue.isEmpty()
+				&& forwardQueue.getMinKey() + backwardQueue.getMinKey() < best)
+		{
+			// Expands the search with the smaller queue
+			boolean isForward = forwardQueue.size() <= backwardQueue.size();
+			mxBinaryHeap queue = (isForward) ? forwardQueue : backwardQueue;
+			double[] dist = (isForward) ? forward : backward;
+			double[] other = (isForward) ? backward : forward;
+			int[] pred = (isForward) ? forwardPred : backwardPred;
+			int[] offsets = (isForward) ? csr.getOffsets() : csr
+					.getInOffsets();
+			int[] opposites = (isForward) ? csr.getTargets() : csr
+					.getInSources();
+			int[] arcEdges = (isForward) ? csr.getArcEdges() : csr
+					.getInArcEdges();
+			int v = queue.removeMin();
+
+			for (int arc = offsets[v]; arc < offsets[v + 1]; arc++)
+			{
+				int w = opposites[arc];
+				double d = dist[v] + weights[arcEdges[arc]];
+
+				if (d < dist[w])
+				{
+					dist[w] = d;
+					pred[w] = arcEdges[arc];
+					queue.update(w, d);
+				}
+
+				if (dist[w] + other[w] < best)
+				{
+					best = dist[w] + other[w];
+					middle = w;
+				}
+			}
+		}
+
+		if (middle < 0)
+		{
+			return new Object[0];
+		}
+
+		// Joins the path to the middle vertex and the path from there
+		Object[] head = createPath(csr, source, middle, forwardPred);
+		Object[] tail = createPath(csr, target, middle, backwardPred);
+		Object[] result = new Object[head.length + tail.length - 1];
+		System.arraycopy(head, 0, result, 0, head.length);
+
+		for (int i = 1; i < tail.length; i++)
+		{
+			result[head.length + i - 1] = tail[tail.length - 1 - i];
+		}
+
+		return result;
+	}
+
+	/**
+	 * Implements the Dijkstra algorithm and the A* algorithm on the given
+	 * snapshot.
+	 */
+	protected Object[] search(mxCsrGraph csr, Object from, Object to,
+			boolean heuristic)
+	{
+		int source = csr.getIndex(from);
+		int target = csr.getIndex(to);
+
+		if (source < 0 || target < 0 || source == target)
+		{
+			return new Object[0];
+		}
+
+		int n = csr.getVertexCount();
+		int[] offsets = csr.getOffsets();
+		int[] targets = csr.getTargets();
+		int[] arcEdges = csr.getArcEdges();
+		double[] weights = csr.getWeights();
+		double[] dist = new double[n];
+		double[] estimates = null;
+		int[] pred = new int[n];
+		Arrays.fill(dist, Double.POSITIVE_INFINITY);
+		Arrays.fill(pred, -1);
+
+		// Estimates are computed when a vertex is first reached
+		if (heuristic && csr.getMinimumCostRatio() > 0)
+		{
+			estimates = new double[n];
+			Arrays.fill(estimates, -1);
+		}
+
+		mxBinaryHeap queue = new mxBinaryHeap(n);
+		dist[source] = 0;
+		queue.update(source, 0);
+
+		while (!queue.isEmpty())
+		{
+			int v = queue.removeMin();
+
+			if (v == target)
+			{
+				break;
+			}
+
+			for (int arc = offsets[v]; arc < offsets[v + 1]; arc++)
+			{
+				int w = targets[arc];
+				double d = dist[v] + weights[arcEdges[arc]];
+
+				if (d < dist[w])
+				{
+					dist[w] = d;
+					pred[w] = arcEdges[arc];
+
+					if (estimates != null && estimates[w] < 0)
+					{
+						estimates[w] = getHeuristic(csr, w, target);
+					}
+
+					queue.update(w, (estimates != null) ? d + estimates[w] : d);
+				}
+			}
+		}
+
+		return (pred[target] >= 0) ? createPath(csr, source, target, pred)
+				: new Object[0];
+	}
+
+	/**
+	 * Returns the estimated cost of the shortest path from the given vertex to
+	 * the given target vertex for getShortestPathAStar. This implementation
+	 * returns the distance between the centers of the vertices times
+	 * mxCsrGraph.getMinimumCostRatio. Subclassers can override this, but the
+	 * result must be consistent, ie. the estimate for a vertex must not exceed
+	 * the cost of an edge to a neighbour plus the estimate for the neighbour,
+	 * and the estimate for the target must be 0.
+	 * 
+	 * @param csr The snapshot of the graph.
+	 * @param vertex The index of the current vertex.
+	 * @param target The index of the target vertex.
+	 * @return Returns the estimated cost.
+	 */
+	protected double getHeuristic(mxCsrGraph csr, int vertex, int target)
+	{
+		return csr.getMinimumCostRatio() * csr.getCenterDistance(vertex, target);
+	}
+
+	/**
+	 * Returns the path from the given source to the given target as an
+	 * alternating array of vertices and edges using the given predecessor
+	 * edges.
+	 */
+	protected Object[] createPath(mxCsrGraph csr, int source, int target,
+			int[] pred)
+	{
+		int[] edgeSources = csr.getEdgeSources();
+		int[] edgeTargets = csr.getEdgeTargets();
+		ArrayList<Object> list = new ArrayList<Object>();
+		int v = target;
+		list.add(csr.getVertex(v));
+
+		while (v != source)
+		{
+			int e = pred[v];
+			v = (edgeTargets[e] == v) ? edgeSources[e] : edgeTargets[e];
+			list.add(csr.getEdge(e));
+			list.add(csr.getVertex(v));
+		}
+
+		Collections.reverse(list);
+
+		return list.toArray();
+	}
+
 	/**
 	 * Returns the minimum spanning tree (MST) for the graph defined by G=(E,V).
 	 * The MST is defined as the set of all vertices with minimal lengths that
@@ -350,6 +643,99 @@ public class mxGraphAnalysis
 		return result.toArray();
 	}
 
+	/**
+	 * Returns the minimum spanning forest of the given snapshot regardless of
+	 * edge direction, ie. a minimum spanning tree for each connected
+	 * component. This implementation is based on the algorithm by Boruvka,
+	 * which adds the cheapest edge that leaves each component in each round
+	 * and needs O(log V) rounds. The components are kept in a concurrent
+	 * union find, so that if a pool is specified then the edges and
+	 * components of each round are processed in parallel. Edges with the
+	 * same cost are ordered by their index in the snapshot, so that the
+	 * result is the same with and without a pool.
+	 * 
+	 * @param csr The snapshot of the graph.
+	 * @param pool Optional pool for processing each round in parallel.
+	 * @return Returns the edges of the minimum spanning forest in the order
+	 * of the snapshot.
+	 * 
+	 * @see #createCsrGraph(mxGraph, mxICostFunction, boolean)
+	 */
+	public Object[] getMinimumSpanningForest(mxCsrGraph csr, ForkJoinPool pool)
+	{
+		int n = csr.getVertexCount();
+		int m = csr.getEdgeCount();
+		mxConcurrentUnionFind uf = createConcurrentUnionFind(n);
+		AtomicIntegerArray cheapest = new AtomicIntegerArray(n);
+		boolean[] forest = new boolean[m];
+		AtomicInteger added = new AtomicInteger();
+		int count = 0;
+
+		do
+		{
+			for (int i = 0; i < n; i++)
+			{
+				cheapest.set(i, -1);
+			}
+
+			added.set(0);
+			mxBoruvkaTask select = new mxBoruvkaTask(csr, uf, cheapest,
+					forest, added, true, 0, m);
+			mxBoruvkaTask join = new mxBoruvkaTask(csr, uf, cheapest, forest,
+					added, false, 0, n);
+
+			if (pool != null)
+			{
+				pool.invoke(select);
+				pool.invoke(join);
+			}
+			else
+			{
+				select.run(0, m);
+				join.run(0, n);
+			}
+
+			count += added.get();
+		}
+		while (added.get() > 0);
+
+		Object[] result = new Object[count];
+		int k = 0;
+
+		for (int i = 0; i < m; i++)
+		{
+			if (forest[i])
+			{
+				result[k++] = csr.getEdge(i);
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Returns a concurrent union find structure representing the connection
+	 * components of the given snapshot regardless of edge direction. If a
+	 * pool is specified then the edges are processed in parallel. The
+	 * elements of the union find are the indices of the vertices in the
+	 * snapshot.
+	 * 
+	 * @param csr The snapshot of the graph.
+	 * @param pool Optional pool for processing the edges in parallel.
+	 * @return Returns the connection components of the snapshot.
+	 * 
+	 * @see #createConcurrentUnionFind(int)
+	 */
+	public mxConcurrentUnionFind getConnectionComponents(mxCsrGraph csr,
+			ForkJoinPool pool)
+	{
+		mxConcurrentUnionFind uf = createConcurrentUnionFind(csr
+				.getVertexCount());
+		uf.union(csr.getEdgeSources(), csr.getEdgeTargets(), pool);
+
+		return uf;
+	}
+
 	/**
 	 * Returns a union find structure representing the connection components of
 	 * G=(E,V).
@@ -413,7 +799,7 @@ public class mxGraphAnalysis
 
 		});
 
-		return (mxCellState[]) result.toArray();
+		return result.toArray(new mxCellState[result.size()]);
 	}
 
 	/**
@@ -460,4 +846,173 @@ public class mxGraphAnalysis
 		return new mxFibonacciHeap();
 	}
 
+	/**
+	 * Hook for subclassers to provide a custom concurrent union find
+	 * structure.
+	 * 
+	 * @param size Number of elements.
+	 * @return Returns a concurrent union find structure for
+	 * <code>size</code> elements.
+	 */
+	protected mxConcurrentUnionFind createConcurrentUnionFind(int size)
+	{
+		return new mxConcurrentUnionFind(size);
+	}
+
+	/**
+	 * Runs one phase of a round of getMinimumSpanningForest for a range of
+	 * edges or components by splitting the range until it has at most
+	 * mxConcurrentUnionFind.GRAIN elements. The first phase stores the
+	 * cheapest edge that leaves each component and the second phase joins
+	 * each component with the component at the other end of its cheapest
+	 * edge.
+	 */
+	protected static class mxBoruvkaTask extends RecursiveAction
+	{
+
+		/**
+		 * 
+		 */
+		private static final long serialVersionUID = 2906132415789164522L;
+
+		/**
+		 * Holds the snapshot.
+		 */
+		protected mxCsrGraph csr;
+
+		/**
+		 * Holds the components.
+		 */
+		protected mxConcurrentUnionFind uf;
+
+		/**
+		 * Holds the cheapest edge that leaves each component or -1.
+		 */
+		protected AtomicIntegerArray cheapest;
+
+		/**
+		 * Specifies which edges are in the forest.
+		 */
+		protected boolean[] forest;
+
+		/**
+		 * Counts the edges that are added in this round.
+		 */
+		protected AtomicInteger added;
+
+		/**
+		 * Specifies if this task selects the cheapest edges or joins the
+		 * components.
+		 */
+		protected boolean select;
+
+		/**
+		 * Holds the first element of the range.
+		 */
+		protected int from;
+
+		/**
+		 * Holds the element after the last element of the range.
+		 */
+		protected int to;
+
+		/**
+		 * Constructs a new task for the given phase and range.
+		 */
+		public mxBoruvkaTask(mxCsrGraph csr, mxConcurrentUnionFind uf,
+				AtomicIntegerArray cheapest, boolean[] forest,
+				AtomicInteger added, boolean select, int from, int to)
+		{
+			this.csr = csr;
+			this.uf = uf;
+			this.cheapest = cheapest;
+			this.forest = forest;
+			this.added = added;
+			this.select = select;
+			this.from = from;
+			this.to = to;
+		}
+
+		/**
+		 * Runs the phase for the range.
+		 */
+		protected void compute()
+		{
+			if (to - from <= mxConcurrentUnionFind.GRAIN)
+			{
+				run(from, to);
+			}
+			else
+			{
+				int mid = (from + to) >>> 1;
+				invokeAll(new mxBoruvkaTask(csr, uf, cheapest, forest, added,
+						select, from, mid), new mxBoruvkaTask(csr, uf,
+						cheapest, forest, added, select, mid, to));
+			}
+		}
+
+		/**
+		 * Runs the phase for the given range in the current thread.
+		 */
+		public void run(int start, int end)
+		{
+			int[] sources = csr.getEdgeSources();
+			int[] targets = csr.getEdgeTargets();
+
+			for (int i = start; i < end; i++)
+			{
+				if (select)
+				{
+					int a = uf.find(sources[i]);
+					int b = uf.find(targets[i]);
+
+					if (a != b)
+					{
+						offer(a, i);
+						offer(b, i);
+					}
+				}
+				else
+				{
+					int edge = cheapest.get(i);
+
+					// Only one of the two components of an edge joins them
+					if (edge >= 0 && uf.union(sources[edge], targets[edge]))
+					{
+						forest[edge] = true;
+						added.incrementAndGet();
+					}
+				}
+			}
+		}
+
+		/**
+		 * Stores the given edge as the cheapest edge of the given component
+		 * if it is cheaper than the current edge.
+		 */
+		protected void offer(int component, int edge)
+		{
+			double[] weights = csr.getWeights();
+
+			while (true)
+			{
+				int current = cheapest.get(component);
+
+				// Orders edges with the same cost by index
+				if (current >= 0
+						&& (weights[current] < weights[edge] || (weights[current] == weights[edge]
+								&& current < edge)))
+				{
+					return;
+				}
+
+				if (cheapest.compareAndSet(component, current, edge))
+				{
+					return;
+				}
+			}
+		}
+
+	}
+
 }
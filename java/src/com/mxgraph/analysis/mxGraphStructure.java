@@ -8,6 +8,7 @@ import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 
 import com.mxgraph.costfunction.mxCostFunction;
 import com.mxgraph.model.mxCell;
@@ -103,6 +104,84 @@ public class mxGraphStructure
 		}
 	};
 
+	/**
+	 * Returns true if the given snapshot is connected regardless of edge
+	 * direction.
+	 * @param csr the snapshot of the graph
+	 * @return true if every vertex can be reached from every other vertex
+	 */
+	public static boolean isConnected(mxCsrGraph csr)
+	{
+		int vertexNum = csr.getVertexCount();
+
+		if (vertexNum == 0)
+		{
+			throw new IllegalArgumentException();
+		}
+
+		return getComponents(csr, new int[vertexNum], new int[vertexNum]) == 1;
+	};
+
+	/**
+	 * Stores the component of each vertex of the given snapshot regardless of
+	 * edge direction and the vertices in breadth first order of the
+	 * components - for internal use
+	 * @param csr
+	 * @param component
+	 * @param order
+	 * @return the number of components
+	 */
+	private static int getComponents(mxCsrGraph csr, int[] component, int[] order)
+	{
+		int[] offsets = csr.getOffsets();
+		int[] targets = csr.getTargets();
+		int[] inOffsets = csr.getInOffsets();
+		int[] inSources = csr.getInSources();
+		boolean directed = csr.isDirected();
+		int vertexNum = csr.getVertexCount();
+		int componentCount = 0;
+		int head = 0;
+		int tail = 0;
+
+		Arrays.fill(component, -1);
+
+		for (int i = 0; i < vertexNum; i++)
+		{
+			if (component[i] < 0)
+			{
+				component[i] = componentCount;
+				order[tail++] = i;
+
+				while (head < tail)
+				{
+					int v = order[head++];
+
+					for (int arc = offsets[v]; arc < offsets[v + 1]; arc++)
+					{
+						if (component[targets[arc]] < 0)
+						{
+							component[targets[arc]] = componentCount;
+							order[tail++] = targets[arc];
+						}
+					}
+
+					for (int arc = inOffsets[v]; directed && arc < inOffsets[v + 1]; arc++)
+					{
+						if (component[inSources[arc]] < 0)
+						{
+							component[inSources[arc]] = componentCount;
+							order[tail++] = inSources[arc];
+						}
+					}
+				}
+
+				componentCount++;
+			}
+		}
+
+		return componentCount;
+	};
+
 	/**
 	 * @param aGraph
 	 * @param parent
@@ -149,6 +228,60 @@ public class mxGraphStructure
 
 	};
 
+	/**
+	 * Returns true if the given snapshot contains cycles regardless of edge
+	 * direction. This removes the vertices with at most one edge until no
+	 * such vertex is left in linear time.
+	 * @param csr the snapshot of the graph
+	 * @return true if the graph contains cycles regardless of edge direction
+	 */
+	public static boolean isCyclicUndirected(mxCsrGraph csr)
+	{
+		int[] offsets = csr.getOffsets();
+		int[] targets = csr.getTargets();
+		int[] inOffsets = csr.getInOffsets();
+		int[] inSources = csr.getInSources();
+		boolean directed = csr.isDirected();
+		int vertexNum = csr.getVertexCount();
+		int[] degree = new int[vertexNum];
+		int[] queue = new int[vertexNum];
+		int head = 0;
+		int tail = 0;
+
+		for (int i = 0; i < vertexNum; i++)
+		{
+			degree[i] = csr.getOutDegree(i) + ((directed) ? csr.getInDegree(i) : 0);
+
+			if (degree[i] <= 1)
+			{
+				queue[tail++] = i;
+			}
+		}
+
+		while (head < tail)
+		{
+			int v = queue[head++];
+
+			for (int arc = offsets[v]; arc < offsets[v + 1]; arc++)
+			{
+				if (--degree[targets[arc]] == 1)
+				{
+					queue[tail++] = targets[arc];
+				}
+			}
+
+			for (int arc = inOffsets[v]; directed && arc < inOffsets[v + 1]; arc++)
+			{
+				if (--degree[inSources[arc]] == 1)
+				{
+					queue[tail++] = inSources[arc];
+				}
+			}
+		}
+
+		return tail < vertexNum;
+	};
+
 	/**
 	 * A helper function for getting a leaf vertex (degree <= 1), not taking into account edge direction - for internal use
 	 * @param aGraph
@@ -443,6 +576,105 @@ public class mxGraphStructure
 		return (Object[][]) result;
 	};
 
+	/**
+	 * Returns the connected components of the given snapshot regardless of
+	 * edge direction.
+	 * @param csr the snapshot of the graph
+	 * @return the vertices of each component or null if there are no vertices
+	 */
+	public static Object[][] getGraphComponents(mxCsrGraph csr)
+	{
+		int vertexCount = csr.getVertexCount();
+
+		if (vertexCount == 0)
+		{
+			return null;
+		}
+
+		int[] component = new int[vertexCount];
+		int[] order = new int[vertexCount];
+		int componentCount = getComponents(csr, component, order);
+		int[] sizes = new int[componentCount];
+
+		for (int i = 0; i < vertexCount; i++)
+		{
+			sizes[component[i]]++;
+		}
+
+		Object[][] result = new Object[componentCount][];
+		int k = 0;
+
+		for (int i = 0; i < componentCount; i++)
+		{
+			result[i] = new Object[sizes[i]];
+
+			for (int j = 0; j < sizes[i]; j++)
+			{
+				result[i][j] = csr.getVertex(order[k++]);
+			}
+		}
+
+		return result;
+	};
+
+	/**
+	 * Returns the connected components of the given snapshot regardless of
+	 * edge direction using a concurrent union find. If a pool is specified
+	 * then the edges are processed in parallel. The components are ordered by
+	 * their first vertex and the vertices are in the order of the snapshot.
+	 * @param csr the snapshot of the graph
+	 * @param pool optional pool for processing the edges in parallel
+	 * @return the vertices of each component or null if there are no vertices
+	 */
+	public static Object[][] getGraphComponents(mxCsrGraph csr, ForkJoinPool pool)
+	{
+		int vertexCount = csr.getVertexCount();
+
+		if (vertexCount == 0)
+		{
+			return null;
+		}
+
+		mxConcurrentUnionFind uf = new mxConcurrentUnionFind(vertexCount);
+		uf.union(csr.getEdgeSources(), csr.getEdgeTargets(), pool);
+
+		// Maps from roots to components and counts the vertices
+		int[] component = new int[vertexCount];
+		int[] roots = new int[vertexCount];
+		int[] sizes = new int[vertexCount];
+		int componentCount = 0;
+		Arrays.fill(component, -1);
+
+		for (int i = 0; i < vertexCount; i++)
+		{
+			int root = uf.find(i);
+			roots[i] = root;
+
+			if (component[root] < 0)
+			{
+				component[root] = componentCount++;
+			}
+
+			sizes[component[root]]++;
+		}
+
+		Object[][] result = new Object[componentCount][];
+		int[] filled = new int[componentCount];
+
+		for (int i = 0; i < componentCount; i++)
+		{
+			result[i] = new Object[sizes[i]];
+		}
+
+		for (int i = 0; i < vertexCount; i++)
+		{
+			int c = component[roots[i]];
+			result[c][filled[c]++] = csr.getVertex(i);
+		}
+
+		return result;
+	};
+
 	/**
 	 * Makes a tree graph directed from the source to the leaves
 	 * @param aGraph
@@ -574,6 +806,88 @@ public class mxGraphStructure
 		}
 	};
 
+	/**
+	 * Returns true if the given snapshot contains directed cycles. This
+	 * removes the vertices without incoming or outgoing edges until no such
+	 * vertex is left in linear time. The direction of the edges is used even
+	 * if the snapshot is undirected.
+	 * @param csr the snapshot of the graph
+	 * @return true if the graph contains directed cycles
+	 */
+	public static boolean isCyclicDirected(mxCsrGraph csr)
+	{
+		int[] offsets = csr.getOffsets();
+		int[] targets = csr.getTargets();
+		int[] arcEdges = csr.getArcEdges();
+		int[] inOffsets = csr.getInOffsets();
+		int[] inSources = csr.getInSources();
+		int[] inArcEdges = csr.getInArcEdges();
+		int[] edgeSources = csr.getEdgeSources();
+		int[] edgeTargets = csr.getEdgeTargets();
+		boolean directed = csr.isDirected();
+		int vertexNum = csr.getVertexCount();
+		int[] inDegree = new int[vertexNum];
+		int[] outDegree = new int[vertexNum];
+		boolean[] queued = new boolean[vertexNum];
+		int[] queue = new int[vertexNum];
+		int head = 0;
+		int tail = 0;
+
+		for (int e = 0; e < edgeSources.length; e++)
+		{
+			outDegree[edgeSources[e]]++;
+			inDegree[edgeTargets[e]]++;
+		}
+
+		for (int i = 0; i < vertexNum; i++)
+		{
+			if (inDegree[i] == 0 || outDegree[i] == 0)
+			{
+				queued[i] = true;
+				queue[tail++] = i;
+			}
+		}
+
+		while (head < tail)
+		{
+			int v = queue[head++];
+
+			for (int arc = offsets[v]; arc < offsets[v + 1]; arc++)
+			{
+				tail = removeDirectedEdge(v, targets[arc], edgeSources[arcEdges[arc]] == v, inDegree, outDegree, queued, queue, tail);
+			}
+
+			for (int arc = inOffsets[v]; directed && arc < inOffsets[v + 1]; arc++)
+			{
+				tail = removeDirectedEdge(v, inSources[arc], edgeSources[inArcEdges[arc]] == v, inDegree, outDegree, queued, queue, tail);
+			}
+		}
+
+		return tail < vertexNum;
+	};
+
+	/**
+	 * Updates the degree of the opposite vertex of an edge of a removed vertex
+	 * and queues the opposite if it becomes a leaf - for internal use
+	 * @return the new length of the queue
+	 */
+	private static int removeDirectedEdge(int v, int opposite, boolean outgoing, int[] inDegree, int[] outDegree, boolean[] queued, int[] queue,
+			int tail)
+	{
+		if (!queued[opposite])
+		{
+			int degree = (outgoing) ? --inDegree[opposite] : --outDegree[opposite];
+
+			if (degree == 0)
+			{
+				queued[opposite] = true;
+				queue[tail++] = opposite;
+			}
+		}
+
+		return tail;
+	};
+
 	/**
 	 * @param graph
 	 * @param parent
@@ -830,31 +1144,15 @@ public class mxGraphStructure
 	 */
 	public static boolean isCutVertex(mxAnalysisGraph aGraph, Object vertex)
 	{
-		mxGraph graph = aGraph.getGraph();
-		mxIGraphModel model = graph.getModel();
+		mxCsrGraph csr = new mxCsrGraph(aGraph, false, null);
+		int index = csr.getIndex(vertex);
 
-		if (aGraph.getEdges(vertex, null, true, true, false, true).length >= 2)
+		if (index >= 0)
 		{
-			Object[] cells = model.cloneCells(aGraph.getChildCells(graph.getDefaultParent(), true, true), true);
-			mxGraphModel modelCopy = new mxGraphModel();
-			mxGraph graphCopy = new mxGraph(modelCopy);
-			graphCopy.addCells(cells);
-			mxAnalysisGraph aGraphCopy = new mxAnalysisGraph();
-			aGraphCopy.setGraph(graphCopy);
-			aGraphCopy.setGenerator(aGraph.getGenerator());
-			aGraphCopy.setProperties(aGraph.getProperties());
-
-			Object newVertex = getVertexWithValue(aGraphCopy,
-					(int) aGraph.getGenerator().getCostFunction().getCost(new mxCellState(graph.getView(), vertex, null)));
+			boolean[] cutVertices = new boolean[csr.getVertexCount()];
+			findCuts(csr, cutVertices, null);
 
-			graphCopy.removeCells(new Object[] { newVertex }, true);
-			Object[][] oldComponents = getGraphComponents(aGraph);
-			Object[][] newComponents = getGraphComponents(aGraphCopy);
-
-			if (newComponents.length > oldComponents.length)
-			{
-				return true;
-			}
+			return cutVertices[index];
 		}
 
 		return false;
@@ -866,15 +1164,27 @@ public class mxGraphStructure
 	 */
 	public static Object[] getCutVertices(mxAnalysisGraph aGraph)
 	{
+		return getCutVertices(new mxCsrGraph(aGraph, false, null));
+	};
+
+	/**
+	 * Returns the cut vertices of the given snapshot regardless of edge
+	 * direction, ie. the vertices whose removal increases the number of
+	 * components.
+	 * @param csr the snapshot of the graph
+	 * @return all cut vertices of <b>csr</b> in the order of the vertices
+	 */
+	public static Object[] getCutVertices(mxCsrGraph csr)
+	{
+		boolean[] cutVertices = new boolean[csr.getVertexCount()];
+		findCuts(csr, cutVertices, null);
 		ArrayList<Object> cutVertexList = new ArrayList<Object>();
-		Object[] vertexes = aGraph.getChildVertices(aGraph.getGraph().getDefaultParent());
-		int vertexNum = vertexes.length;
 
-		for (int i = 0; i < vertexNum; i++)
+		for (int i = 0; i < cutVertices.length; i++)
 		{
-			if (isCutVertex(aGraph, vertexes[i]))
+			if (cutVertices[i])
 			{
-				cutVertexList.add(vertexes[i]);
+				cutVertexList.add(csr.getVertex(i));
 			}
 		}
 
@@ -888,49 +1198,16 @@ public class mxGraphStructure
 	 */
 	public static boolean isCutEdge(mxAnalysisGraph aGraph, Object edge)
 	{
-		mxGraph graph = aGraph.getGraph();
-		mxIGraphModel model = graph.getModel();
-		mxCostFunction costFunction = aGraph.getGenerator().getCostFunction();
-		mxGraphView view = graph.getView();
+		mxCsrGraph csr = new mxCsrGraph(aGraph, false, null);
+		Object[] edges = csr.getEdges();
+		boolean[] cutEdges = new boolean[edges.length];
+		findCuts(csr, null, cutEdges);
 
-		int srcValue = (int) costFunction.getCost(new mxCellState(view, aGraph.getTerminal(edge, true), null));
-		int destValue = (int) costFunction.getCost(new mxCellState(view, aGraph.getTerminal(edge, false), null));
-
-		if (aGraph.getTerminal(edge, false) != null || aGraph.getTerminal(edge, true) != null)
+		for (int i = 0; i < edges.length; i++)
 		{
-			Object[] cells = model.cloneCells(aGraph.getChildCells(graph.getDefaultParent(), true, true), true);
-			mxGraphModel modelCopy = new mxGraphModel();
-			mxGraph graphCopy = new mxGraph(modelCopy);
-			graphCopy.addCells(cells);
-			mxAnalysisGraph aGraphCopy = new mxAnalysisGraph();
-			aGraphCopy.setGraph(graphCopy);
-			aGraphCopy.setGenerator(aGraph.getGenerator());
-			aGraphCopy.setProperties(aGraph.getProperties());
-
-			Object[] edges = aGraphCopy.getChildEdges(aGraphCopy.getGraph().getDefaultParent());
-			Object currEdge = edges[0];
-			mxCostFunction costFunctionCopy = aGraphCopy.getGenerator().getCostFunction();
-			mxGraphView viewCopy = graphCopy.getView();
-
-			int currSrcValue = (int) costFunctionCopy.getCost(new mxCellState(viewCopy, aGraphCopy.getTerminal(currEdge, true), null));
-			int currDestValue = (int) costFunctionCopy.getCost(new mxCellState(viewCopy, aGraphCopy.getTerminal(currEdge, false), null));
-			int i = 0;
-
-			while (currSrcValue != srcValue || currDestValue != destValue)
-			{
-				i++;
-				currEdge = edges[i];
-				currSrcValue = Integer.parseInt((String) modelCopy.getValue(aGraphCopy.getTerminal(currEdge, true)));
-				currDestValue = Integer.parseInt((String) modelCopy.getValue(aGraphCopy.getTerminal(currEdge, false)));
-			}
-
-			graphCopy.removeCells(new Object[] { currEdge }, true);
-			Object[][] oldComponents = getGraphComponents(aGraph);
-			Object[][] newComponents = getGraphComponents(aGraphCopy);
-
-			if (newComponents.length > oldComponents.length)
+			if (edges[i] == edge)
 			{
-				return true;
+				return cutEdges[i];
 			}
 		}
 
@@ -943,13 +1220,14 @@ public class mxGraphStructure
 	 */
 	public static Object[] getCutEdges(mxAnalysisGraph aGraph)
 	{
+		Set<Object> cutEdges = new HashSet<Object>(Arrays.asList(getCutEdges(new mxCsrGraph(aGraph, false, null))));
 		ArrayList<Object> cutEdgeList = new ArrayList<Object>();
 		Object[] edges = aGraph.getChildEdges(aGraph.getGraph().getDefaultParent());
-		int edgeNum = edges.length;
 
-		for (int i = 0; i < edgeNum; i++)
+		// Keeps the order of the child edges
+		for (int i = 0; i < edges.length; i++)
 		{
-			if (isCutEdge(aGraph, edges[i]))
+			if (cutEdges.contains(edges[i]))
 			{
 				cutEdgeList.add(edges[i]);
 			}
@@ -958,6 +1236,127 @@ public class mxGraphStructure
 		return cutEdgeList.toArray();
 	};
 
+	/**
+	 * Returns the cut edges (bridges) of the given snapshot regardless of edge
+	 * direction, ie. the edges whose removal increases the number of
+	 * components. Loops and parallel edges are never cut edges.
+	 * @param csr the snapshot of the graph
+	 * @return all cut edges of <b>csr</b> in the order of the edges
+	 */
+	public static Object[] getCutEdges(mxCsrGraph csr)
+	{
+		boolean[] cutEdges = new boolean[csr.getEdgeCount()];
+		findCuts(csr, null, cutEdges);
+		ArrayList<Object> cutEdgeList = new ArrayList<Object>();
+
+		for (int i = 0; i < cutEdges.length; i++)
+		{
+			if (cutEdges[i])
+			{
+				cutEdgeList.add(csr.getEdge(i));
+			}
+		}
+
+		return cutEdgeList.toArray();
+	};
+
+	/**
+	 * Finds the cut vertices and cut edges of the given snapshot regardless
+	 * of edge direction in a single depth first search using the algorithm of
+	 * Hopcroft and Tarjan. The search uses an explicit stack so that large
+	 * graphs do not overflow the call stack. The parent of a vertex is skipped
+	 * by edge instead of by vertex so that parallel edges are handled
+	 * correctly - for internal use
+	 * @param csr
+	 * @param cutVertices optional array that is set to true for cut vertices
+	 * @param cutEdges optional array that is set to true for cut edges
+	 */
+	private static void findCuts(mxCsrGraph csr, boolean[] cutVertices, boolean[] cutEdges)
+	{
+		int[] offsets = csr.getOffsets();
+		int[] targets = csr.getTargets();
+		int[] arcEdges = csr.getArcEdges();
+		int[] inOffsets = csr.getInOffsets();
+		int[] inSources = csr.getInSources();
+		int[] inArcEdges = csr.getInArcEdges();
+		boolean directed = csr.isDirected();
+		int vertexNum = csr.getVertexCount();
+
+		// Discovery time (0 is unvisited), lowest reachable discovery time,
+		// tree edge to the parent and position in the arcs of each vertex
+		int[] disc = new int[vertexNum];
+		int[] low = new int[vertexNum];
+		int[] parentEdge = new int[vertexNum];
+		int[] next = new int[vertexNum];
+		int[] stack = new int[vertexNum];
+		int time = 0;
+
+		for (int root = 0; root < vertexNum; root++)
+		{
+			if (disc[root] == 0)
+			{
+				int rootChildren = 0;
+				int size = 0;
+				disc[root] = low[root] = ++time;
+				parentEdge[root] = -1;
+				stack[size++] = root;
+
+				while (size > 0)
+				{
+					int v = stack[size - 1];
+					int outDegree = offsets[v + 1] - offsets[v];
+					int degree = outDegree + ((directed) ? inOffsets[v + 1] - inOffsets[v] : 0);
+
+					if (next[v] < degree)
+					{
+						int k = next[v]++;
+						int w = (k < outDegree) ? targets[offsets[v] + k] : inSources[inOffsets[v] + k - outDegree];
+						int e = (k < outDegree) ? arcEdges[offsets[v] + k] : inArcEdges[inOffsets[v] + k - outDegree];
+
+						if (e != parentEdge[v])
+						{
+							if (disc[w] == 0)
+							{
+								disc[w] = low[w] = ++time;
+								parentEdge[w] = e;
+								stack[size++] = w;
+
+								if (v == root)
+								{
+									rootChildren++;
+								}
+							}
+							else
+							{
+								low[v] = Math.min(low[v], disc[w]);
+							}
+						}
+					}
+					else if (--size > 0)
+					{
+						int u = stack[size - 1];
+						low[u] = Math.min(low[u], low[v]);
+
+						if (cutEdges != null && low[v] > disc[u])
+						{
+							cutEdges[parentEdge[v]] = true;
+						}
+
+						if (cutVertices != null && u != root && low[v] >= disc[u])
+						{
+							cutVertices[u] = true;
+						}
+					}
+				}
+
+				if (cutVertices != null && rootChildren > 1)
+				{
+					cutVertices[root] = true;
+				}
+			}
+		}
+	};
+
 	/**
 	 * @param aGraph
 	 * @return all source vertices of <b>aGraph</b>
@@ -1035,4 +1434,16 @@ public class mxGraphStructure
 			return false;
 		}
 	};
+
+	/**
+	 * Returns true if the given snapshot has at least one edge and no cut
+	 * vertices regardless of edge direction. As in the graph version the
+	 * snapshot is not required to be connected.
+	 * @param csr the snapshot of the graph
+	 * @return true if <b>csr</b> is biconnected
+	 */
+	public static boolean isBiconnected(mxCsrGraph csr)
+	{
+		return csr.getEdgeCount() >= 1 && getCutVertices(csr).length == 0;
+	};
 };
@@ -11,6 +11,8 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 import com.mxgraph.costfunction.mxCostFunction;
 import com.mxgraph.view.mxCellState;
@@ -146,6 +148,104 @@ public class mxTraversal
 		}
 	};
 
+	/**
+	 * Implements a depth first search on the given snapshot starting from the
+	 * vertex with the specified index. This visits the vertices in the same
+	 * order as dfs on the graph but uses an explicit stack instead of
+	 * recursion. The visitor is called with the vertex and the edge traversed
+	 * to find the vertex.
+	 * @param csr the snapshot of the graph
+	 * @param startVertex index of the start vertex
+	 * @param visitor
+	 */
+	public static void dfs(mxCsrGraph csr, int startVertex, mxICellVisitor visitor)
+	{
+		if (csr != null && startVertex >= 0 && visitor != null)
+		{
+			int[] offsets = csr.getOffsets();
+			int[] targets = csr.getTargets();
+			int[] arcEdges = csr.getArcEdges();
+			boolean[] seen = new boolean[csr.getVertexCount()];
+			int[] stack = new int[csr.getVertexCount()];
+			int[] next = new int[csr.getVertexCount()];
+			int size = 0;
+
+			visitor.visit(csr.getVertex(startVertex), null);
+			seen[startVertex] = true;
+			stack[size++] = startVertex;
+			next[startVertex] = offsets[startVertex];
+
+			while (size > 0)
+			{
+				int v = stack[size - 1];
+
+				if (next[v] < offsets[v + 1])
+				{
+					int arc = next[v]++;
+					int w = targets[arc];
+
+					if (!seen[w])
+					{
+						visitor.visit(csr.getVertex(w), csr.getEdge(arcEdges[arc]));
+						seen[w] = true;
+						stack[size++] = w;
+						next[w] = offsets[w];
+					}
+				}
+				else
+				{
+					size--;
+				}
+			}
+		}
+	};
+
+	/**
+	 * Implements a breadth first search on the given snapshot starting from
+	 * the vertex with the specified index. This visits the vertices in the
+	 * same order as bfs on the graph. The visitor is called with the vertex
+	 * and the edge traversed to find the vertex.
+	 * @param csr the snapshot of the graph
+	 * @param startVertex index of the start vertex
+	 * @param visitor
+	 */
+	public static void bfs(mxCsrGraph csr, int startVertex, mxICellVisitor visitor)
+	{
+		if (csr != null && startVertex >= 0 && visitor != null)
+		{
+			int[] offsets = csr.getOffsets();
+			int[] targets = csr.getTargets();
+			int[] arcEdges = csr.getArcEdges();
+			boolean[] queued = new boolean[csr.getVertexCount()];
+			int[] queue = new int[csr.getVertexCount()];
+			int[] incoming = new int[csr.getVertexCount()];
+			int head = 0;
+			int tail = 0;
+
+			queue[tail++] = startVertex;
+			incoming[startVertex] = -1;
+			queued[startVertex] = true;
+
+			while (head < tail)
+			{
+				int v = queue[head++];
+				visitor.visit(csr.getVertex(v), (incoming[v] >= 0) ? csr.getEdge(incoming[v]) : null);
+
+				for (int arc = offsets[v]; arc < offsets[v + 1]; arc++)
+				{
+					int w = targets[arc];
+
+					if (!queued[w])
+					{
+						queue[tail++] = w;
+						incoming[w] = arcEdges[arc];
+						queued[w] = true;
+					}
+				}
+			}
+		}
+	};
+
 	/**
 	 * Implements the Dijkstra's shortest path from startVertex to endVertex.
 	 * Process on the cell is performing by the visitor class passed in.
@@ -376,94 +476,136 @@ public class mxTraversal
 	 * Implements the Floyd-Roy-Warshall (aka WFI) shortest path algorithm between all vertices.
 	 * 
 	 * @param aGraph
-	 * @return an ArrayList where ArrayList(0) is the distance map and List(1) is the path map. See the example in GraphConfigDialog.java
+	 * @return an ArrayList where ArrayList(0) is the distance map and List(1) is the path map. The path map contains the next vertex on the
+	 * shortest path or null if the next vertex is the target. See the example in GraphConfigDialog.java
 	 * @throws StructuralException - The Floyd-Roy-Warshall algorithm only works for graphs without negative cycles
 	 */
 	public static ArrayList<Object[][]> floydRoyWarshall(mxAnalysisGraph aGraph) throws StructuralException
 	{
+		mxCsrGraph csr = new mxCsrGraph(aGraph);
+		mxDistanceMatrix matrix = floydRoyWarshall(csr, null);
+		int vertexNum = csr.getVertexCount();
+		Double[][] dist = new Double[vertexNum][vertexNum];
+		Object[][] paths = new Object[vertexNum][vertexNum];
 
-		Object[] vertices = aGraph.getChildVertices(aGraph.getGraph().getDefaultParent());
-		Double[][] dist = new Double[vertices.length][vertices.length];
-		Object[][] paths = new Object[vertices.length][vertices.length];
-		Map<Object, Integer> indexMap = new HashMap<Object, Integer>();
-
-		for (int i = 0; i < vertices.length; i++)
+		for (int i = 0; i < vertexNum; i++)
 		{
-			indexMap.put(vertices[i], i);
+			for (int j = 0; j < vertexNum; j++)
+			{
+				double d = matrix.getDistance(i, j);
+				int next = matrix.getNext(i, j);
+				dist[i][j] = (d == Double.POSITIVE_INFINITY) ? Double.MAX_VALUE : d;
+				paths[i][j] = (next >= 0 && next != j) ? csr.getVertex(next) : null;
+			}
 		}
 
-		Object[] edges = aGraph.getChildEdges(aGraph.getGraph().getDefaultParent());
-		dist = initializeWeight(aGraph, vertices, edges, indexMap);
+		ArrayList<Object[][]> result = new ArrayList<Object[][]>();
+		result.add(dist);
+		result.add(paths);
+		return result;
+	};
 
-		for (int k = 0; k < vertices.length; k++)
+	/**
+	 * Implements the Floyd-Roy-Warshall (aka WFI) shortest path algorithm between all vertices of the given snapshot. The distances and the
+	 * next vertices on the shortest paths are stored in flat arrays of primitives. If a pool is specified then the rows are updated in
+	 * parallel for each intermediate vertex. Parallel edges use the lowest cost.
+	 * 
+	 * @param csr the snapshot of the graph
+	 * @param pool optional pool for updating the rows in parallel
+	 * @return the distances and next vertices of all pairs of vertices
+	 * @throws StructuralException - The Floyd-Roy-Warshall algorithm only works for graphs without negative cycles
+	 */
+	public static mxDistanceMatrix floydRoyWarshall(mxCsrGraph csr, ForkJoinPool pool) throws StructuralException
+	{
+		int n = csr.getVertexCount();
+		int[] offsets = csr.getOffsets();
+		int[] targets = csr.getTargets();
+		int[] arcEdges = csr.getArcEdges();
+		double[] weights = csr.getWeights();
+		double[] dist = new double[n * n];
+		int[] next = new int[n * n];
+
+		Arrays.fill(dist, Double.POSITIVE_INFINITY);
+		Arrays.fill(next, -1);
+
+		for (int i = 0; i < n; i++)
 		{
-			for (int i = 0; i < vertices.length; i++)
+			dist[i * n + i] = 0;
+			next[i * n + i] = i;
+
+			for (int arc = offsets[i]; arc < offsets[i + 1]; arc++)
 			{
-				for (int j = 0; j < vertices.length; j++)
+				int ij = i * n + targets[arc];
+
+				if (weights[arcEdges[arc]] < dist[ij])
 				{
-					if (dist[i][j] > dist[i][k] + dist[k][j])
-					{
-						paths[i][j] = mxGraphStructure.getVertexWithValue(aGraph, k);
-						dist[i][j] = dist[i][k] + dist[k][j];
-					}
+					dist[ij] = weights[arcEdges[arc]];
+					next[ij] = targets[arc];
 				}
 			}
 		}
 
-		for (int i = 0; i < dist[0].length; i++)
+		// Rows are independent for a given k since row k only changes if
+		// there is a negative cycle through k
+		int grain = Math.max(1, 16384 / Math.max(1, n));
+
+		for (int k = 0; k < n; k++)
 		{
-			if ((Double) dist[i][i] < 0)
+			if (pool != null && n > grain)
+			{
+				pool.invoke(new mxFloydRoyWarshallTask(dist, next, n, k, 0, n, grain));
+			}
+			else
+			{
+				relaxRows(dist, next, n, k, 0, n);
+			}
+		}
+
+		for (int i = 0; i < n; i++)
+		{
+			if (dist[i * n + i] < 0)
 			{
 				throw new StructuralException("The graph has negative cycles");
 			}
 		}
 
-		ArrayList<Object[][]> result = new ArrayList<Object[][]>();
-		result.add(dist);
-		result.add(paths);
-		return result;
+		return new mxDistanceMatrix(csr, dist, next);
 	};
 
 	/**
-	 * A helper function for the Floyd-Roy-Warshall algorithm - for internal use
-	 * @param aGraph
-	 * @param nodes
-	 * @param edges
-	 * @param indexMap
-	 * @return
+	 * Updates the distances of the given rows using the intermediate vertex k - for internal use
+	 * @param dist
+	 * @param next
+	 * @param n
+	 * @param k
+	 * @param from first row
+	 * @param to row after the last row
 	 */
-	private static Double[][] initializeWeight(mxAnalysisGraph aGraph, Object[] nodes, Object[] edges, Map<Object, Integer> indexMap)
+	private static void relaxRows(double[] dist, int[] next, int n, int k, int from, int to)
 	{
-		Double[][] weight = new Double[nodes.length][nodes.length];
+		int kn = k * n;
 
-		for (int i = 0; i < nodes.length; i++)
+		for (int i = from; i < to; i++)
 		{
-			Arrays.fill(weight[i], Double.MAX_VALUE);
-		}
+			int in = i * n;
+			double ik = dist[in + k];
 
-		boolean isDirected = mxGraphProperties.isDirected(aGraph.getProperties(), mxGraphProperties.DEFAULT_DIRECTED);
-		mxCostFunction costFunction = aGraph.getGenerator().getCostFunction();
-		mxGraphView view = aGraph.getGraph().getView();
-
-		for (Object currEdge : edges)
-		{
-			Object source = aGraph.getTerminal(currEdge, true);
-			Object target = aGraph.getTerminal(currEdge, false);
+			if (ik != Double.POSITIVE_INFINITY)
+			{
+				int nextK = next[in + k];
 
-			weight[indexMap.get(source)][indexMap.get(target)] = costFunction.getCost(view.getState(currEdge));
+				for (int j = 0; j < n; j++)
+				{
+					double d = ik + dist[kn + j];
 
-			if (!isDirected)
-			{
-				weight[indexMap.get(target)][indexMap.get(source)] = costFunction.getCost(view.getState(currEdge));
+					if (d < dist[in + j])
+					{
+						dist[in + j] = d;
+						next[in + j] = nextK;
+					}
+				}
 			}
 		}
-
-		for (int i = 0; i < nodes.length; i++)
-		{
-			weight[i][i] = 0.0;
-		}
-
-		return weight;
 	};
 
 	/**
@@ -474,13 +616,14 @@ public class mxTraversal
 	 * @param targetVertex
 	 * @return returns the shortest path from <b>startVertex</b> to <b>endVertex</b>
 	 * @throws StructuralException - The Floyd-Roy-Warshall algorithm only works for graphs without negative cycles
+	 * @throws IllegalArgumentException - if a vertex is not a child of the default parent
 	 */
 	public static Object[] getWFIPath(mxAnalysisGraph aGraph, ArrayList<Object[][]> FWIresult, Object startVertex, Object targetVertex)
 			throws StructuralException
 	{
 		Object[][] dist = FWIresult.get(0);
 		Object[][] paths = FWIresult.get(1);
-		ArrayList<Object> result = null;
+		ArrayList<Object> result = new ArrayList<Object>();
 
 		if (aGraph == null || paths == null || startVertex == null || targetVertex == null)
 		{
@@ -497,62 +640,159 @@ public class mxTraversal
 
 		if (startVertex != targetVertex)
 		{
-			mxCostFunction cf = aGraph.getGenerator().getCostFunction();
-			mxGraphView view = aGraph.getGraph().getView();
-			ArrayList<Object> currPath = new ArrayList<Object>();
-			currPath.add(startVertex);
+			Object[] vertices = aGraph.getChildVertices(aGraph.getGraph().getDefaultParent());
+			Map<Object, Integer> indexMap = new HashMap<Object, Integer>();
 
-			while (startVertex != targetVertex)
+			for (int i = 0; i < vertices.length; i++)
 			{
-				result = getWFIPathRec(aGraph, paths, startVertex, targetVertex, currPath, cf, view);
-				startVertex = result.get(result.size() - 1);
+				indexMap.put(vertices[i], i);
 			}
-		}
 
-		if (result == null)
-		{
-			result = new ArrayList<Object>();
+			Integer targetIndex = indexMap.get(targetVertex);
+
+			if (targetIndex == null || !indexMap.containsKey(startVertex))
+			{
+				throw new IllegalArgumentException("The vertices must be children of the default parent");
+			}
+
+			Object currVertex = startVertex;
+			result.add(currVertex);
+
+			while (currVertex != targetVertex)
+			{
+				int currIndex = indexMap.get(currVertex);
+
+				if ((Double) dist[currIndex][targetIndex] == Double.MAX_VALUE)
+				{
+					throw new StructuralException("The two vertices aren't connected");
+				}
+
+				currVertex = (paths[currIndex][targetIndex] != null) ? paths[currIndex][targetIndex] : targetVertex;
+				result.add(currVertex);
+			}
 		}
 
 		return result.toArray();
 	};
 
 	/**
-	 * Helper method for getWFIPath - for internal use
-	 * @param aGraph
-	 * @param paths
+	 * Returns the shortest path from <b>startVertex</b> to <b>targetVertex</b> in the given result of the Floyd-Roy-Warshall algorithm.
+	 * As in the graph version the path is empty if both vertices are the same.
+	 * @param matrix - the result of the Floyd-Roy-Warshall algorithm
 	 * @param startVertex
 	 * @param targetVertex
-	 * @param currPath
-	 * @param cf
-	 * @param view
-	 * @return
-	 * @throws StructuralException
+	 * @return returns the shortest path from <b>startVertex</b> to <b>targetVertex</b>
+	 * @throws StructuralException - if the two vertices aren't connected
+	 * @throws IllegalArgumentException - if a vertex is not in the snapshot of the matrix
+	 */
+	public static Object[] getWFIPath(mxDistanceMatrix matrix, Object startVertex, Object targetVertex) throws StructuralException
+	{
+		if (matrix == null || startVertex == null || targetVertex == null)
+		{
+			throw new IllegalArgumentException();
+		}
+
+		mxCsrGraph csr = matrix.getCsrGraph();
+
+		if (csr.getIndex(startVertex) < 0 || csr.getIndex(targetVertex) < 0)
+		{
+			throw new IllegalArgumentException("The vertices must be in the snapshot of the matrix");
+		}
+
+		if (startVertex == targetVertex)
+		{
+			return new Object[0];
+		}
+
+		Object[] path = matrix.getPath(startVertex, targetVertex);
+
+		if (path == null)
+		{
+			throw new StructuralException("The two vertices aren't connected");
+		}
+
+		return path;
+	};
+
+	/**
+	 * Updates a range of rows of the Floyd-Roy-Warshall algorithm for one
+	 * intermediate vertex by splitting the range until it has at most the
+	 * given number of rows.
 	 */
-	private static ArrayList<Object> getWFIPathRec(mxAnalysisGraph aGraph, Object[][] paths, Object startVertex, Object targetVertex,
-			ArrayList<Object> currPath, mxCostFunction cf, mxGraphView view) throws StructuralException
+	protected static class mxFloydRoyWarshallTask extends RecursiveAction
 	{
-		Double sourceIndexD = (Double) cf.getCost(view.getState(startVertex));
-		Object[] parents = paths[sourceIndexD.intValue()];
-		Double targetIndexD = (Double) cf.getCost(view.getState(targetVertex));
-		int tIndex = targetIndexD.intValue();
 
-		if (parents[tIndex] != null)
+		/**
+		 * 
+		 */
+		private static final long serialVersionUID = 5398232542387102683L;
+
+		/**
+		 * Holds the distances.
+		 */
+		protected double[] dist;
+
+		/**
+		 * Holds the next vertices.
+		 */
+		protected int[] next;
+
+		/**
+		 * Holds the number of vertices.
+		 */
+		protected int n;
+
+		/**
+		 * Holds the intermediate vertex.
+		 */
+		protected int k;
+
+		/**
+		 * Holds the first row.
+		 */
+		protected int from;
+
+		/**
+		 * Holds the row after the last row.
+		 */
+		protected int to;
+
+		/**
+		 * Holds the maximum number of rows per task.
+		 */
+		protected int grain;
+
+		/**
+		 * Constructs a new task for the given range of rows.
+		 */
+		public mxFloydRoyWarshallTask(double[] dist, int[] next, int n, int k, int from, int to, int grain)
 		{
-			currPath = getWFIPathRec(aGraph, paths, startVertex, parents[tIndex], currPath, cf, view);
+			this.dist = dist;
+			this.next = next;
+			this.n = n;
+			this.k = k;
+			this.from = from;
+			this.to = to;
+			this.grain = grain;
 		}
-		else
+
+		/**
+		 * Updates the rows.
+		 */
+		protected void compute()
 		{
-			if (mxGraphStructure.areConnected(aGraph, startVertex, targetVertex) || startVertex == targetVertex)
+			if (to - from <= grain)
 			{
-				currPath.add(targetVertex);
+				relaxRows(dist, next, n, k, from, to);
 			}
 			else
 			{
-				throw new StructuralException("The two vertices aren't connected");
+				int mid = (from + to) >>> 1;
+				invokeAll(new mxFloydRoyWarshallTask(dist, next, n, k, from, mid, grain), new mxFloydRoyWarshallTask(dist, next, n, k, mid,
+						to, grain));
 			}
 		}
 
-		return currPath;
 	}
+
 };
@@ -1,10 +1,14 @@
 package com.mxgraph.canvas;
 
 import java.awt.image.BufferedImage;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.Hashtable;
 import java.util.Map;
+import java.util.Set;
 
 import com.mxgraph.util.mxConstants;
+import com.mxgraph.util.mxImageCache;
 import com.mxgraph.util.mxPoint;
 import com.mxgraph.util.mxUtils;
 
@@ -22,6 +26,12 @@ public abstract class mxBasicCanvas implements mxICanvas
 	 */
 	public static String DEFAULT_IMAGEBASEPATH = "";
 
+	/**
+	 * Defines the default value for the sharedImageCache in all canvases.
+	 * Default is null.
+	 */
+	public static mxImageCache DEFAULT_SHARED_IMAGE_CACHE = null;
+
 	/**
 	 * Defines the base path for images with relative paths. Trailing slash
 	 * is required. Default value is DEFAULT_IMAGEBASEPATH.
@@ -44,10 +54,23 @@ public abstract class mxBasicCanvas implements mxICanvas
 	protected boolean drawLabels = true;
 
 	/**
-	 * Cache for images.
+	 * Cache for images that are loaded by this canvas if sharedImageCache is
+	 * null.
 	 */
 	protected Hashtable<String, BufferedImage> imageCache = new Hashtable<String, BufferedImage>();
 
+	/**
+	 * Optional cache for images that is shared with other canvases. Default
+	 * value is DEFAULT_SHARED_IMAGE_CACHE.
+	 */
+	protected mxImageCache sharedImageCache = DEFAULT_SHARED_IMAGE_CACHE;
+
+	/**
+	 * Holds the URLs that this canvas has loaded from the shared image cache.
+	 */
+	protected Set<String> sharedImages = Collections
+			.synchronizedSet(new HashSet<String>());
+
 	/**
 	 * Sets the current translate.
 	 */
@@ -112,6 +135,24 @@ public abstract class mxBasicCanvas implements mxICanvas
 		return drawLabels;
 	}
 
+	/**
+	 * Returns the image cache that is shared with other canvases or null if
+	 * this canvas uses its own cache.
+	 */
+	public mxImageCache getSharedImageCache()
+	{
+		return sharedImageCache;
+	}
+
+	/**
+	 * Sets the image cache that is shared with other canvases. Use null to
+	 * use a cache for this canvas only.
+	 */
+	public void setSharedImageCache(mxImageCache value)
+	{
+		sharedImageCache = value;
+	}
+
 	/**
 	 * Returns an image instance for the given URL. If the URL has
 	 * been loaded before than an instance of the same instance is
@@ -119,6 +160,16 @@ public abstract class mxBasicCanvas implements mxICanvas
 	 */
 	public BufferedImage loadImage(String image)
 	{
+		if (sharedImageCache != null)
+		{
+			if (image != null)
+			{
+				sharedImages.add(image);
+			}
+
+			return sharedImageCache.get(image);
+		}
+
 		BufferedImage img = imageCache.get(image);
 
 		if (img == null)
@@ -135,11 +186,27 @@ public abstract class mxBasicCanvas implements mxICanvas
 	}
 
 	/**
-	 * 
+	 * Removes the images that have been loaded by this canvas from the cache,
+	 * so that they are loaded again on the next call to loadImage. If the
+	 * cache is shared then only the URLs that this canvas has loaded are
+	 * removed from the shared cache.
 	 */
 	public void flushImageCache()
 	{
 		imageCache.clear();
+
+		if (sharedImageCache != null)
+		{
+			synchronized (sharedImages)
+			{
+				for (String url : sharedImages)
+				{
+					sharedImageCache.remove(url);
+				}
+
+				sharedImages.clear();
+			}
+		}
 	}
 
 	/**
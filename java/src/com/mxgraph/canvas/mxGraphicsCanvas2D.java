@@ -30,6 +30,7 @@ import javax.swing.CellRendererPane;
 import javax.swing.JLabel;
 
 import com.mxgraph.util.mxConstants;
+import com.mxgraph.util.mxImageCache;
 import com.mxgraph.util.mxLightweightLabel;
 import com.mxgraph.util.mxUtils;
 
@@ -117,6 +118,12 @@ public class mxGraphicsCanvas2D implements mxICanvas2D
 	 */
 	protected CellRendererPane rendererPane;
 
+	/**
+	 * Optional cache for images that is shared with other canvases. Default
+	 * value is mxBasicCanvas.DEFAULT_SHARED_IMAGE_CACHE.
+	 */
+	protected mxImageCache sharedImageCache = mxBasicCanvas.DEFAULT_SHARED_IMAGE_CACHE;
+
 	/**
 	 * Font caching.
 	 */
@@ -220,6 +227,20 @@ public class mxGraphicsCanvas2D implements mxICanvas2D
 		return graphics;
 	}
 
+	/**
+	 * Resets the state of the canvas and uses the given graphics instance for
+	 * painting. This allows to reuse the canvas and its renderer pane for
+	 * another output.
+	 */
+	public void reset(Graphics2D g)
+	{
+		setGraphics(g);
+		stack.clear();
+		state = new CanvasState();
+		state.g = g;
+		currentPath = null;
+	}
+
 	/**
 	 * Returns true if text should be rendered.
 	 */
@@ -236,6 +257,23 @@ public class mxGraphicsCanvas2D implements mxICanvas2D
 		textEnabled = value;
 	}
 
+	/**
+	 * Returns the image cache that is shared with other canvases or null if
+	 * images are loaded without caching.
+	 */
+	public mxImageCache getSharedImageCache()
+	{
+		return sharedImageCache;
+	}
+
+	/**
+	 * Sets the image cache that is shared with other canvases.
+	 */
+	public void setSharedImageCache(mxImageCache value)
+	{
+		sharedImageCache = value;
+	}
+
 	/**
 	 * Saves the current canvas state.
 	 */
@@ -694,11 +732,13 @@ public class mxGraphicsCanvas2D implements mxICanvas2D
 	}
 
 	/**
-	 * Hook for image caching.
+	 * Hook for image caching. This implementation uses the shared image
+	 * cache if one is set.
 	 */
 	protected Image loadImage(String src)
 	{
-		return mxUtils.loadImage(src);
+		return (sharedImageCache != null) ? sharedImageCache.get(src)
+				: mxUtils.loadImage(src);
 	}
 
 	/**
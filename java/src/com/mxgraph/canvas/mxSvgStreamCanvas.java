@@ -0,0 +1,164 @@
+/**
+ * Copyright (c) 2007-2017, JGraph Ltd
+ */
+package com.mxgraph.canvas;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Map;
+
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+import com.mxgraph.util.mxDomUtils;
+import com.mxgraph.util.mxXmlUtils;
+
+/**
+ * An implementation of an SVG canvas that writes the SVG elements to a
+ * writer while they are painted instead of keeping them in a document. The
+ * elements are created as in mxSvgCanvas and the most recent elements are
+ * kept until the next element is appended, so that they can still be
+ * changed by the caller, eg. in mxGraph.cellDrawn. Gradients and embedded
+ * images are written into defs elements when they are first used and are
+ * referenced afterwards.
+ *
+ * The canvas must be closed after painting to write the remaining elements
+ * and the end tag:
+ *
+ * <code>
+ * mxSvgStreamCanvas canvas = new mxSvgStreamCanvas(writer, width, height);
+ * graph.drawCell(canvas, graph.getModel().getRoot());
+ * canvas.close();
+ * </code>
+ */
+public class mxSvgStreamCanvas extends mxSvgCanvas
+{
+
+	/**
+	 * Holds the writer for the SVG output.
+	 */
+	protected Writer writer;
+
+	/**
+	 * Specifies if the start tag of the SVG root has been written.
+	 */
+	protected boolean started = false;
+
+	/**
+	 * Holds the first exception that was thrown by the writer.
+	 */
+	protected IOException error;
+
+	/**
+	 * Constructs a new canvas that writes an SVG document with the given size
+	 * to the given writer.
+	 */
+	public mxSvgStreamCanvas(Writer writer, int width, int height)
+	{
+		super(mxDomUtils.createSvgDocument(width, height));
+		this.writer = writer;
+	}
+
+	/**
+	 * Returns the writer for the SVG output.
+	 */
+	public Writer getWriter()
+	{
+		return writer;
+	}
+
+	/**
+	 * Writes the pending elements before appending the given element.
+	 */
+	public void appendSvgElement(Element node)
+	{
+		flush();
+		super.appendSvgElement(node);
+	}
+
+	/**
+	 * Creates a new defs element if the previous one has been written.
+	 */
+	protected Element getDefsElement()
+	{
+		if (defs != null && defs.getParentNode() == null)
+		{
+			defs = null;
+		}
+
+		return super.getDefsElement();
+	}
+
+	/**
+	 * Writes and removes the pending elements. Exceptions of the writer are
+	 * thrown in close.
+	 */
+	public void flush()
+	{
+		if (document != null)
+		{
+			Element root = document.getDocumentElement();
+
+			try
+			{
+				if (!started)
+				{
+					started = true;
+					writer.write("<svg");
+
+					for (Map.Entry<String, String> entry : mxXmlUtils
+							.getAttributes(root).entrySet())
+					{
+						writer.write(" ");
+						writer.write(entry.getKey());
+						writer.write("=\"");
+						mxXmlUtils.writeText(entry.getValue(), true, writer);
+						writer.write("\"");
+					}
+
+					writer.write(">");
+				}
+
+				Node child = root.getFirstChild();
+
+				while (child != null)
+				{
+					mxXmlUtils.writeXml(child, writer);
+					child = child.getNextSibling();
+				}
+			}
+			catch (IOException e)
+			{
+				if (error == null)
+				{
+					error = e;
+				}
+			}
+
+			while (root.getFirstChild() != null)
+			{
+				root.removeChild(root.getFirstChild());
+			}
+		}
+	}
+
+	/**
+	 * Writes the pending elements and the end tag and flushes the writer.
+	 * Throws the first exception of the writer.
+	 */
+	public void close() throws IOException
+	{
+		flush();
+
+		if (error == null)
+		{
+			writer.write("</svg>");
+			writer.flush();
+		}
+		else
+		{
+			throw error;
+		}
+	}
+
+}
@@ -0,0 +1,940 @@
+/**
+ * Copyright (c) 2007-2017, JGraph Ltd
+ */
+package com.mxgraph.io;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+import com.mxgraph.model.mxCell;
+import com.mxgraph.model.mxGeometry;
+import com.mxgraph.model.mxGraphModel;
+import com.mxgraph.model.mxICell;
+import com.mxgraph.util.mxPoint;
+import com.mxgraph.util.mxRectangle;
+import com.mxgraph.util.mxXmlUtils;
+
+/**
+ * Reads and writes graph models in a compact binary format. The format is
+ * much smaller and faster to read and write than the XML of mxCodec and
+ * restores the same model.
+ *
+ * The stream starts with the magic bytes "mxGB" and the format version,
+ * followed by the number of cells and one record for each cell in the order
+ * of a depth-first traversal of the model. Parents and terminals are stored
+ * as indices into this order. Ids and styles are stored in a string table
+ * that is built while the records are written so that each distinct string
+ * is written once. Numbers are written as variable-length integers and
+ * coordinates that are integers or have at most two decimals are written as
+ * such integers.
+ *
+ * Cells that are not mxCells and cells with subclasses of mxGeometry or
+ * mxPoint are written as XML using mxCodec. User objects are written using
+ * {@link #writeValue(DataOutputStream, Object)} and read using
+ * {@link #readValue(DataInputStream)}, which can be overridden to support
+ * custom user objects.
+ *
+ * Example:
+ *
+ * <code>
+ * new mxBinaryCodec().encode(graph.getModel(), out);
+ * mxGraphModel model = new mxBinaryCodec().decode(in);
+ * </code>
+ *
+ * This class is not thread-safe. Use one instance per thread.
+ */
+public class mxBinaryCodec
+{
+
+	/**
+	 * Magic bytes at the start of the stream.
+	 */
+	public static final byte[] MAGIC = { 'm', 'x', 'G', 'B' };
+
+	/**
+	 * Version of the format that is written by this codec.
+	 */
+	public static final int VERSION = 1;
+
+	/**
+	 * Record type for cells that are written field by field.
+	 */
+	protected static final int CELL = 1;
+
+	/**
+	 * Record type for cells that are written as XML.
+	 */
+	protected static final int XML_CELL = 2;
+
+	/**
+	 * Value types for {@link #writeValue(DataOutputStream, Object)}. Subclasses
+	 * should use types greater than 15 for custom values.
+	 */
+	protected static final int VALUE_NULL = 0, VALUE_STRING = 1,
+			VALUE_ELEMENT = 2, VALUE_OBJECT = 3;
+
+	/**
+	 * Flags of the cell records.
+	 */
+	protected static final int VERTEX = 1, EDGE = 2, NOT_CONNECTABLE = 4,
+			HIDDEN = 8, COLLAPSED = 16, GEOMETRY = 32;
+
+	/**
+	 * Flags of the geometries.
+	 */
+	protected static final int RELATIVE = 1, ALTERNATE_BOUNDS = 2,
+			SOURCE_POINT = 4, TARGET_POINT = 8, POINTS = 16, OFFSET = 32;
+
+	/**
+	 * Encoding of the numbers.
+	 */
+	protected static final int INTEGER = 0, HUNDREDTHS = 1, RAW = 2;
+
+	/**
+	 * Charset for all strings.
+	 */
+	protected static final Charset UTF8 = Charset.forName("UTF-8");
+
+	/**
+	 * Holds the codec that is used for creating IDs and for the cells and
+	 * values that are written as XML.
+	 */
+	protected mxCodec codec;
+
+	/**
+	 * Maps from strings to their indices in the string table while writing.
+	 */
+	protected Map<String, Integer> stringIndex;
+
+	/**
+	 * Holds the string table while reading.
+	 */
+	protected List<String> strings;
+
+	/**
+	 * Constructs a new binary codec.
+	 */
+	public mxBinaryCodec()
+	{
+		this(null);
+	}
+
+	/**
+	 * Constructs a new binary codec that uses the given XML codec for creating
+	 * IDs and for the cells and values that are written as XML. If codec is
+	 * null then a new codec is created.
+	 */
+	public mxBinaryCodec(mxCodec codec)
+	{
+		this.codec = (codec != null) ? codec : new mxCodec()
+		{
+			public Node getElementById(String id)
+			{
+				return null;
+			}
+		};
+	}
+
+	/**
+	 * Returns the XML codec of this codec.
+	 */
+	public mxCodec getCodec()
+	{
+		return codec;
+	}
+
+	/**
+	 * Writes the given model to the given stream. The stream is flushed but
+	 * not closed.
+	 *
+	 * @param model Graph model to be written.
+	 * @param stream Stream to write the model to.
+	 */
+	public void encode(mxGraphModel model, OutputStream stream)
+			throws IOException
+	{
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+				stream));
+		stringIndex = new HashMap<String, Integer>();
+
+		try
+		{
+			// Assigns the indices in the order of the records
+			List<mxICell> cells = new ArrayList<mxICell>();
+			Map<Object, Integer> indices = new IdentityHashMap<Object, Integer>();
+			mxICell root = (mxICell) model.getRoot();
+
+			if (root != null)
+			{
+				addCell(root, cells, indices);
+			}
+
+			out.write(MAGIC);
+			writeVarLong(out, VERSION);
+			writeVarLong(out, cells.size());
+			boolean streaming = isCellStreaming();
+
+			for (mxICell cell : cells)
+			{
+				if (streaming && isStreamable(cell))
+				{
+					writeCell(out, (mxCell) cell, indices);
+				}
+				else
+				{
+					Node node = codec.encode(cell);
+					removeReferences(node);
+					out.writeByte(XML_CELL);
+					writeReferences(out, cell, indices);
+					writeString(out, mxXmlUtils.getXml(node));
+				}
+			}
+
+			out.flush();
+		}
+		finally
+		{
+			stringIndex = null;
+		}
+	}
+
+	/**
+	 * Reads a new model from the given stream.
+	 *
+	 * @param stream Stream to read the model from.
+	 * @return Returns the model.
+	 */
+	public mxGraphModel decode(InputStream stream) throws IOException
+	{
+		return decode(stream, null);
+	}
+
+	/**
+	 * Reads the model from the given stream into the given model.
+	 *
+	 * @param stream Stream to read the model from.
+	 * @param into Optional model to read the cells into.
+	 * @return Returns the given model or a new model if into is null.
+	 */
+	public mxGraphModel decode(InputStream stream, mxGraphModel into)
+			throws IOException
+	{
+		DataInputStream in = new DataInputStream(new BufferedInputStream(
+				stream));
+		mxGraphModel model = (into != null) ? into : new mxGraphModel();
+		strings = new ArrayList<String>();
+
+		try
+		{
+			byte[] magic = new byte[MAGIC.length];
+			in.readFully(magic);
+
+			for (int i = 0; i < MAGIC.length; i++)
+			{
+				if (magic[i] != MAGIC[i])
+				{
+					throw new IOException("Not an mxGraphModel");
+				}
+			}
+
+			long version = readVarLong(in);
+
+			if (version > VERSION)
+			{
+				throw new IOException("Unsupported version " + version);
+			}
+
+			int count = readInt(in);
+			mxICell[] cells = new mxICell[count];
+			int[] refs = new int[3 * count];
+
+			for (int i = 0; i < count; i++)
+			{
+				int type = in.readUnsignedByte();
+
+				if (type == CELL)
+				{
+					cells[i] = readCell(in, refs, i);
+				}
+				else if (type == XML_CELL)
+				{
+					readReferences(in, refs, i);
+					Document doc = mxXmlUtils.parseXml(readString(in));
+
+					if (doc != null)
+					{
+						cells[i] = codec.decodeCell(doc.getDocumentElement(),
+								false);
+					}
+				}
+				else
+				{
+					throw new IOException("Unknown record " + type);
+				}
+			}
+
+			// Restores the structure in the order of the records
+			mxICell rootCell = null;
+
+			for (int i = 0; i < count; i++)
+			{
+				mxICell cell = cells[i];
+
+				if (cell != null)
+				{
+					cell.setParent(getCell(cells, refs[3 * i]));
+					cell.setTerminal(getCell(cells, refs[3 * i + 1]), true);
+					cell.setTerminal(getCell(cells, refs[3 * i + 2]), false);
+					codec.insertIntoGraph(cell);
+
+					if (cell.getParent() == null)
+					{
+						rootCell = cell;
+					}
+				}
+			}
+
+			if (rootCell != null)
+			{
+				model.setRoot(rootCell);
+			}
+		}
+		finally
+		{
+			strings = null;
+		}
+
+		return model;
+	}
+
+	/**
+	 * Adds the given cell and its descendants to the given list and map.
+	 */
+	protected void addCell(mxICell cell, List<mxICell> cells,
+			Map<Object, Integer> indices)
+	{
+		indices.put(cell, Integer.valueOf(cells.size()));
+		cells.add(cell);
+		int childCount = cell.getChildCount();
+
+		for (int i = 0; i < childCount; i++)
+		{
+			addCell(cell.getChildAt(i), cells, indices);
+		}
+	}
+
+	/**
+	 * Removes the references from the given encoded cell or from the cell in
+	 * the given user object since these are written as indices.
+	 */
+	protected void removeReferences(Node node)
+	{
+		if (node instanceof Element)
+		{
+			mxObjectCodec dec = mxCodecRegistry.getCodec(node.getNodeName());
+
+			if (dec instanceof mxCellCodec)
+			{
+				for (String fieldname : dec.idrefs)
+				{
+					((Element) node).removeAttribute(dec
+							.getAttributeName(fieldname));
+				}
+			}
+			else
+			{
+				Node child = node.getFirstChild();
+
+				while (child != null)
+				{
+					if (mxCodecRegistry.getCodec(child.getNodeName()) instanceof mxCellCodec)
+					{
+						removeReferences(child);
+					}
+
+					child = child.getNextSibling();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns true if the default codecs are registered for cells and
+	 * geometries so that these can be written field by field.
+	 */
+	protected boolean isCellStreaming()
+	{
+		mxObjectCodec cellCodec = mxCodecRegistry.getCodec("mxCell");
+		mxObjectCodec geoCodec = mxCodecRegistry.getCodec("mxGeometry");
+
+		return !codec.isEncodeDefaults() && cellCodec != null
+				&& cellCodec.getClass() == mxCellCodec.class
+				&& cellCodec.getTemplate().getClass() == mxCell.class
+				&& geoCodec != null && geoCodec.getClass() == mxObjectCodec.class;
+	}
+
+	/**
+	 * Returns true if the given cell is an mxCell whose geometry and points
+	 * are instances of mxGeometry, mxRectangle and mxPoint.
+	 */
+	protected boolean isStreamable(mxICell cell)
+	{
+		if (cell.getClass() != mxCell.class)
+		{
+			return false;
+		}
+
+		mxGeometry geo = cell.getGeometry();
+
+		if (geo != null)
+		{
+			if (geo.getClass() != mxGeometry.class
+					|| (geo.getAlternateBounds() != null && geo
+							.getAlternateBounds().getClass() != mxRectangle.class)
+					|| !isPoint(geo.getSourcePoint())
+					|| !isPoint(geo.getTargetPoint())
+					|| !isPoint(geo.getOffset()))
+			{
+				return false;
+			}
+
+			if (geo.getPoints() != null)
+			{
+				for (mxPoint pt : geo.getPoints())
+				{
+					if (!isPoint(pt))
+					{
+						return false;
+					}
+				}
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Returns true if the given point is null or an mxPoint.
+	 */
+	protected boolean isPoint(mxPoint pt)
+	{
+		return pt == null || pt.getClass() == mxPoint.class;
+	}
+
+	/**
+	 * Writes the record for the given cell.
+	 */
+	protected void writeCell(DataOutputStream out, mxCell cell,
+			Map<Object, Integer> indices) throws IOException
+	{
+		mxGeometry geo = cell.getGeometry();
+		int flags = ((cell.isVertex()) ? VERTEX : 0)
+				| ((cell.isEdge()) ? EDGE : 0)
+				| ((cell.isConnectable()) ? 0 : NOT_CONNECTABLE)
+				| ((cell.isVisible()) ? 0 : HIDDEN)
+				| ((cell.isCollapsed()) ? COLLAPSED : 0)
+				| ((geo != null) ? GEOMETRY : 0);
+
+		out.writeByte(CELL);
+		writeReferences(out, cell, indices);
+		writeVarLong(out, flags);
+		writeTableString(out, codec.getId(cell));
+		writeTableString(out, cell.getStyle());
+		writeValue(out, cell.getValue());
+
+		if (geo != null)
+		{
+			writeGeometry(out, geo);
+		}
+	}
+
+	/**
+	 * Reads the record of a cell into a new cell and the references of the
+	 * cell into the given array.
+	 */
+	protected mxCell readCell(DataInputStream in, int[] refs, int index)
+			throws IOException
+	{
+		mxCell cell = new mxCell();
+		readReferences(in, refs, index);
+		int flags = readInt(in);
+		cell.setVertex((flags & VERTEX) != 0);
+		cell.setEdge((flags & EDGE) != 0);
+		cell.setConnectable((flags & NOT_CONNECTABLE) == 0);
+		cell.setVisible((flags & HIDDEN) == 0);
+		cell.setCollapsed((flags & COLLAPSED) != 0);
+		cell.setId(readTableString(in));
+		cell.setStyle(readTableString(in));
+		cell.setValue(readValue(in));
+
+		if ((flags & GEOMETRY) != 0)
+		{
+			cell.setGeometry(readGeometry(in));
+		}
+
+		return cell;
+	}
+
+	/**
+	 * Writes the indices of the parent and terminals of the given cell plus
+	 * one or 0 if a cell is null or not in the model.
+	 */
+	protected void writeReferences(DataOutputStream out, mxICell cell,
+			Map<Object, Integer> indices) throws IOException
+	{
+		writeReference(out, cell.getParent(), indices);
+		writeReference(out, cell.getTerminal(true), indices);
+		writeReference(out, cell.getTerminal(false), indices);
+	}
+
+	/**
+	 * Writes the index of the given cell plus one or 0 if the cell is null or
+	 * not in the model.
+	 */
+	protected void writeReference(DataOutputStream out, mxICell cell,
+			Map<Object, Integer> indices) throws IOException
+	{
+		Integer index = (cell != null) ? indices.get(cell) : null;
+		writeVarLong(out, (index != null) ? index.intValue() + 1 : 0);
+	}
+
+	/**
+	 * Reads the references of the given index into the given array.
+	 */
+	protected void readReferences(DataInputStream in, int[] refs, int index)
+			throws IOException
+	{
+		for (int i = 0; i < 3; i++)
+		{
+			refs[3 * index + i] = readInt(in);
+		}
+	}
+
+	/**
+	 * Returns the cell for the given reference or null.
+	 */
+	protected mxICell getCell(mxICell[] cells, int ref) throws IOException
+	{
+		if (ref > cells.length)
+		{
+			throw new IOException("Invalid reference " + ref);
+		}
+
+		return (ref > 0) ? cells[ref - 1] : null;
+	}
+
+	/**
+	 * Writes the given geometry.
+	 */
+	protected void writeGeometry(DataOutputStream out, mxGeometry geo)
+			throws IOException
+	{
+		mxRectangle alt = geo.getAlternateBounds();
+		List<mxPoint> points = geo.getPoints();
+		int flags = ((geo.isRelative()) ? RELATIVE : 0)
+				| ((alt != null) ? ALTERNATE_BOUNDS : 0)
+				| ((geo.getSourcePoint() != null) ? SOURCE_POINT : 0)
+				| ((geo.getTargetPoint() != null) ? TARGET_POINT : 0)
+				| ((points != null) ? POINTS : 0)
+				| ((geo.getOffset() != null) ? OFFSET : 0);
+
+		writeVarLong(out, flags);
+		writeNumber(out, geo.getX());
+		writeNumber(out, geo.getY());
+		writeNumber(out, geo.getWidth());
+		writeNumber(out, geo.getHeight());
+
+		if (alt != null)
+		{
+			writeNumber(out, alt.getX());
+			writeNumber(out, alt.getY());
+			writeNumber(out, alt.getWidth());
+			writeNumber(out, alt.getHeight());
+		}
+
+		writePoint(out, geo.getSourcePoint());
+		writePoint(out, geo.getTargetPoint());
+
+		if (points != null)
+		{
+			int count = 0;
+
+			for (mxPoint pt : points)
+			{
+				if (pt != null)
+				{
+					count++;
+				}
+			}
+
+			writeVarLong(out, count);
+
+			for (mxPoint pt : points)
+			{
+				writePoint(out, pt);
+			}
+		}
+
+		writePoint(out, geo.getOffset());
+	}
+
+	/**
+	 * Reads a new geometry.
+	 */
+	protected mxGeometry readGeometry(DataInputStream in) throws IOException
+	{
+		int flags = readInt(in);
+		mxGeometry geo = new mxGeometry(readNumber(in), readNumber(in),
+				readNumber(in), readNumber(in));
+		geo.setRelative((flags & RELATIVE) != 0);
+
+		if ((flags & ALTERNATE_BOUNDS) != 0)
+		{
+			geo.setAlternateBounds(new mxRectangle(readNumber(in),
+					readNumber(in), readNumber(in), readNumber(in)));
+		}
+
+		if ((flags & SOURCE_POINT) != 0)
+		{
+			geo.setSourcePoint(readPoint(in));
+		}
+
+		if ((flags & TARGET_POINT) != 0)
+		{
+			geo.setTargetPoint(readPoint(in));
+		}
+
+		if ((flags & POINTS) != 0)
+		{
+			int count = readInt(in);
+			List<mxPoint> points = new ArrayList<mxPoint>(count);
+
+			for (int i = 0; i < count; i++)
+			{
+				points.add(readPoint(in));
+			}
+
+			geo.setPoints(points);
+		}
+
+		if ((flags & OFFSET) != 0)
+		{
+			geo.setOffset(readPoint(in));
+		}
+
+		return geo;
+	}
+
+	/**
+	 * Writes the coordinates of the given point if it is not null.
+	 */
+	protected void writePoint(DataOutputStream out, mxPoint pt)
+			throws IOException
+	{
+		if (pt != null)
+		{
+			writeNumber(out, pt.getX());
+			writeNumber(out, pt.getY());
+		}
+	}
+
+	/**
+	 * Reads a new point.
+	 */
+	protected mxPoint readPoint(DataInputStream in) throws IOException
+	{
+		return new mxPoint(readNumber(in), readNumber(in));
+	}
+
+	/**
+	 * Hook for subclassers to write custom user objects. This implementation
+	 * writes null, strings and XML elements. Primitive values are written as
+	 * strings and all other values are written as XML using the codec, which
+	 * is what mxCodec does. Subclassers should write the type first and use
+	 * types greater than 15 for custom values.
+	 *
+	 * @param out Stream to write the value to.
+	 * @param value User object to be written.
+	 */
+	protected void writeValue(DataOutputStream out, Object value)
+			throws IOException
+	{
+		if (value == null)
+		{
+			out.writeByte(VALUE_NULL);
+		}
+		else if (value instanceof Element)
+		{
+			out.writeByte(VALUE_ELEMENT);
+			writeString(out, mxXmlUtils.getXml((Node) value));
+		}
+		else
+		{
+			mxObjectCodec dec = mxCodecRegistry.getCodec("mxCell");
+			Object tmp = dec.convertValueToXml(value);
+
+			if (dec.isPrimitiveValue(tmp))
+			{
+				out.writeByte(VALUE_STRING);
+				writeString(out, String.valueOf(tmp));
+			}
+			else
+			{
+				Node node = codec.encode(value);
+
+				if (node != null)
+				{
+					out.writeByte(VALUE_OBJECT);
+					writeString(out, mxXmlUtils.getXml(node));
+				}
+				else
+				{
+					out.writeByte(VALUE_NULL);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Hook for subclassers to read custom user objects that have been written
+	 * with {@link #writeValue(DataOutputStream, Object)}.
+	 *
+	 * @param in Stream to read the value from.
+	 * @return Returns the user object.
+	 */
+	protected Object readValue(DataInputStream in) throws IOException
+	{
+		int type = in.readUnsignedByte();
+
+		if (type == VALUE_STRING)
+		{
+			return readString(in);
+		}
+		else if (type == VALUE_ELEMENT || type == VALUE_OBJECT)
+		{
+			Document doc = mxXmlUtils.parseXml(readString(in));
+
+			if (doc != null)
+			{
+				return (type == VALUE_ELEMENT) ? doc.getDocumentElement()
+						: codec.decode(doc.getDocumentElement());
+			}
+		}
+		else if (type != VALUE_NULL)
+		{
+			throw new IOException("Unknown value " + type);
+		}
+
+		return null;
+	}
+
+	/**
+	 * Writes the given string using the string table. The first occurrence of
+	 * a string is written as 1 followed by the string, all others as the index
+	 * in the table plus 2. Null is written as 0.
+	 */
+	protected void writeTableString(DataOutputStream out, String value)
+			throws IOException
+	{
+		if (value == null)
+		{
+			writeVarLong(out, 0);
+		}
+		else
+		{
+			Integer index = stringIndex.get(value);
+
+			if (index != null)
+			{
+				writeVarLong(out, index.intValue() + 2);
+			}
+			else
+			{
+				stringIndex.put(value, Integer.valueOf(stringIndex.size()));
+				writeVarLong(out, 1);
+				writeString(out, value);
+			}
+		}
+	}
+
+	/**
+	 * Reads a string that has been written using
+	 * {@link #writeTableString(DataOutputStream, String)}.
+	 */
+	protected String readTableString(DataInputStream in) throws IOException
+	{
+		int code = readInt(in);
+
+		if (code == 0)
+		{
+			return null;
+		}
+		else if (code == 1)
+		{
+			String value = readString(in);
+			strings.add(value);
+
+			return value;
+		}
+		else if (code - 2 < strings.size())
+		{
+			return strings.get(code - 2);
+		}
+
+		throw new IOException("Invalid string " + code);
+	}
+
+	/**
+	 * Writes the length of the UTF-8 bytes of the given string followed by
+	 * the bytes.
+	 */
+	protected void writeString(DataOutputStream out, String value)
+			throws IOException
+	{
+		byte[] bytes = value.getBytes(UTF8);
+		writeVarLong(out, bytes.length);
+		out.write(bytes);
+	}
+
+	/**
+	 * Reads a string that has been written using
+	 * {@link #writeString(DataOutputStream, String)}.
+	 */
+	protected String readString(DataInputStream in) throws IOException
+	{
+		byte[] bytes = new byte[readInt(in)];
+		in.readFully(bytes);
+
+		return new String(bytes, UTF8);
+	}
+
+	/**
+	 * Writes the given number. Integers and numbers with at most two decimals
+	 * are written as variable-length integers, all other numbers are written
+	 * with 8 bytes.
+	 */
+	protected void writeNumber(DataOutputStream out, double value)
+			throws IOException
+	{
+		long tmp = (long) value;
+
+		if (tmp == value && Math.abs(tmp) < (1L << 52)
+				&& (tmp != 0 || 1 / value > 0))
+		{
+			writeVarLong(out, (zigZag(tmp) << 2) | INTEGER);
+		}
+		else
+		{
+			tmp = Math.round(value * 100);
+
+			if (value != 0 && Math.abs(tmp) < (1L << 52) && tmp / 100.0 == value)
+			{
+				writeVarLong(out, (zigZag(tmp) << 2) | HUNDREDTHS);
+			}
+			else
+			{
+				writeVarLong(out, RAW);
+				out.writeLong(Double.doubleToRawLongBits(value));
+			}
+		}
+	}
+
+	/**
+	 * Reads a number that has been written using
+	 * {@link #writeNumber(DataOutputStream, double)}.
+	 */
+	protected double readNumber(DataInputStream in) throws IOException
+	{
+		long code = readVarLong(in);
+		int type = (int) (code & 3);
+
+		if (type == RAW)
+		{
+			return Double.longBitsToDouble(in.readLong());
+		}
+
+		long tmp = code >>> 2;
+		tmp = (tmp >>> 1) ^ -(tmp & 1);
+
+		return (type == HUNDREDTHS) ? tmp / 100.0 : tmp;
+	}
+
+	/**
+	 * Returns the zig-zag encoding of the given value, which maps small
+	 * negative values to small positive values.
+	 */
+	protected static long zigZag(long value)
+	{
+		return (value << 1) ^ (value >> 63);
+	}
+
+	/**
+	 * Writes the given non-negative value with 7 bits per byte.
+	 */
+	protected static void writeVarLong(DataOutputStream out, long value)
+			throws IOException
+	{
+		while ((value & ~0x7FL) != 0)
+		{
+			out.writeByte((int) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+
+		out.writeByte((int) value);
+	}
+
+	/**
+	 * Reads a value that has been written using
+	 * {@link #writeVarLong(DataOutputStream, long)}.
+	 */
+	protected static long readVarLong(DataInputStream in) throws IOException
+	{
+		long result = 0;
+
+		for (int shift = 0; shift < 64; shift += 7)
+		{
+			int b = in.readUnsignedByte();
+			result |= (long) (b & 0x7F) << shift;
+
+			if ((b & 0x80) == 0)
+			{
+				return result;
+			}
+		}
+
+		throw new IOException("Invalid number");
+	}
+
+	/**
+	 * Reads a value that has been written using
+	 * {@link #writeVarLong(DataOutputStream, long)} and checks that it is a
+	 * non-negative int.
+	 */
+	protected static int readInt(DataInputStream in) throws IOException
+	{
+		long value = readVarLong(in);
+
+		if (value < 0 || value > Integer.MAX_VALUE)
+		{
+			throw new IOException("Invalid number " + value);
+		}
+
+		return (int) value;
+	}
+
+}
@@ -0,0 +1,447 @@
+/**
+ * Copyright (c) 2007-2017, JGraph Ltd
+ */
+package com.mxgraph.io;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Holds the fields and accessors of a class for encoding and decoding
+ * instances with mxObjectCodec. The plan is created once per class using
+ * reflection and uses method handles to read and write the fields. Plans are
+ * immutable and attached to their classes using a ClassValue, so that they can
+ * be shared by all codecs and threads.
+ *
+ * A field is read and written directly if it is public, otherwise the getter
+ * (is or get followed by the capitalized field name) and setter (set followed
+ * by the capitalized field name) are used if they are public.
+ */
+public class mxCodecPlan
+{
+
+	private static final Logger log = Logger.getLogger(mxCodecPlan.class.getName());
+
+	/**
+	 * Associates the plans with their classes. Unlike a static map this does
+	 * not keep the classes and their class loaders from being unloaded.
+	 */
+	protected static final ClassValue<mxCodecPlan> plans = new ClassValue<mxCodecPlan>()
+	{
+		protected mxCodecPlan computeValue(Class<?> type)
+		{
+			return new mxCodecPlan(type);
+		}
+	};
+
+	/**
+	 * Type of the getters after conversion.
+	 */
+	protected static final MethodType GETTER_TYPE = MethodType.methodType(
+			Object.class, Object.class);
+
+	/**
+	 * Type of the setters after conversion.
+	 */
+	protected static final MethodType SETTER_TYPE = MethodType.methodType(
+			void.class, Object.class, Object.class);
+
+	/**
+	 * Type of the constructor after conversion.
+	 */
+	protected static final MethodType CONSTRUCTOR_TYPE = MethodType
+			.methodType(Object.class);
+
+	/**
+	 * Holds the class of this plan.
+	 */
+	protected Class<?> type;
+
+	/**
+	 * Holds the constructor without arguments or null.
+	 */
+	protected MethodHandle constructor;
+
+	/**
+	 * Holds the names of the non-transient fields in the order in which they
+	 * are encoded, that is, the declared fields of the class followed by the
+	 * declared fields of the superclasses.
+	 */
+	protected List<String> encodedFields;
+
+	/**
+	 * Maps from field names to the properties. If a field is declared in more
+	 * than one class then the field of the most specific class is used.
+	 */
+	protected Map<String, mxProperty> properties;
+
+	/**
+	 * Returns the plan for the given class.
+	 */
+	public static mxCodecPlan getPlan(Class<?> type)
+	{
+		return plans.get(type);
+	}
+
+	/**
+	 * Constructs a new plan for the given class.
+	 */
+	protected mxCodecPlan(Class<?> type)
+	{
+		this.type = type;
+		List<String> names = new ArrayList<String>();
+		Map<String, mxProperty> props = new HashMap<String, mxProperty>();
+		Class<?> current = type;
+
+		while (current != null)
+		{
+			Field[] fields = current.getDeclaredFields();
+
+			for (int i = 0; i < fields.length; i++)
+			{
+				Field field = fields[i];
+
+				if (!Modifier.isTransient(field.getModifiers()))
+				{
+					names.add(field.getName());
+				}
+
+				if (!props.containsKey(field.getName()))
+				{
+					props.put(field.getName(), new mxProperty(type, field));
+				}
+			}
+
+			current = current.getSuperclass();
+		}
+
+		encodedFields = Collections.unmodifiableList(names);
+		properties = props;
+
+		try
+		{
+			constructor = MethodHandles.publicLookup()
+					.findConstructor(type, MethodType.methodType(void.class))
+					.asType(CONSTRUCTOR_TYPE);
+		}
+		catch (Exception e)
+		{
+			log.log(Level.FINEST, "No public constructor in " + type, e);
+		}
+	}
+
+	/**
+	 * Returns the class of this plan.
+	 */
+	public Class<?> getType()
+	{
+		return type;
+	}
+
+	/**
+	 * Returns the names of the non-transient fields in the order in which
+	 * they are encoded.
+	 */
+	public List<String> getEncodedFields()
+	{
+		return encodedFields;
+	}
+
+	/**
+	 * Returns the property for the given field name or null if no such field
+	 * exists.
+	 */
+	public mxProperty getProperty(String fieldname)
+	{
+		return properties.get(fieldname);
+	}
+
+	/**
+	 * Returns a new instance of the class using the public constructor
+	 * without arguments.
+	 */
+	public Object newInstance() throws InstantiationException
+	{
+		if (constructor == null)
+		{
+			throw new InstantiationException("No public constructor in "
+					+ type.getName());
+		}
+
+		try
+		{
+			return (Object) constructor.invokeExact();
+		}
+		catch (Error e)
+		{
+			throw e;
+		}
+		catch (Throwable e)
+		{
+			InstantiationException ex = new InstantiationException(
+					e.toString());
+			ex.initCause(e);
+
+			throw ex;
+		}
+	}
+
+	/**
+	 * Returns the public method with the given name and parameters in the
+	 * given class or its superclasses or null if no such method exists.
+	 */
+	protected static Method getMethod(Class<?> type, String name,
+			Class<?>[] params)
+	{
+		while (type != null)
+		{
+			try
+			{
+				return type.getDeclaredMethod(name, params);
+			}
+			catch (NoSuchMethodException e)
+			{
+				// ignore
+			}
+
+			type = type.getSuperclass();
+		}
+
+		return null;
+	}
+
+	/**
+	 * Returns the method handle for the given method converted to the given
+	 * type or null if the method is null or not accessible.
+	 */
+	protected static MethodHandle unreflect(Method method, MethodType type)
+	{
+		if (method != null)
+		{
+			try
+			{
+				return MethodHandles.publicLookup().unreflect(method)
+						.asType(type);
+			}
+			catch (IllegalAccessException e)
+			{
+				log.log(Level.FINEST, "Cannot access " + method, e);
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Describes how to read and write a field.
+	 */
+	public static class mxProperty
+	{
+
+		/**
+		 * Holds the field.
+		 */
+		protected Field field;
+
+		/**
+		 * Holds the getter or null if the field cannot be read.
+		 */
+		protected MethodHandle getter;
+
+		/**
+		 * Holds the setter or null if the field cannot be written.
+		 */
+		protected MethodHandle setter;
+
+		/**
+		 * Holds the type of values that are passed to the setter.
+		 */
+		protected Class<?> setterType;
+
+		/**
+		 * Specifies if the setter writes the field directly.
+		 */
+		protected boolean direct;
+
+		/**
+		 * Constructs a new property for the given field. The accessors are
+		 * looked up in the given class and its superclasses.
+		 */
+		public mxProperty(Class<?> type, Field field)
+		{
+			this.field = field;
+			boolean isStatic = Modifier.isStatic(field.getModifiers());
+			String name = field.getName();
+			name = name.substring(0, 1).toUpperCase() + name.substring(1);
+
+			if (Modifier.isPublic(field.getModifiers()))
+			{
+				try
+				{
+					MethodHandle tmp = MethodHandles.publicLookup()
+							.unreflectGetter(field);
+
+					if (isStatic)
+					{
+						tmp = MethodHandles.dropArguments(tmp, 0, Object.class);
+					}
+
+					getter = tmp.asType(GETTER_TYPE);
+				}
+				catch (IllegalAccessException e)
+				{
+					// uses accessor
+				}
+
+				try
+				{
+					MethodHandle tmp = MethodHandles.publicLookup()
+							.unreflectSetter(field);
+
+					if (isStatic)
+					{
+						tmp = MethodHandles.dropArguments(tmp, 0, Object.class);
+					}
+
+					setter = tmp.asType(SETTER_TYPE);
+					setterType = field.getType();
+					direct = true;
+				}
+				catch (IllegalAccessException e)
+				{
+					// uses accessor
+				}
+			}
+
+			if (getter == null)
+			{
+				String getterName = (field.getType() == boolean.class) ? "is"
+						+ name : "get" + name;
+				getter = unreflect(getMethod(type, getterName, null),
+						GETTER_TYPE);
+			}
+
+			if (setter == null)
+			{
+				Method method = getMethod(type, "set" + name,
+						new Class<?>[] { field.getType() });
+
+				if (method != null)
+				{
+					setter = unreflect(method, SETTER_TYPE);
+					setterType = method.getParameterTypes()[0];
+				}
+			}
+		}
+
+		/**
+		 * Returns the field.
+		 */
+		public Field getField()
+		{
+			return field;
+		}
+
+		/**
+		 * Returns true if the field can be read.
+		 */
+		public boolean isReadable()
+		{
+			return getter != null;
+		}
+
+		/**
+		 * Returns true if the field can be written.
+		 */
+		public boolean isWritable()
+		{
+			return setter != null;
+		}
+
+		/**
+		 * Returns true if the field is written directly and not using a
+		 * setter.
+		 */
+		public boolean isDirect()
+		{
+			return direct;
+		}
+
+		/**
+		 * Returns the type of the values that are passed to the setter.
+		 */
+		public Class<?> getSetterType()
+		{
+			return setterType;
+		}
+
+		/**
+		 * Returns the value of the field in the given object.
+		 */
+		public Object getValue(Object obj) throws Exception
+		{
+			if (getter == null)
+			{
+				throw new IllegalAccessException("No getter for " + field);
+			}
+
+			try
+			{
+				return (Object) getter.invokeExact(obj);
+			}
+			catch (Exception e)
+			{
+				throw e;
+			}
+			catch (Error e)
+			{
+				throw e;
+			}
+			catch (Throwable e)
+			{
+				throw new IllegalStateException(e);
+			}
+		}
+
+		/**
+		 * Sets the value of the field in the given object.
+		 */
+		public void setValue(Object obj, Object value) throws Exception
+		{
+			if (setter == null)
+			{
+				throw new IllegalAccessException("No setter for " + field);
+			}
+
+			try
+			{
+				setter.invokeExact(obj, value);
+			}
+			catch (Exception e)
+			{
+				throw e;
+			}
+			catch (Error e)
+			{
+				throw e;
+			}
+			catch (Throwable e)
+			{
+				throw new IllegalStateException(e);
+			}
+		}
+
+	}
+
+}
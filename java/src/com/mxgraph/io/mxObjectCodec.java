@@ -6,9 +6,7 @@ package com.mxgraph.io;
 import java.lang.reflect.Array;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
-import java.lang.reflect.Modifier;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Hashtable;
 import java.util.Iterator;
@@ -68,14 +66,11 @@ public class mxObjectCodec
 	protected Map<String, String> reverse;
 
 	/**
-	 * Caches accessors for the given method names.
+	 * Specifies if a subclass overrides getAccessor or getMethod. In this
+	 * case the accessors of non-public fields are looked up with these
+	 * methods on each access instead of using the shared codec plan.
 	 */
-	protected Map<String, Method> accessors;
-
-	/**
-	 * Caches fields for faster access.
-	 */
-	protected Map<Class, Map<String, Field>> fields;
+	protected boolean customAccessors;
 
 	/**
 	 * Constructs a new codec for the specified template object.
@@ -145,6 +140,38 @@ public class mxObjectCodec
 			Map.Entry<String, String> e = it.next();
 			reverse.put(e.getValue(), e.getKey());
 		}
+
+		customAccessors = isOverridden("getAccessor", Object.class,
+				Field.class, boolean.class)
+				|| isOverridden("getMethod", Object.class, String.class,
+						Class[].class);
+	}
+
+	/**
+	 * Returns true if the method with the given name and parameters is
+	 * declared in a subclass of mxObjectCodec.
+	 */
+	protected boolean isOverridden(String name, Class<?>... params)
+	{
+		Class<?> type = getClass();
+
+		while (type != mxObjectCodec.class)
+		{
+			try
+			{
+				type.getDeclaredMethod(name, params);
+
+				return true;
+			}
+			catch (NoSuchMethodException e)
+			{
+				// ignore
+			}
+
+			type = type.getSuperclass();
+		}
+
+		return false;
 	}
 
 	/**
@@ -199,7 +226,7 @@ public class mxObjectCodec
 			}
 			else
 			{
-				obj = template.getClass().newInstance();
+				obj = mxCodecPlan.getPlan(template.getClass()).newInstance();
 			}
 
 			// Special case: Check if the collection
@@ -230,10 +257,6 @@ public class mxObjectCodec
 		{
 			log.log(Level.FINEST, "Failed to clone the template", e);
 		}
-		catch (IllegalAccessException e)
-		{
-			log.log(Level.FINEST, "Failed to clone the template", e);
-		}
 
 		return obj;
 	}
@@ -352,27 +375,14 @@ public class mxObjectCodec
 	 */
 	protected void encodeFields(mxCodec enc, Object obj, Node node)
 	{
-		// LATER: Use PropertyDescriptors in Introspector.getBeanInfo(clazz)
-		// see http://forum.jgraph.com/questions/1424
-		Class<?> type = obj.getClass();
+		Iterator<String> it = mxCodecPlan.getPlan(obj.getClass())
+				.getEncodedFields().iterator();
 
-		while (type != null)
+		while (it.hasNext())
 		{
-			Field[] fields = type.getDeclaredFields();
-
-			for (int i = 0; i < fields.length; i++)
-			{
-				Field f = fields[i];
-
-				if ((f.getModifiers() & Modifier.TRANSIENT) != Modifier.TRANSIENT)
-				{
-					String fieldname = f.getName();
-					Object value = getFieldValue(obj, fieldname);
-					encodeValue(enc, obj, fieldname, value, node);
-				}
-			}
-
-			type = type.getSuperclass();
+			String fieldname = it.next();
+			Object value = getFieldValue(obj, fieldname);
+			encodeValue(enc, obj, fieldname, value, node);
 		}
 	}
 
@@ -652,51 +662,11 @@ public class mxObjectCodec
 	 */
 	protected Field getField(Object obj, String fieldname)
 	{
-		Class<?> type = obj.getClass();
+		mxCodecPlan.mxProperty property = getProperty(obj, fieldname);
 
-		// Creates the fields cache
-		if (fields == null)
+		if (property != null)
 		{
-			fields = new HashMap<Class, Map<String, Field>>();
-		}
-
-		// Creates the fields cache entry for the given type
-		Map<String, Field> map = fields.get(type);
-
-		if (map == null)
-		{
-			map = new HashMap<String, Field>();
-			fields.put(type, map);
-		}
-
-		// Tries to get cached field
-		Field field = map.get(fieldname);
-
-		if (field != null)
-		{
-			return field;
-		}
-
-		while (type != null)
-		{
-			try
-			{
-				field = type.getDeclaredField(fieldname);
-
-				if (field != null)
-				{
-					// Adds field to fields cache
-					map.put(fieldname, field);
-
-					return field;
-				}
-			}
-			catch (Exception e)
-			{
-				log.log(Level.FINEST, "Failed to get field " + fieldname + " in class " + type, e);
-			}
-
-			type = type.getSuperclass();
+			return property.getField();
 		}
 
 		log.log(Level.FINEST, "Field " + fieldname + " not found in " + obj);
@@ -704,7 +674,19 @@ public class mxObjectCodec
 	}
 
 	/**
-	 * Returns the accessor (getter, setter) for the specified field.
+	 * Returns the property of the codec plan for the class of the given
+	 * object and the specified field name or null if no such field exists.
+	 */
+	protected mxCodecPlan.mxProperty getProperty(Object obj, String fieldname)
+	{
+		return mxCodecPlan.getPlan(obj.getClass()).getProperty(fieldname);
+	}
+
+	/**
+	 * Returns the accessor (getter, setter) for the specified field. This is
+	 * only called if a subclass overrides this or getMethod, otherwise the
+	 * accessors are looked up once per class by mxCodecPlan and shared by
+	 * all codecs.
 	 */
 	protected Method getAccessor(Object obj, Field field, boolean isGetter)
 	{
@@ -724,38 +706,23 @@ public class mxObjectCodec
 			name = "get" + name;
 		}
 
-		Method method = (accessors != null) ? accessors.get(name) : null;
+		Method method = null;
 
-		if (method == null)
+		try
 		{
-			try
-			{
-				if (isGetter)
-				{
-					method = getMethod(obj, name, null);
-				}
-				else
-				{
-					method = getMethod(obj, name,
-							new Class[] { field.getType() });
-				}
-			}
-			catch (Exception e)
+			if (isGetter)
 			{
-				log.log(Level.FINEST, "Failed to get method " + name + " from " + obj, e);
+				method = getMethod(obj, name, null);
 			}
-
-			// Adds accessor to cache
-			if (method != null)
+			else
 			{
-				if (accessors == null)
-				{
-					accessors = new Hashtable<String, Method>();
-				}
-
-				accessors.put(name, method);
+				method = getMethod(obj, name, new Class[] { field.getType() });
 			}
 		}
+		catch (Exception e)
+		{
+			log.log(Level.FINEST, "Failed to get method " + name + " from " + obj, e);
+		}
 
 		if (method == null)
 		{
@@ -773,7 +740,8 @@ public class mxObjectCodec
 	}
 
 	/**
-	 * Returns the method with the specified signature.
+	 * Returns the method with the specified signature. This is only called
+	 * by getAccessor.
 	 */
 	protected Method getMethod(Object obj, String methodname, Class[] params)
 	{
@@ -810,29 +778,26 @@ public class mxObjectCodec
 
 		if (obj != null && fieldname != null)
 		{
-			Field field = getField(obj, fieldname);
+			mxCodecPlan.mxProperty property = getProperty(obj, fieldname);
 
-			try
+			if (property == null)
 			{
-				if (field != null)
-				{
-					if (Modifier.isPublic(field.getModifiers()))
-					{
-						value = field.get(obj);
-					}
-					else
-					{
-						value = getFieldValueWithAccessor(obj, field);
-					}
-				}
+				log.log(Level.FINEST, "Field " + fieldname + " not found in " + obj);
 			}
-			catch (IllegalAccessException e1)
+			else if (property.isDirect())
 			{
-				value = getFieldValueWithAccessor(obj, field);
+				try
+				{
+					value = property.getValue(obj);
+				}
+				catch (Exception e)
+				{
+					log.log(Level.FINEST, "Failed to get value from field " + fieldname + " in " + obj, e);
+				}
 			}
-			catch (Exception e)
+			else
 			{
-				log.log(Level.FINEST, "Failed to get value from field " + fieldname + " in " + obj, e);
+				value = getFieldValueWithAccessor(obj, property.getField());
 			}
 		}
 
@@ -850,12 +815,30 @@ public class mxObjectCodec
 		{
 			try
 			{
-				Method method = getAccessor(obj, field, true);
+				Method method = null;
+				mxCodecPlan.mxProperty property = null;
+
+				if (customAccessors)
+				{
+					method = getAccessor(obj, field, true);
+				}
+				else
+				{
+					property = getProperty(obj, field.getName());
+				}
 
 				if (method != null)
 				{
 					value = method.invoke(obj, (Object[]) null);
 				}
+				else if (property != null && property.isReadable())
+				{
+					value = property.getValue(obj);
+				}
+				else if (!customAccessors && log.isLoggable(Level.FINER))
+				{
+					log.finer("Failed to find accessor for " + field + " in " + obj);
+				}
 			}
 			catch (Exception e)
 			{
@@ -872,38 +855,36 @@ public class mxObjectCodec
 	 */
 	protected void setFieldValue(Object obj, String fieldname, Object value)
 	{
-		Field field = null;
+		mxCodecPlan.mxProperty property = getProperty(obj, fieldname);
 
-		try
+		if (property == null)
 		{
-			field = getField(obj, fieldname);
-
-			if (field != null)
+			log.log(Level.FINEST, "Field " + fieldname + " not found in " + obj);
+		}
+		else
+		{
+			try
 			{
-				if (field.getType() == Boolean.class)
+				if (property.getField().getType() == Boolean.class)
 				{
 					value = (value.equals("1") || String.valueOf(value)
 							.equalsIgnoreCase("true")) ? Boolean.TRUE
 							: Boolean.FALSE;
 				}
 
-				if (Modifier.isPublic(field.getModifiers()))
+				if (property.isDirect())
 				{
-					field.set(obj, value);
+					property.setValue(obj, value);
 				}
 				else
 				{
-					setFieldValueWithAccessor(obj, field, value);
+					setFieldValueWithAccessor(obj, property.getField(), value);
 				}
 			}
-		}
-		catch (IllegalAccessException e1)
-		{
-			setFieldValueWithAccessor(obj, field, value);
-		}
-		catch (Exception e)
-		{
-			log.log(Level.FINEST, "Failed to set value \"" + value + "\" to field " + fieldname + " in " + obj, e);
+			catch (Exception e)
+			{
+				log.log(Level.FINEST, "Failed to set value \"" + value + "\" to field " + fieldname + " in " + obj, e);
+			}
 		}
 	}
 
@@ -917,11 +898,31 @@ public class mxObjectCodec
 		{
 			try
 			{
-				Method method = getAccessor(obj, field, false);
+				Method method = null;
+				mxCodecPlan.mxProperty property = null;
+				Class<?> type = null;
 
-				if (method != null)
+				if (customAccessors)
+				{
+					method = getAccessor(obj, field, false);
+
+					if (method != null)
+					{
+						type = method.getParameterTypes()[0];
+					}
+				}
+				else
+				{
+					property = getProperty(obj, field.getName());
+
+					if (property != null && property.isWritable())
+					{
+						type = property.getSetterType();
+					}
+				}
+
+				if (type != null)
 				{
-					Class<?> type = method.getParameterTypes()[0];
 					value = convertValueFromXml(type, value);
 
 					// Converts collection to a typed array before setting
@@ -932,7 +933,18 @@ public class mxObjectCodec
 								type.getComponentType(), coll.size()));
 					}
 
-					method.invoke(obj, new Object[] { value });
+					if (method != null)
+					{
+						method.invoke(obj, new Object[] { value });
+					}
+					else
+					{
+						property.setValue(obj, value);
+					}
+				}
+				else if (!customAccessors && log.isLoggable(Level.FINER))
+				{
+					log.finer("Failed to find accessor for " + field + " in " + obj);
 				}
 			}
 			catch (Exception e)
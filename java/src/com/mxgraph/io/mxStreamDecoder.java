@@ -0,0 +1,960 @@
+/**
+ * Copyright (c) 2007-2017, JGraph Ltd
+ */
+package com.mxgraph.io;
+
+import java.io.InputStream;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+import com.mxgraph.model.mxCell;
+import com.mxgraph.model.mxGeometry;
+import com.mxgraph.model.mxGraphModel;
+import com.mxgraph.model.mxICell;
+import com.mxgraph.util.mxPoint;
+
+/**
+ * Decodes graph models from XML using a streaming parser so that large
+ * diagrams can be read without holding the complete DOM in memory. Cells,
+ * geometries and points are created directly from the parser events.
+ * References to parents and terminals that have not been read yet are stored
+ * in a table of pending references and resolved as soon as the respective
+ * cell is read. The structure of the model is restored after all cells have
+ * been read, in the order in which the cells appear in the document. The
+ * result is the same as decoding the document with mxCodec.
+ *
+ * User objects (inversion) and all other elements, such as the alternate
+ * bounds of a geometry, are read into a DOM element and passed to the codec
+ * that is registered for the respective name in mxCodecRegistry.
+ *
+ * Example:
+ *
+ * <code>
+ * mxGraphModel model = new mxStreamDecoder().decode(new FileInputStream(filename));
+ * </code>
+ *
+ * This class is not thread-safe. Use one instance per thread.
+ */
+public class mxStreamDecoder
+{
+
+	private static final Logger log = Logger.getLogger(mxStreamDecoder.class.getName());
+
+	/**
+	 * Shared factory for creating the stream readers.
+	 */
+	protected static XMLInputFactory inputFactory = null;
+
+	/**
+	 * Holds the codec that is used for the object lookup table and for the
+	 * elements that are decoded as DOM elements.
+	 */
+	protected mxCodec codec;
+
+	/**
+	 * Maps from the IDs of cells that have not been read yet to the
+	 * references that are waiting for the respective cells.
+	 */
+	protected Map<String, List<mxPendingReference>> pending;
+
+	/**
+	 * Holds the decoded cells in the order in which they appear in the
+	 * document.
+	 */
+	protected List<mxICell> cells;
+
+	/**
+	 * Specifies if the default codecs are registered for geometries, points
+	 * and arrays so that these can be created directly from the stream.
+	 */
+	protected boolean geometryStreaming;
+
+	/**
+	 * Returns the shared factory for creating stream readers. External
+	 * entities and DTDs are ignored.
+	 */
+	public static synchronized XMLInputFactory getInputFactory()
+	{
+		if (inputFactory == null)
+		{
+			XMLInputFactory factory = XMLInputFactory.newInstance();
+			factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+			factory.setProperty(
+					XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES,
+					Boolean.FALSE);
+			factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE,
+					Boolean.FALSE);
+
+			try
+			{
+				// Keeps CDATA sections in user objects as in the DOM parser
+				factory.setProperty(
+						"http://java.sun.com/xml/stream/properties/report-cdata-event",
+						Boolean.TRUE);
+			}
+			catch (IllegalArgumentException e)
+			{
+				log.log(Level.FINEST, "Failed to set property", e);
+			}
+
+			inputFactory = factory;
+		}
+
+		return inputFactory;
+	}
+
+	/**
+	 * Returns the codec of the last decoding, which contains the decoded
+	 * objects by ID.
+	 */
+	public mxCodec getCodec()
+	{
+		return codec;
+	}
+
+	/**
+	 * Decodes a new graph model from the given stream.
+	 *
+	 * @param in Stream that contains the XML of the model.
+	 * @return Returns the decoded graph model.
+	 */
+	public mxGraphModel decode(InputStream in) throws XMLStreamException
+	{
+		XMLStreamReader reader = getInputFactory().createXMLStreamReader(in);
+
+		try
+		{
+			return decode(reader, null);
+		}
+		finally
+		{
+			reader.close();
+		}
+	}
+
+	/**
+	 * Decodes a new graph model from the given reader.
+	 *
+	 * @param in Reader that contains the XML of the model.
+	 * @return Returns the decoded graph model.
+	 */
+	public mxGraphModel decode(Reader in) throws XMLStreamException
+	{
+		XMLStreamReader reader = getInputFactory().createXMLStreamReader(in);
+
+		try
+		{
+			return decode(reader, null);
+		}
+		finally
+		{
+			reader.close();
+		}
+	}
+
+	/**
+	 * Decodes the next element of the given reader into the given model. The
+	 * element must be the encoding of a graph model.
+	 *
+	 * @param reader Stream reader that contains the XML of the model.
+	 * @param into Optional model to decode the cells into.
+	 * @return Returns the given model or a new model if into is null.
+	 */
+	public mxGraphModel decode(XMLStreamReader reader, mxGraphModel into)
+			throws XMLStreamException
+	{
+		mxGraphModel model = (into != null) ? into : new mxGraphModel();
+		codec = createCodec();
+		pending = new HashMap<String, List<mxPendingReference>>();
+		cells = new ArrayList<mxICell>();
+		geometryStreaming = isDefaultCodec("mxGeometry", mxGeometry.class)
+				&& isDefaultCodec("mxPoint", mxPoint.class)
+				&& isDefaultCodec("Array", ArrayList.class);
+
+		int event = reader.getEventType();
+
+		while (event != XMLStreamConstants.START_ELEMENT && reader.hasNext())
+		{
+			event = reader.next();
+		}
+
+		if (event == XMLStreamConstants.START_ELEMENT)
+		{
+			String name = getName(reader);
+			mxObjectCodec dec = mxCodecRegistry.getCodec(name);
+
+			if (!(dec instanceof mxModelCodec))
+			{
+				throw new XMLStreamException("Expected mxGraphModel but found "
+						+ name, reader.getLocation());
+			}
+
+			readModel(reader, dec, model);
+			restoreStructures(model);
+		}
+
+		return model;
+	}
+
+	/**
+	 * Returns a new codec whose document is used for creating the DOM
+	 * elements. The codec never parses forward references since these are
+	 * resolved by this decoder. Subclassers can override this to implement a
+	 * custom lookup.
+	 */
+	protected mxCodec createCodec()
+	{
+		return new mxCodec()
+		{
+			public Node getElementById(String id)
+			{
+				return null;
+			}
+		};
+	}
+
+	/**
+	 * Returns true if the codec for the given name is the default codec for
+	 * the given class.
+	 */
+	protected boolean isDefaultCodec(String name, Class<?> type)
+	{
+		mxObjectCodec dec = mxCodecRegistry.getCodec(name);
+
+		return dec != null && dec.getClass() == mxObjectCodec.class
+				&& dec.getTemplate().getClass() == type;
+	}
+
+	/**
+	 * Reads the attributes and children of the current model element.
+	 */
+	protected void readModel(XMLStreamReader reader, mxObjectCodec dec,
+			mxGraphModel model) throws XMLStreamException
+	{
+		readAttributes(reader, dec, model);
+		boolean rootRead = false;
+
+		while (reader.hasNext())
+		{
+			int event = reader.next();
+
+			if (event == XMLStreamConstants.START_ELEMENT)
+			{
+				if (!rootRead && getName(reader).equals("root"))
+				{
+					readRoot(reader);
+					rootRead = true;
+				}
+				else
+				{
+					decodeChild(dec, readElement(reader), model);
+				}
+			}
+			else if (event == XMLStreamConstants.END_ELEMENT)
+			{
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Reads all cells in the current root element.
+	 */
+	protected void readRoot(XMLStreamReader reader) throws XMLStreamException
+	{
+		while (reader.hasNext())
+		{
+			int event = reader.next();
+
+			if (event == XMLStreamConstants.START_ELEMENT)
+			{
+				mxICell cell = readCell(reader);
+
+				if (cell != null)
+				{
+					cells.add(cell);
+				}
+			}
+			else if (event == XMLStreamConstants.END_ELEMENT)
+			{
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Reads the cell for the current element. Elements that have no cell
+	 * codec are read into a DOM element and decoded using inversion.
+	 */
+	protected mxICell readCell(XMLStreamReader reader)
+			throws XMLStreamException
+	{
+		mxObjectCodec dec = mxCodecRegistry.getCodec(getName(reader));
+
+		if (dec instanceof mxCellCodec)
+		{
+			String id = reader.getAttributeValue(null, "id");
+			Object obj = createObject(dec, id);
+
+			if (obj instanceof mxCell)
+			{
+				((mxCell) obj).setId((id != null) ? id : "");
+			}
+
+			readAttributes(reader, dec, obj);
+
+			while (reader.hasNext())
+			{
+				int event = reader.next();
+
+				if (event == XMLStreamConstants.START_ELEMENT)
+				{
+					if (geometryStreaming
+							&& getName(reader).equals("mxGeometry")
+							&& "geometry".equals(dec.getFieldName(reader
+									.getAttributeValue(null, "as")))
+							&& !dec.isExcluded(obj, "geometry", null, false))
+					{
+						setFieldValue(dec, obj, "geometry",
+								readGeometry(reader));
+					}
+					else
+					{
+						decodeChild(dec, readElement(reader), obj);
+					}
+				}
+				else if (event == XMLStreamConstants.END_ELEMENT)
+				{
+					break;
+				}
+			}
+
+			return (obj instanceof mxICell) ? (mxICell) obj : null;
+		}
+
+		return decodeCell(readElement(reader));
+	}
+
+	/**
+	 * Decodes the cell for the given user object element (inversion). The
+	 * element is used as the value of the cell after the inner cell element
+	 * has been removed. This is the same as mxCellCodec.beforeDecode, except
+	 * for forward references which are added to the pending references.
+	 */
+	protected mxICell decodeCell(Element node)
+	{
+		mxObjectCodec dec = mxCodecRegistry.getCodec(mxCell.class
+				.getSimpleName());
+		Object obj = createObject(dec, node.getAttribute("id"));
+		Node inner = node.getElementsByTagName(dec.getName()).item(0);
+
+		if (inner != null && inner.getParentNode() == node)
+		{
+			// Removes annotation and whitespace from node
+			Node tmp = inner.getPreviousSibling();
+
+			while (tmp != null && tmp.getNodeType() == Node.TEXT_NODE)
+			{
+				Node tmp2 = tmp.getPreviousSibling();
+
+				if (tmp.getTextContent().trim().length() == 0)
+				{
+					node.removeChild(tmp);
+				}
+
+				tmp = tmp2;
+			}
+
+			tmp = inner.getNextSibling();
+
+			if (tmp != null && tmp.getNodeType() == Node.TEXT_NODE
+					&& tmp.getTextContent().trim().length() == 0)
+			{
+				node.removeChild(tmp);
+			}
+
+			node.removeChild(inner);
+		}
+		else
+		{
+			inner = null;
+		}
+
+		if (obj instanceof mxCell)
+		{
+			mxCell cell = (mxCell) obj;
+			cell.setValue(node);
+			cell.setId(node.getAttribute("id"));
+			node.removeAttribute("id");
+		}
+
+		if (inner != null)
+		{
+			for (int i = 0; i < inner.getAttributes().getLength(); i++)
+			{
+				Node attr = inner.getAttributes().item(i);
+				decodeAttribute(dec, obj, attr.getNodeName(),
+						attr.getNodeValue());
+			}
+
+			Node child = inner.getFirstChild();
+
+			while (child != null)
+			{
+				if (child.getNodeType() == Node.ELEMENT_NODE)
+				{
+					decodeChild(dec, (Element) child, obj);
+				}
+
+				child = child.getNextSibling();
+			}
+		}
+
+		return (obj instanceof mxICell) ? (mxICell) obj : null;
+	}
+
+	/**
+	 * Reads the geometry for the current element.
+	 */
+	protected mxGeometry readGeometry(XMLStreamReader reader)
+			throws XMLStreamException
+	{
+		mxObjectCodec dec = mxCodecRegistry.getCodec("mxGeometry");
+		mxGeometry geo = (mxGeometry) createObject(dec,
+				reader.getAttributeValue(null, "id"));
+
+		for (int i = 0; i < reader.getAttributeCount(); i++)
+		{
+			String name = getAttributeName(reader, i);
+			String value = reader.getAttributeValue(i);
+
+			if (name.equals("x"))
+			{
+				geo.setX(Double.parseDouble(value));
+			}
+			else if (name.equals("y"))
+			{
+				geo.setY(Double.parseDouble(value));
+			}
+			else if (name.equals("width"))
+			{
+				geo.setWidth(Double.parseDouble(value));
+			}
+			else if (name.equals("height"))
+			{
+				geo.setHeight(Double.parseDouble(value));
+			}
+			else if (name.equals("relative"))
+			{
+				geo.setRelative(isTrue(value));
+			}
+			else
+			{
+				decodeAttribute(dec, geo, name, value);
+			}
+		}
+
+		while (reader.hasNext())
+		{
+			int event = reader.next();
+
+			if (event == XMLStreamConstants.START_ELEMENT)
+			{
+				String name = getName(reader);
+				String as = reader.getAttributeValue(null, "as");
+
+				if (name.equals("mxPoint") && "sourcePoint".equals(as))
+				{
+					geo.setSourcePoint(readPoint(reader));
+				}
+				else if (name.equals("mxPoint") && "targetPoint".equals(as))
+				{
+					geo.setTargetPoint(readPoint(reader));
+				}
+				else if (name.equals("mxPoint") && "offset".equals(as))
+				{
+					geo.setOffset(readPoint(reader));
+				}
+				else if (name.equals("Array") && "points".equals(as))
+				{
+					geo.setPoints(readPoints(reader));
+				}
+				else
+				{
+					decodeChild(dec, readElement(reader), geo);
+				}
+			}
+			else if (event == XMLStreamConstants.END_ELEMENT)
+			{
+				break;
+			}
+		}
+
+		return geo;
+	}
+
+	/**
+	 * Reads the list of points for the current array element.
+	 */
+	protected List<mxPoint> readPoints(XMLStreamReader reader)
+			throws XMLStreamException
+	{
+		List<mxPoint> points = new ArrayList<mxPoint>();
+
+		while (reader.hasNext())
+		{
+			int event = reader.next();
+
+			if (event == XMLStreamConstants.START_ELEMENT)
+			{
+				if (getName(reader).equals("mxPoint"))
+				{
+					points.add(readPoint(reader));
+				}
+				else
+				{
+					Object value = codec.decode(readElement(reader));
+
+					if (value instanceof mxPoint)
+					{
+						points.add((mxPoint) value);
+					}
+				}
+			}
+			else if (event == XMLStreamConstants.END_ELEMENT)
+			{
+				break;
+			}
+		}
+
+		return points;
+	}
+
+	/**
+	 * Reads the point for the current element.
+	 */
+	protected mxPoint readPoint(XMLStreamReader reader)
+			throws XMLStreamException
+	{
+		mxObjectCodec dec = mxCodecRegistry.getCodec("mxPoint");
+		mxPoint pt = (mxPoint) createObject(dec,
+				reader.getAttributeValue(null, "id"));
+
+		for (int i = 0; i < reader.getAttributeCount(); i++)
+		{
+			String name = getAttributeName(reader, i);
+			String value = reader.getAttributeValue(i);
+
+			if (name.equals("x"))
+			{
+				pt.setX(Double.parseDouble(value));
+			}
+			else if (name.equals("y"))
+			{
+				pt.setY(Double.parseDouble(value));
+			}
+			else
+			{
+				decodeAttribute(dec, pt, name, value);
+			}
+		}
+
+		readChildren(reader, dec, pt);
+
+		return pt;
+	}
+
+	/**
+	 * Returns the object for the given ID from the lookup table or a new
+	 * instance of the template of the given codec which is added to the lookup
+	 * table if the ID is not empty.
+	 */
+	protected Object createObject(mxObjectCodec dec, String id)
+	{
+		Object obj = (id != null) ? codec.objects.get(id) : null;
+
+		if (obj == null)
+		{
+			obj = dec.cloneTemplate(null);
+
+			if (id != null && id.length() > 0)
+			{
+				putObject(id, obj);
+			}
+		}
+
+		return obj;
+	}
+
+	/**
+	 * Adds the given object to the lookup table and resolves all pending
+	 * references to the given ID.
+	 */
+	protected void putObject(String id, Object obj)
+	{
+		codec.putObject(id, obj);
+		List<mxPendingReference> refs = pending.remove(id);
+
+		if (refs != null)
+		{
+			for (mxPendingReference ref : refs)
+			{
+				setFieldValue(ref.codec, ref.obj, ref.fieldname, obj);
+			}
+		}
+	}
+
+	/**
+	 * Decodes all attributes of the current element into the given object.
+	 */
+	protected void readAttributes(XMLStreamReader reader, mxObjectCodec dec,
+			Object obj)
+	{
+		for (int i = 0; i < reader.getAttributeCount(); i++)
+		{
+			decodeAttribute(dec, obj, getAttributeName(reader, i),
+					reader.getAttributeValue(i));
+		}
+	}
+
+	/**
+	 * Decodes all children of the current element as DOM elements into the
+	 * given object.
+	 */
+	protected void readChildren(XMLStreamReader reader, mxObjectCodec dec,
+			Object obj) throws XMLStreamException
+	{
+		while (reader.hasNext())
+		{
+			int event = reader.next();
+
+			if (event == XMLStreamConstants.START_ELEMENT)
+			{
+				decodeChild(dec, readElement(reader), obj);
+			}
+			else if (event == XMLStreamConstants.END_ELEMENT)
+			{
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Decodes the given attribute into the given object. This is the same as
+	 * mxObjectCodec.decodeAttribute, except that references to objects that
+	 * have not been read yet are added to the pending references.
+	 */
+	protected void decodeAttribute(mxObjectCodec dec, Object obj,
+			String name, String value)
+	{
+		if (!name.equalsIgnoreCase("as") && !name.equalsIgnoreCase("id"))
+		{
+			String fieldname = dec.getFieldName(name);
+
+			if (dec.isReference(obj, fieldname, value, false))
+			{
+				Object ref = codec.getObject(value);
+
+				if (ref == null)
+				{
+					List<mxPendingReference> refs = pending.get(value);
+
+					if (refs == null)
+					{
+						refs = new ArrayList<mxPendingReference>(2);
+						pending.put(value, refs);
+					}
+
+					refs.add(new mxPendingReference(dec, obj, fieldname));
+				}
+				else if (!dec.isExcluded(obj, fieldname, ref, false))
+				{
+					setFieldValue(dec, obj, fieldname, ref);
+				}
+			}
+			else if (!dec.isExcluded(obj, fieldname, value, false))
+			{
+				setFieldValue(dec, obj, fieldname, value);
+			}
+		}
+	}
+
+	/**
+	 * Decodes the given child element into the given object using the given
+	 * codec.
+	 */
+	protected void decodeChild(mxObjectCodec dec, Element child, Object obj)
+	{
+		if (!dec.processInclude(codec, child, obj))
+		{
+			dec.decodeChild(codec, child, obj);
+		}
+	}
+
+	/**
+	 * Sets the given field of the given object. This sets the fields of
+	 * mxCell directly and uses the codec for all other objects.
+	 */
+	protected void setFieldValue(mxObjectCodec dec, Object obj,
+			String fieldname, Object value)
+	{
+		if (obj.getClass() == mxCell.class
+				&& dec.getClass() == mxCellCodec.class)
+		{
+			mxCell cell = (mxCell) obj;
+
+			if (value instanceof String)
+			{
+				String tmp = (String) value;
+
+				if (fieldname.equals("value"))
+				{
+					cell.setValue(tmp);
+
+					return;
+				}
+				else if (fieldname.equals("style"))
+				{
+					cell.setStyle(tmp);
+
+					return;
+				}
+				else if (fieldname.equals("vertex"))
+				{
+					cell.setVertex(isTrue(tmp));
+
+					return;
+				}
+				else if (fieldname.equals("edge"))
+				{
+					cell.setEdge(isTrue(tmp));
+
+					return;
+				}
+				else if (fieldname.equals("connectable"))
+				{
+					cell.setConnectable(isTrue(tmp));
+
+					return;
+				}
+				else if (fieldname.equals("visible"))
+				{
+					cell.setVisible(isTrue(tmp));
+
+					return;
+				}
+				else if (fieldname.equals("collapsed"))
+				{
+					cell.setCollapsed(isTrue(tmp));
+
+					return;
+				}
+			}
+			else if (value instanceof mxICell)
+			{
+				if (fieldname.equals("parent"))
+				{
+					cell.setParent((mxICell) value);
+
+					return;
+				}
+				else if (fieldname.equals("source"))
+				{
+					cell.setSource((mxICell) value);
+
+					return;
+				}
+				else if (fieldname.equals("target"))
+				{
+					cell.setTarget((mxICell) value);
+
+					return;
+				}
+			}
+			else if (value instanceof mxGeometry
+					&& fieldname.equals("geometry"))
+			{
+				cell.setGeometry((mxGeometry) value);
+
+				return;
+			}
+		}
+
+		dec.setFieldValue(obj, fieldname, value);
+	}
+
+	/**
+	 * Logs the references that could not be resolved, inserts all cells into
+	 * their parents and terminals and sets the root of the given model.
+	 */
+	protected void restoreStructures(mxGraphModel model)
+	{
+		for (Map.Entry<String, List<mxPendingReference>> entry : pending
+				.entrySet())
+		{
+			for (mxPendingReference ref : entry.getValue())
+			{
+				log.log(Level.FINEST, "mxStreamDecoder.decode: No object for "
+						+ ref.codec.getName() + "." + ref.fieldname + "="
+						+ entry.getKey());
+			}
+		}
+
+		pending.clear();
+		mxICell rootCell = null;
+
+		for (mxICell cell : cells)
+		{
+			codec.insertIntoGraph(cell);
+
+			if (cell.getParent() == null)
+			{
+				rootCell = cell;
+			}
+		}
+
+		cells.clear();
+
+		if (rootCell != null)
+		{
+			model.setRoot(rootCell);
+		}
+	}
+
+	/**
+	 * Reads the current element and its descendants into a new DOM element.
+	 */
+	protected Element readElement(XMLStreamReader reader)
+			throws XMLStreamException
+	{
+		Document document = codec.getDocument();
+		Element elt = document.createElement(getName(reader));
+
+		for (int i = 0; i < reader.getAttributeCount(); i++)
+		{
+			elt.setAttribute(getAttributeName(reader, i),
+					reader.getAttributeValue(i));
+		}
+
+		while (reader.hasNext())
+		{
+			int event = reader.next();
+
+			if (event == XMLStreamConstants.START_ELEMENT)
+			{
+				elt.appendChild(readElement(reader));
+			}
+			else if (event == XMLStreamConstants.CHARACTERS
+					|| event == XMLStreamConstants.SPACE)
+			{
+				Node last = elt.getLastChild();
+
+				// Merges text that is reported in more than one event
+				if (last != null && last.getNodeType() == Node.TEXT_NODE)
+				{
+					last.setNodeValue(last.getNodeValue() + reader.getText());
+				}
+				else
+				{
+					elt.appendChild(document.createTextNode(reader.getText()));
+				}
+			}
+			else if (event == XMLStreamConstants.CDATA)
+			{
+				elt.appendChild(document.createCDATASection(reader.getText()));
+			}
+			else if (event == XMLStreamConstants.COMMENT)
+			{
+				elt.appendChild(document.createComment(reader.getText()));
+			}
+			else if (event == XMLStreamConstants.END_ELEMENT)
+			{
+				break;
+			}
+		}
+
+		return elt;
+	}
+
+	/**
+	 * Returns the qualified name of the current element.
+	 */
+	protected static String getName(XMLStreamReader reader)
+	{
+		String prefix = reader.getPrefix();
+		String name = reader.getLocalName();
+
+		return (prefix != null && prefix.length() > 0) ? prefix + ":" + name
+				: name;
+	}
+
+	/**
+	 * Returns the qualified name of the attribute at the given index.
+	 */
+	protected static String getAttributeName(XMLStreamReader reader, int index)
+	{
+		String prefix = reader.getAttributePrefix(index);
+		String name = reader.getAttributeLocalName(index);
+
+		return (prefix != null && prefix.length() > 0) ? prefix + ":" + name
+				: name;
+	}
+
+	/**
+	 * Returns true if the given attribute value is 1 or true.
+	 */
+	protected static boolean isTrue(String value)
+	{
+		return value.equals("1") || value.equalsIgnoreCase("true");
+	}
+
+	/**
+	 * Holds a reference from a field of an object to a cell that has not
+	 * been read yet.
+	 */
+	protected static class mxPendingReference
+	{
+
+		/**
+		 * Codec that is used to set the field.
+		 */
+		protected mxObjectCodec codec;
+
+		/**
+		 * Object that contains the field.
+		 */
+		protected Object obj;
+
+		/**
+		 * Name of the field.
+		 */
+		protected String fieldname;
+
+		/**
+		 * Constructs a new pending reference.
+		 */
+		public mxPendingReference(mxObjectCodec codec, Object obj,
+				String fieldname)
+		{
+			this.codec = codec;
+			this.obj = obj;
+			this.fieldname = fieldname;
+		}
+
+	}
+
+}
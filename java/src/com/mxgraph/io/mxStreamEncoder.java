@@ -0,0 +1,507 @@
+/**
+ * Copyright (c) 2007-2017, JGraph Ltd
+ */
+package com.mxgraph.io;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+import com.mxgraph.model.mxCell;
+import com.mxgraph.model.mxGeometry;
+import com.mxgraph.model.mxGraphModel;
+import com.mxgraph.model.mxICell;
+import com.mxgraph.util.mxPoint;
+import com.mxgraph.util.mxXmlUtils;
+
+/**
+ * Encodes graph models into XML by walking the cell hierarchy and writing
+ * each cell as soon as it has been encoded, so that the complete document is
+ * never held in memory. The output is the same as the output of
+ * mxXmlUtils.getXml for the node returned by mxCodec.encode, that is, the
+ * attributes are sorted by name and the characters are escaped in the same
+ * way.
+ *
+ * Cells, geometries and points are written directly. Cells of other classes,
+ * complex user objects and all other values are encoded into a DOM node using
+ * the codec and the node is written.
+ *
+ * Example:
+ *
+ * <code>
+ * new mxStreamEncoder().encode(graph.getModel(), response.getOutputStream());
+ * </code>
+ *
+ * This class is not thread-safe. Use one instance per thread.
+ */
+public class mxStreamEncoder
+{
+
+	/**
+	 * Holds the codec that is used for creating IDs and for encoding the
+	 * objects that are not written directly.
+	 */
+	protected mxCodec codec;
+
+	/**
+	 * Holds the writer of the current encoding.
+	 */
+	protected Writer out;
+
+	/**
+	 * Specifies if the default codecs are registered for cells, geometries,
+	 * points and arrays so that these can be written directly.
+	 */
+	protected boolean cellStreaming;
+
+	/**
+	 * Constructs a new encoder with a new codec.
+	 */
+	public mxStreamEncoder()
+	{
+		this(new mxCodec());
+	}
+
+	/**
+	 * Constructs a new encoder that uses the given codec for creating IDs and
+	 * for encoding objects that are not written directly.
+	 */
+	public mxStreamEncoder(mxCodec codec)
+	{
+		this.codec = codec;
+	}
+
+	/**
+	 * Returns the codec of the encoder.
+	 */
+	public mxCodec getCodec()
+	{
+		return codec;
+	}
+
+	/**
+	 * Writes the XML for the given model to the given stream using UTF-8. The
+	 * stream is flushed but not closed.
+	 *
+	 * @param model Graph model to be encoded.
+	 * @param stream Stream to write the XML to.
+	 */
+	public void encode(mxGraphModel model, OutputStream stream)
+			throws IOException
+	{
+		Writer writer = new BufferedWriter(new OutputStreamWriter(stream,
+				"UTF-8"));
+		encode(model, writer);
+		writer.flush();
+	}
+
+	/**
+	 * Writes the XML for the given model to the given writer.
+	 *
+	 * @param model Graph model to be encoded.
+	 * @param writer Writer to write the XML to.
+	 */
+	public void encode(mxGraphModel model, Writer writer) throws IOException
+	{
+		out = writer;
+
+		try
+		{
+			mxObjectCodec dec = mxCodecRegistry.getCodec(mxCodecRegistry
+					.getName(model));
+			cellStreaming = !codec.isEncodeDefaults()
+					&& isDefaultCodec(mxCodecRegistry.getCodec("mxCell"),
+							mxCellCodec.class, mxCell.class)
+					&& isDefaultCodec(mxCodecRegistry.getCodec("mxGeometry"),
+							mxObjectCodec.class, mxGeometry.class)
+					&& isDefaultCodec(mxCodecRegistry.getCodec("mxPoint"),
+							mxObjectCodec.class, mxPoint.class)
+					&& isDefaultCodec(mxCodecRegistry.getCodec("Array"),
+							mxObjectCodec.class, ArrayList.class);
+
+			if (dec == null || dec.getClass() != mxModelCodec.class)
+			{
+				writeNode(codec.encode(model));
+			}
+			else
+			{
+				String name = dec.getName();
+				mxICell root = (mxICell) model.getRoot();
+				out.write("<" + name + "><root");
+
+				if (root != null)
+				{
+					out.write(">");
+					encodeCell(root);
+					out.write("</root>");
+				}
+				else
+				{
+					out.write("/>");
+				}
+
+				out.write("</" + name + ">");
+			}
+		}
+		finally
+		{
+			out = null;
+		}
+	}
+
+	/**
+	 * Returns true if the given codec is an instance of the given class with
+	 * a template of the given type.
+	 */
+	protected boolean isDefaultCodec(mxObjectCodec dec, Class<?> codecType,
+			Class<?> type)
+	{
+		return dec != null && dec.getClass() == codecType
+				&& dec.getTemplate().getClass() == type;
+	}
+
+	/**
+	 * Writes the given cell and its descendants as a flat sequence.
+	 */
+	protected void encodeCell(mxICell cell) throws IOException
+	{
+		writeCell(cell);
+		int childCount = cell.getChildCount();
+
+		for (int i = 0; i < childCount; i++)
+		{
+			encodeCell(cell.getChildAt(i));
+		}
+	}
+
+	/**
+	 * Writes the given cell. Cells that are not mxCells or whose value is
+	 * neither a string nor an XML element are encoded using the codec.
+	 */
+	protected void writeCell(mxICell cell) throws IOException
+	{
+		Object value = cell.getValue();
+
+		if (!cellStreaming || cell.getClass() != mxCell.class
+				|| (value != null && !(value instanceof String)
+						&& !(value instanceof Element)))
+		{
+			writeNode(codec.encode(cell));
+		}
+		else
+		{
+			Map<String, String> attrs = new TreeMap<String, String>();
+			String id = codec.getId(cell);
+
+			if (value instanceof String)
+			{
+				attrs.put("value", (String) value);
+			}
+
+			if (cell.getStyle() != null)
+			{
+				attrs.put("style", cell.getStyle());
+			}
+
+			if (cell.isVertex())
+			{
+				attrs.put("vertex", "1");
+			}
+
+			if (cell.isEdge())
+			{
+				attrs.put("edge", "1");
+			}
+
+			if (!cell.isConnectable())
+			{
+				attrs.put("connectable", "0");
+			}
+
+			if (!cell.isVisible())
+			{
+				attrs.put("visible", "0");
+			}
+
+			if (cell.isCollapsed())
+			{
+				attrs.put("collapsed", "1");
+			}
+
+			putReference(attrs, "parent", cell.getParent());
+			putReference(attrs, "source", cell.getTerminal(true));
+			putReference(attrs, "target", cell.getTerminal(false));
+
+			if (value instanceof Element)
+			{
+				// Wraps the cell up in the user object (inversion)
+				Element elt = (Element) value;
+				Map<String, String> outer = getAttributes(elt);
+				outer.put("id", id);
+				writeStartTag(elt.getNodeName(), outer);
+				out.write(">");
+				Node child = elt.getFirstChild();
+
+				while (child != null)
+				{
+					writeNode(child);
+					child = child.getNextSibling();
+				}
+
+				writeCellElement(cell, attrs);
+				writeEndTag(elt.getNodeName());
+			}
+			else
+			{
+				attrs.put("id", id);
+				writeCellElement(cell, attrs);
+			}
+		}
+	}
+
+	/**
+	 * Adds the ID of the given cell for the given attribute name if the cell
+	 * is not null.
+	 */
+	protected void putReference(Map<String, String> attrs, String name,
+			mxICell cell)
+	{
+		if (cell != null)
+		{
+			String id = codec.getId(cell);
+
+			if (id != null)
+			{
+				attrs.put(name, id);
+			}
+		}
+	}
+
+	/**
+	 * Writes the cell element with the given attributes and the geometry of
+	 * the given cell.
+	 */
+	protected void writeCellElement(mxICell cell, Map<String, String> attrs)
+			throws IOException
+	{
+		writeStartTag("mxCell", attrs);
+		mxGeometry geo = cell.getGeometry();
+
+		if (geo != null)
+		{
+			out.write(">");
+			writeGeometry(geo, "geometry");
+			writeEndTag("mxCell");
+		}
+		else
+		{
+			out.write("/>");
+		}
+	}
+
+	/**
+	 * Writes the given geometry with the given value for the as attribute.
+	 */
+	protected void writeGeometry(mxGeometry geo, String as) throws IOException
+	{
+		if (geo.getClass() != mxGeometry.class)
+		{
+			writeComplexValue(geo, as);
+		}
+		else
+		{
+			Map<String, String> attrs = new TreeMap<String, String>();
+			attrs.put("as", as);
+			putDouble(attrs, "x", geo.getX());
+			putDouble(attrs, "y", geo.getY());
+			putDouble(attrs, "width", geo.getWidth());
+			putDouble(attrs, "height", geo.getHeight());
+
+			if (geo.isRelative())
+			{
+				attrs.put("relative", "1");
+			}
+
+			writeStartTag("mxGeometry", attrs);
+
+			if (geo.getAlternateBounds() == null
+					&& geo.getSourcePoint() == null
+					&& geo.getTargetPoint() == null && geo.getPoints() == null
+					&& geo.getOffset() == null)
+			{
+				out.write("/>");
+			}
+			else
+			{
+				out.write(">");
+				writeComplexValue(geo.getAlternateBounds(), "alternateBounds");
+				writePoint(geo.getSourcePoint(), "sourcePoint");
+				writePoint(geo.getTargetPoint(), "targetPoint");
+				writePoints(geo.getPoints(), "points");
+				writePoint(geo.getOffset(), "offset");
+				writeEndTag("mxGeometry");
+			}
+		}
+	}
+
+	/**
+	 * Writes the given list of points with the given value for the as
+	 * attribute.
+	 */
+	protected void writePoints(List<mxPoint> points, String as)
+			throws IOException
+	{
+		if (points != null)
+		{
+			if (points.getClass() != ArrayList.class)
+			{
+				writeComplexValue(points, as);
+			}
+			else if (points.isEmpty())
+			{
+				out.write("<Array as=\"" + as + "\"/>");
+			}
+			else
+			{
+				out.write("<Array as=\"" + as + "\">");
+
+				for (mxPoint pt : points)
+				{
+					writePoint(pt, null);
+				}
+
+				writeEndTag("Array");
+			}
+		}
+	}
+
+	/**
+	 * Writes the given point with the given optional value for the as
+	 * attribute.
+	 */
+	protected void writePoint(mxPoint pt, String as) throws IOException
+	{
+		if (pt != null)
+		{
+			if (pt.getClass() != mxPoint.class)
+			{
+				writeComplexValue(pt, as);
+			}
+			else
+			{
+				Map<String, String> attrs = new TreeMap<String, String>();
+
+				if (as != null)
+				{
+					attrs.put("as", as);
+				}
+
+				putDouble(attrs, "x", pt.getX());
+				putDouble(attrs, "y", pt.getY());
+				writeStartTag("mxPoint", attrs);
+				out.write("/>");
+			}
+		}
+	}
+
+	/**
+	 * Encodes the given value using the codec and writes the resulting node
+	 * with the given optional value for the as attribute.
+	 */
+	protected void writeComplexValue(Object value, String as)
+			throws IOException
+	{
+		if (value != null)
+		{
+			Node node = codec.encode(value);
+
+			if (node != null)
+			{
+				if (as != null)
+				{
+					mxCodec.setAttribute(node, "as", as);
+				}
+
+				writeNode(node);
+			}
+		}
+	}
+
+	/**
+	 * Adds the given value for the given attribute name if the value is not
+	 * 0.
+	 */
+	protected void putDouble(Map<String, String> attrs, String name,
+			double value)
+	{
+		if (Double.doubleToLongBits(value) != 0L)
+		{
+			attrs.put(name, String.valueOf(value));
+		}
+	}
+
+	/**
+	 * Returns the attributes of the given element sorted by name.
+	 */
+	protected Map<String, String> getAttributes(Element elt)
+	{
+		return mxXmlUtils.getAttributes(elt);
+	}
+
+	/**
+	 * Writes the given node and its descendants.
+	 */
+	protected void writeNode(Node node) throws IOException
+	{
+		mxXmlUtils.writeXml(node, out);
+	}
+
+	/**
+	 * Writes the start tag for the given name and attributes without the
+	 * closing bracket.
+	 */
+	protected void writeStartTag(String name, Map<String, String> attrs)
+			throws IOException
+	{
+		out.write("<");
+		out.write(name);
+
+		for (Map.Entry<String, String> entry : attrs.entrySet())
+		{
+			out.write(" ");
+			out.write(entry.getKey());
+			out.write("=\"");
+			writeText(entry.getValue(), true);
+			out.write("\"");
+		}
+	}
+
+	/**
+	 * Writes the end tag for the given name.
+	 */
+	protected void writeEndTag(String name) throws IOException
+	{
+		out.write("</");
+		out.write(name);
+		out.write(">");
+	}
+
+	/**
+	 * Writes the given text or attribute value.
+	 */
+	protected void writeText(String text, boolean attribute)
+			throws IOException
+	{
+		mxXmlUtils.writeText(text, attribute, out);
+	}
+
+}
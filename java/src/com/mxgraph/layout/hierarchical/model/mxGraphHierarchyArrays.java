@@ -0,0 +1,254 @@
+/*
+ * Copyright (c) 2005-2017, JGraph Ltd
+ */
+package com.mxgraph.layout.hierarchical.model;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact representation of the ranks of a hierarchy model using arrays of
+ * primitives. Each occurrence of a cell in a rank is a slot, ie. a vertex
+ * has one slot and an edge with dummy nodes has one slot per rank it spans.
+ * The slots of rank r are rankStart[r] to rankStart[r + 1] - 1 in the
+ * iteration order of the rank. The connections to the adjacent ranks are
+ * stored in compressed sparse row format, eg. the slots that slot s connects
+ * to on the next layer up are next[nextStart[s]] to next[nextStart[s + 1] -
+ * 1].
+ *
+ * The order of the cells within the ranks is copied from and to the general
+ * purpose variables of the cells using readOrder and writeOrder. The
+ * coordinates of the slots are copied to the cells using writeCoordinates.
+ *
+ * The arrays are used by mxMedianHybridCrossingReduction for the order and by
+ * mxCoordinateAssignment for the coordinates. mxMinimumCycleRemover runs
+ * before the ranks are assigned and works on the cells of the model.
+ */
+public class mxGraphHierarchyArrays
+{
+
+	/**
+	 * Holds the number of ranks.
+	 */
+	public int rankCount;
+
+	/**
+	 * Holds the first slot of each rank. The last entry is the number of
+	 * slots.
+	 */
+	public int[] rankStart;
+
+	/**
+	 * Holds the cell of each slot.
+	 */
+	public mxGraphAbstractHierarchyCell[] cells;
+
+	/**
+	 * Holds the rank of each slot.
+	 */
+	public int[] rank;
+
+	/**
+	 * Holds the position of each slot within its rank.
+	 */
+	public int[] order;
+
+	/**
+	 * Holds true for the slots of vertices and false for the slots of edges.
+	 */
+	public boolean[] vertex;
+
+	/**
+	 * Holds the width of each slot.
+	 */
+	public double[] width;
+
+	/**
+	 * Holds the x-coordinate of each slot.
+	 */
+	public double[] x;
+
+	/**
+	 * Holds the y-coordinate of each slot.
+	 */
+	public double[] y;
+
+	/**
+	 * Holds the x-coordinate of each slot in the candidate positioning.
+	 */
+	public int[] candidateX;
+
+	/**
+	 * Holds the offsets of each slot into next. The last entry is the length
+	 * of next.
+	 */
+	public int[] nextStart;
+
+	/**
+	 * Holds the slots on the next layer up that the slots connect to.
+	 */
+	public int[] next;
+
+	/**
+	 * Holds the offsets of each slot into previous. The last entry is the
+	 * length of previous.
+	 */
+	public int[] previousStart;
+
+	/**
+	 * Holds the slots on the previous layer down that the slots connect to.
+	 */
+	public int[] previous;
+
+	/**
+	 * Constructs the arrays for the ranks of the given model and reads the
+	 * current order of the cells.
+	 */
+	public mxGraphHierarchyArrays(mxGraphHierarchyModel model)
+	{
+		rankCount = model.ranks.size();
+		rankStart = new int[rankCount + 1];
+
+		for (int r = 0; r < rankCount; r++)
+		{
+			rankStart[r + 1] = rankStart[r] + model.ranks.get(r).size();
+		}
+
+		int slotCount = rankStart[rankCount];
+		cells = new mxGraphAbstractHierarchyCell[slotCount];
+		rank = new int[slotCount];
+		order = new int[slotCount];
+		vertex = new boolean[slotCount];
+		width = new double[slotCount];
+		x = new double[slotCount];
+		y = new double[slotCount];
+		candidateX = new int[slotCount];
+
+		// Maps from cells to their slots in each rank
+		List<Map<mxGraphAbstractHierarchyCell, Integer>> slots = new ArrayList<Map<mxGraphAbstractHierarchyCell, Integer>>(
+				rankCount);
+
+		for (int r = 0; r < rankCount; r++)
+		{
+			Map<mxGraphAbstractHierarchyCell, Integer> rankSlots = new IdentityHashMap<mxGraphAbstractHierarchyCell, Integer>();
+			int slot = rankStart[r];
+
+			for (mxGraphAbstractHierarchyCell cell : model.ranks.get(r))
+			{
+				cells[slot] = cell;
+				rank[slot] = r;
+				vertex[slot] = cell.isVertex();
+				rankSlots.put(cell, slot);
+				slot++;
+			}
+
+			slots.add(rankSlots);
+		}
+
+		nextStart = new int[slotCount + 1];
+		previousStart = new int[slotCount + 1];
+
+		for (int s = 0; s < slotCount; s++)
+		{
+			int r = rank[s];
+			nextStart[s + 1] = nextStart[s]
+					+ ((r < rankCount - 1) ? cells[s]
+							.getNextLayerConnectedCells(r).size() : 0);
+			previousStart[s + 1] = previousStart[s]
+					+ ((r > 0) ? cells[s].getPreviousLayerConnectedCells(r)
+							.size() : 0);
+		}
+
+		next = new int[nextStart[slotCount]];
+		previous = new int[previousStart[slotCount]];
+
+		for (int s = 0; s < slotCount; s++)
+		{
+			int r = rank[s];
+
+			if (r < rankCount - 1)
+			{
+				fill(cells[s].getNextLayerConnectedCells(r), slots.get(r + 1),
+						next, nextStart[s]);
+			}
+
+			if (r > 0)
+			{
+				fill(cells[s].getPreviousLayerConnectedCells(r), slots.get(r - 1),
+						previous, previousStart[s]);
+			}
+		}
+
+		readOrder();
+	}
+
+	/**
+	 * Stores the slots of the given cells in the given array starting at the
+	 * given offset.
+	 */
+	protected static void fill(List<mxGraphAbstractHierarchyCell> connected,
+			Map<mxGraphAbstractHierarchyCell, Integer> slots, int[] result,
+			int offset)
+	{
+		for (int k = 0; k < connected.size(); k++)
+		{
+			result[offset + k] = slots.get(connected.get(k));
+		}
+	}
+
+	/**
+	 * Returns the number of slots.
+	 */
+	public int getSlotCount()
+	{
+		return cells.length;
+	}
+
+	/**
+	 * Returns the number of slots in the given rank.
+	 */
+	public int getRankSize(int r)
+	{
+		return rankStart[r + 1] - rankStart[r];
+	}
+
+	/**
+	 * Copies the order from the general purpose variables of the cells.
+	 */
+	public void readOrder()
+	{
+		for (int s = 0; s < cells.length; s++)
+		{
+			order[s] = cells[s].getGeneralPurposeVariable(rank[s]);
+		}
+	}
+
+	/**
+	 * Copies the order to the general purpose variables of the cells.
+	 */
+	public void writeOrder()
+	{
+		for (int s = 0; s < cells.length; s++)
+		{
+			cells[s].setGeneralPurposeVariable(rank[s], order[s]);
+		}
+	}
+
+	/**
+	 * Copies the coordinates and the candidate x-coordinates to the cells.
+	 * The candidate x-coordinates are stored in the general purpose
+	 * variables.
+	 */
+	public void writeCoordinates()
+	{
+		for (int s = 0; s < cells.length; s++)
+		{
+			cells[s].setX(rank[s], x[s]);
+			cells[s].setY(rank[s], y[s]);
+			cells[s].setGeneralPurposeVariable(rank[s], candidateX[s]);
+		}
+	}
+
+}
@@ -96,6 +96,12 @@ JGraphLayout.Stoppable*/
 	 */
 	protected boolean traverseAncestors = true;
 
+	/**
+	 * Specifies if the crossing stage should count the crossings of the rank
+	 * pairs in parallel. Default is false.
+	 */
+	protected boolean parallelCrossings = false;
+
 	/**
 	 * The internal model formed of the layout
 	 */
@@ -519,8 +525,9 @@ JGraphLayout.Stoppable*/
 	 */
 	public void crossingStage(Object parent)
 	{
-		mxHierarchicalLayoutStage crossingStage = new mxMedianHybridCrossingReduction(
+		mxMedianHybridCrossingReduction crossingStage = new mxMedianHybridCrossingReduction(
 				this);
+		crossingStage.setParallelCrossings(parallelCrossings);
 		crossingStage.execute(parent);
 	}
 
@@ -681,6 +688,24 @@ JGraphLayout.Stoppable*/
 		this.fineTuning = fineTuning;
 	}
 
+	/**
+	 * Returns true if the crossing stage counts the crossings of the rank
+	 * pairs in parallel.
+	 */
+	public boolean isParallelCrossings()
+	{
+		return parallelCrossings;
+	}
+
+	/**
+	 * Specifies if the crossing stage should count the crossings of the rank
+	 * pairs in parallel.
+	 */
+	public void setParallelCrossings(boolean value)
+	{
+		parallelCrossings = value;
+	}
+
 	/**
 	 *
 	 */
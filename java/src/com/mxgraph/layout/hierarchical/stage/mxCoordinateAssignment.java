@@ -10,9 +10,7 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Hashtable;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -22,6 +20,7 @@ import javax.swing.SwingConstants;
 
 import com.mxgraph.layout.hierarchical.mxHierarchicalLayout;
 import com.mxgraph.layout.hierarchical.model.mxGraphAbstractHierarchyCell;
+import com.mxgraph.layout.hierarchical.model.mxGraphHierarchyArrays;
 import com.mxgraph.layout.hierarchical.model.mxGraphHierarchyEdge;
 import com.mxgraph.layout.hierarchical.model.mxGraphHierarchyModel;
 import com.mxgraph.layout.hierarchical.model.mxGraphHierarchyNode;
@@ -35,6 +34,10 @@ import com.mxgraph.view.mxGraph;
  * Sets the horizontal locations of node and edge dummy nodes on each layer.
  * Uses median down and up weighings as well as heuristics to straighten edges as
  * far as possible.
+ * 
+ * The heuristics work on the slots and coordinate arrays of
+ * mxGraphHierarchyArrays. The coordinates are copied to the cells before the
+ * cell locations and edge points are set.
  */
 public class mxCoordinateAssignment implements mxHierarchicalLayoutStage
 {
@@ -191,6 +194,17 @@ public class mxCoordinateAssignment implements mxHierarchicalLayoutStage
 	 */
 	protected mxGraphAbstractHierarchyCell[][] previousLayerConnectedCache;
 
+	/**
+	 * Holds the ranks, connections and coordinates of the model as arrays
+	 * while the stage is executed
+	 */
+	protected mxGraphHierarchyArrays arrays;
+
+	/**
+	 * Holds the slot that is queued in minNode for the cell of each slot
+	 */
+	protected int[] queueSlots;
+
 	/**
 	 * Creates a coordinate assignment.
 	 * 
@@ -253,12 +267,14 @@ public class mxCoordinateAssignment implements mxHierarchicalLayoutStage
 	public void execute(Object parent)
 	{
 		mxGraphHierarchyModel model = layout.getModel();
+		arrays = new mxGraphHierarchyArrays(model);
 		currentXDelta = 0.0;
 
 		initialCoords(layout.getGraph(), model);
 
 		if (fineTuning)
 		{
+			queueSlots = createQueueSlots();
 			minNode(model);
 		}
 
@@ -266,6 +282,9 @@ public class mxCoordinateAssignment implements mxHierarchicalLayoutStage
 
 		if (fineTuning)
 		{
+			double[] x = arrays.x;
+			int[] candidateX = arrays.candidateX;
+
 			for (int i = 0; i < maxIterations; i++)
 			{
 				// Median Heuristic
@@ -280,18 +299,9 @@ public class mxCoordinateAssignment implements mxHierarchicalLayoutStage
 				// positioning is used
 				if (currentXDelta < bestXDelta)
 				{
-					for (int j = 0; j < model.ranks.size(); j++)
+					for (int s = 0; s < x.length; s++)
 					{
-						mxGraphHierarchyRank rank = model.ranks
-								.get(new Integer(j));
-						Iterator<mxGraphAbstractHierarchyCell> iter = rank
-								.iterator();
-
-						while (iter.hasNext())
-						{
-							mxGraphAbstractHierarchyCell cell = iter.next();
-							cell.setX(j, cell.getGeneralPurposeVariable(j));
-						}
+						x[s] = candidateX[s];
 					}
 
 					bestXDelta = currentXDelta;
@@ -299,19 +309,9 @@ public class mxCoordinateAssignment implements mxHierarchicalLayoutStage
 				else
 				{
 					// Restore the best positions
-					for (int j = 0; j < model.ranks.size(); j++)
+					for (int s = 0; s < x.length; s++)
 					{
-						mxGraphHierarchyRank rank = model.ranks
-								.get(new Integer(j));
-						Iterator<mxGraphAbstractHierarchyCell> iter = rank
-								.iterator();
-
-						while (iter.hasNext())
-						{
-							mxGraphAbstractHierarchyCell cell = iter.next();
-							cell.setGeneralPurposeVariable(j,
-									(int) cell.getX(j));
-						}
+						candidateX[s] = (int) x[s];
 					}
 				}
 
@@ -321,9 +321,41 @@ public class mxCoordinateAssignment implements mxHierarchicalLayoutStage
 			}
 		}
 
+		arrays.writeCoordinates();
+		arrays = null;
+		queueSlots = null;
+
 		setCellLocations(layout.getGraph(), model);
 	}
 
+	/**
+	 * Returns the slot that is queued in minNode for the cell of each slot,
+	 * which is the slot on the highest rank for edges.
+	 */
+	private int[] createQueueSlots()
+	{
+		int[] next = arrays.next;
+		int[] nextStart = arrays.nextStart;
+		int[] result = new int[arrays.getSlotCount()];
+
+		for (int s = result.length - 1; s >= 0; s--)
+		{
+			result[s] = s;
+
+			if (!arrays.vertex[s] && nextStart[s + 1] - nextStart[s] == 1)
+			{
+				int above = next[nextStart[s]];
+
+				if (arrays.cells[above] == arrays.cells[s])
+				{
+					result[s] = result[above];
+				}
+			}
+		}
+
+		return result;
+	}
+
 	/**
 	 * Performs one median positioning sweep in both directions
 	 * 
@@ -332,64 +364,56 @@ public class mxCoordinateAssignment implements mxHierarchicalLayoutStage
 	 */
 	private void minNode(mxGraphHierarchyModel model)
 	{
-		// Queue all nodes
-		LinkedList<WeightedCellSorter> nodeList = new LinkedList<WeightedCellSorter>();
-
-		// Need to be able to map from cell to cellWrapper
-		Map<mxGraphAbstractHierarchyCell, WeightedCellSorter> map = new Hashtable<mxGraphAbstractHierarchyCell, WeightedCellSorter>();
-		mxGraphAbstractHierarchyCell[][] rank = new mxGraphAbstractHierarchyCell[model.maxRank + 1][];
-
-		for (int i = 0; i <= model.maxRank; i++)
+		int[] rankStart = arrays.rankStart;
+		int[] rank = arrays.rank;
+		int[] next = arrays.next;
+		int[] nextStart = arrays.nextStart;
+		int[] previous = arrays.previous;
+		int[] previousStart = arrays.previousStart;
+		int[] candidateX = arrays.candidateX;
+		double[] width = arrays.width;
+		int slotCount = arrays.getSlotCount();
+
+		// Queue all nodes in a ring buffer where the flags store whether or
+		// not the slot is in the queue
+		int[] queue = new int[slotCount];
+		boolean[] queued = new boolean[slotCount];
+		int head = 0;
+		int size = slotCount;
+
+		for (int s = 0; s < slotCount; s++)
 		{
-			mxGraphHierarchyRank rankSet = model.ranks.get(new Integer(i));
-			rank[i] = rankSet.toArray(new mxGraphAbstractHierarchyCell[rankSet
-					.size()]);
-
-			for (int j = 0; j < rank[i].length; j++)
-			{
-				// Use the weight to store the rank and visited to store whether
-				// or not the cell is in the list
-				mxGraphAbstractHierarchyCell cell = rank[i][j];
-				WeightedCellSorter cellWrapper = new WeightedCellSorter(cell, i);
-				cellWrapper.rankIndex = j;
-				cellWrapper.visited = true;
-				nodeList.add(cellWrapper);
-				map.put(cell, cellWrapper);
-			}
+			queue[s] = s;
+			queued[s] = true;
 		}
 
 		// Set a limit of the maximum number of times we will access the queue
 		// in case a loop appears
-		int maxTries = nodeList.size() * 10;
+		int maxTries = slotCount * 10;
 		int count = 0;
 
 		// Don't move cell within this value of their median
 		int tolerance = 1;
 
-		while (!nodeList.isEmpty() && count <= maxTries)
+		while (size > 0 && count <= maxTries)
 		{
-			WeightedCellSorter cellWrapper = nodeList.getFirst();
-			mxGraphAbstractHierarchyCell cell = cellWrapper.cell;
-
-			int rankValue = cellWrapper.weightedValue;
-			int rankIndex = cellWrapper.rankIndex;
+			int slot = queue[head];
+			int rankValue = rank[slot];
+			int nextFrom = nextStart[slot];
+			int nextTo = nextStart[slot + 1];
+			int previousFrom = previousStart[slot];
+			int previousTo = previousStart[slot + 1];
 
-			Object[] nextLayerConnectedCells = cell.getNextLayerConnectedCells(
-					rankValue).toArray();
-			Object[] previousLayerConnectedCells = cell
-					.getPreviousLayerConnectedCells(rankValue).toArray();
+			int numNextLayerConnected = nextTo - nextFrom;
+			int numPreviousLayerConnected = previousTo - previousFrom;
 
-			int numNextLayerConnected = nextLayerConnectedCells.length;
-			int numPreviousLayerConnected = previousLayerConnectedCells.length;
-
-			int medianNextLevel = medianXValue(nextLayerConnectedCells,
-					rankValue + 1);
-			int medianPreviousLevel = medianXValue(previousLayerConnectedCells,
-					rankValue - 1);
+			int medianNextLevel = medianXValue(next, nextFrom, nextTo);
+			int medianPreviousLevel = medianXValue(previous, previousFrom,
+					previousTo);
 
 			int numConnectedNeighbours = numNextLayerConnected
 					+ numPreviousLayerConnected;
-			int currentPosition = cell.getGeneralPurposeVariable(rankValue);
+			int currentPosition = candidateX[slot];
 			double cellMedian = currentPosition;
 
 			if (numConnectedNeighbours > 0)
@@ -404,60 +428,52 @@ public class mxCoordinateAssignment implements mxHierarchicalLayoutStage
 
 			if (cellMedian < currentPosition - tolerance)
 			{
-				if (rankIndex == 0)
+				if (slot == rankStart[rankValue])
 				{
-					cell.setGeneralPurposeVariable(rankValue, (int) cellMedian);
+					candidateX[slot] = (int) cellMedian;
 					positionChanged = true;
 				}
 				else
 				{
-					mxGraphAbstractHierarchyCell leftCell = rank[rankValue][rankIndex - 1];
-					int leftLimit = leftCell
-							.getGeneralPurposeVariable(rankValue);
-					leftLimit = leftLimit + (int) leftCell.width / 2
-							+ (int) intraCellSpacing + (int) cell.width / 2;
+					int leftSlot = slot - 1;
+					int leftLimit = candidateX[leftSlot];
+					leftLimit = leftLimit + (int) width[leftSlot] / 2
+							+ (int) intraCellSpacing + (int) width[slot] / 2;
 
 					if (leftLimit < cellMedian)
 					{
-						cell.setGeneralPurposeVariable(rankValue,
-								(int) cellMedian);
+						candidateX[slot] = (int) cellMedian;
 						positionChanged = true;
 					}
-					else if (leftLimit < cell
-							.getGeneralPurposeVariable(rankValue) - tolerance)
+					else if (leftLimit < candidateX[slot] - tolerance)
 					{
-						cell.setGeneralPurposeVariable(rankValue, leftLimit);
+						candidateX[slot] = leftLimit;
 						positionChanged = true;
 					}
 				}
 			}
 			else if (cellMedian > currentPosition + tolerance)
 			{
-				int rankSize = rank[rankValue].length;
-
-				if (rankIndex == rankSize - 1)
+				if (slot == rankStart[rankValue + 1] - 1)
 				{
-					cell.setGeneralPurposeVariable(rankValue, (int) cellMedian);
+					candidateX[slot] = (int) cellMedian;
 					positionChanged = true;
 				}
 				else
 				{
-					mxGraphAbstractHierarchyCell rightCell = rank[rankValue][rankIndex + 1];
-					int rightLimit = rightCell
-							.getGeneralPurposeVariable(rankValue);
-					rightLimit = rightLimit - (int) rightCell.width / 2
-							- (int) intraCellSpacing - (int) cell.width / 2;
+					int rightSlot = slot + 1;
+					int rightLimit = candidateX[rightSlot];
+					rightLimit = rightLimit - (int) width[rightSlot] / 2
+							- (int) intraCellSpacing - (int) width[slot] / 2;
 
 					if (rightLimit > cellMedian)
 					{
-						cell.setGeneralPurposeVariable(rankValue,
-								(int) cellMedian);
+						candidateX[slot] = (int) cellMedian;
 						positionChanged = true;
 					}
-					else if (rightLimit > cell
-							.getGeneralPurposeVariable(rankValue) + tolerance)
+					else if (rightLimit > candidateX[slot] + tolerance)
 					{
-						cell.setGeneralPurposeVariable(rankValue, rightLimit);
+						candidateX[slot] = rightLimit;
 						positionChanged = true;
 					}
 				}
@@ -465,47 +481,45 @@ public class mxCoordinateAssignment implements mxHierarchicalLayoutStage
 
 			if (positionChanged)
 			{
-				// Add connected nodes to map and list
-				for (int i = 0; i < nextLayerConnectedCells.length; i++)
+				// Add connected nodes to the queue
+				for (int k = nextFrom; k < nextTo; k++)
 				{
-					mxGraphAbstractHierarchyCell connectedCell = (mxGraphAbstractHierarchyCell) nextLayerConnectedCells[i];
-					WeightedCellSorter connectedCellWrapper = map
-							.get(connectedCell);
-
-					if (connectedCellWrapper != null)
-					{
-						if (connectedCellWrapper.visited == false)
-						{
-							connectedCellWrapper.visited = true;
-							nodeList.add(connectedCellWrapper);
-						}
-					}
+					size = enqueue(queue, queued, head, size,
+							queueSlots[next[k]]);
 				}
 
-				// Add connected nodes to map and list
-				for (int i = 0; i < previousLayerConnectedCells.length; i++)
+				// Add connected nodes to the queue
+				for (int k = previousFrom; k < previousTo; k++)
 				{
-					mxGraphAbstractHierarchyCell connectedCell = (mxGraphAbstractHierarchyCell) previousLayerConnectedCells[i];
-					WeightedCellSorter connectedCellWrapper = map
-							.get(connectedCell);
-
-					if (connectedCellWrapper != null)
-					{
-						if (connectedCellWrapper.visited == false)
-						{
-							connectedCellWrapper.visited = true;
-							nodeList.add(connectedCellWrapper);
-						}
-					}
+					size = enqueue(queue, queued, head, size,
+							queueSlots[previous[k]]);
 				}
 			}
 
-			nodeList.removeFirst();
-			cellWrapper.visited = false;
+			head = (head + 1) % slotCount;
+			size--;
+			queued[slot] = false;
 			count++;
 		}
 	}
 
+	/**
+	 * Adds the given slot to the end of the given ring buffer if it is not
+	 * already queued and returns the new size of the queue.
+	 */
+	private int enqueue(int[] queue, boolean[] queued, int head, int size,
+			int slot)
+	{
+		if (!queued[slot])
+		{
+			queued[slot] = true;
+			queue[(head + size) % queue.length] = slot;
+			size++;
+		}
+
+		return size;
+	}
+
 	/**
 	 * Performs one median positioning sweep in one direction
 	 * 
@@ -549,194 +563,153 @@ public class mxCoordinateAssignment implements mxHierarchicalLayoutStage
 	protected void rankMedianPosition(int rankValue,
 			mxGraphHierarchyModel model, int nextRankValue)
 	{
-		mxGraphHierarchyRank rankSet = model.ranks.get(new Integer(rankValue));
-		Object[] rank = rankSet.toArray();
+		int first = arrays.rankStart[rankValue];
+		int rankSize = arrays.getRankSize(rankValue);
+		int[] candidateX = arrays.candidateX;
+		double[] width = arrays.width;
+		int[] connected = (nextRankValue < rankValue) ? arrays.previous
+				: arrays.next;
+		int[] connectedStart = (nextRankValue < rankValue) ? arrays.previousStart
+				: arrays.nextStart;
+
 		// Form an array of the order in which the cells are to be processed
 		// , the order is given by the weighted sum of the in or out edges,
 		// depending on whether we're travelling up or down the hierarchy.
-		WeightedCellSorter[] weightedValues = new WeightedCellSorter[rank.length];
-		Map<mxGraphAbstractHierarchyCell, WeightedCellSorter> cellMap = new Hashtable<mxGraphAbstractHierarchyCell, WeightedCellSorter>(
-				rank.length);
+		// The negated weight is stored in the upper and the index in the
+		// rank in the lower half of each value so that sorting the values
+		// orders the cells by descending weight and then by index.
+		long[] weightedValues = new long[rankSize];
 
-		for (int i = 0; i < rank.length; i++)
+		for (int i = 0; i < rankSize; i++)
 		{
-			mxGraphAbstractHierarchyCell currentCell = (mxGraphAbstractHierarchyCell) rank[i];
-			weightedValues[i] = new WeightedCellSorter();
-			weightedValues[i].cell = currentCell;
-			weightedValues[i].rankIndex = i;
-			cellMap.put(currentCell, weightedValues[i]);
-			Collection<mxGraphAbstractHierarchyCell> nextLayerConnectedCells = null;
-
-			if (nextRankValue < rankValue)
-			{
-				nextLayerConnectedCells = currentCell
-						.getPreviousLayerConnectedCells(rankValue);
-			}
-			else
-			{
-				nextLayerConnectedCells = currentCell
-						.getNextLayerConnectedCells(rankValue);
-			}
+			int slot = first + i;
 
 			// Calculate the weighing based on this node type and those this
 			// node is connected to on the next layer
-			weightedValues[i].weightedValue = calculatedWeightedValue(
-					currentCell, nextLayerConnectedCells);
+			int weightedValue = calculatedWeightedValue(slot, connected,
+					connectedStart[slot], connectedStart[slot + 1]);
+			weightedValues[i] = ((long) -weightedValue << 32) | i;
 		}
 
 		Arrays.sort(weightedValues);
+		boolean[] visited = new boolean[rankSize];
+
 		// Set the new position of each node within the rank using
 		// its temp variable
-
-		for (int i = 0; i < weightedValues.length; i++)
+		for (int i = 0; i < rankSize; i++)
 		{
-			int numConnectionsNextLevel = 0;
-			mxGraphAbstractHierarchyCell cell = weightedValues[i].cell;
-			Object[] nextLayerConnectedCells = null;
+			int rankIndex = (int) weightedValues[i];
+			int slot = first + rankIndex;
+			int from = connectedStart[slot];
+			int to = connectedStart[slot + 1];
 			int medianNextLevel = 0;
 
-			if (nextRankValue < rankValue)
+			if (to > from)
 			{
-				nextLayerConnectedCells = cell.getPreviousLayerConnectedCells(
-						rankValue).toArray();
+				medianNextLevel = medianXValue(connected, from, to);
 			}
 			else
 			{
-				nextLayerConnectedCells = cell.getNextLayerConnectedCells(
-						rankValue).toArray();
-			}
-
-			if (nextLayerConnectedCells != null)
-			{
-				numConnectionsNextLevel = nextLayerConnectedCells.length;
-
-				if (numConnectionsNextLevel > 0)
-				{
-					medianNextLevel = medianXValue(nextLayerConnectedCells,
-							nextRankValue);
-				}
-				else
-				{
-					// For case of no connections on the next level set the
-					// median to be the current position and try to be
-					// positioned there
-					medianNextLevel = cell.getGeneralPurposeVariable(rankValue);
-				}
+				// For case of no connections on the next level set the
+				// median to be the current position and try to be
+				// positioned there
+				medianNextLevel = candidateX[slot];
 			}
 
 			double leftBuffer = 0.0;
 			double leftLimit = -100000000.0;
 
-			for (int j = weightedValues[i].rankIndex - 1; j >= 0;)
+			for (int j = rankIndex - 1; j >= 0; j--)
 			{
-				WeightedCellSorter weightedValue = cellMap.get(rank[j]);
+				int leftSlot = first + j;
 
-				if (weightedValue != null)
+				if (visited[j])
 				{
-					mxGraphAbstractHierarchyCell leftCell = weightedValue.cell;
-
-					if (weightedValue.visited)
-					{
-						// The left limit is the right hand limit of that
-						// cell plus any allowance for unallocated cells
-						// in-between
-						leftLimit = leftCell
-								.getGeneralPurposeVariable(rankValue)
-								+ leftCell.width
-								/ 2.0
-								+ intraCellSpacing
-								+ leftBuffer + cell.width / 2.0;
-						j = -1;
-					}
-					else
-					{
-						leftBuffer += leftCell.width + intraCellSpacing;
-						j--;
-					}
+					// The left limit is the right hand limit of that
+					// cell plus any allowance for unallocated cells
+					// in-between
+					leftLimit = candidateX[leftSlot] + width[leftSlot] / 2.0
+							+ intraCellSpacing + leftBuffer + width[slot]
+							/ 2.0;
+					break;
 				}
+
+				leftBuffer += width[leftSlot] + intraCellSpacing;
 			}
 
 			double rightBuffer = 0.0;
 			double rightLimit = 100000000.0;
 
-			for (int j = weightedValues[i].rankIndex + 1; j < weightedValues.length;)
+			for (int j = rankIndex + 1; j < rankSize; j++)
 			{
-				WeightedCellSorter weightedValue = cellMap.get(rank[j]);
+				int rightSlot = first + j;
 
-				if (weightedValue != null)
+				if (visited[j])
 				{
-					mxGraphAbstractHierarchyCell rightCell = weightedValue.cell;
-
-					if (weightedValue.visited)
-					{
-						// The left limit is the right hand limit of that
-						// cell plus any allowance for unallocated cells
-						// in-between
-						rightLimit = rightCell
-								.getGeneralPurposeVariable(rankValue)
-								- rightCell.width
-								/ 2.0
-								- intraCellSpacing
-								- rightBuffer - cell.width / 2.0;
-						j = weightedValues.length;
-					}
-					else
-					{
-						rightBuffer += rightCell.width + intraCellSpacing;
-						j++;
-					}
+					// The left limit is the right hand limit of that
+					// cell plus any allowance for unallocated cells
+					// in-between
+					rightLimit = candidateX[rightSlot] - width[rightSlot]
+							/ 2.0 - intraCellSpacing - rightBuffer
+							- width[slot] / 2.0;
+					break;
 				}
+
+				rightBuffer += width[rightSlot] + intraCellSpacing;
 			}
 
 			if (medianNextLevel >= leftLimit && medianNextLevel <= rightLimit)
 			{
-				cell.setGeneralPurposeVariable(rankValue, medianNextLevel);
+				candidateX[slot] = medianNextLevel;
 			}
 			else if (medianNextLevel < leftLimit)
 			{
 				// Couldn't place at median value, place as close to that
 				// value as possible
-				cell.setGeneralPurposeVariable(rankValue, (int) leftLimit);
+				candidateX[slot] = (int) leftLimit;
 				currentXDelta += leftLimit - medianNextLevel;
 			}
 			else if (medianNextLevel > rightLimit)
 			{
 				// Couldn't place at median value, place as close to that
 				// value as possible
-				cell.setGeneralPurposeVariable(rankValue, (int) rightLimit);
+				candidateX[slot] = (int) rightLimit;
 				currentXDelta += medianNextLevel - rightLimit;
 			}
 
-			weightedValues[i].visited = true;
+			visited[rankIndex] = true;
 		}
 	}
 
 	/**
-	 * Calculates the priority the specified cell has based on the type of its
+	 * Calculates the priority the specified slot has based on the type of its
 	 * cell and the cells it is connected to on the next layer
 	 * 
-	 * @param currentCell
-	 *            the cell whose weight is to be calculated
-	 * @param collection
-	 *            the cells the specified cell is connected to
+	 * @param slot
+	 *            the slot whose weight is to be calculated
+	 * @param connected
+	 *            the slots of the connected cells
+	 * @param from
+	 *            the index of the first connected cell
+	 * @param to
+	 *            the index after the last connected cell
 	 * @return the total weighted of the edges between these cells
 	 */
-	private int calculatedWeightedValue(
-			mxGraphAbstractHierarchyCell currentCell,
-			Collection<mxGraphAbstractHierarchyCell> collection)
+	private int calculatedWeightedValue(int slot, int[] connected, int from,
+			int to)
 	{
+		boolean[] vertex = arrays.vertex;
 		int totalWeight = 0;
-		Iterator<mxGraphAbstractHierarchyCell> iter = collection.iterator();
 
-		while (iter.hasNext())
+		for (int k = from; k < to; k++)
 		{
-			mxGraphAbstractHierarchyCell cell = iter.next();
+			boolean connectedVertex = vertex[connected[k]];
 
-			if (currentCell.isVertex() && cell.isVertex())
+			if (vertex[slot] && connectedVertex)
 			{
 				totalWeight++;
 			}
-			else if (currentCell.isEdge() && cell.isEdge())
+			else if (!vertex[slot] && !connectedVertex)
 			{
 				totalWeight += 8;
 			}
@@ -750,40 +723,47 @@ public class mxCoordinateAssignment implements mxHierarchicalLayoutStage
 	}
 
 	/**
-	 * Calculates the median position of the connected cell on the specified
-	 * rank
+	 * Calculates the median position of the connected cells
 	 * 
-	 * @param connectedCells
-	 *            the cells the candidate connects to on this level
-	 * @param rankValue
-	 *            the layer number of this rank
-	 * @return the median rank order ( not x position ) of the connected cells
+	 * @param connected
+	 *            the slots of the connected cells
+	 * @param from
+	 *            the index of the first connected cell
+	 * @param to
+	 *            the index after the last connected cell
+	 * @return the median candidate x-coordinate of the connected cells
 	 */
-	private int medianXValue(Object[] connectedCells, int rankValue)
+	private int medianXValue(int[] connected, int from, int to)
 	{
-		if (connectedCells.length == 0)
+		int[] candidateX = arrays.candidateX;
+		int count = to - from;
+
+		if (count == 0)
 		{
 			return 0;
 		}
+		else if (count == 1)
+		{
+			return candidateX[connected[from]];
+		}
 
-		int[] medianValues = new int[connectedCells.length];
+		int[] medianValues = new int[count];
 
-		for (int i = 0; i < connectedCells.length; i++)
+		for (int k = 0; k < count; k++)
 		{
-			medianValues[i] = ((mxGraphAbstractHierarchyCell) connectedCells[i])
-					.getGeneralPurposeVariable(rankValue);
+			medianValues[k] = candidateX[connected[from + k]];
 		}
 
 		Arrays.sort(medianValues);
 
-		if (connectedCells.length % 2 == 1)
+		if (count % 2 == 1)
 		{
 			// For odd numbers of adjacent vertices return the median
-			return medianValues[connectedCells.length / 2];
+			return medianValues[count / 2];
 		}
 		else
 		{
-			int medianPoint = connectedCells.length / 2;
+			int medianPoint = count / 2;
 			int leftMedian = medianValues[medianPoint - 1];
 			int rightMedian = medianValues[medianPoint];
 
@@ -827,7 +807,8 @@ public class mxCoordinateAssignment implements mxHierarchicalLayoutStage
 	 * Sets up the layout in an initial positioning. All the first cells in each
 	 * rank are moved to the left and the rest of the rank inserted as close
 	 * together as their size and buffering permits. This method works on just
-	 * the specified rank.
+	 * the specified rank. The widths of the cells must have been calculated
+	 * in calculateWidestRank.
 	 * 
 	 * @param rankValue
 	 *            the current rank being processed
@@ -839,74 +820,19 @@ public class mxCoordinateAssignment implements mxHierarchicalLayoutStage
 	protected void rankCoordinates(int rankValue, mxGraph graph,
 			mxGraphHierarchyModel model)
 	{
-		mxGraphHierarchyRank rank = model.ranks.get(new Integer(rankValue));
-		double maxY = 0.0;
+		double[] width = arrays.width;
 		double localX = initialX + (widestRankValue - rankWidths[rankValue])
 				/ 2;
 
-		// Store whether or not any of the cells' bounds were unavailable so
-		// to only issue the warning once for all cells
-		boolean boundsWarning = false;
-
-		for (mxGraphAbstractHierarchyCell cell : rank)
+		for (int s = arrays.rankStart[rankValue]; s < arrays.rankStart[rankValue + 1]; s++)
 		{
-			if (cell.isVertex())
-			{
-				mxGraphHierarchyNode node = (mxGraphHierarchyNode) cell;
-				mxRectangle bounds = layout.getVertexBounds(node.cell);
-
-				if (bounds != null)
-				{
-					if (orientation == SwingConstants.NORTH
-							|| orientation == SwingConstants.SOUTH)
-					{
-						cell.width = bounds.getWidth();
-						cell.height = bounds.getHeight();
-					}
-					else
-					{
-						cell.width = bounds.getHeight();
-						cell.height = bounds.getWidth();
-					}
-				}
-				else
-				{
-					boundsWarning = true;
-				}
-
-				maxY = Math.max(maxY, cell.height);
-			}
-			else if (cell.isEdge())
-			{
-				mxGraphHierarchyEdge edge = (mxGraphHierarchyEdge) cell;
-				// The width is the number of additional parallel edges
-				// time the parallel edge spacing
-				int numEdges = 1;
-
-				if (edge.edges != null)
-				{
-					numEdges = edge.edges.size();
-				}
-				else
-				{
-					log.finer("edge.edges is null");
-				}
-
-				cell.width = (numEdges - 1) * parallelEdgeSpacing;
-			}
-
 			// Set the initial x-value as being the best result so far
-			localX += cell.width / 2.0;
-			cell.setX(rankValue, localX);
-			cell.setGeneralPurposeVariable(rankValue, (int) localX);
-			localX += cell.width / 2.0;
+			localX += width[s] / 2.0;
+			arrays.x[s] = localX;
+			arrays.candidateX[s] = (int) localX;
+			localX += width[s] / 2.0;
 			localX += intraCellSpacing;
 		}
-
-		if (boundsWarning == true)
-		{
-			log.warning("At least one cell has no bounds");
-		}
 	}
 
 	/**
@@ -934,17 +860,17 @@ public class mxCoordinateAssignment implements mxHierarchicalLayoutStage
 		{
 			// Keep track of the widest cell on this rank
 			double maxCellHeight = 0.0;
-			mxGraphHierarchyRank rank = model.ranks.get(new Integer(rankValue));
+			int first = arrays.rankStart[rankValue];
+			int last = arrays.rankStart[rankValue + 1];
 			double localX = initialX;
 
 			// Store whether or not any of the cells' bounds were unavailable so
 			// to only issue the warning once for all cells
 			boolean boundsWarning = false;
-			Iterator<mxGraphAbstractHierarchyCell> iter = rank.iterator();
 
-			while (iter.hasNext())
+			for (int s = first; s < last; s++)
 			{
-				mxGraphAbstractHierarchyCell cell = iter.next();
+				mxGraphAbstractHierarchyCell cell = arrays.cells[s];
 
 				if (cell.isVertex())
 				{
@@ -992,9 +918,10 @@ public class mxCoordinateAssignment implements mxHierarchicalLayoutStage
 				}
 
 				// Set the initial x-value as being the best result so far
+				arrays.width[s] = cell.width;
 				localX += cell.width / 2.0;
-				cell.setX(rankValue, localX);
-				cell.setGeneralPurposeVariable(rankValue, (int) localX);
+				arrays.x[s] = localX;
+				arrays.candidateX[s] = (int) localX;
 				localX += cell.width / 2.0;
 				localX += intraCellSpacing;
 
@@ -1027,12 +954,9 @@ public class mxCoordinateAssignment implements mxHierarchicalLayoutStage
 				y -= distanceToNextRank;
 			}
 
-			iter = rank.iterator();
-
-			while (iter.hasNext())
+			for (int s = first; s < last; s++)
 			{
-				mxGraphAbstractHierarchyCell cell = iter.next();
-				cell.setY(rankValue, y);
+				arrays.y[s] = y;
 			}
 		}
 	}
@@ -1051,129 +975,166 @@ public class mxCoordinateAssignment implements mxHierarchicalLayoutStage
 		// preferred direction used is the one where the final
 		// control points have the least offset from the connectable 
 		// region of the terminating vertices
-		Map<Object, mxGraphHierarchyEdge> edges = model.getEdgeMapper();
+		int[] next = arrays.next;
+		int[] nextStart = arrays.nextStart;
 
-		for (mxGraphAbstractHierarchyCell cell : edges.values())
+		for (int s = 0; s < arrays.getSlotCount(); s++)
 		{
-			if (cell.maxRank > cell.minRank + 2)
+			mxGraphAbstractHierarchyCell cell = arrays.cells[s];
+
+			// Starts at the slot of each edge on its lowest rank
+			if (!arrays.vertex[s] && arrays.rank[s] == cell.minRank + 1
+					&& cell.maxRank > cell.minRank + 2)
 			{
 				int numEdgeLayers = cell.maxRank - cell.minRank - 1;
-				// At least two virtual nodes in the edge
-				// Check first whether the edge is already straight
-				int referenceX = cell
-						.getGeneralPurposeVariable(cell.minRank + 1);
-				boolean edgeStraight = true;
-				int refSegCount = 0;
-
-				for (int i = cell.minRank + 2; i < cell.maxRank; i++)
-				{
-					int x = cell.getGeneralPurposeVariable(i);
 
-					if (referenceX != x)
-					{
-						edgeStraight = false;
-						referenceX = x;
-					}
-					else
-					{
-						refSegCount++;
-					}
+				// Collects the slots of the virtual nodes from the bottom up
+				int[] slots = new int[numEdgeLayers];
+				slots[0] = s;
+
+				for (int k = 1; k < numEdgeLayers; k++)
+				{
+					slots[k] = next[nextStart[slots[k - 1]]];
 				}
 
-				if (edgeStraight)
+				// The edge is straightened once for each of its parallel
+				// edges
+				List<Object> edges = ((mxGraphHierarchyEdge) cell).edges;
+				int count = (edges != null) ? edges.size() : 1;
+
+				for (int i = 0; i < count; i++)
 				{
-					continue;
+					minPath(slots);
 				}
+			}
+		}
+	}
 
-				int upSegCount = 0;
-				int downSegCount = 0;
-				double upXPositions[] = new double[numEdgeLayers - 1];
-				double downXPositions[] = new double[numEdgeLayers - 1];
+	/**
+	 * Straightens out the chain of virtual nodes in the specified slots
+	 * 
+	 * @param slots
+	 *            the slots of the virtual nodes of an edge from the bottom up
+	 */
+	private void minPath(int[] slots)
+	{
+		int numEdgeLayers = slots.length;
+		int[] candidateX = arrays.candidateX;
+		double[] x = arrays.x;
 
-				double currentX = cell.getX(cell.minRank + 1);
+		// At least two virtual nodes in the edge
+		// Check first whether the edge is already straight
+		int referenceX = candidateX[slots[0]];
+		boolean edgeStraight = true;
+		int refSegCount = 0;
 
-				for (int i = cell.minRank + 1; i < cell.maxRank - 1; i++)
-				{
-					// Attempt to straight out the control point on the
-					// next segment up with the current control point.
-					double nextX = cell.getX(i + 1);
+		for (int k = 1; k < numEdgeLayers; k++)
+		{
+			int slotX = candidateX[slots[k]];
 
-					if (currentX == nextX)
-					{
-						upXPositions[i - cell.minRank - 1] = currentX;
-						upSegCount++;
-					}
-					else if (repositionValid(model, cell, i + 1, currentX))
-					{
-						upXPositions[i - cell.minRank - 1] = currentX;
-						upSegCount++;
-						// Leave currentX at same value
-					}
-					else
-					{
-						upXPositions[i - cell.minRank - 1] = nextX;
-						currentX = nextX;
-					}
-				}
+			if (referenceX != slotX)
+			{
+				edgeStraight = false;
+				referenceX = slotX;
+			}
+			else
+			{
+				refSegCount++;
+			}
+		}
 
-				currentX = cell.getX(cell.maxRank - 1);
+		if (edgeStraight)
+		{
+			return;
+		}
 
-				for (int i = cell.maxRank - 1; i > cell.minRank + 1; i--)
-				{
-					// Attempt to straight out the control point on the
-					// next segment down with the current control point.
-					double nextX = cell.getX(i - 1);
+		int upSegCount = 0;
+		int downSegCount = 0;
+		double upXPositions[] = new double[numEdgeLayers - 1];
+		double downXPositions[] = new double[numEdgeLayers - 1];
 
-					if (currentX == nextX)
-					{
-						downXPositions[i - cell.minRank - 2] = currentX;
-						downSegCount++;
-					}
-					else if (repositionValid(model, cell, i - 1, currentX))
-					{
-						downXPositions[i - cell.minRank - 2] = currentX;
-						downSegCount++;
-						// Leave currentX at same value
-					}
-					else
-					{
-						downXPositions[i - cell.minRank - 2] = cell.getX(i-1);
-						currentX = nextX;
-					}
-				}
+		double currentX = x[slots[0]];
 
-				if (downSegCount <= refSegCount && upSegCount <= refSegCount)
-				{
-					// Neither of the new calculation provide a straighter edge
-					continue;
-				}
+		for (int k = 0; k < numEdgeLayers - 1; k++)
+		{
+			// Attempt to straight out the control point on the
+			// next segment up with the current control point.
+			double nextX = x[slots[k + 1]];
 
-				if (downSegCount >= upSegCount)
-				{
-					// Apply down calculation values
-					for (int i = cell.maxRank - 2; i > cell.minRank; i--)
-					{
-						cell.setX(i, (int) downXPositions[i - cell.minRank - 1]);
-					}
-				}
-				else if (upSegCount > downSegCount)
-				{
-					// Apply up calculation values
-					for (int i = cell.minRank + 2; i < cell.maxRank; i++)
-					{
-						cell.setX(i, (int) upXPositions[i - cell.minRank - 2]);
-					}
-				}
-				else
-				{
-					// Neither direction provided a favourable result
-					// But both calculations are better than the
-					// existing solution, so apply the one with minimal
-					// offset to attached vertices at either end.
+			if (currentX == nextX)
+			{
+				upXPositions[k] = currentX;
+				upSegCount++;
+			}
+			else if (repositionValid(slots[k + 1], currentX))
+			{
+				upXPositions[k] = currentX;
+				upSegCount++;
+				// Leave currentX at same value
+			}
+			else
+			{
+				upXPositions[k] = nextX;
+				currentX = nextX;
+			}
+		}
 
-				}
+		currentX = x[slots[numEdgeLayers - 1]];
+
+		for (int k = numEdgeLayers - 1; k > 0; k--)
+		{
+			// Attempt to straight out the control point on the
+			// next segment down with the current control point.
+			double nextX = x[slots[k - 1]];
+
+			if (currentX == nextX)
+			{
+				downXPositions[k - 1] = currentX;
+				downSegCount++;
+			}
+			else if (repositionValid(slots[k - 1], currentX))
+			{
+				downXPositions[k - 1] = currentX;
+				downSegCount++;
+				// Leave currentX at same value
+			}
+			else
+			{
+				downXPositions[k - 1] = nextX;
+				currentX = nextX;
+			}
+		}
+
+		if (downSegCount <= refSegCount && upSegCount <= refSegCount)
+		{
+			// Neither of the new calculation provide a straighter edge
+			return;
+		}
+
+		if (downSegCount >= upSegCount)
+		{
+			// Apply down calculation values
+			for (int k = numEdgeLayers - 2; k >= 0; k--)
+			{
+				x[slots[k]] = (int) downXPositions[k];
+			}
+		}
+		else if (upSegCount > downSegCount)
+		{
+			// Apply up calculation values
+			for (int k = 1; k < numEdgeLayers; k++)
+			{
+				x[slots[k]] = (int) upXPositions[k - 1];
 			}
 		}
+		else
+		{
+			// Neither direction provided a favourable result
+			// But both calculations are better than the
+			// existing solution, so apply the one with minimal
+			// offset to attached vertices at either end.
+
+		}
 	}
 
 	/**
@@ -1188,40 +1149,44 @@ public class mxCoordinateAssignment implements mxHierarchicalLayoutStage
 	protected boolean repositionValid(mxGraphHierarchyModel model,
 			mxGraphAbstractHierarchyCell cell, int rank, double position)
 	{
-		mxGraphHierarchyRank rankSet = model.ranks.get(new Integer(rank));
-		mxGraphAbstractHierarchyCell[] rankArray = rankSet
-				.toArray(new mxGraphAbstractHierarchyCell[rankSet.size()]);
-		int rankIndex = -1;
-
-		for (int i = 0; i < rankArray.length; i++)
+		for (int s = arrays.rankStart[rank]; s < arrays.rankStart[rank + 1]; s++)
 		{
-			if (cell == rankArray[i])
+			if (arrays.cells[s] == cell)
 			{
-				rankIndex = i;
-				break;
+				return repositionValid(s, position);
 			}
 		}
 
-		if (rankIndex < 0)
-		{
-			return false;
-		}
+		return false;
+	}
 
-		int currentX = cell.getGeneralPurposeVariable(rank);
+	/**
+	 * Determines whether or not the node in the specified slot may be moved
+	 * to the specified x position
+	 * @param slot the slot of the node
+	 * @param position the x position being sought
+	 * @return whether or not the virtual node can be moved to this position
+	 */
+	protected boolean repositionValid(int slot, double position)
+	{
+		int[] candidateX = arrays.candidateX;
+		double[] width = arrays.width;
+		int rank = arrays.rank[slot];
+		int currentX = candidateX[slot];
 
 		if (position < currentX)
 		{
 			// Trying to move node to the left.
-			if (rankIndex == 0)
+			if (slot == arrays.rankStart[rank])
 			{
 				// Left-most node, can move anywhere
 				return true;
 			}
 
-			mxGraphAbstractHierarchyCell leftCell = rankArray[rankIndex - 1];
-			int leftLimit = leftCell.getGeneralPurposeVariable(rank);
-			leftLimit = leftLimit + (int) leftCell.width / 2
-					+ (int) intraCellSpacing + (int) cell.width / 2;
+			int leftSlot = slot - 1;
+			int leftLimit = candidateX[leftSlot];
+			leftLimit = leftLimit + (int) width[leftSlot] / 2
+					+ (int) intraCellSpacing + (int) width[slot] / 2;
 
 			if (leftLimit <= position)
 			{
@@ -1235,16 +1200,16 @@ public class mxCoordinateAssignment implements mxHierarchicalLayoutStage
 		else if (position > currentX)
 		{
 			// Trying to move node to the right.
-			if (rankIndex == rankArray.length - 1)
+			if (slot == arrays.rankStart[rank + 1] - 1)
 			{
 				// Right-most node, can move anywhere
 				return true;
 			}
 
-			mxGraphAbstractHierarchyCell rightCell = rankArray[rankIndex + 1];
-			int rightLimit = rightCell.getGeneralPurposeVariable(rank);
-			rightLimit = rightLimit - (int) rightCell.width / 2
-					- (int) intraCellSpacing - (int) cell.width / 2;
+			int rightSlot = slot + 1;
+			int rightLimit = candidateX[rightSlot];
+			rightLimit = rightLimit - (int) width[rightSlot] / 2
+					- (int) intraCellSpacing - (int) width[slot] / 2;
 
 			if (rightLimit >= position)
 			{
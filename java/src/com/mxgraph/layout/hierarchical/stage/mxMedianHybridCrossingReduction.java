@@ -12,14 +12,23 @@
 package com.mxgraph.layout.hierarchical.stage;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 import com.mxgraph.layout.hierarchical.mxHierarchicalLayout;
 import com.mxgraph.layout.hierarchical.model.mxGraphAbstractHierarchyCell;
+import com.mxgraph.layout.hierarchical.model.mxGraphHierarchyArrays;
 import com.mxgraph.layout.hierarchical.model.mxGraphHierarchyModel;
 import com.mxgraph.layout.hierarchical.model.mxGraphHierarchyRank;
 
 /**
  * Performs a vertex ordering within ranks as described by Gansner et al 1993
+ * 
+ * The stage works on the arrays of mxGraphHierarchyArrays and copies the
+ * resulting order to the cells when it is finished. The crossings between
+ * two ranks are counted using an accumulator tree as described by Barth et al
+ * 2002. If parallelCrossings is true then the
+ * crossings of the rank pairs are counted on multiple threads.
  */
 public class mxMedianHybridCrossingReduction implements
 		mxHierarchicalLayoutStage/*, JGraphLayout.Stoppable*/
@@ -41,6 +50,23 @@ public class mxMedianHybridCrossingReduction implements
 	 */
 	protected mxGraphAbstractHierarchyCell[][] nestedBestRanks = null;
 
+	/**
+	 * Holds the ranks and connections of the model as arrays while the stage
+	 * is executed
+	 */
+	protected mxGraphHierarchyArrays arrays = null;
+
+	/**
+	 * Stores each rank as the slots of the cells in the best order found for
+	 * each layer so far
+	 */
+	protected int[][] bestSlots = null;
+
+	/**
+	 * Holds a sorter for each slot which is reused in each iteration
+	 */
+	protected MedianCellSorter[] sorters = null;
+
 	/**
 	 * The total number of crossings found in the best configuration so far
 	 */
@@ -50,6 +76,24 @@ public class mxMedianHybridCrossingReduction implements
 
 	protected int maxNoImprovementIterations = 2;
 
+	/**
+	 * Specifies if the crossings of the rank pairs should be counted in
+	 * parallel. Default is false.
+	 */
+	protected boolean parallelCrossings = false;
+
+	/**
+	 * Holds the pool for counting the crossings in parallel. If this is null
+	 * then the shared pool is used.
+	 */
+	protected ForkJoinPool crossingPool;
+
+	/**
+	 * Holds the pool that is shared by all instances for counting the
+	 * crossings in parallel.
+	 */
+	protected static ForkJoinPool sharedCrossingPool;
+
 	/**
 	 * Constructor that has the roots specified
 	 */
@@ -58,6 +102,55 @@ public class mxMedianHybridCrossingReduction implements
 		this.layout = layout;
 	}
 
+	/**
+	 * Returns true if the crossings of the rank pairs are counted in
+	 * parallel.
+	 */
+	public boolean isParallelCrossings()
+	{
+		return parallelCrossings;
+	}
+
+	/**
+	 * Specifies if the crossings of the rank pairs should be counted in
+	 * parallel.
+	 */
+	public void setParallelCrossings(boolean value)
+	{
+		parallelCrossings = value;
+	}
+
+	/**
+	 * Returns the pool for counting the crossings in parallel.
+	 */
+	public ForkJoinPool getCrossingPool()
+	{
+		return (crossingPool != null) ? crossingPool : getSharedCrossingPool();
+	}
+
+	/**
+	 * Sets the pool for counting the crossings in parallel. If the pool is
+	 * null then the shared pool is used.
+	 */
+	public void setCrossingPool(ForkJoinPool value)
+	{
+		crossingPool = value;
+	}
+
+	/**
+	 * Returns the pool that is shared by all instances for counting the
+	 * crossings in parallel. The pool is created on the first call.
+	 */
+	protected static synchronized ForkJoinPool getSharedCrossingPool()
+	{
+		if (sharedCrossingPool == null)
+		{
+			sharedCrossingPool = new ForkJoinPool();
+		}
+
+		return sharedCrossingPool;
+	}
+
 	/**
 	 * Performs a vertex ordering within ranks as described by Gansner et al
 	 * 1993
@@ -65,26 +158,40 @@ public class mxMedianHybridCrossingReduction implements
 	public void execute(Object parent)
 	{
 		mxGraphHierarchyModel model = layout.getModel();
+		arrays = new mxGraphHierarchyArrays(model);
+		int[] order = arrays.order;
+		int[] rankStart = arrays.rankStart;
 
 		// Stores initial ordering as being the best one found so far
-		nestedBestRanks = new mxGraphAbstractHierarchyCell[model.ranks.size()][];
+		bestSlots = new int[arrays.rankCount][];
+		sorters = new MedianCellSorter[arrays.getSlotCount()];
 
-		for (int i = 0; i < nestedBestRanks.length; i++)
+		for (int i = 0; i < bestSlots.length; i++)
 		{
-			mxGraphHierarchyRank rank = model.ranks.get(new Integer(i));
-			nestedBestRanks[i] = new mxGraphAbstractHierarchyCell[rank.size()];
-			rank.toArray(nestedBestRanks[i]);
+			bestSlots[i] = new int[arrays.getRankSize(i)];
+
+			for (int k = 0; k < bestSlots[i].length; k++)
+			{
+				bestSlots[i][k] = rankStart[i] + k;
+			}
+		}
+
+		for (int s = 0; s < sorters.length; s++)
+		{
+			sorters[s] = new MedianCellSorter();
+			sorters[s].cell = arrays.cells[s];
+			sorters[s].slot = s;
 		}
 
 		iterationsWithoutImprovement = 0;
-		currentBestCrossings = calculateCrossings(model);
+		currentBestCrossings = calculateCrossings(arrays);
 
 		for (int i = 0; i < maxIterations
 				&& iterationsWithoutImprovement < maxNoImprovementIterations; i++)
 		{
 			weightedMedian(i, model);
 			transpose(i, model);
-			int candidateCrossings = calculateCrossings(model);
+			int candidateCrossings = calculateCrossings(arrays);
 
 			if (candidateCrossings < currentBestCrossings)
 			{
@@ -92,17 +199,11 @@ public class mxMedianHybridCrossingReduction implements
 				iterationsWithoutImprovement = 0;
 
 				// Store the current rankings as the best ones
-				for (int j = 0; j < nestedBestRanks.length; j++)
+				for (int j = 0; j < bestSlots.length; j++)
 				{
-					mxGraphHierarchyRank rank = model.ranks.get(new Integer(j));
-					Iterator<mxGraphAbstractHierarchyCell> iter = rank
-							.iterator();
-
-					for (int k = 0; k < rank.size(); k++)
+					for (int s = rankStart[j]; s < rankStart[j + 1]; s++)
 					{
-						mxGraphAbstractHierarchyCell cell = iter
-								.next();
-						nestedBestRanks[j][cell.getGeneralPurposeVariable(j)] = cell;
+						bestSlots[j][order[s]] = s;
 					}
 				}
 			}
@@ -112,19 +213,10 @@ public class mxMedianHybridCrossingReduction implements
 				// layout
 				iterationsWithoutImprovement++;
 
-				// Restore the best values to the cells
-				for (int j = 0; j < nestedBestRanks.length; j++)
+				// Restore the order of the cells in the ranks
+				for (int s = 0; s < order.length; s++)
 				{
-					mxGraphHierarchyRank rank = model.ranks.get(new Integer(j));
-					Iterator<mxGraphAbstractHierarchyCell> iter = rank
-							.iterator();
-
-					for (int k = 0; k < rank.size(); k++)
-					{
-						mxGraphAbstractHierarchyCell cell = iter
-								.next();
-						cell.setGeneralPurposeVariable(j, k);
-					}
+					order[s] = s - rankStart[arrays.rank[s]];
 				}
 			}
 
@@ -135,6 +227,8 @@ public class mxMedianHybridCrossingReduction implements
 			}
 		}
 
+		arrays.writeOrder();
+
 		// Store the best rankings but in the model
 		Map<Integer, mxGraphHierarchyRank> ranks = new LinkedHashMap<Integer, mxGraphHierarchyRank>(
 				model.maxRank + 1);
@@ -146,35 +240,49 @@ public class mxMedianHybridCrossingReduction implements
 			ranks.put(new Integer(i), rankList[i]);
 		}
 
-		for (int i = 0; i < nestedBestRanks.length; i++)
+		nestedBestRanks = new mxGraphAbstractHierarchyCell[bestSlots.length][];
+
+		for (int i = 0; i < bestSlots.length; i++)
 		{
-			for (int j = 0; j < nestedBestRanks[i].length; j++)
+			nestedBestRanks[i] = new mxGraphAbstractHierarchyCell[bestSlots[i].length];
+
+			for (int j = 0; j < bestSlots[i].length; j++)
 			{
+				nestedBestRanks[i][j] = arrays.cells[bestSlots[i][j]];
 				rankList[i].add(nestedBestRanks[i][j]);
 			}
 		}
 
 		model.ranks = ranks;
+		arrays = null;
+		bestSlots = null;
+		sorters = null;
 	}
 
 	/**
 	 * Calculates the total number of edge crossing in the current graph
 	 * 
-	 * @param model
-	 *            the internal model describing the hierarchy
+	 * @param arrays
+	 *            the arrays describing the hierarchy
 	 * @return the current number of edge crossings in the hierarchy graph model
 	 *         in the current candidate layout
 	 */
-	private int calculateCrossings(mxGraphHierarchyModel model)
+	private int calculateCrossings(mxGraphHierarchyArrays arrays)
 	{
-		// The intra-rank order of cells are stored within the temp variables
-		// on cells
-		int numRanks = model.ranks.size();
+		// The intra-rank order of cells are stored in the order array
+		int numRanks = arrays.rankCount;
+
+		if (parallelCrossings && numRanks > 2)
+		{
+			return getCrossingPool().invoke(
+					new mxCrossingTask(arrays, 1, numRanks));
+		}
+
 		int totalCrossings = 0;
 
 		for (int i = 1; i < numRanks; i++)
 		{
-			totalCrossings += calculateRankCrossing(i, model);
+			totalCrossings += calculateRankCrossing(i, arrays);
 		}
 
 		return totalCrossings;
@@ -186,84 +294,134 @@ public class mxMedianHybridCrossingReduction implements
 	 * 
 	 * @param i
 	 *            the topmost rank of the pair ( higher rank value )
-	 * @param model
-	 *            the internal hierarchy model of the graph
+	 * @param arrays
+	 *            the arrays describing the hierarchy
 	 * @return the number of edges crossings with the rank beneath
 	 */
-	protected int calculateRankCrossing(int i, mxGraphHierarchyModel model)
+	protected int calculateRankCrossing(int i, mxGraphHierarchyArrays arrays)
 	{
-		int totalCrossings = 0;
-		mxGraphHierarchyRank rank = model.ranks.get(i);
-		mxGraphHierarchyRank previousRank = model.ranks.get(i - 1);
+		int[] order = arrays.order;
+		int[] previous = arrays.previous;
+		int[] previousStart = arrays.previousStart;
+		int first = arrays.rankStart[i];
+		int last = arrays.rankStart[i + 1];
 
-		Map<Integer, List<Integer>> tmpIndices = new TreeMap<>();
+		// Orders the slots by their position in the rank
+		int[] orderedSlots = new int[last - first];
 
-		for (mxGraphAbstractHierarchyCell node : rank)
+		for (int s = first; s < last; s++)
 		{
-			int rankPosition = node.getGeneralPurposeVariable(i);
-			List<mxGraphAbstractHierarchyCell> connectedCells = node.getPreviousLayerConnectedCells(i);
-			List<Integer> nodeIndices = new ArrayList<>();
+			orderedSlots[order[s]] = s;
+		}
 
-			for (mxGraphAbstractHierarchyCell connectedCell : connectedCells)
-			{
-				int otherCellRankPosition = connectedCell.getGeneralPurposeVariable(i - 1);
-				nodeIndices.add(otherCellRankPosition);
-			}
+		// Collects the positions of the connected cells in the previous rank
+		// sorted by the position of the cell in this rank and then by the
+		// position of the connected cell
+		int[] indices = new int[previousStart[last] - previousStart[first]];
+		int count = 0;
 
-			Collections.sort(nodeIndices, new Comparator<Integer>()
+		for (int j = 0; j < orderedSlots.length; j++)
+		{
+			int s = orderedSlots[j];
+			int start = count;
+
+			for (int k = previousStart[s]; k < previousStart[s + 1]; k++)
 			{
-				@Override
-				public int compare(Integer o1, Integer o2)
-				{
-					return o1 - o2;
-				}
-			});
+				indices[count++] = order[previous[k]];
+			}
 
-			tmpIndices.put(rankPosition, nodeIndices);
+			Arrays.sort(indices, start, count);
 		}
 
-		List<Integer> indices = new ArrayList<>();
-
-		for (List<Integer> tmpIndex : tmpIndices.values())
-		{
-			indices.addAll(tmpIndex);
-		}
+		return countCrossings(indices, count, arrays.getRankSize(i - 1));
+	}
 
+	/**
+	 * Counts the inversions in the given positions in the previous rank using
+	 * an accumulator tree where each leaf holds the number of edges that end
+	 * at a position and each inner node holds the sum of its children
+	 * 
+	 * @param indices
+	 *            the positions of the edge ends in the previous rank
+	 * @param count
+	 *            the number of positions
+	 * @param size
+	 *            the size of the previous rank
+	 * @return the number of edges crossings
+	 */
+	protected static int countCrossings(int[] indices, int count, int size)
+	{
+		int totalCrossings = 0;
+		int firstIndex = 1;
 
-		long firstIndex = 1;
-		while (firstIndex < previousRank.size())
+		while (firstIndex < size)
 		{
 			firstIndex <<= 1;
 		}
 
-		long treeSize = 2 * firstIndex - 1;
+		int[] tree = new int[2 * firstIndex - 1];
 		firstIndex -= 1;
 
-		Map<Long, Integer> tree = new HashMap<>();
-		for (long j = 0; j < treeSize; j++)
-		{
-			tree.put(j, 0);
-		}
-
-		for (Integer index : indices)
+		for (int j = 0; j < count; j++)
 		{
-			long treeIndex = index + firstIndex;
-			tree.put(treeIndex, tree.get(treeIndex) + 1);
+			int treeIndex = indices[j] + firstIndex;
+			tree[treeIndex]++;
 
 			while (treeIndex > 0)
 			{
 				if (treeIndex % 2 != 0)
 				{
-					totalCrossings += tree.get(treeIndex + 1);
+					totalCrossings += tree[treeIndex + 1];
 				}
+
 				treeIndex = (treeIndex - 1) >> 1;
-				tree.put(treeIndex, tree.get(treeIndex) + 1);
+				tree[treeIndex]++;
 			}
 		}
 
 		return totalCrossings;
 	}
 
+	/**
+	 * Returns the number of pairs where the value in the first array is
+	 * greater than the value in the second array. Both arrays must be sorted
+	 * in ascending order.
+	 */
+	protected static int countInversions(int[] a, int[] b)
+	{
+		int result = 0;
+		int j = 0;
+
+		for (int k = 0; k < a.length; k++)
+		{
+			while (j < b.length && b[j] < a[k])
+			{
+				j++;
+			}
+
+			result += j;
+		}
+
+		return result;
+	}
+
+	/**
+	 * Returns the sorted positions of the given slots.
+	 */
+	protected int[] getPositions(int[] slots, int start, int end)
+	{
+		int[] result = new int[end - start];
+
+		for (int k = start; k < end; k++)
+		{
+			result[k - start] = arrays.order[slots[k]];
+		}
+
+		Arrays.sort(result);
+
+		return result;
+	}
+
 	/**
 	 * Takes each possible adjacent cell pair on each rank and checks if
 	 * swapping them around reduces the number of crossing
@@ -275,6 +433,11 @@ public class mxMedianHybridCrossingReduction implements
 	 */
 	private void transpose(int mainLoopIteration, mxGraphHierarchyModel model)
 	{
+		int[] order = arrays.order;
+		int[] next = arrays.next;
+		int[] nextStart = arrays.nextStart;
+		int[] previous = arrays.previous;
+		int[] previousStart = arrays.previousStart;
 		boolean improved = true;
 
 		// Track the number of iterations in case of looping
@@ -289,34 +452,25 @@ public class mxMedianHybridCrossingReduction implements
 			boolean nudge = mainLoopIteration % 2 == 1 && count % 2 == 1;
 			improved = false;
 
-			for (int i = 0; i < model.ranks.size(); i++)
+			for (int i = 0; i < arrays.rankCount; i++)
 			{
-				mxGraphHierarchyRank rank = model.ranks.get(new Integer(i));
-				mxGraphAbstractHierarchyCell[] orderedCells = new mxGraphAbstractHierarchyCell[rank
-						.size()];
-				Iterator<mxGraphAbstractHierarchyCell> iter = rank.iterator();
+				int first = arrays.rankStart[i];
+				int[] orderedSlots = new int[arrays.getRankSize(i)];
 
-				for (int j = 0; j < orderedCells.length; j++)
+				for (int j = 0; j < orderedSlots.length; j++)
 				{
-					mxGraphAbstractHierarchyCell cell = iter
-							.next();
-					orderedCells[cell.getGeneralPurposeVariable(i)] = cell;
+					orderedSlots[order[first + j]] = first + j;
 				}
 
-				List<mxGraphAbstractHierarchyCell> leftCellAboveConnections = null;
-				List<mxGraphAbstractHierarchyCell> leftCellBelowConnections = null;
-				List<mxGraphAbstractHierarchyCell> rightCellAboveConnections = null;
-				List<mxGraphAbstractHierarchyCell> rightCellBelowConnections = null;
-
 				int[] leftAbovePositions = null;
 				int[] leftBelowPositions = null;
 				int[] rightAbovePositions = null;
 				int[] rightBelowPositions = null;
 
-				mxGraphAbstractHierarchyCell leftCell = null;
-				mxGraphAbstractHierarchyCell rightCell = null;
+				int leftSlot = -1;
+				int rightSlot = -1;
 
-				for (int j = 0; j < (rank.size() - 1); j++)
+				for (int j = 0; j < (orderedSlots.length - 1); j++)
 				{
 					// For each intra-rank adjacent pair of cells
 					// see if swapping them around would reduce the
@@ -326,112 +480,51 @@ public class mxMedianHybridCrossingReduction implements
 					// right cell on the new left cell
 					if (j == 0)
 					{
-						leftCell = orderedCells[j];
-						leftCellAboveConnections = leftCell
-								.getNextLayerConnectedCells(i);
-						leftCellBelowConnections = leftCell
-								.getPreviousLayerConnectedCells(i);
-
-						leftAbovePositions = new int[leftCellAboveConnections
-								.size()];
-						leftBelowPositions = new int[leftCellBelowConnections
-								.size()];
-
-						for (int k = 0; k < leftAbovePositions.length; k++)
-						{
-							leftAbovePositions[k] = leftCellAboveConnections
-									.get(k).getGeneralPurposeVariable(i + 1);
-						}
-
-						for (int k = 0; k < leftBelowPositions.length; k++)
-						{
-							leftBelowPositions[k] = (leftCellBelowConnections
-									.get(k)).getGeneralPurposeVariable(i - 1);
-						}
+						leftSlot = orderedSlots[j];
+						leftAbovePositions = getPositions(next,
+								nextStart[leftSlot], nextStart[leftSlot + 1]);
+						leftBelowPositions = getPositions(previous,
+								previousStart[leftSlot],
+								previousStart[leftSlot + 1]);
 					}
 					else
 					{
-						leftCellAboveConnections = rightCellAboveConnections;
-						leftCellBelowConnections = rightCellBelowConnections;
 						leftAbovePositions = rightAbovePositions;
 						leftBelowPositions = rightBelowPositions;
-						leftCell = rightCell;
-					}
-
-					rightCell = orderedCells[j + 1];
-					rightCellAboveConnections = rightCell
-							.getNextLayerConnectedCells(i);
-					rightCellBelowConnections = rightCell
-							.getPreviousLayerConnectedCells(i);
-
-					rightAbovePositions = new int[rightCellAboveConnections
-							.size()];
-					rightBelowPositions = new int[rightCellBelowConnections
-							.size()];
-
-					for (int k = 0; k < rightAbovePositions.length; k++)
-					{
-						rightAbovePositions[k] = (rightCellAboveConnections
-								.get(k)).getGeneralPurposeVariable(i + 1);
-					}
-
-					for (int k = 0; k < rightBelowPositions.length; k++)
-					{
-						rightBelowPositions[k] = (rightCellBelowConnections
-								.get(k)).getGeneralPurposeVariable(i - 1);
-					}
-
-					int totalCurrentCrossings = 0;
-					int totalSwitchedCrossings = 0;
-
-					for (int k = 0; k < leftAbovePositions.length; k++)
-					{
-						for (int ik = 0; ik < rightAbovePositions.length; ik++)
-						{
-							if (leftAbovePositions[k] > rightAbovePositions[ik])
-							{
-								totalCurrentCrossings++;
-							}
-
-							if (leftAbovePositions[k] < rightAbovePositions[ik])
-							{
-								totalSwitchedCrossings++;
-							}
-						}
+						leftSlot = rightSlot;
 					}
 
-					for (int k = 0; k < leftBelowPositions.length; k++)
-					{
-						for (int ik = 0; ik < rightBelowPositions.length; ik++)
-						{
-							if (leftBelowPositions[k] > rightBelowPositions[ik])
-							{
-								totalCurrentCrossings++;
-							}
-
-							if (leftBelowPositions[k] < rightBelowPositions[ik])
-							{
-								totalSwitchedCrossings++;
-							}
-						}
-					}
+					rightSlot = orderedSlots[j + 1];
+					rightAbovePositions = getPositions(next,
+							nextStart[rightSlot], nextStart[rightSlot + 1]);
+					rightBelowPositions = getPositions(previous,
+							previousStart[rightSlot],
+							previousStart[rightSlot + 1]);
+
+					// Counts the crossings of the edges of the pair with the
+					// positions sorted in linear time
+					int totalCurrentCrossings = countInversions(
+							leftAbovePositions, rightAbovePositions)
+							+ countInversions(leftBelowPositions,
+									rightBelowPositions);
+					int totalSwitchedCrossings = countInversions(
+							rightAbovePositions, leftAbovePositions)
+							+ countInversions(rightBelowPositions,
+									leftBelowPositions);
 
 					if ((totalSwitchedCrossings < totalCurrentCrossings)
 							|| (totalSwitchedCrossings == totalCurrentCrossings && nudge))
 					{
-						int temp = leftCell.getGeneralPurposeVariable(i);
-						leftCell.setGeneralPurposeVariable(i, rightCell
-								.getGeneralPurposeVariable(i));
-						rightCell.setGeneralPurposeVariable(i, temp);
+						int temp = order[leftSlot];
+						order[leftSlot] = order[rightSlot];
+						order[rightSlot] = temp;
 						// With this pair exchanged we have to switch all of
 						// values for the left cell to the right cell so the
 						// next iteration for this rank uses it as the left
 						// cell again
-						rightCellAboveConnections = leftCellAboveConnections;
-						rightCellBelowConnections = leftCellBelowConnections;
 						rightAbovePositions = leftAbovePositions;
 						rightBelowPositions = leftBelowPositions;
-						rightCell = leftCell;
+						rightSlot = leftSlot;
 
 						if (!nudge)
 						{
@@ -487,61 +580,41 @@ public class mxMedianHybridCrossingReduction implements
 	 */
 	private void medianRank(int rankValue, boolean downwardSweep)
 	{
-		int numCellsForRank = nestedBestRanks[rankValue].length;
-		ArrayList<MedianCellSorter> medianValues = new ArrayList<MedianCellSorter>(numCellsForRank);
+		int[] slots = bestSlots[rankValue];
+		int numCellsForRank = slots.length;
+		MedianCellSorter[] medianArray = new MedianCellSorter[numCellsForRank];
 		boolean[] reservedPositions = new boolean[numCellsForRank];
+		int count = 0;
+
+		// Flip whether or not equal medians are flipped on up and down
+		// sweeps
+		// todo reimplement some kind of nudging depending on sweep
+		//nudge = !downwardSweep;
+		int[] connected = (downwardSweep) ? arrays.next : arrays.previous;
+		int[] connectedStart = (downwardSweep) ? arrays.nextStart
+				: arrays.previousStart;
 
 		for (int i = 0; i < numCellsForRank; i++)
 		{
-			mxGraphAbstractHierarchyCell cell = nestedBestRanks[rankValue][i];
-			MedianCellSorter sorterEntry = new MedianCellSorter();
-			sorterEntry.cell = cell;
-
-			// Flip whether or not equal medians are flipped on up and down
-			// sweeps
-			// todo reimplement some kind of nudging depending on sweep
-			//nudge = !downwardSweep;
-			Collection<mxGraphAbstractHierarchyCell> nextLevelConnectedCells;
+			int slot = slots[i];
+			int start = connectedStart[slot];
+			int end = connectedStart[slot + 1];
 
-			if (downwardSweep)
+			if (end > start)
 			{
-				nextLevelConnectedCells = cell
-						.getNextLayerConnectedCells(rankValue);
-			}
-			else
-			{
-				nextLevelConnectedCells = cell
-						.getPreviousLayerConnectedCells(rankValue);
-			}
-
-			int nextRankValue;
-
-			if (downwardSweep)
-			{
-				nextRankValue = rankValue + 1;
-			}
-			else
-			{
-				nextRankValue = rankValue - 1;
-			}
-
-			if (nextLevelConnectedCells != null
-					&& nextLevelConnectedCells.size() != 0)
-			{
-				sorterEntry.medianValue = medianValue(
-						nextLevelConnectedCells, nextRankValue);
-				medianValues.add(sorterEntry);
+				MedianCellSorter sorterEntry = sorters[slot];
+				sorterEntry.medianValue = medianValue(connected, start, end);
+				medianArray[count++] = sorterEntry;
 			}
 			else
 			{
 				// Nodes with no adjacent vertices are flagged in the reserved array 
 				// to indicate they should be left in their current position.
-				reservedPositions[cell.getGeneralPurposeVariable(rankValue)] = true;
+				reservedPositions[arrays.order[slot]] = true;
 			}
 		}
 
-		MedianCellSorter[] medianArray = medianValues.toArray(new MedianCellSorter[medianValues.size()]);
-		Arrays.sort(medianArray);
+		Arrays.sort(medianArray, 0, count);
 
 		// Set the new position of each node within the rank using
 		// its temp variable
@@ -552,7 +625,7 @@ public class mxMedianHybridCrossingReduction implements
 			if (!reservedPositions[i])
 			{
 				MedianCellSorter wrapper = medianArray[index++];
-				wrapper.cell.setGeneralPurposeVariable(rankValue, i);
+				arrays.order[wrapper.slot] = i;
 			}
 		}
 	}
@@ -561,25 +634,22 @@ public class mxMedianHybridCrossingReduction implements
 	 * Calculates the median rank order positioning for the specified cell using
 	 * the connected cells on the specified rank
 	 * 
-	 * @param connectedCells
-	 *            the cells on the specified rank connected to the specified
-	 *            cell
-	 * @param rankValue
-	 *            the rank that the connected cell lie upon
+	 * @param connected
+	 *            the slots of the connected cells
+	 * @param start
+	 *            the index of the first connected cell
+	 * @param end
+	 *            the index after the last connected cell
 	 * @return the median rank ordering value of the connected cells
 	 */
-	private double medianValue(
-			Collection<mxGraphAbstractHierarchyCell> connectedCells,
-			int rankValue)
+	private double medianValue(int[] connected, int start, int end)
 	{
-		double[] medianValues = new double[connectedCells.size()];
-		int arrayCount = 0;
-		Iterator<mxGraphAbstractHierarchyCell> iter = connectedCells.iterator();
+		int arrayCount = end - start;
+		double[] medianValues = new double[arrayCount];
 
-		while (iter.hasNext())
+		for (int k = 0; k < arrayCount; k++)
 		{
-			medianValues[arrayCount++] = (iter
-					.next()).getGeneralPurposeVariable(rankValue);
+			medianValues[k] = arrays.order[connected[start + k]];
 		}
 
 		Arrays.sort(medianValues);
@@ -623,6 +693,11 @@ public class mxMedianHybridCrossingReduction implements
 		 */
 		mxGraphAbstractHierarchyCell cell = null;
 
+		/**
+		 * The slot of the cell in the arrays
+		 */
+		int slot = 0;
+
 		/**
 		 * comparator on the medianValue
 		 * 
@@ -648,4 +723,62 @@ public class mxMedianHybridCrossingReduction implements
 			return 0;
 		}
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Counts the crossings of a range of rank pairs by splitting the range
+	 * until it contains a single rank pair.
+	 */
+	protected class mxCrossingTask extends RecursiveTask<Integer>
+	{
+
+		/**
+		 * 
+		 */
+		private static final long serialVersionUID = -2918356043316413871L;
+
+		/**
+		 * Holds the arrays.
+		 */
+		protected mxGraphHierarchyArrays arrays;
+
+		/**
+		 * Holds the first upper rank of the range.
+		 */
+		protected int from;
+
+		/**
+		 * Holds the upper rank after the last rank of the range.
+		 */
+		protected int to;
+
+		/**
+		 * Constructs a new task for the given range of upper ranks.
+		 */
+		public mxCrossingTask(mxGraphHierarchyArrays arrays, int from, int to)
+		{
+			this.arrays = arrays;
+			this.from = from;
+			this.to = to;
+		}
+
+		/**
+		 * Counts the crossings of the rank pairs.
+		 */
+		protected Integer compute()
+		{
+			if (to - from <= 1)
+			{
+				return (from < to) ? calculateRankCrossing(from, arrays) : 0;
+			}
+
+			int mid = (from + to) >>> 1;
+			mxCrossingTask left = new mxCrossingTask(arrays, from, mid);
+			left.fork();
+			int right = new mxCrossingTask(arrays, mid, to).compute();
+
+			return left.join() + right;
+		}
+
+	}
+
+}
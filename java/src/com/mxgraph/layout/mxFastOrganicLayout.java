@@ -4,8 +4,11 @@
 package com.mxgraph.layout;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Hashtable;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 import com.mxgraph.model.mxGeometry;
 import com.mxgraph.model.mxIGraphModel;
@@ -14,6 +17,13 @@ import com.mxgraph.view.mxGraph;
 
 /**
  * Fast organic layout algorithm.
+ * 
+ * The repulsive forces are computed for all pairs of vertices by default. If
+ * approximateRepulsion is true then the forces are approximated using a
+ * quadtree (Barnes-Hut), where groups of vertices that are far away are
+ * treated as a single vertex at their center of mass. The accuracy of the
+ * approximation is controlled by theta. If parallelRepulsion is true then the
+ * repulsive forces are computed on multiple threads.
  */
 public class mxFastOrganicLayout extends mxGraphLayout
 {
@@ -64,6 +74,38 @@ public class mxFastOrganicLayout extends mxGraphLayout
 	 */
 	protected double maxDistanceLimit = 500;
 
+	/**
+	 * Specifies if the repulsive forces should be approximated using a
+	 * quadtree. Default is false.
+	 */
+	protected boolean approximateRepulsion = false;
+
+	/**
+	 * Ratio of the size of a quadtree node to the distance of its center of
+	 * mass below which the vertices in the node are treated as a single
+	 * vertex. Smaller values are more accurate and 0 computes the exact
+	 * forces. Default is 0.5.
+	 */
+	protected double theta = 0.5;
+
+	/**
+	 * Specifies if the repulsive forces should be computed on multiple
+	 * threads. Default is false.
+	 */
+	protected boolean parallelRepulsion = false;
+
+	/**
+	 * Holds the pool for computing the repulsive forces in parallel. If this
+	 * is null then a pool shared by all layouts is used.
+	 */
+	protected ForkJoinPool repulsionPool;
+
+	/**
+	 * Holds the pool that is shared by all layouts for computing the
+	 * repulsive forces in parallel.
+	 */
+	protected static ForkJoinPool sharedRepulsionPool;
+
 	/**
 	 * Start value of temperature. Default is 200.
 	 */
@@ -274,6 +316,87 @@ public class mxFastOrganicLayout extends mxGraphLayout
 		this.maxDistanceLimit = maxDistanceLimit;
 	}
 
+	/**
+	 * Returns true if the repulsive forces are approximated using a quadtree.
+	 */
+	public boolean isApproximateRepulsion()
+	{
+		return approximateRepulsion;
+	}
+
+	/**
+	 * Sets if the repulsive forces are approximated using a quadtree.
+	 */
+	public void setApproximateRepulsion(boolean value)
+	{
+		approximateRepulsion = value;
+	}
+
+	/**
+	 * Returns the accuracy of the approximated repulsive forces.
+	 */
+	public double getTheta()
+	{
+		return theta;
+	}
+
+	/**
+	 * Sets the accuracy of the approximated repulsive forces. Smaller values
+	 * are more accurate and 0 computes the exact forces.
+	 */
+	public void setTheta(double value)
+	{
+		theta = Math.max(0, value);
+	}
+
+	/**
+	 * Returns true if the repulsive forces are computed on multiple threads.
+	 */
+	public boolean isParallelRepulsion()
+	{
+		return parallelRepulsion;
+	}
+
+	/**
+	 * Sets if the repulsive forces are computed on multiple threads.
+	 */
+	public void setParallelRepulsion(boolean value)
+	{
+		parallelRepulsion = value;
+	}
+
+	/**
+	 * Returns the pool for computing the repulsive forces in parallel.
+	 */
+	public ForkJoinPool getRepulsionPool()
+	{
+		return (repulsionPool != null) ? repulsionPool
+				: getSharedRepulsionPool();
+	}
+
+	/**
+	 * Sets the pool for computing the repulsive forces in parallel. If the
+	 * pool is null then a pool shared by all layouts is used.
+	 */
+	public void setRepulsionPool(ForkJoinPool value)
+	{
+		repulsionPool = value;
+	}
+
+	/**
+	 * Returns the pool that is shared by all layouts for computing the
+	 * repulsive forces in parallel. The pool is created on the first call.
+	 */
+	protected static synchronized ForkJoinPool getSharedRepulsionPool()
+	{
+		if (sharedRepulsionPool == null)
+		{
+			sharedRepulsionPool = new ForkJoinPool();
+		}
+
+		return sharedRepulsionPool;
+	}
+
 	/**
 	 * 
 	 */
@@ -614,6 +737,24 @@ public class mxFastOrganicLayout extends mxGraphLayout
 	{
 		int vertexCount = vertexArray.length;
 
+		if (approximateRepulsion || parallelRepulsion)
+		{
+			mxQuadTree tree = (approximateRepulsion) ? new mxQuadTree(
+					cellLocation, radius) : null;
+
+			if (parallelRepulsion)
+			{
+				getRepulsionPool().invoke(
+						new mxRepulsionTask(tree, 0, vertexCount));
+			}
+			else
+			{
+				calcRepulsion(tree, 0, vertexCount);
+			}
+
+			return;
+		}
+
 		for (int i = 0; i < vertexCount; i++)
 		{
 			for (int j = i; j < vertexCount; j++)
@@ -678,4 +819,475 @@ public class mxFastOrganicLayout extends mxGraphLayout
 		}
 	}
 
+	/**
+	 * Calculates the repulsive forces on the movable vertices in the given
+	 * range of indices. Unlike calcRepulsion, only the displacement of the
+	 * vertex in the range is updated for each pair of vertices, so that
+	 * disjoint ranges can be processed in parallel.
+	 * 
+	 * @param tree Quadtree to approximate the forces or null to compute the
+	 * exact forces.
+	 * @param from Index of the first vertex.
+	 * @param to Index after the last vertex.
+	 */
+	protected void calcRepulsion(mxQuadTree tree, int from, int to)
+	{
+		int vertexCount = vertexArray.length;
+		int[] stack = (tree != null) ? new int[4 * mxQuadTree.MAX_DEPTH + 4]
+				: null;
+
+		for (int i = from; i < to; i++)
+		{
+			// Exits if the layout is no longer allowed to run
+			if (!allowedToRun)
+			{
+				return;
+			}
+
+			if (isMoveable[i])
+			{
+				if (tree != null)
+				{
+					calcRepulsion(tree, i, stack);
+				}
+				else
+				{
+					for (int j = 0; j < vertexCount; j++)
+					{
+						if (j != i)
+						{
+							addRepulsion(i, cellLocation[i][0]
+									- cellLocation[j][0], cellLocation[i][1]
+									- cellLocation[j][1], radius[j], 1);
+						}
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Calculates the approximated repulsive force on the given vertex by
+	 * traversing the given quadtree. A node is treated as a single vertex if
+	 * the ratio of its size to the distance of its center of mass is below
+	 * theta, the vertex is not inside the node and the node is entirely within
+	 * maxDistanceLimit of the vertex. Nodes that are entirely further than
+	 * maxDistanceLimit from the vertex are ignored.
+	 * 
+	 * @param tree Quadtree to approximate the forces.
+	 * @param i Index of the vertex.
+	 * @param stack Array of at least 4 * mxQuadTree.MAX_DEPTH + 4 elements
+	 * for the nodes to be visited, which is reused for all vertices of a
+	 * range.
+	 */
+	protected void calcRepulsion(mxQuadTree tree, int i, int[] stack)
+	{
+		double x = cellLocation[i][0];
+		double y = cellLocation[i][1];
+		int top = 0;
+		stack[top++] = 0;
+
+		while (top > 0)
+		{
+			int node = stack[--top];
+			int count = tree.count[node];
+
+			if (count == 0)
+			{
+				continue;
+			}
+
+			double size = tree.size[node];
+			double left = tree.minX[node];
+			double upper = tree.minY[node];
+
+			// Ignores nodes where all vertices are too far apart
+			double dx = Math.max(0, Math.max(left - x, x - left - size));
+			double dy = Math.max(0, Math.max(upper - y, y - upper - size));
+
+			if (Math.sqrt(dx * dx + dy * dy) - radius[i]
+					- tree.maxRadius[node] > maxDistanceLimit)
+			{
+				continue;
+			}
+
+			if (tree.children[4 * node] < 0)
+			{
+				for (int j = tree.first[node]; j >= 0; j = tree.next[j])
+				{
+					if (j != i)
+					{
+						addRepulsion(i, x - tree.x[j], y - tree.y[j],
+								radius[j], 1);
+					}
+				}
+			}
+			else
+			{
+				double xDelta = x - tree.centerX[node];
+				double yDelta = y - tree.centerY[node];
+				double distance = Math.sqrt(xDelta * xDelta + yDelta * yDelta);
+				boolean inside = x >= left && x <= left + size && y >= upper
+						&& y <= upper + size;
+
+				// Only approximates nodes that are entirely within the
+				// distance limit so that no vertex beyond the limit counts
+				double fx = Math.max(Math.abs(x - left), Math.abs(x - left
+						- size));
+				double fy = Math.max(Math.abs(y - upper), Math.abs(y - upper
+						- size));
+				boolean near = Math.sqrt(fx * fx + fy * fy) - radius[i] <= maxDistanceLimit;
+
+				if (!inside && near && size < theta * distance)
+				{
+					addRepulsion(i, xDelta, yDelta, tree.radiusSum[node]
+							/ count, count);
+				}
+				else
+				{
+					for (int k = 0; k < 4; k++)
+					{
+						stack[top++] = tree.children[4 * node + k];
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Adds the repulsive force of the given weight at the given delta from the
+	 * given vertex to the displacement of the vertex. This uses the same
+	 * formula as calcRepulsion, where the force is multiplied by the weight
+	 * and radius is the radius of the other vertex.
+	 */
+	protected void addRepulsion(int i, double xDelta, double yDelta,
+			double radius, double weight)
+	{
+		if (xDelta == 0)
+		{
+			xDelta = 0.01 + Math.random();
+		}
+
+		if (yDelta == 0)
+		{
+			yDelta = 0.01 + Math.random();
+		}
+
+		// Distance between nodes
+		double deltaLength = Math.sqrt((xDelta * xDelta) + (yDelta * yDelta));
+		double deltaLengthWithRadius = deltaLength - this.radius[i] - radius;
+
+		// Ignore vertices too far apart
+		if (deltaLengthWithRadius <= maxDistanceLimit)
+		{
+			if (deltaLengthWithRadius < minDistanceLimit)
+			{
+				deltaLengthWithRadius = minDistanceLimit;
+			}
+
+			double force = weight * forceConstantSquared
+					/ deltaLengthWithRadius;
+
+			dispX[i] += (xDelta / deltaLength) * force;
+			dispY[i] += (yDelta / deltaLength) * force;
+		}
+	}
+
+	/**
+	 * Computes the repulsive forces for a range of vertices. Ranges with more
+	 * than THRESHOLD vertices are split into two tasks.
+	 */
+	protected class mxRepulsionTask extends RecursiveAction
+	{
+
+		/**
+		 * 
+		 */
+		private static final long serialVersionUID = 6329171578493046721L;
+
+		/**
+		 * Defines the number of vertices below which a range is processed
+		 * sequentially.
+		 */
+		protected static final int THRESHOLD = 64;
+
+		/**
+		 * Holds the quadtree or null for the exact forces.
+		 */
+		protected mxQuadTree tree;
+
+		/**
+		 * Holds the start (inclusive) and end (exclusive) of the range.
+		 */
+		protected int from, to;
+
+		/**
+		 * 
+		 */
+		public mxRepulsionTask(mxQuadTree tree, int from, int to)
+		{
+			this.tree = tree;
+			this.from = from;
+			this.to = to;
+		}
+
+		/**
+		 * 
+		 */
+		protected void compute()
+		{
+			if (to - from > THRESHOLD)
+			{
+				int mid = (from + to) >>> 1;
+				invokeAll(new mxRepulsionTask(tree, from, mid),
+						new mxRepulsionTask(tree, mid, to));
+			}
+			else
+			{
+				calcRepulsion(tree, from, to);
+			}
+		}
+
+	}
+
+	/**
+	 * Quadtree over the vertex locations for the approximated repulsion. The
+	 * nodes are stored in arrays, where the children of a node are at
+	 * 4 * node to 4 * node + 3 in children, or -1 for leafs. Leafs store
+	 * their vertices as a linked list in first and next. Each node holds the
+	 * number of vertices, their center of mass and the sum and maximum of
+	 * their radius.
+	 */
+	protected static class mxQuadTree
+	{
+
+		/**
+		 * Defines the maximum depth of the tree. Vertices at the same location
+		 * are stored in a leaf at this depth.
+		 */
+		protected static final int MAX_DEPTH = 32;
+
+		/**
+		 * Holds the vertex locations.
+		 */
+		protected double[] x, y;
+
+		/**
+		 * Holds the next vertex in the same leaf or -1.
+		 */
+		protected int[] next;
+
+		/**
+		 * Holds the number of nodes.
+		 */
+		protected int nodeCount = 0;
+
+		/**
+		 * Holds the children of each node.
+		 */
+		protected int[] children;
+
+		/**
+		 * Holds the parent of each node.
+		 */
+		protected int[] parent;
+
+		/**
+		 * Holds the first vertex in each leaf or -1.
+		 */
+		protected int[] first;
+
+		/**
+		 * Holds the number of vertices in each node.
+		 */
+		protected int[] count;
+
+		/**
+		 * Holds the top, left corner and size of each node.
+		 */
+		protected double[] minX, minY, size;
+
+		/**
+		 * Holds the center of mass of each node.
+		 */
+		protected double[] centerX, centerY;
+
+		/**
+		 * Holds the sum and maximum of the radius of the vertices in each
+		 * node.
+		 */
+		protected double[] radiusSum, maxRadius;
+
+		/**
+		 * Constructs a new quadtree for the given locations and radius.
+		 */
+		public mxQuadTree(double[][] location, double[] radius)
+		{
+			int n = location.length;
+			x = new double[n];
+			y = new double[n];
+			next = new int[n];
+
+			double left = Double.MAX_VALUE;
+			double upper = Double.MAX_VALUE;
+			double right = -Double.MAX_VALUE;
+			double bottom = -Double.MAX_VALUE;
+
+			for (int i = 0; i < n; i++)
+			{
+				x[i] = location[i][0];
+				y[i] = location[i][1];
+				left = Math.min(left, x[i]);
+				upper = Math.min(upper, y[i]);
+				right = Math.max(right, x[i]);
+				bottom = Math.max(bottom, y[i]);
+			}
+
+			int capacity = Math.max(16, 2 * n);
+			children = new int[4 * capacity];
+			parent = new int[capacity];
+			first = new int[capacity];
+			minX = new double[capacity];
+			minY = new double[capacity];
+			size = new double[capacity];
+
+			addNode(-1, (n > 0) ? left : 0, (n > 0) ? upper : 0,
+					(n > 0) ? Math.max(right - left, bottom - upper) : 0);
+
+			for (int i = 0; i < n; i++)
+			{
+				insert(i);
+			}
+
+			updateNodes(radius);
+		}
+
+		/**
+		 * Adds a leaf with the given parent, top, left corner and size.
+		 */
+		protected int addNode(int parentNode, double left, double upper,
+				double nodeSize)
+		{
+			if (nodeCount == parent.length)
+			{
+				int capacity = 2 * nodeCount;
+				children = Arrays.copyOf(children, 4 * capacity);
+				parent = Arrays.copyOf(parent, capacity);
+				first = Arrays.copyOf(first, capacity);
+				minX = Arrays.copyOf(minX, capacity);
+				minY = Arrays.copyOf(minY, capacity);
+				size = Arrays.copyOf(size, capacity);
+			}
+
+			int node = nodeCount++;
+			Arrays.fill(children, 4 * node, 4 * node + 4, -1);
+			parent[node] = parentNode;
+			first[node] = -1;
+			minX[node] = left;
+			minY[node] = upper;
+			size[node] = nodeSize;
+
+			return node;
+		}
+
+		/**
+		 * Inserts the given vertex into the tree.
+		 */
+		protected void insert(int i)
+		{
+			int node = 0;
+			int depth = 0;
+
+			while (true)
+			{
+				if (children[4 * node] >= 0)
+				{
+					node = children[4 * node + getQuadrant(node, i)];
+					depth++;
+				}
+				else if (first[node] < 0 || depth >= MAX_DEPTH)
+				{
+					next[i] = first[node];
+					first[node] = i;
+
+					return;
+				}
+				else
+				{
+					// Splits the leaf and moves its vertex to a child
+					double half = size[node] / 2;
+
+					for (int k = 0; k < 4; k++)
+					{
+						int child = addNode(node, minX[node] + (k % 2) * half,
+								minY[node] + (k / 2) * half, half);
+						children[4 * node + k] = child;
+					}
+
+					int j = first[node];
+					first[node] = -1;
+					int child = children[4 * node + getQuadrant(node, j)];
+					first[child] = j;
+					next[j] = -1;
+				}
+			}
+		}
+
+		/**
+		 * Returns the quadrant of the given node that contains the given
+		 * vertex.
+		 */
+		protected int getQuadrant(int node, int i)
+		{
+			double half = size[node] / 2;
+
+			return ((x[i] >= minX[node] + half) ? 1 : 0)
+					+ ((y[i] >= minY[node] + half) ? 2 : 0);
+		}
+
+		/**
+		 * Computes the number of vertices, center of mass and radius for all
+		 * nodes. Children are always added after their parent, so the nodes
+		 * are processed in reverse order.
+		 */
+		protected void updateNodes(double[] radius)
+		{
+			count = new int[nodeCount];
+			centerX = new double[nodeCount];
+			centerY = new double[nodeCount];
+			radiusSum = new double[nodeCount];
+			maxRadius = new double[nodeCount];
+
+			for (int node = nodeCount - 1; node >= 0; node--)
+			{
+				for (int i = first[node]; i >= 0; i = next[i])
+				{
+					count[node]++;
+					centerX[node] += x[i];
+					centerY[node] += y[i];
+					radiusSum[node] += radius[i];
+					maxRadius[node] = Math.max(maxRadius[node], radius[i]);
+				}
+
+				if (count[node] > 0)
+				{
+					int p = parent[node];
+
+					if (p >= 0)
+					{
+						count[p] += count[node];
+						centerX[p] += centerX[node];
+						centerY[p] += centerY[node];
+						radiusSum[p] += radiusSum[node];
+						maxRadius[p] = Math.max(maxRadius[p], maxRadius[node]);
+					}
+
+					centerX[node] /= count[node];
+					centerY[node] /= count[node];
+				}
+			}
+		}
+
+	}
+
 }
@@ -3,6 +3,10 @@
  */
 package com.mxgraph.model;
 
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
@@ -10,6 +14,8 @@ import java.util.List;
 import org.w3c.dom.Element;
 import org.w3c.dom.Node;
 
+import com.mxgraph.util.mxIndexedList;
+
 /**
  * Cells are the elements of the graph model. They represent the state
  * of the groups, vertices and edges in a graph.
@@ -33,6 +39,16 @@ import org.w3c.dom.Node;
  * a relative geometry. The x- and y-coordinates of that
  * geometry will have the same semantiv as the above for
  * edge labels.
+ *
+ * <h4>Indexed Children and Edges</h4>
+ *
+ * The children and connected edges are stored in array lists by default,
+ * which makes getIndex, getEdgeIndex, insertEdge and removing a child or edge
+ * linear in the number of children or edges. For cells with many children or
+ * edges, eg. hubs with thousands of connections, setIndexed can be used to
+ * store the children and edges in mxIndexedLists instead, which keep the
+ * same order but use a hash index for these operations. DEFAULT_INDEXED
+ * defines the default for new cells.
  */
 public class mxCell implements mxICell, Cloneable, Serializable
 {
@@ -42,6 +58,12 @@ public class mxCell implements mxICell, Cloneable, Serializable
 	 */
 	private static final long serialVersionUID = 910211337632342672L;
 
+	/**
+	 * Specifies if new cells store their children and edges in indexed lists.
+	 * Default is false.
+	 */
+	public static transient boolean DEFAULT_INDEXED = false;
+
 	/**
 	 * Holds the Id. Default is null.
 	 */
@@ -81,6 +103,13 @@ public class mxCell implements mxICell, Cloneable, Serializable
 	 */
 	protected List<Object> children, edges;
 
+	/**
+	 * Specifies if the children and edges are stored in indexed lists. This
+	 * is transient so that it is not encoded, and it is written separately
+	 * in writeObject for serialization. Default is DEFAULT_INDEXED.
+	 */
+	protected transient boolean indexed = DEFAULT_INDEXED;
+
 	/**
 	 * Constructs a new cell with an empty user object.
 	 */
@@ -335,6 +364,50 @@ public class mxCell implements mxICell, Cloneable, Serializable
 		return terminal;
 	}
 
+	/**
+	 * Returns true if the children and edges are stored in indexed lists.
+	 */
+	public boolean isIndexed()
+	{
+		return indexed;
+	}
+
+	/**
+	 * Sets if the children and edges are stored in indexed lists. Existing
+	 * children and edges are copied into lists of the new kind.
+	 */
+	public void setIndexed(boolean value)
+	{
+		if (indexed != value)
+		{
+			indexed = value;
+
+			if (children != null)
+			{
+				List<Object> tmp = createList();
+				tmp.addAll(children);
+				children = tmp;
+			}
+
+			if (edges != null)
+			{
+				List<Object> tmp = createList();
+				tmp.addAll(edges);
+				edges = tmp;
+			}
+		}
+	}
+
+	/**
+	 * Creates a new list for the children or edges of this cell. This
+	 * returns an mxIndexedList if indexed is true, otherwise an ArrayList.
+	 */
+	protected List<Object> createList()
+	{
+		return (indexed) ? new mxIndexedList<Object>()
+				: new ArrayList<Object>();
+	}
+
 	/* (non-Javadoc)
 	 * @see com.mxgraph.model.mxICell#getChildCount()
 	 */
@@ -386,7 +459,7 @@ public class mxCell implements mxICell, Cloneable, Serializable
 
 			if (children == null)
 			{
-				children = new ArrayList<Object>();
+				children = createList();
 				children.add(child);
 			}
 			else
@@ -478,7 +551,7 @@ public class mxCell implements mxICell, Cloneable, Serializable
 			{
 				if (edges == null)
 				{
-					edges = new ArrayList<Object>();
+					edges = createList();
 				}
 
 				edges.add(edge);
@@ -620,6 +693,35 @@ public class mxCell implements mxICell, Cloneable, Serializable
 
 		return value;
 	}
+
+	/**
+	 * Writes the fields and the transient indexed flag.
+	 */
+	private void writeObject(ObjectOutputStream out) throws IOException
+	{
+		out.defaultWriteObject();
+		out.writeBoolean(indexed);
+	}
+
+	/**
+	 * Reads the fields and the transient indexed flag. If the flag is missing
+	 * in the stream then it is restored from the deserialized lists.
+	 */
+	private void readObject(ObjectInputStream in) throws IOException,
+			ClassNotFoundException
+	{
+		in.defaultReadObject();
+
+		try
+		{
+			indexed = in.readBoolean();
+		}
+		catch (EOFException e)
+		{
+			indexed = children instanceof mxIndexedList
+					|| edges instanceof mxIndexedList;
+		}
+	}
 	
 	@Override
 	public String toString()
@@ -0,0 +1,525 @@
+/**
+ * Copyright (c) 2007-2017, JGraph Ltd
+ */
+package com.mxgraph.reader;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Image;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.imageio.ImageIO;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+import com.mxgraph.canvas.mxGraphicsCanvas2D;
+import com.mxgraph.util.mxImageCache;
+import com.mxgraph.util.mxLightweightLabel;
+import com.mxgraph.util.mxUtils;
+
+/**
+ * Renders the XML output of mxXmlCanvas2D to images for many concurrent
+ * requests. The engine keeps a bounded pool of SAX parsers and output
+ * handlers with their graphics canvases and a fixed number of worker threads.
+ * Images are loaded using the shared instance of mxImageCache by default.
+ * Exports run in parallel in a headless environment (java.awt.headless=true),
+ * except for HTML labels, which are rendered one at a time since Swing is not
+ * thread-safe.
+ *
+ * Exports can be run in the calling thread using writeImage or render, or
+ * in the worker threads using submit. Submit blocks if the given number of
+ * exports are already running or waiting, so that callers are slowed down
+ * instead of filling up the memory with pending requests. Each export
+ * returns the timings for the request:
+ *
+ * <code>
+ * mxExportEngine engine = new mxExportEngine(4, 16);
+ * Future&lt;mxExportEngine.Timings&gt; result = engine.submit(xml, w, h,
+ *     Color.WHITE, "png", out);
+ * System.out.println("export: " + result.get());
+ * </code>
+ *
+ * The engine must be shut down to stop the worker threads.
+ */
+public class mxExportEngine
+{
+
+	private static final Logger log = Logger.getLogger(mxExportEngine.class.getName());
+
+	/**
+	 * Handler that is assigned to pooled parsers to release the canvas.
+	 */
+	protected static final DefaultHandler EMPTY_HANDLER = new DefaultHandler();
+
+	/**
+	 * Holds the factory for creating new parsers. The factory is not
+	 * thread-safe and is used while holding its lock.
+	 */
+	protected SAXParserFactory parserFactory = SAXParserFactory.newInstance();
+
+	/**
+	 * Holds the parsers that are currently not in use.
+	 */
+	protected BlockingQueue<XMLReader> parsers;
+
+	/**
+	 * Holds the output handlers with their canvases that are currently not in
+	 * use.
+	 */
+	protected BlockingQueue<mxSaxOutputHandler> handlers;
+
+	/**
+	 * Caches the images for all exports. Default is the shared instance of
+	 * mxImageCache.
+	 */
+	protected mxImageCache imageCache = mxImageCache.getSharedInstance();
+
+	/**
+	 * Holds the worker threads.
+	 */
+	protected ThreadPoolExecutor executor;
+
+	/**
+	 * Limits the number of exports that are running or waiting in the
+	 * executor.
+	 */
+	protected Semaphore permits;
+
+	/**
+	 * Constructs a new engine with one worker per processor and twice as many
+	 * waiting exports.
+	 */
+	public mxExportEngine()
+	{
+		this(Runtime.getRuntime().availableProcessors(), 2 * Runtime
+				.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Constructs a new engine with the given number of worker threads and the
+	 * given number of exports that may wait for a worker. At most threads
+	 * parsers and canvases are kept in the pools.
+	 */
+	public mxExportEngine(int threads, int queueSize)
+	{
+		threads = Math.max(1, threads);
+		parsers = new ArrayBlockingQueue<XMLReader>(threads);
+		handlers = new ArrayBlockingQueue<mxSaxOutputHandler>(threads);
+		permits = new Semaphore(threads + Math.max(0, queueSize));
+
+		final AtomicInteger count = new AtomicInteger();
+		executor = new ThreadPoolExecutor(threads, threads, 60,
+				TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+				new ThreadFactory()
+				{
+					public Thread newThread(Runnable r)
+					{
+						Thread thread = new Thread(r, "mxExportEngine-"
+								+ count.incrementAndGet());
+						thread.setDaemon(true);
+
+						return thread;
+					}
+				});
+		executor.allowCoreThreadTimeOut(true);
+	}
+
+	/**
+	 * Constructs a new engine with the given number of worker threads, the
+	 * given number of exports that may wait for a worker and a new image
+	 * cache for the given maximum number of images. At most threads parsers
+	 * and canvases are kept in the pools.
+	 */
+	public mxExportEngine(int threads, int queueSize, int imageCacheSize)
+	{
+		this(threads, queueSize);
+		imageCache = new mxImageCache(mxImageCache.DEFAULT_MAX_WEIGHT,
+				imageCacheSize);
+	}
+
+	/**
+	 * Returns the image cache.
+	 */
+	public mxImageCache getImageCache()
+	{
+		return imageCache;
+	}
+
+	/**
+	 * Sets the image cache.
+	 */
+	public void setImageCache(mxImageCache value)
+	{
+		imageCache = value;
+	}
+
+	/**
+	 * Returns the number of exports that are running or waiting in the
+	 * executor.
+	 */
+	public int getPendingCount()
+	{
+		return (int) (executor.getTaskCount() - executor
+				.getCompletedTaskCount());
+	}
+
+	/**
+	 * Renders the given XML to an image with the given size and background
+	 * and writes the image in the given format to the given stream in a
+	 * worker thread. This blocks while the maximum number of exports are
+	 * running or waiting.
+	 */
+	public Future<Timings> submit(String xml, int w, int h, Color background,
+			String format, OutputStream out) throws InterruptedException
+	{
+		permits.acquire();
+
+		return execute(xml, w, h, background, format, out);
+	}
+
+	/**
+	 * Same as submit but waits at most the given time for a free slot and
+	 * throws a RejectedExecutionException if the engine is still busy.
+	 */
+	public Future<Timings> submit(String xml, int w, int h, Color background,
+			String format, OutputStream out, long timeout, TimeUnit unit)
+			throws InterruptedException
+	{
+		if (!permits.tryAcquire(timeout, unit))
+		{
+			throw new RejectedExecutionException("Too many pending exports");
+		}
+
+		return execute(xml, w, h, background, format, out);
+	}
+
+	/**
+	 * Runs writeImage in a worker thread and releases the permit that was
+	 * acquired by the caller when the export has finished.
+	 */
+	protected Future<Timings> execute(final String xml, final int w,
+			final int h, final Color background, final String format,
+			final OutputStream out)
+	{
+		final long submitted = System.nanoTime();
+
+		try
+		{
+			return executor.submit(new Callable<Timings>()
+			{
+				public Timings call() throws Exception
+				{
+					try
+					{
+						long start = System.nanoTime();
+						Timings timings = writeImage(xml, w, h, background,
+								format, out);
+						timings.queued = start - submitted;
+
+						return timings;
+					}
+					finally
+					{
+						permits.release();
+					}
+				}
+			});
+		}
+		catch (RejectedExecutionException e)
+		{
+			permits.release();
+
+			throw e;
+		}
+	}
+
+	/**
+	 * Renders the given XML to an image with the given size and background
+	 * and writes the image in the given format to the given stream in the
+	 * calling thread. A background of null is transparent.
+	 */
+	public Timings writeImage(String xml, int w, int h, Color background,
+			String format, OutputStream out) throws IOException, SAXException
+	{
+		Timings timings = new Timings();
+		long t0 = System.nanoTime();
+		BufferedImage image = mxUtils.createBufferedImage(w, h, background);
+
+		if (image == null)
+		{
+			throw new IllegalArgumentException("Invalid image size " + w + "x"
+					+ h);
+		}
+
+		Graphics2D g2 = image.createGraphics();
+
+		try
+		{
+			mxUtils.setAntiAlias(g2, true, true);
+			renderXml(xml, g2);
+		}
+		finally
+		{
+			g2.dispose();
+		}
+
+		long t1 = System.nanoTime();
+		timings.render = t1 - t0;
+
+		if (!ImageIO.write(image, format, out))
+		{
+			throw new IOException("No image writer for " + format);
+		}
+
+		timings.encode = System.nanoTime() - t1;
+
+		if (log.isLoggable(Level.FINE))
+		{
+			log.fine("export: " + w + "x" + h + " " + format + " " + timings);
+		}
+
+		return timings;
+	}
+
+	/**
+	 * Renders the given XML to the given graphics in the calling thread, eg.
+	 * for PDF output.
+	 */
+	public Timings render(String xml, Graphics2D g) throws IOException,
+			SAXException
+	{
+		Timings timings = new Timings();
+		long t0 = System.nanoTime();
+		renderXml(xml, g);
+		timings.render = System.nanoTime() - t0;
+
+		return timings;
+	}
+
+	/**
+	 * Parses the given XML using a pooled parser and renders it to the given
+	 * graphics using a pooled canvas. Parsers that have thrown an exception
+	 * are not reused.
+	 */
+	protected void renderXml(String xml, Graphics2D g) throws IOException,
+			SAXException
+	{
+		XMLReader reader = parsers.poll();
+		mxSaxOutputHandler handler = handlers.poll();
+		boolean reusable = false;
+
+		if (reader == null)
+		{
+			reader = createParser();
+		}
+
+		if (handler == null)
+		{
+			handler = createHandler();
+		}
+
+		mxGraphicsCanvas2D canvas = (mxGraphicsCanvas2D) handler.getCanvas();
+		canvas.reset(g);
+
+		try
+		{
+			reader.setContentHandler(handler);
+			reader.parse(new InputSource(new StringReader(xml)));
+			reusable = true;
+		}
+		finally
+		{
+			canvas.reset(null);
+			handlers.offer(handler);
+
+			if (reusable)
+			{
+				reader.setContentHandler(EMPTY_HANDLER);
+				parsers.offer(reader);
+			}
+		}
+	}
+
+	/**
+	 * Creates a new parser that does not load external entities. This is
+	 * called from the worker threads.
+	 */
+	protected XMLReader createParser() throws SAXException
+	{
+		try
+		{
+			XMLReader reader = null;
+
+			synchronized (parserFactory)
+			{
+				reader = parserFactory.newSAXParser().getXMLReader();
+			}
+
+			reader.setFeature(
+					"http://apache.org/xml/features/disallow-doctype-decl",
+					true);
+			reader.setFeature(
+					"http://apache.org/xml/features/nonvalidating/load-external-dtd",
+					false);
+			reader.setFeature(
+					"http://xml.org/sax/features/external-general-entities",
+					false);
+			reader.setFeature(
+					"http://xml.org/sax/features/external-parameter-entities",
+					false);
+
+			return reader;
+		}
+		catch (ParserConfigurationException e)
+		{
+			throw new SAXException(e);
+		}
+	}
+
+	/**
+	 * Creates a new output handler with a canvas that uses the image cache.
+	 * HTML text is rendered using the shared label of mxLightweightLabel
+	 * while holding its lock.
+	 */
+	protected mxSaxOutputHandler createHandler()
+	{
+		mxGraphicsCanvas2D canvas = new mxGraphicsCanvas2D(null)
+		{
+			protected Image loadImage(String src)
+			{
+				return mxExportEngine.this.loadImage(src);
+			}
+
+			protected void htmlText(double x, double y, double w, double h,
+					String str, String align, String valign, boolean wrap,
+					String format, String overflow, boolean clip,
+					double rotation)
+			{
+				// Swing parses and renders HTML using shared views and
+				// stylesheets which are not thread-safe
+				synchronized (mxLightweightLabel.getSharedInstance())
+				{
+					super.htmlText(x, y, w, h, str, align, valign, wrap,
+							format, overflow, clip, rotation);
+				}
+			}
+		};
+
+		return new mxSaxOutputHandler(canvas);
+	}
+
+	/**
+	 * Returns the image for the given URL from the image cache.
+	 */
+	protected Image loadImage(String src)
+	{
+		return imageCache.get(src);
+	}
+
+	/**
+	 * Stops accepting exports and stops the worker threads after the pending
+	 * exports have finished.
+	 */
+	public void shutdown()
+	{
+		executor.shutdown();
+	}
+
+	/**
+	 * Waits for the pending exports after shutdown and returns true if all
+	 * exports have finished within the given time.
+	 */
+	public boolean awaitTermination(long timeout, TimeUnit unit)
+			throws InterruptedException
+	{
+		return executor.awaitTermination(timeout, unit);
+	}
+
+	/**
+	 * Holds the times in nanoseconds that an export spent waiting for a
+	 * worker, rendering and encoding.
+	 */
+	public static class Timings
+	{
+
+		/**
+		 * Time between submit and the start of the export.
+		 */
+		protected long queued;
+
+		/**
+		 * Time for parsing and rendering the XML.
+		 */
+		protected long render;
+
+		/**
+		 * Time for encoding the image.
+		 */
+		protected long encode;
+
+		/**
+		 * Returns the time between submit and the start of the export.
+		 */
+		public long getQueued()
+		{
+			return queued;
+		}
+
+		/**
+		 * Returns the time for parsing and rendering the XML.
+		 */
+		public long getRender()
+		{
+			return render;
+		}
+
+		/**
+		 * Returns the time for encoding the image.
+		 */
+		public long getEncode()
+		{
+			return encode;
+		}
+
+		/**
+		 * Returns the sum of all times.
+		 */
+		public long getTotal()
+		{
+			return queued + render + encode;
+		}
+
+		/**
+		 * Returns the times in milliseconds.
+		 */
+		public String toString()
+		{
+			return "queued=" + queued / 1000000 + "ms render=" + render
+					/ 1000000 + "ms encode=" + encode / 1000000 + "ms total="
+					+ getTotal() / 1000000 + "ms";
+		}
+
+	}
+
+}
@@ -5,6 +5,7 @@ package com.mxgraph.shape;
 
 import java.awt.Color;
 import java.util.ArrayList;
+import java.util.Hashtable;
 import java.util.List;
 import java.util.Map;
 
@@ -33,12 +34,13 @@ public class mxConnectorShape extends mxBasicShape
 			// Paints the markers and updates the points
 			// Switch off any dash pattern for markers
 			boolean dashed = mxUtils.isTrue(style, mxConstants.STYLE_DASHED);
-			Object dashedValue = style.get(mxConstants.STYLE_DASHED);
 
 			if (dashed)
 			{
-				style.remove(mxConstants.STYLE_DASHED);
-				canvas.getGraphics().setStroke(canvas.createStroke(style));
+				// Uses a copy since the style may be shared between cells
+				Map<String, Object> solid = new Hashtable<String, Object>(style);
+				solid.remove(mxConstants.STYLE_DASHED);
+				canvas.getGraphics().setStroke(canvas.createStroke(solid));
 			}
 
 			translatePoint(pts, 0,
@@ -51,7 +53,6 @@ public class mxConnectorShape extends mxBasicShape
 			if (dashed)
 			{
 				// Replace the dash pattern
-				style.put(mxConstants.STYLE_DASHED, dashedValue);
 				canvas.getGraphics().setStroke(canvas.createStroke(style));
 			}
 
@@ -118,16 +118,22 @@ public class mxHtmlTextShape implements mxITextShape
 				text = text.replaceAll("\n", "<br>");
 			}
 
-			// Renders the scaled text
-			textRenderer.setText(createHtmlDocument(style, text,
+			// Renders the scaled text using the shared renderer which may
+			// be used by several canvases at the same time
+			String html = createHtmlDocument(style, text,
 					(int) Math.round(w / state.getView().getScale()),
-					(int) Math.round(h / state.getView().getScale())));
-			textRenderer.setFont(mxUtils.getFont(style, canvas.getScale()));
+					(int) Math.round(h / state.getView().getScale()));
 			g.scale(scale, scale);
-			rendererPane.paintComponent(g, textRenderer, rendererPane,
-					(int) (x / scale) + mxConstants.LABEL_INSET,
-					(int) (y / scale) + mxConstants.LABEL_INSET,
-					(int) (w / scale), (int) (h / scale), true);
+
+			synchronized (textRenderer)
+			{
+				textRenderer.setText(html);
+				textRenderer.setFont(mxUtils.getFont(style, canvas.getScale()));
+				rendererPane.paintComponent(g, textRenderer, rendererPane,
+						(int) (x / scale) + mxConstants.LABEL_INSET,
+						(int) (y / scale) + mxConstants.LABEL_INSET,
+						(int) (w / scale), (int) (h / scale), true);
+			}
 		}
 	}
 
@@ -36,8 +36,13 @@ public class mxRectangleShape extends mxBasicShape
 			int shadowOffsetX = (shadow) ? mxConstants.SHADOW_OFFSETX : 0;
 			int shadowOffsetY = (shadow) ? mxConstants.SHADOW_OFFSETY : 0;
 
-			if (canvas.getGraphics().hitClip(x, y, w + shadowOffsetX,
-					h + shadowOffsetY))
+			// Adds the stroke which is painted around the bounds
+			int stroke = (int) Math.ceil(mxUtils.getFloat(style,
+					mxConstants.STYLE_STROKEWIDTH, 1) * canvas.getScale() / 2);
+
+			if (canvas.getGraphics().hitClip(x - stroke, y - stroke,
+					w + shadowOffsetX + 2 * stroke + 1,
+					h + shadowOffsetY + 2 * stroke + 1))
 			{
 				// Paints the optional shadow
 				if (shadow)
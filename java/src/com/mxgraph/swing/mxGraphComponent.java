@@ -66,6 +66,7 @@ import com.mxgraph.swing.handler.mxSelectionCellsHandler;
 import com.mxgraph.swing.handler.mxVertexHandler;
 import com.mxgraph.swing.util.mxCellOverlay;
 import com.mxgraph.swing.util.mxICellOverlay;
+import com.mxgraph.swing.util.mxTiledBuffer;
 import com.mxgraph.swing.view.mxCellEditor;
 import com.mxgraph.swing.view.mxICellEditor;
 import com.mxgraph.swing.view.mxInteractiveCanvas;
@@ -263,13 +264,24 @@ public class mxGraphComponent extends JScrollPane implements Printable
 	protected mxInteractiveCanvas canvas;
 
 	/**
+	 * Holds the tiled image buffer if tripleBuffered is true.
+	 */
+	protected mxTiledBuffer tiledTripleBuffer;
+
+	/**
+	 * Not used. This is always null.
 	 * 
+	 * @deprecated The buffer is held in tiledTripleBuffer.
 	 */
+	@Deprecated
 	protected BufferedImage tripleBuffer;
 
 	/**
+	 * Not used. This is always null.
 	 * 
+	 * @deprecated The tiles of tiledTripleBuffer have their own graphics.
 	 */
+	@Deprecated
 	protected Graphics2D tripleBufferGraphics;
 
 	/**
@@ -1897,6 +1909,37 @@ public class mxGraphComponent extends JScrollPane implements Printable
 				mxGraphView view = graph.getView();
 
 				Rectangle hit = new Rectangle(x, y, 1, 1);
+
+				if (view.isSpatialIndexEnabled())
+				{
+					// Adds the tolerance for edges and the rounding in the
+					// canvas to the region that contains the candidates
+					int tol = getTolerance() + 1;
+					List<Object> cells = getOrderedDescendants(
+							view.getOrderedCellsForRegion(new mxRectangle(x
+									- tol, y - tol, 2 * tol + 1, 2 * tol + 1)),
+							parent);
+
+					// Checks the topmost cells first
+					for (int i = cells.size() - 1; i >= 0; i--)
+					{
+						Object cell = cells.get(i);
+						mxCellState state = view.getState(cell);
+
+						if (graph.isCellVisible(cell)
+								&& state != null
+								&& canvas.intersects(this, hit, state)
+								&& (!graph.isSwimlane(cell)
+										|| hitSwimlaneContent || (transparentSwimlaneContent && !canvas
+										.hitSwimlaneContent(this, state, x, y))))
+						{
+							return cell;
+						}
+					}
+
+					return null;
+				}
+
 				int childCount = model.getChildCount(parent);
 
 				for (int i = childCount - 1; i >= 0; i--)
@@ -2014,6 +2057,23 @@ public class mxGraphComponent extends JScrollPane implements Printable
 					mxIGraphModel model = graph.getModel();
 					mxGraphView view = graph.getView();
 
+					if (view.isSpatialIndexEnabled())
+					{
+						List<Object> cells = getOrderedDescendants(
+								view.getOrderedCellsForRegion(new mxRectangle(
+										rect)), parent);
+
+						for (Object cell : cells)
+						{
+							if (isContainedInRegion(cell, parent, rect))
+							{
+								result.add(cell);
+							}
+						}
+
+						return result.toArray();
+					}
+
 					int childCount = model.getChildCount(parent);
 
 					for (int i = 0; i < childCount; i++)
@@ -2047,6 +2107,66 @@ public class mxGraphComponent extends JScrollPane implements Printable
 		return result.toArray();
 	}
 
+	/**
+	 * Returns true if the given cell is returned by getCells for the given
+	 * rectangle and parent, that is, if the state of the cell is contained in
+	 * the rectangle and none of its ancestors below the given parent is
+	 * contained in the rectangle or invisible.
+	 */
+	protected boolean isContainedInRegion(Object cell, Object parent,
+			Rectangle rect)
+	{
+		mxGraphView view = graph.getView();
+		mxCellState state = view.getState(cell);
+
+		if (state != null && graph.isCellVisible(cell)
+				&& canvas.contains(this, rect, state))
+		{
+			mxIGraphModel model = graph.getModel();
+			Object tmp = model.getParent(cell);
+
+			while (tmp != null && tmp != parent)
+			{
+				mxCellState tmpState = view.getState(tmp);
+
+				if (tmpState == null || !graph.isCellVisible(tmp)
+						|| canvas.contains(this, rect, tmpState))
+				{
+					return false;
+				}
+
+				tmp = model.getParent(tmp);
+			}
+
+			return true;
+		}
+
+		return false;
+	}
+
+	/**
+	 * Returns the given cells that are descendants of the given parent. The
+	 * order of the cells is kept, so that cells which are returned by
+	 * mxGraphView.getOrderedCellsForRegion stay in the order in which they
+	 * are painted.
+	 */
+	protected List<Object> getOrderedDescendants(Collection<Object> cells,
+			Object parent)
+	{
+		mxIGraphModel model = graph.getModel();
+		List<Object> result = new ArrayList<Object>(cells.size());
+
+		for (Object cell : cells)
+		{
+			if (cell != parent && model.isAncestor(parent, cell))
+			{
+				result.add(cell);
+			}
+		}
+
+		return result;
+	}
+
 	/**
 	 * Selects the cells for the given event.
 	 */
@@ -2810,11 +2930,25 @@ public class mxGraphComponent extends JScrollPane implements Printable
 	}
 
 	/**
+	 * Returns the tiled triple buffer or null if no buffer exists. The tile
+	 * size and memory limit can be configured on the returned buffer.
+	 */
+	public mxTiledBuffer getTiledTripleBuffer()
+	{
+		return tiledTripleBuffer;
+	}
+
+	/**
+	 * Returns null. The triple buffer is no longer a single image of the
+	 * graph bounds, since that image could exceed the available memory for
+	 * large graphs. The tiles are painted directly onto the graph control.
 	 * 
+	 * @deprecated Use getTiledTripleBuffer to access the buffer.
 	 */
+	@Deprecated
 	public BufferedImage getTripleBuffer()
 	{
-		return tripleBuffer;
+		return null;
 	}
 
 	/**
@@ -3860,90 +3994,69 @@ public class mxGraphComponent extends JScrollPane implements Printable
 
 	/**
 	 * Checks if the triple buffer exists and creates a new one if it does not.
-	 * Also compares the size of the buffer with the size of the graph and drops
-	 * the buffer if it has a different size.
 	 */
 	public void checkTripleBuffer()
 	{
-		mxRectangle bounds = graph.getGraphBounds();
-		int width = (int) Math.ceil(bounds.getX() + bounds.getWidth() + 2);
-		int height = (int) Math.ceil(bounds.getY() + bounds.getHeight() + 2);
-
-		if (tripleBuffer != null)
+		if (tiledTripleBuffer == null)
 		{
-			if (tripleBuffer.getWidth() != width
-					|| tripleBuffer.getHeight() != height)
-			{
-				// Resizes the buffer (destroys existing and creates new)
-				destroyTripleBuffer();
-			}
+			tiledTripleBuffer = createTiledTripleBuffer();
 		}
+	}
 
-		if (tripleBuffer == null)
+	/**
+	 * Creates the tiled buffer which paints its tiles using the graph control.
+	 * Tiles are created lazily for the painted regions and evicted in
+	 * least-recently-used order if the buffer exceeds its memory limit.
+	 */
+	protected mxTiledBuffer createTiledTripleBuffer()
+	{
+		return new mxTiledBuffer(new mxTiledBuffer.mxITileRenderer()
 		{
-			createTripleBuffer(width, height);
-		}
+			public void paintTile(Graphics2D g, Rectangle clip)
+			{
+				mxUtils.setAntiAlias(g, antiAlias, textAntiAlias);
+				graphControl.drawGraph(g, true);
+			}
+		});
 	}
 
 	/**
-	 * Creates the tripleBufferGraphics and tripleBuffer for the given dimension
-	 * and draws the complete graph onto the triplebuffer.
+	 * Creates the tiled triple buffer. The size is ignored since the tiles
+	 * are created for the painted regions.
 	 * 
-	 * @param width
-	 * @param height
+	 * @deprecated Use createTiledTripleBuffer.
 	 */
+	@Deprecated
 	protected void createTripleBuffer(int width, int height)
 	{
-		try
-		{
-			tripleBuffer = mxUtils.createBufferedImage(width, height, null);
-			tripleBufferGraphics = tripleBuffer.createGraphics();
-			mxUtils.setAntiAlias(tripleBufferGraphics, antiAlias, textAntiAlias);
-
-			// Repaints the complete buffer
-			repaintTripleBuffer(null);
-		}
-		catch (OutOfMemoryError error)
-		{
-			log.log(Level.SEVERE, "Failed to create a triple buffer", error);
-		}
+		destroyTripleBuffer();
+		tiledTripleBuffer = createTiledTripleBuffer();
 	}
 
 	/**
-	 * Destroys the tripleBuffer and tripleBufferGraphics objects.
+	 * Destroys the tiledTripleBuffer and all its tiles.
 	 */
 	public void destroyTripleBuffer()
 	{
-		if (tripleBuffer != null)
+		if (tiledTripleBuffer != null)
 		{
-			tripleBuffer = null;
-			tripleBufferGraphics.dispose();
-			tripleBufferGraphics = null;
+			tiledTripleBuffer.destroy();
+			tiledTripleBuffer = null;
 		}
 	}
 
 	/**
-	 * Clears and repaints the triple buffer at the given rectangle or repaints
-	 * the complete buffer if no rectangle is specified.
+	 * Marks the given rectangle in the triple buffer as dirty or the complete
+	 * buffer if no rectangle is specified. The affected tiles are repainted
+	 * the next time they are painted.
 	 * 
 	 * @param dirty
 	 */
 	public void repaintTripleBuffer(Rectangle dirty)
 	{
-		if (tripleBuffered && tripleBufferGraphics != null)
+		if (tripleBuffered && tiledTripleBuffer != null)
 		{
-			if (dirty == null)
-			{
-				dirty = new Rectangle(tripleBuffer.getWidth(),
-						tripleBuffer.getHeight());
-			}
-
-			// Clears and repaints the dirty rectangle using the
-			// graphics canvas as a renderer
-			mxUtils.clearRect(tripleBufferGraphics, dirty, null);
-			tripleBufferGraphics.setClip(dirty);
-			graphControl.drawGraph(tripleBufferGraphics, true);
-			tripleBufferGraphics.setClip(null);
+			tiledTripleBuffer.invalidate(dirty);
 		}
 	}
 
@@ -4246,19 +4359,14 @@ public class mxGraphComponent extends JScrollPane implements Printable
 			{
 				checkTripleBuffer();
 			}
-			else if (tripleBuffer != null)
+			else if (tiledTripleBuffer != null)
 			{
 				destroyTripleBuffer();
 			}
 
-			// Paints the buffer in the canvas onto the dirty region
-			if (tripleBuffer != null)
-			{
-				mxUtils.drawImageClip(g, tripleBuffer, this);
-			}
-
-			// Paints the graph directly onto the graphics
-			else
+			// Paints the tiles of the buffer onto the dirty region or
+			// paints the graph directly onto the graphics
+			if (tiledTripleBuffer == null || !paintTripleBuffer(g))
 			{
 				Graphics2D g2 = (Graphics2D) g;
 				RenderingHints tmp = g2.getRenderingHints();
@@ -4279,6 +4387,23 @@ public class mxGraphComponent extends JScrollPane implements Printable
 			eventSource.fireEvent(new mxEventObject(mxEvent.PAINT, "g", g));
 		}
 
+		/**
+		 * Paints the tiles of the triple buffer that intersect the clip of
+		 * the given graphics. The buffered area is limited to the graph
+		 * bounds. Returns false if the tiles could not be created.
+		 */
+		protected boolean paintTripleBuffer(Graphics g)
+		{
+			mxRectangle bounds = graph.getGraphBounds();
+			int width = (int) Math.ceil(bounds.getX() + bounds.getWidth() + 2);
+			int height = (int) Math.ceil(bounds.getY() + bounds.getHeight()
+					+ 2);
+			Rectangle clip = g.getClipBounds();
+
+			return tiledTripleBuffer.paint(g, (clip != null) ? clip
+					: getViewport().getViewRect(), width, height);
+		}
+
 		/**
 		 * 
 		 */
@@ -0,0 +1,432 @@
+/**
+ * Copyright (c) 2007-2017, JGraph Ltd
+ */
+package com.mxgraph.swing.util;
+
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.mxgraph.util.mxUtils;
+
+/**
+ * Implements an image buffer that is split into fixed-size tiles. Tiles are
+ * created lazily when they are painted, repainted when they intersect a dirty
+ * region and evicted in least-recently-used order if the memory used by all
+ * tiles exceeds the memory limit. Tiles that are needed for the current paint
+ * are never evicted, so the visible region is always fully buffered.
+ */
+public class mxTiledBuffer
+{
+
+	private static final Logger log = Logger.getLogger(mxTiledBuffer.class.getName());
+
+	/**
+	 * Defines the default width and height of the tiles in pixels. Default is
+	 * 256.
+	 */
+	public static int DEFAULT_TILE_SIZE = 256;
+
+	/**
+	 * Defines the default memory limit for all tiles in bytes. Default is 64
+	 * MB.
+	 */
+	public static long DEFAULT_MEMORY_LIMIT = 64L * 1024 * 1024;
+
+	/**
+	 * Defines the number of bytes per pixel in a tile.
+	 */
+	protected static final int BYTES_PER_PIXEL = 4;
+
+	/**
+	 * Paints the graph for the region of a tile.
+	 */
+	public interface mxITileRenderer
+	{
+
+		/**
+		 * Paints the given clip region onto the given graphics. The graphics
+		 * is translated so that the clip is in graph control coordinates.
+		 */
+		void paintTile(Graphics2D g, Rectangle clip);
+
+	}
+
+	/**
+	 * Renderer for painting the tiles.
+	 */
+	protected mxITileRenderer renderer;
+
+	/**
+	 * Holds the width and height of the tiles.
+	 */
+	protected int tileSize = DEFAULT_TILE_SIZE;
+
+	/**
+	 * Holds the maximum number of bytes for all tiles.
+	 */
+	protected long memoryLimit = DEFAULT_MEMORY_LIMIT;
+
+	/**
+	 * Maps from tile keys to tiles in the order in which they were last
+	 * painted.
+	 */
+	protected LinkedHashMap<Long, Tile> tiles = new LinkedHashMap<Long, Tile>();
+
+	/**
+	 * Holds the number of bytes used by all tiles.
+	 */
+	protected long memoryUsage = 0;
+
+	/**
+	 * Counts the paint calls to mark the tiles that are in use.
+	 */
+	protected int paintCount = 0;
+
+	/**
+	 * Constructs a new tiled buffer for the given renderer.
+	 */
+	public mxTiledBuffer(mxITileRenderer renderer)
+	{
+		this.renderer = renderer;
+	}
+
+	/**
+	 * Returns the width and height of the tiles.
+	 */
+	public int getTileSize()
+	{
+		return tileSize;
+	}
+
+	/**
+	 * Sets the width and height of the tiles and drops all existing tiles.
+	 */
+	public void setTileSize(int value)
+	{
+		if (value != tileSize && value > 0)
+		{
+			tileSize = value;
+			destroy();
+		}
+	}
+
+	/**
+	 * Returns the maximum number of bytes for all tiles.
+	 */
+	public long getMemoryLimit()
+	{
+		return memoryLimit;
+	}
+
+	/**
+	 * Sets the maximum number of bytes for all tiles and evicts tiles that
+	 * exceed the new limit.
+	 */
+	public void setMemoryLimit(long value)
+	{
+		memoryLimit = value;
+		evict();
+	}
+
+	/**
+	 * Returns the number of bytes used by all tiles.
+	 */
+	public long getMemoryUsage()
+	{
+		return memoryUsage;
+	}
+
+	/**
+	 * Returns the number of existing tiles.
+	 */
+	public int getTileCount()
+	{
+		return tiles.size();
+	}
+
+	/**
+	 * Drops all tiles.
+	 */
+	public void destroy()
+	{
+		tiles.clear();
+		memoryUsage = 0;
+	}
+
+	/**
+	 * Marks the given region as dirty in all existing tiles that intersect it.
+	 * If no region is specified then all tiles are marked as dirty. The tiles
+	 * are repainted the next time they are painted.
+	 *
+	 * @param dirty
+	 *            Rectangle in graph control coordinates.
+	 */
+	public void invalidate(Rectangle dirty)
+	{
+		if (dirty == null)
+		{
+			for (Tile tile : tiles.values())
+			{
+				tile.invalidate(tile.getBounds(tileSize));
+			}
+		}
+		else if (!dirty.isEmpty())
+		{
+			int col0 = Math.max(0, dirty.x / tileSize);
+			int row0 = Math.max(0, dirty.y / tileSize);
+			int col1 = (dirty.x + dirty.width - 1) / tileSize;
+			int row1 = (dirty.y + dirty.height - 1) / tileSize;
+
+			// Checks the existing tiles if there are fewer tiles than
+			// grid cells in the dirty region
+			if ((long) (col1 - col0 + 1) * (row1 - row0 + 1) > tiles.size())
+			{
+				for (Tile tile : tiles.values())
+				{
+					Rectangle bounds = tile.getBounds(tileSize);
+
+					if (bounds.intersects(dirty))
+					{
+						tile.invalidate(bounds.intersection(dirty));
+					}
+				}
+			}
+			else
+			{
+				for (int row = row0; row <= row1; row++)
+				{
+					for (int col = col0; col <= col1; col++)
+					{
+						Tile tile = tiles.get(getKey(col, row));
+
+						if (tile != null)
+						{
+							tile.invalidate(tile.getBounds(tileSize)
+									.intersection(dirty));
+						}
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Paints the tiles that intersect the given clip onto the given graphics.
+	 * Tiles outside of the given width and height are not created. Returns
+	 * false if the tiles could not be created, in which case the caller
+	 * should paint directly.
+	 *
+	 * @param g
+	 *            Graphics to paint the tiles onto.
+	 * @param clip
+	 *            Region to be painted in graph control coordinates.
+	 * @param width
+	 *            Width of the buffered area.
+	 * @param height
+	 *            Height of the buffered area.
+	 */
+	public boolean paint(Graphics g, Rectangle clip, int width, int height)
+	{
+		Rectangle area = new Rectangle(0, 0, width, height);
+
+		if (clip != null)
+		{
+			area = area.intersection(clip);
+		}
+
+		if (!area.isEmpty())
+		{
+			paintCount++;
+
+			int col0 = area.x / tileSize;
+			int row0 = area.y / tileSize;
+			int col1 = (area.x + area.width - 1) / tileSize;
+			int row1 = (area.y + area.height - 1) / tileSize;
+
+			try
+			{
+				for (int row = row0; row <= row1; row++)
+				{
+					for (int col = col0; col <= col1; col++)
+					{
+						Tile tile = getTile(col, row);
+						tile.lastPaint = paintCount;
+
+						if (tile.dirty != null)
+						{
+							renderTile(tile);
+						}
+
+						g.drawImage(tile.image, col * tileSize, row * tileSize,
+								null);
+					}
+				}
+			}
+			catch (OutOfMemoryError error)
+			{
+				log.log(Level.SEVERE, "Failed to create a buffer tile", error);
+				destroy();
+
+				return false;
+			}
+			finally
+			{
+				evict();
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Returns the key for the tile at the given column and row.
+	 */
+	protected Long getKey(int col, int row)
+	{
+		return Long.valueOf(((long) col << 32) | (row & 0xffffffffL));
+	}
+
+	/**
+	 * Returns the tile for the given column and row and moves it to the end
+	 * of the eviction order. A new dirty tile is created if it does not
+	 * exist.
+	 */
+	protected Tile getTile(int col, int row)
+	{
+		Long key = getKey(col, row);
+		Tile tile = tiles.remove(key);
+
+		if (tile != null)
+		{
+			tiles.put(key, tile);
+		}
+		else
+		{
+			tile = new Tile(col, row, mxUtils.createBufferedImage(tileSize,
+					tileSize, null));
+			tile.invalidate(tile.getBounds(tileSize));
+			tiles.put(key, tile);
+			memoryUsage += (long) tileSize * tileSize * BYTES_PER_PIXEL;
+		}
+
+		return tile;
+	}
+
+	/**
+	 * Clears and repaints the dirty region of the given tile.
+	 */
+	protected void renderTile(Tile tile)
+	{
+		Rectangle dirty = tile.dirty;
+		tile.dirty = null;
+		Graphics2D g = tile.image.createGraphics();
+
+		try
+		{
+			g.translate(-tile.col * tileSize, -tile.row * tileSize);
+			mxUtils.clearRect(g, dirty, null);
+			g.setClip(dirty);
+			renderer.paintTile(g, dirty);
+		}
+		finally
+		{
+			g.dispose();
+		}
+	}
+
+	/**
+	 * Removes the least recently used tiles that were not painted in the last
+	 * paint call until the memory usage is within the memory limit.
+	 */
+	protected void evict()
+	{
+		Iterator<Map.Entry<Long, Tile>> it = tiles.entrySet().iterator();
+
+		while (memoryUsage > memoryLimit && it.hasNext())
+		{
+			Tile tile = it.next().getValue();
+
+			if (tile.lastPaint == paintCount)
+			{
+				break;
+			}
+
+			it.remove();
+			memoryUsage -= (long) tileSize * tileSize * BYTES_PER_PIXEL;
+		}
+	}
+
+	/**
+	 * Holds the image and dirty region for a single tile.
+	 */
+	protected static class Tile
+	{
+
+		/**
+		 * Holds the column and row of the tile.
+		 */
+		protected int col, row;
+
+		/**
+		 * Holds the buffered image.
+		 */
+		protected BufferedImage image;
+
+		/**
+		 * Holds the region to be repainted in graph control coordinates or
+		 * null if the tile is up to date.
+		 */
+		protected Rectangle dirty;
+
+		/**
+		 * Holds the last paint call that used this tile.
+		 */
+		protected int lastPaint;
+
+		/**
+		 *
+		 */
+		public Tile(int col, int row, BufferedImage image)
+		{
+			this.col = col;
+			this.row = row;
+			this.image = image;
+		}
+
+		/**
+		 * Returns the bounds of this tile in graph control coordinates.
+		 */
+		public Rectangle getBounds(int tileSize)
+		{
+			return new Rectangle(col * tileSize, row * tileSize, tileSize,
+					tileSize);
+		}
+
+		/**
+		 * Adds the given region to the dirty region.
+		 */
+		public void invalidate(Rectangle rect)
+		{
+			if (rect != null && !rect.isEmpty())
+			{
+				if (dirty == null)
+				{
+					dirty = new Rectangle(rect);
+				}
+				else
+				{
+					dirty.add(rect);
+				}
+			}
+		}
+
+	}
+
+}
@@ -6,6 +6,9 @@ package com.mxgraph.util;
 import java.awt.Color;
 import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
 
 import org.w3c.dom.Document;
 
@@ -14,13 +17,23 @@ import com.mxgraph.canvas.mxHtmlCanvas;
 import com.mxgraph.canvas.mxICanvas;
 import com.mxgraph.canvas.mxImageCanvas;
 import com.mxgraph.canvas.mxSvgCanvas;
+import com.mxgraph.canvas.mxSvgStreamCanvas;
 import com.mxgraph.canvas.mxVmlCanvas;
+import com.mxgraph.util.png.mxPngTiledEncoder;
+import com.mxgraph.view.mxCellState;
 import com.mxgraph.view.mxGraph;
 import com.mxgraph.view.mxGraphView;
 import com.mxgraph.view.mxTemporaryCellStates;
 
 public class mxCellRenderer
 {
+
+	/**
+	 * Defines the number of pixels that are added around the bounds of cells
+	 * and labels to decide if they are painted in a band of a PNG image.
+	 * Default is 4.
+	 */
+	public static int BAND_MARGIN = 4;
 	/**
 	 * 
 	 */
@@ -140,6 +153,134 @@ public class mxCellRenderer
 		return (canvas != null) ? canvas.destroy() : null;
 	}
 
+	/**
+	 * Writes the given cells as a PNG image to the given output stream using
+	 * the default encoder. Returns false if there is nothing to paint.
+	 */
+	public static boolean writePng(mxGraph graph, Object[] cells,
+			double scale, Color background, boolean antiAlias,
+			mxRectangle clip, OutputStream out) throws IOException
+	{
+		return writePng(graph, cells, scale, background, antiAlias, clip,
+				new mxPngTiledEncoder(out, null));
+	}
+
+	/**
+	 * Writes the given cells as a PNG image using the given encoder. The
+	 * image is painted in horizontal bands which are painted and compressed
+	 * in parallel by the encoder, so that the complete image is never held in
+	 * memory. Each band uses its own graphics canvas and only paints the
+	 * cells and labels that intersect the band. Returns false if there is
+	 * nothing to paint.
+	 */
+	public static boolean writePng(final mxGraph graph, Object[] cells,
+			double scale, final Color background, final boolean antiAlias,
+			mxRectangle clip, mxPngTiledEncoder encoder) throws IOException
+	{
+		boolean result = false;
+
+		if (cells == null)
+		{
+			cells = new Object[] { graph.getModel().getRoot() };
+		}
+
+		final Object[] tmp = cells;
+		mxGraphView view = graph.getView();
+		boolean eventsEnabled = view.isEventsEnabled();
+		view.setEventsEnabled(false);
+
+		// Creates the states once and paints the bands from these states
+		mxTemporaryCellStates temp = new mxTemporaryCellStates(view, scale,
+				cells);
+
+		try
+		{
+			if (clip == null)
+			{
+				clip = graph.getPaintBounds(cells);
+			}
+
+			if (clip != null && clip.getWidth() > 0 && clip.getHeight() > 0)
+			{
+				final Rectangle rect = clip.getRectangle();
+				final double viewScale = view.getScale();
+				final int width = rect.width + 1;
+
+				encoder.encode(width, rect.height + 1, background == null,
+						new mxPngTiledEncoder.BandRenderer()
+						{
+							public BufferedImage renderBand(int y, int height)
+							{
+								final mxRectangle band = new mxRectangle(
+										rect.x, rect.y + y, width, height);
+								band.grow(BAND_MARGIN);
+
+								mxImageCanvas canvas = new mxImageCanvas(
+										new mxGraphics2DCanvas(), width,
+										height, background, antiAlias)
+								{
+									public Object drawCell(mxCellState state)
+									{
+										mxRectangle bounds = state
+												.getBoundingBox();
+
+										if (bounds == null)
+										{
+											bounds = state;
+										}
+
+										return (intersects(bounds, band)) ? super
+												.drawCell(state) : null;
+									}
+
+									public Object drawLabel(String label,
+											mxCellState state, boolean html)
+									{
+										mxRectangle bounds = state
+												.getLabelBounds();
+
+										return (bounds == null || intersects(
+												bounds, band)) ? super
+												.drawLabel(label, state, html)
+												: null;
+									}
+								};
+
+								canvas.setTranslate(-rect.x, -rect.y - y);
+								canvas.setScale(viewScale);
+
+								for (int i = 0; i < tmp.length; i++)
+								{
+									graph.drawCell(canvas, tmp[i]);
+								}
+
+								return canvas.destroy();
+							}
+						});
+
+				result = true;
+			}
+		}
+		finally
+		{
+			temp.destroy();
+			view.setEventsEnabled(eventsEnabled);
+		}
+
+		return result;
+	}
+
+	/**
+	 * Returns true if the given rectangles intersect.
+	 */
+	private static boolean intersects(mxRectangle a, mxRectangle b)
+	{
+		return a.getX() < b.getX() + b.getWidth()
+				&& b.getX() < a.getX() + a.getWidth()
+				&& a.getY() < b.getY() + b.getHeight()
+				&& b.getY() < a.getY() + a.getHeight();
+	}
+
 	/**
 	 * 
 	 */
@@ -179,6 +320,33 @@ public class mxCellRenderer
 		return (canvas != null) ? canvas.getDocument() : null;
 	}
 
+	/**
+	 * Writes the given cells as an SVG document to the given writer without
+	 * creating a DOM for the document. Returns false if there is nothing to
+	 * paint.
+	 */
+	public static boolean writeSvg(mxGraph graph, Object[] cells,
+			double scale, mxRectangle clip, final Writer writer)
+			throws IOException
+	{
+		mxSvgStreamCanvas canvas = (mxSvgStreamCanvas) drawCells(graph, cells,
+				scale, clip, new CanvasFactory()
+				{
+					public mxICanvas createCanvas(int width, int height)
+					{
+						return new mxSvgStreamCanvas(writer, width, height);
+					}
+
+				});
+
+		if (canvas != null)
+		{
+			canvas.close();
+		}
+
+		return canvas != null;
+	}
+
 	/**
 	 * 
 	 */
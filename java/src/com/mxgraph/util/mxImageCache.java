@@ -0,0 +1,565 @@
+/**
+ * Copyright (c) 2007-2017, JGraph Ltd
+ */
+package com.mxgraph.util;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.lang.ref.SoftReference;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Implements a thread-safe cache for images that are loaded with
+ * mxUtils.loadImage. The cache is limited by the number of bytes of the
+ * decoded images (plus the length of the URLs, which may contain data URIs)
+ * and optionally by the number of images, and removes the least recently
+ * used images if a limit is exceeded. If more than one thread requests the
+ * same image at the same time then the image is only loaded once and all
+ * threads wait for the result. Images that cannot be loaded are cached as
+ * missing for missingTimeout milliseconds, so that a broken URL is not
+ * requested for every cell that uses it but a transient failure does not
+ * hide the image for the life of the process.
+ *
+ * If soft references are used then the garbage collector may remove cached
+ * images before the limit is reached. Use getHits, getMisses, getLoads and
+ * getEvictions to choose the limit.
+ *
+ * Canvases use their own cache by default. The shared instance is used by
+ * mxExportEngine and by canvases that are configured to share it:
+ *
+ * <code>
+ * mxImageCache.getSharedInstance().setMaxWeight(256 * 1024 * 1024);
+ * mxBasicCanvas.DEFAULT_SHARED_IMAGE_CACHE = mxImageCache.getSharedInstance();
+ * </code>
+ */
+public class mxImageCache
+{
+
+	private static final Logger log = Logger.getLogger(mxImageCache.class.getName());
+
+	/**
+	 * Defines the maximum number of bytes in the shared instance. Default is
+	 * 64 MB.
+	 */
+	public static long DEFAULT_MAX_WEIGHT = 64 * 1024 * 1024;
+
+	/**
+	 * Defines the number of milliseconds for which failed loads are cached.
+	 * Default is 10000.
+	 */
+	public static long DEFAULT_MISSING_TIMEOUT = 10000;
+
+	/**
+	 * Placeholder that is cached for images that could not be loaded.
+	 */
+	protected static final BufferedImage MISSING = new BufferedImage(1, 1,
+			BufferedImage.TYPE_INT_ARGB);
+
+	/**
+	 * Holds the shared instance.
+	 */
+	protected static mxImageCache sharedInstance = new mxImageCache(
+			DEFAULT_MAX_WEIGHT);
+
+	/**
+	 * Holds the maximum number of bytes. A value of 0 disables the cache.
+	 */
+	protected long maxWeight;
+
+	/**
+	 * Holds the maximum number of images. Default is Integer.MAX_VALUE.
+	 */
+	protected int maxSize = Integer.MAX_VALUE;
+
+	/**
+	 * Holds the number of milliseconds for which failed loads are cached. A
+	 * value of 0 disables caching of failed loads. Default is
+	 * DEFAULT_MISSING_TIMEOUT.
+	 */
+	protected long missingTimeout = DEFAULT_MISSING_TIMEOUT;
+
+	/**
+	 * Specifies if new images are stored using soft references. Default is
+	 * false.
+	 */
+	protected boolean softReferences = false;
+
+	/**
+	 * Holds the number of bytes of the cached images.
+	 */
+	protected long weight = 0;
+
+	/**
+	 * Holds the number of get calls that returned a cached image.
+	 */
+	protected long hits = 0;
+
+	/**
+	 * Holds the number of get calls that did not find a cached image.
+	 */
+	protected long misses = 0;
+
+	/**
+	 * Holds the number of images that have been loaded.
+	 */
+	protected long loads = 0;
+
+	/**
+	 * Holds the number of images that have been removed to meet the limit or
+	 * by the garbage collector.
+	 */
+	protected long evictions = 0;
+
+	/**
+	 * Maps from URLs to entries in access order.
+	 */
+	protected LinkedHashMap<String, Entry> entries = new LinkedHashMap<String, Entry>(
+			16, 0.75f, true);
+
+	/**
+	 * Maps from URLs to the images that are currently being loaded.
+	 */
+	protected Map<String, FutureTask<BufferedImage>> pending = new HashMap<String, FutureTask<BufferedImage>>();
+
+	/**
+	 * Returns the shared instance.
+	 */
+	public static mxImageCache getSharedInstance()
+	{
+		return sharedInstance;
+	}
+
+	/**
+	 * Constructs a new cache for the given maximum number of bytes.
+	 */
+	public mxImageCache(long maxWeight)
+	{
+		this(maxWeight, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Constructs a new cache for the given maximum number of bytes and the
+	 * given maximum number of images.
+	 */
+	public mxImageCache(long maxWeight, int maxSize)
+	{
+		this.maxWeight = Math.max(0, maxWeight);
+		this.maxSize = Math.max(0, maxSize);
+	}
+
+	/**
+	 * Returns the image for the given URL from the cache or loads and caches
+	 * the image. If the image is already being loaded in another thread then
+	 * this waits for the result. Returns null if the image cannot be loaded
+	 * or if it could not be loaded within the last missingTimeout
+	 * milliseconds.
+	 */
+	public BufferedImage get(final String url)
+	{
+		if (url == null)
+		{
+			return null;
+		}
+
+		FutureTask<BufferedImage> task = null;
+		boolean owner = false;
+
+		synchronized (this)
+		{
+			BufferedImage img = lookup(url);
+
+			if (img != null)
+			{
+				hits++;
+
+				return (img != MISSING) ? img : null;
+			}
+
+			misses++;
+			task = pending.get(url);
+
+			if (task == null)
+			{
+				task = new FutureTask<BufferedImage>(
+						new Callable<BufferedImage>()
+						{
+							public BufferedImage call() throws Exception
+							{
+								return load(url);
+							}
+						});
+				pending.put(url, task);
+				owner = true;
+			}
+		}
+
+		if (owner)
+		{
+			try
+			{
+				task.run();
+			}
+			finally
+			{
+				BufferedImage img = getResult(task);
+
+				synchronized (this)
+				{
+					loads++;
+					if (img != null)
+					{
+						put(url, img);
+					}
+					else if (missingTimeout > 0)
+					{
+						put(url, MISSING);
+					}
+
+					pending.remove(url);
+				}
+			}
+		}
+
+		return getResult(task);
+	}
+
+	/**
+	 * Loads the image for the given URL. This implementation uses
+	 * mxUtils.loadImage.
+	 */
+	protected BufferedImage load(String url)
+	{
+		return mxUtils.loadImage(url);
+	}
+
+	/**
+	 * Waits for the given task and returns its result or null if the task
+	 * has thrown an exception.
+	 */
+	protected BufferedImage getResult(FutureTask<BufferedImage> task)
+	{
+		boolean interrupted = false;
+
+		try
+		{
+			while (true)
+			{
+				try
+				{
+					return task.get();
+				}
+				catch (InterruptedException e)
+				{
+					interrupted = true;
+				}
+				catch (ExecutionException e)
+				{
+					log.log(Level.SEVERE, "Failed to load image", e.getCause());
+
+					return null;
+				}
+			}
+		}
+		finally
+		{
+			if (interrupted)
+			{
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/**
+	 * Returns the cached image for the given URL, MISSING if the image could
+	 * not be loaded or null if the URL is not in the cache. Entries whose
+	 * image has been removed by the garbage collector are removed, as are
+	 * placeholders for missing images that are older than missingTimeout.
+	 */
+	protected BufferedImage lookup(String url)
+	{
+		Entry entry = entries.get(url);
+
+		if (entry != null)
+		{
+			BufferedImage img = entry.getImage();
+
+			if (img == null)
+			{
+				entries.remove(url);
+				weight -= entry.weight;
+				evictions++;
+			}
+			else if (img == MISSING && System.currentTimeMillis()
+					- entry.created >= missingTimeout)
+			{
+				remove(url);
+				img = null;
+			}
+
+			return img;
+		}
+
+		return null;
+	}
+
+	/**
+	 * Stores the given image for the given URL and removes the least recently
+	 * used images if a limit is exceeded. Images that are larger than the
+	 * limit are not cached. Placeholders for missing images are never stored
+	 * using soft references.
+	 */
+	public synchronized void put(String url, BufferedImage img)
+	{
+		if (url != null && img != null && maxSize > 0)
+		{
+			long w = getWeight(url, img);
+
+			if (w <= maxWeight)
+			{
+				remove(url);
+				entries.put(url, new Entry(img, w, softReferences
+						&& img != MISSING));
+				weight += w;
+				evict();
+			}
+		}
+	}
+
+	/**
+	 * Removes the image for the given URL.
+	 */
+	public synchronized void remove(String url)
+	{
+		Entry entry = entries.remove(url);
+
+		if (entry != null)
+		{
+			weight -= entry.weight;
+		}
+	}
+
+	/**
+	 * Removes the least recently used images until the limits are met.
+	 */
+	protected void evict()
+	{
+		Iterator<Entry> it = entries.values().iterator();
+
+		while ((weight > maxWeight || entries.size() > maxSize) && it.hasNext())
+		{
+			weight -= it.next().weight;
+			it.remove();
+			evictions++;
+		}
+	}
+
+	/**
+	 * Returns the number of bytes that the given image uses in the cache.
+	 */
+	protected long getWeight(String url, BufferedImage img)
+	{
+		DataBuffer buffer = img.getRaster().getDataBuffer();
+
+		return (long) buffer.getSize() * buffer.getNumBanks()
+				* DataBuffer.getDataTypeSize(buffer.getDataType()) / 8 + 2
+				* url.length();
+	}
+
+	/**
+	 * Removes all images and resets the counters.
+	 */
+	public synchronized void clear()
+	{
+		entries.clear();
+		weight = 0;
+		hits = 0;
+		misses = 0;
+		loads = 0;
+		evictions = 0;
+	}
+
+	/**
+	 * Returns the number of cached images including the placeholders for
+	 * missing images.
+	 */
+	public synchronized int size()
+	{
+		return entries.size();
+	}
+
+	/**
+	 * Returns the number of bytes of the cached images.
+	 */
+	public synchronized long getWeight()
+	{
+		return weight;
+	}
+
+	/**
+	 * Returns the maximum number of bytes.
+	 */
+	public synchronized long getMaxWeight()
+	{
+		return maxWeight;
+	}
+
+	/**
+	 * Sets the maximum number of bytes and removes the least recently used
+	 * images that exceed the new limit. A value of 0 disables the cache.
+	 */
+	public synchronized void setMaxWeight(long value)
+	{
+		maxWeight = Math.max(0, value);
+		evict();
+	}
+
+	/**
+	 * Returns the maximum number of images.
+	 */
+	public synchronized int getMaxSize()
+	{
+		return maxSize;
+	}
+
+	/**
+	 * Sets the maximum number of images and removes the least recently used
+	 * images that exceed the new limit. A value of 0 disables the cache.
+	 */
+	public synchronized void setMaxSize(int value)
+	{
+		maxSize = Math.max(0, value);
+		evict();
+	}
+
+	/**
+	 * Returns the number of milliseconds for which failed loads are cached.
+	 */
+	public synchronized long getMissingTimeout()
+	{
+		return missingTimeout;
+	}
+
+	/**
+	 * Sets the number of milliseconds for which failed loads are cached. A
+	 * value of 0 disables caching of failed loads.
+	 */
+	public synchronized void setMissingTimeout(long value)
+	{
+		missingTimeout = Math.max(0, value);
+	}
+
+	/**
+	 * Returns true if new images are stored using soft references.
+	 */
+	public synchronized boolean isSoftReferences()
+	{
+		return softReferences;
+	}
+
+	/**
+	 * Specifies if new images should be stored using soft references, so
+	 * that the garbage collector may remove them if memory is low.
+	 */
+	public synchronized void setSoftReferences(boolean value)
+	{
+		softReferences = value;
+	}
+
+	/**
+	 * Returns the number of get calls that returned a cached image.
+	 */
+	public synchronized long getHits()
+	{
+		return hits;
+	}
+
+	/**
+	 * Returns the number of get calls that did not find a cached image. This
+	 * includes calls that waited for an image that was loaded in another
+	 * thread.
+	 */
+	public synchronized long getMisses()
+	{
+		return misses;
+	}
+
+	/**
+	 * Returns the number of images that have been loaded.
+	 */
+	public synchronized long getLoads()
+	{
+		return loads;
+	}
+
+	/**
+	 * Returns the number of images that have been removed to meet the limit
+	 * or by the garbage collector.
+	 */
+	public synchronized long getEvictions()
+	{
+		return evictions;
+	}
+
+	/**
+	 * Holds a cached image and its weight.
+	 */
+	protected static class Entry
+	{
+
+		/**
+		 * Holds the image if soft references are not used.
+		 */
+		protected BufferedImage image;
+
+		/**
+		 * Holds the soft reference to the image if soft references are used.
+		 */
+		protected SoftReference<BufferedImage> reference;
+
+		/**
+		 * Holds the weight of the image.
+		 */
+		protected long weight;
+
+		/**
+		 * Holds the time when the entry was created in milliseconds.
+		 */
+		protected long created = System.currentTimeMillis();
+
+		/**
+		 * Constructs a new entry for the given image and weight.
+		 */
+		public Entry(BufferedImage image, long weight, boolean soft)
+		{
+			if (soft)
+			{
+				reference = new SoftReference<BufferedImage>(image);
+			}
+			else
+			{
+				this.image = image;
+			}
+
+			this.weight = weight;
+		}
+
+		/**
+		 * Returns the image or null if the image has been removed by the
+		 * garbage collector.
+		 */
+		public BufferedImage getImage()
+		{
+			return (image != null) ? image : reference.get();
+		}
+
+	}
+
+}
@@ -0,0 +1,419 @@
+/**
+ * Copyright (c) 2007-2017, JGraph Ltd
+ */
+package com.mxgraph.util;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Implements a list that keeps the insertion order of its elements and uses a
+ * hash index for contains, indexOf and remove. Removed elements leave a gap
+ * in the underlying array and a binary indexed tree counts the elements in
+ * front of each slot, so that get, indexOf and remove take logarithmic time.
+ * Appending takes constant amortized time, inserting anywhere else takes
+ * linear time as in an ArrayList.
+ *
+ * The hash index is only used as long as the list contains no null elements
+ * and no duplicates, otherwise the lookups fall back to a linear search.
+ */
+public class mxIndexedList<E> extends AbstractList<E> implements Serializable
+{
+
+	/**
+	 *
+	 */
+	private static final long serialVersionUID = -5215466376281357052L;
+
+	/**
+	 * Marks the slots of removed elements.
+	 */
+	protected static final Object REMOVED = new Object();
+
+	/**
+	 * Holds the elements and gaps of removed elements.
+	 */
+	protected transient Object[] slots = new Object[8];
+
+	/**
+	 * Holds the number of used slots including gaps.
+	 */
+	protected transient int slotCount = 0;
+
+	/**
+	 * Holds the number of elements.
+	 */
+	protected transient int size = 0;
+
+	/**
+	 * Binary indexed tree over the slots that counts the elements.
+	 */
+	protected transient int[] tree = new int[slots.length + 1];
+
+	/**
+	 * Maps from elements to their slots or null if the list contains null
+	 * elements or duplicates.
+	 */
+	protected transient Map<Object, Integer> positions = new HashMap<Object, Integer>();
+
+	/**
+	 * Constructs an empty list.
+	 */
+	public mxIndexedList()
+	{
+		// empty
+	}
+
+	/**
+	 * Returns the number of elements.
+	 */
+	public int size()
+	{
+		return size;
+	}
+
+	/**
+	 * Returns the element at the given index.
+	 */
+	@SuppressWarnings("unchecked")
+	public E get(int index)
+	{
+		checkIndex(index, size);
+
+		return (E) slots[getSlot(index)];
+	}
+
+	/**
+	 * Replaces the element at the given index.
+	 */
+	@SuppressWarnings("unchecked")
+	public E set(int index, E element)
+	{
+		checkIndex(index, size);
+		int slot = getSlot(index);
+		Object previous = slots[slot];
+		slots[slot] = element;
+
+		if (positions != null)
+		{
+			positions.remove(previous);
+			addPosition(element, slot);
+		}
+
+		return (E) previous;
+	}
+
+	/**
+	 * Inserts the given element at the given index.
+	 */
+	public void add(int index, E element)
+	{
+		checkIndex(index, size + 1);
+		modCount++;
+
+		if (index == size)
+		{
+			if (slotCount == slots.length)
+			{
+				rebuild(REMOVED, 0, Math.max(8, size * 2));
+			}
+
+			slots[slotCount] = element;
+			increment(slotCount, 1);
+			addPosition(element, slotCount);
+			slotCount++;
+			size++;
+		}
+		else
+		{
+			rebuild(element, index, Math.max(8, size * 2));
+		}
+	}
+
+	/**
+	 * Removes the element at the given index.
+	 */
+	public E remove(int index)
+	{
+		checkIndex(index, size);
+
+		return removeSlot(getSlot(index));
+	}
+
+	/**
+	 * Removes the given element and returns true if it was in the list.
+	 */
+	public boolean remove(Object o)
+	{
+		int index = indexOf(o);
+
+		if (index >= 0)
+		{
+			remove(index);
+
+			return true;
+		}
+
+		return false;
+	}
+
+	/**
+	 * Returns true if the given element is in the list.
+	 */
+	public boolean contains(Object o)
+	{
+		return indexOf(o) >= 0;
+	}
+
+	/**
+	 * Returns the index of the first occurrence of the given element or -1.
+	 */
+	public int indexOf(Object o)
+	{
+		if (positions != null)
+		{
+			Integer slot = positions.get(o);
+
+			return (slot != null) ? count(slot.intValue()) - 1 : -1;
+		}
+
+		for (int i = 0; i < slotCount; i++)
+		{
+			if (slots[i] != REMOVED
+					&& (o == null ? slots[i] == null : o.equals(slots[i])))
+			{
+				return count(i) - 1;
+			}
+		}
+
+		return -1;
+	}
+
+	/**
+	 * Returns the index of the last occurrence of the given element or -1.
+	 */
+	public int lastIndexOf(Object o)
+	{
+		if (positions != null)
+		{
+			return indexOf(o);
+		}
+
+		for (int i = slotCount - 1; i >= 0; i--)
+		{
+			if (slots[i] != REMOVED
+					&& (o == null ? slots[i] == null : o.equals(slots[i])))
+			{
+				return count(i) - 1;
+			}
+		}
+
+		return -1;
+	}
+
+	/**
+	 * Removes all elements.
+	 */
+	public void clear()
+	{
+		modCount++;
+		slots = new Object[8];
+		tree = new int[slots.length + 1];
+		positions = new HashMap<Object, Integer>();
+		slotCount = 0;
+		size = 0;
+	}
+
+	/**
+	 * Removes the element in the given slot and compacts the slots if more
+	 * than half of them are gaps.
+	 */
+	@SuppressWarnings("unchecked")
+	protected E removeSlot(int slot)
+	{
+		modCount++;
+		Object element = slots[slot];
+		slots[slot] = REMOVED;
+		increment(slot, -1);
+		size--;
+
+		if (positions != null)
+		{
+			positions.remove(element);
+		}
+
+		if (slotCount - size > Math.max(16, size))
+		{
+			rebuild(REMOVED, 0, Math.max(8, size * 2));
+		}
+
+		return (E) element;
+	}
+
+	/**
+	 * Adds the given slot for the given element to the hash index. The index
+	 * is dropped if the element is null or already in the list.
+	 */
+	protected void addPosition(Object element, int slot)
+	{
+		if (positions != null
+				&& (element == null || positions.put(element,
+						Integer.valueOf(slot)) != null))
+		{
+			positions = null;
+		}
+	}
+
+	/**
+	 * Copies all elements into new slots of the given capacity without gaps
+	 * and rebuilds the binary indexed tree and hash index. If insert is not
+	 * REMOVED then it is inserted at the given index.
+	 */
+	protected void rebuild(Object insert, int index, int capacity)
+	{
+		boolean inserting = insert != REMOVED && index < size;
+		Object[] tmp = new Object[capacity];
+		int count = 0;
+
+		for (int i = 0; i < slotCount; i++)
+		{
+			if (slots[i] != REMOVED)
+			{
+				if (inserting && count == index)
+				{
+					tmp[count++] = insert;
+					inserting = false;
+				}
+
+				tmp[count++] = slots[i];
+			}
+		}
+
+		slots = tmp;
+		slotCount = count;
+		size = count;
+		tree = new int[capacity + 1];
+		positions = new HashMap<Object, Integer>();
+
+		for (int i = 1; i <= capacity; i++)
+		{
+			if (i <= count)
+			{
+				tree[i]++;
+				addPosition(slots[i - 1], i - 1);
+			}
+
+			int parent = i + (i & -i);
+
+			if (parent <= capacity)
+			{
+				tree[parent] += tree[i];
+			}
+		}
+	}
+
+	/**
+	 * Adds the given delta to the count of the given slot.
+	 */
+	protected void increment(int slot, int delta)
+	{
+		for (int i = slot + 1; i < tree.length; i += i & -i)
+		{
+			tree[i] += delta;
+		}
+	}
+
+	/**
+	 * Returns the number of elements in the slots up to and including the
+	 * given slot.
+	 */
+	protected int count(int slot)
+	{
+		int result = 0;
+
+		for (int i = slot + 1; i > 0; i -= i & -i)
+		{
+			result += tree[i];
+		}
+
+		return result;
+	}
+
+	/**
+	 * Returns the slot of the element at the given index.
+	 */
+	protected int getSlot(int index)
+	{
+		int slot = 0;
+		int remaining = index + 1;
+
+		for (int step = Integer.highestOneBit(tree.length - 1); step > 0; step >>= 1)
+		{
+			int next = slot + step;
+
+			if (next < tree.length && tree[next] < remaining)
+			{
+				slot = next;
+				remaining -= tree[next];
+			}
+		}
+
+		return slot;
+	}
+
+	/**
+	 * Throws an IndexOutOfBoundsException if the given index is not in the
+	 * given range.
+	 */
+	protected void checkIndex(int index, int bound)
+	{
+		if (index < 0 || index >= bound)
+		{
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: "
+					+ size);
+		}
+	}
+
+	/**
+	 * Writes the number of elements followed by the elements.
+	 */
+	private void writeObject(ObjectOutputStream out) throws IOException
+	{
+		out.defaultWriteObject();
+		out.writeInt(size);
+
+		for (int i = 0; i < slotCount; i++)
+		{
+			if (slots[i] != REMOVED)
+			{
+				out.writeObject(slots[i]);
+			}
+		}
+	}
+
+	/**
+	 * Reads the elements and rebuilds the index.
+	 */
+	private void readObject(ObjectInputStream in) throws IOException,
+			ClassNotFoundException
+	{
+		in.defaultReadObject();
+		int count = in.readInt();
+		slots = new Object[Math.max(8, count)];
+
+		for (int i = 0; i < count; i++)
+		{
+			slots[i] = in.readObject();
+		}
+
+		slotCount = count;
+		size = count;
+		rebuild(REMOVED, 0, slots.length);
+	}
+
+}
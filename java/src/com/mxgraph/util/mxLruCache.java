@@ -0,0 +1,149 @@
+/**
+ * Copyright (c) 2007-2017, JGraph Ltd
+ */
+package com.mxgraph.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Implements a thread-safe cache with a maximum number of entries that
+ * removes the least recently used entry if the maximum is exceeded. The cache
+ * counts the hits and misses of get to help choosing the maximum size.
+ */
+public class mxLruCache<K, V>
+{
+
+	/**
+	 * Holds the maximum number of entries. A value of 0 disables the cache.
+	 */
+	protected int maxSize;
+
+	/**
+	 * Holds the number of get calls that returned a value.
+	 */
+	protected long hits = 0;
+
+	/**
+	 * Holds the number of get calls that returned null.
+	 */
+	protected long misses = 0;
+
+	/**
+	 * Maps from keys to values in access order.
+	 */
+	protected LinkedHashMap<K, V> entries = new LinkedHashMap<K, V>(16, 0.75f,
+			true)
+	{
+
+		/**
+		 *
+		 */
+		private static final long serialVersionUID = 4261733394637066134L;
+
+		/**
+		 *
+		 */
+		protected boolean removeEldestEntry(Map.Entry<K, V> eldest)
+		{
+			return size() > maxSize;
+		}
+
+	};
+
+	/**
+	 * Constructs a new cache for the given maximum number of entries.
+	 */
+	public mxLruCache(int maxSize)
+	{
+		this.maxSize = Math.max(0, maxSize);
+	}
+
+	/**
+	 * Returns the value for the given key or null if no value is cached.
+	 */
+	public synchronized V get(K key)
+	{
+		V value = entries.get(key);
+
+		if (value != null)
+		{
+			hits++;
+		}
+		else
+		{
+			misses++;
+		}
+
+		return value;
+	}
+
+	/**
+	 * Stores the given value for the given key and removes the least recently
+	 * used entry if the maximum size is exceeded.
+	 */
+	public synchronized void put(K key, V value)
+	{
+		if (maxSize > 0 && value != null)
+		{
+			entries.put(key, value);
+		}
+	}
+
+	/**
+	 * Removes all entries and resets the hit and miss counters.
+	 */
+	public synchronized void clear()
+	{
+		entries.clear();
+		hits = 0;
+		misses = 0;
+	}
+
+	/**
+	 * Returns the number of cached entries.
+	 */
+	public synchronized int size()
+	{
+		return entries.size();
+	}
+
+	/**
+	 * Returns the maximum number of entries.
+	 */
+	public synchronized int getMaxSize()
+	{
+		return maxSize;
+	}
+
+	/**
+	 * Sets the maximum number of entries and removes the least recently used
+	 * entries that exceed the new maximum. A value of 0 disables the cache.
+	 */
+	public synchronized void setMaxSize(int value)
+	{
+		maxSize = Math.max(0, value);
+
+		while (entries.size() > maxSize)
+		{
+			entries.remove(entries.keySet().iterator().next());
+		}
+	}
+
+	/**
+	 * Returns the number of get calls that returned a value.
+	 */
+	public synchronized long getHits()
+	{
+		return hits;
+	}
+
+	/**
+	 * Returns the number of get calls that returned null.
+	 */
+	public synchronized long getMisses()
+	{
+		return misses;
+	}
+
+}
@@ -82,6 +82,27 @@ public class mxUtils
 	 */
 	protected static transient Graphics fontGraphics;
 
+	/**
+	 * Shared font render context for measuring strings.
+	 */
+	protected static final FontRenderContext FONT_RENDER_CONTEXT = new FontRenderContext(
+			null, false, false);
+
+	/**
+	 * Caches the sizes returned by getSizeForString for the last 10000
+	 * combinations of text, font and scale. Use getHits and getMisses to tune
+	 * the maximum size.
+	 */
+	protected static mxLruCache<Object, mxRectangle> labelSizeCache = new mxLruCache<Object, mxRectangle>(
+			10000);
+
+	/**
+	 * Caches the fonts returned by getFont for the last 256 combinations of
+	 * font family, style and scaled size.
+	 */
+	protected static mxLruCache<Object, Font> fontCache = new mxLruCache<Object, Font>(
+			256);
+
 	// Creates a renderer for HTML markup (only possible in
 	// non-headless environment)
 	static
@@ -322,6 +343,22 @@ public class mxUtils
 		return new mxRectangle(x, y, width, height);
 	}
 
+	/**
+	 * Returns the cache for the sizes returned by getSizeForString.
+	 */
+	public static mxLruCache<Object, mxRectangle> getLabelSizeCache()
+	{
+		return labelSizeCache;
+	}
+
+	/**
+	 * Returns the cache for the fonts returned by getFont.
+	 */
+	public static mxLruCache<Object, Font> getFontCache()
+	{
+		return fontCache;
+	}
+
 	/**
 	 * Returns the font metrics of the static font graphics instance
 	 * @param font The font whose metrics are to be returned
@@ -349,7 +386,31 @@ public class mxUtils
 	public static mxRectangle getSizeForString(String text, Font font,
 			double scale)
 	{
-		FontRenderContext frc = new FontRenderContext(null, false, false);
+		Object key = Arrays.asList(text, font, scale);
+		mxRectangle size = labelSizeCache.get(key);
+
+		if (size == null)
+		{
+			size = computeSizeForString(text, font, scale);
+			labelSizeCache.put(key, size);
+		}
+
+		return new mxRectangle(size);
+	}
+
+	/**
+	 * Returns an <mxRectangle> with the size (width and height in pixels) of
+	 * the given string without using the label size cache.
+	 * 
+	 * @param text
+	 *            String whose size should be returned.
+	 * @param font
+	 *            Font to be used for the computation.
+	 */
+	public static mxRectangle computeSizeForString(String text, Font font,
+			double scale)
+	{
+		FontRenderContext frc = FONT_RENDER_CONTEXT;
 		font = font.deriveFont((float) (font.getSize2D() * scale));
 		FontMetrics metrics = null;
 
@@ -1673,7 +1734,30 @@ public class mxUtils
 				: Font.PLAIN;
 		swingFontStyle += ((fontStyle & mxConstants.FONT_ITALIC) == mxConstants.FONT_ITALIC) ? Font.ITALIC
 				: Font.PLAIN;
-		
+		int size = (int) (fontSize * scale);
+		int decoration = fontStyle
+				& (mxConstants.FONT_UNDERLINE | mxConstants.FONT_STRIKETHROUGH);
+
+		Object key = Arrays.asList(fontFamily, swingFontStyle, size,
+				decoration);
+		Font font = fontCache.get(key);
+
+		if (font == null)
+		{
+			font = createFont(fontFamily, swingFontStyle, size, decoration);
+			fontCache.put(key, font);
+		}
+
+		return font;
+	}
+
+	/**
+	 * Creates a new font for the given family, Swing font style, size and
+	 * underline and strikethrough flags of mxConstants.STYLE_FONTSTYLE.
+	 */
+	protected static Font createFont(String fontFamily, int swingFontStyle,
+			int size, int fontStyle)
+	{
 		//https://github.com/elonderin/jgraphx/commit/c1c9b0ca7dee2b1e7ace0b0e88c3c06135bf236c
 		Map<TextAttribute, Object> fontAttributes = new HashMap<>();
 		
@@ -1687,7 +1771,7 @@ public class mxUtils
 	    	fontAttributes.put(TextAttribute.STRIKETHROUGH, TextAttribute.STRIKETHROUGH_ON);
 	    }
 		
-		return new Font(fontFamily, swingFontStyle, (int) (fontSize * scale)).deriveFont(fontAttributes);
+		return new Font(fontFamily, swingFontStyle, size).deriveFont(fontAttributes);
 	}
 
 	/**
@@ -3,8 +3,13 @@
  */
 package com.mxgraph.util;
 
+import java.io.IOException;
 import java.io.StringReader;
 import java.io.StringWriter;
+import java.io.Writer;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.TreeMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -18,6 +23,8 @@ import javax.xml.transform.dom.DOMSource;
 import javax.xml.transform.stream.StreamResult;
 
 import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
 import org.w3c.dom.Node;
 
 import org.xml.sax.InputSource;
@@ -30,6 +37,25 @@ public class mxXmlUtils
 
 	private static final Logger log = Logger.getLogger(mxXmlUtils.class.getName());
 
+	/**
+	 * Orders attribute names with the namespace declarations first.
+	 */
+	private static final Comparator<String> ATTRIBUTE_ORDER = new Comparator<String>()
+	{
+		public int compare(String a, String b)
+		{
+			boolean nsA = a.equals("xmlns") || a.startsWith("xmlns:");
+			boolean nsB = b.equals("xmlns") || b.startsWith("xmlns:");
+
+			if (nsA != nsB)
+			{
+				return (nsA) ? -1 : 1;
+			}
+
+			return a.compareTo(b);
+		}
+	};
+
 	/**
 	 * 
 	 */
@@ -120,4 +146,197 @@ public class mxXmlUtils
 
 		return "";
 	}
+
+	/**
+	 * Writes the given node and its descendants to the given writer. The
+	 * output is the same as the output of getXml.
+	 * 
+	 * @param node Node to write the XML for.
+	 * @param out Writer to write the XML to.
+	 */
+	public static void writeXml(Node node, Writer out) throws IOException
+	{
+		if (node != null)
+		{
+			switch (node.getNodeType())
+			{
+				case Node.ELEMENT_NODE:
+				{
+					out.write("<");
+					out.write(node.getNodeName());
+
+					for (Map.Entry<String, String> entry : getAttributes(
+							(Element) node).entrySet())
+					{
+						out.write(" ");
+						out.write(entry.getKey());
+						out.write("=\"");
+						writeText(entry.getValue(), true, out);
+						out.write("\"");
+					}
+
+					Node child = node.getFirstChild();
+
+					if (child == null)
+					{
+						out.write("/>");
+					}
+					else
+					{
+						out.write(">");
+
+						while (child != null)
+						{
+							writeXml(child, out);
+							child = child.getNextSibling();
+						}
+
+						out.write("</");
+						out.write(node.getNodeName());
+						out.write(">");
+					}
+
+					break;
+				}
+				case Node.TEXT_NODE:
+					writeText(node.getNodeValue(), false, out);
+					break;
+				case Node.CDATA_SECTION_NODE:
+					out.write("<![CDATA["
+							+ node.getNodeValue().replace("]]>",
+									"]]]]><![CDATA[>") + "]]>");
+					break;
+				case Node.COMMENT_NODE:
+					writeComment(node.getNodeValue(), out);
+					break;
+				case Node.PROCESSING_INSTRUCTION_NODE:
+					out.write("<?" + node.getNodeName() + " "
+							+ node.getNodeValue() + "?>");
+					break;
+				case Node.DOCUMENT_NODE:
+					writeXml(((Document) node).getDocumentElement(), out);
+					break;
+				default:
+					break;
+			}
+		}
+	}
+
+	/**
+	 * Returns the attributes of the given element sorted by name with the
+	 * namespace declarations first as in the output of getXml.
+	 */
+	public static Map<String, String> getAttributes(Element elt)
+	{
+		Map<String, String> result = new TreeMap<String, String>(
+				ATTRIBUTE_ORDER);
+		NamedNodeMap attrs = elt.getAttributes();
+
+		for (int i = 0; i < attrs.getLength(); i++)
+		{
+			Node attr = attrs.item(i);
+			result.put(attr.getNodeName(), attr.getNodeValue());
+		}
+
+		return result;
+	}
+
+	/**
+	 * Writes the given comment. Consecutive dashes are separated by a space
+	 * as in the output of the transformer.
+	 */
+	protected static void writeComment(String text, Writer out)
+			throws IOException
+	{
+		out.write("<!--");
+		char last = 0;
+
+		for (int i = 0; i < text.length(); i++)
+		{
+			char c = text.charAt(i);
+
+			if (c == '-' && last == '-')
+			{
+				out.write(' ');
+			}
+
+			out.write(c);
+			last = c;
+		}
+
+		if (last == '-')
+		{
+			out.write(' ');
+		}
+
+		out.write("-->");
+	}
+
+	/**
+	 * Writes the given text or attribute value. Markup characters, control
+	 * characters and supplementary characters are escaped as in the output
+	 * of the transformer in getXml.
+	 * 
+	 * @param text Text to be written.
+	 * @param attribute Specifies if the text is an attribute value.
+	 * @param out Writer to write the text to.
+	 */
+	public static void writeText(String text, boolean attribute, Writer out)
+			throws IOException
+	{
+		int start = 0;
+		int len = text.length();
+
+		for (int i = 0; i < len; i++)
+		{
+			char c = text.charAt(i);
+			int next = i + 1;
+			String entity = null;
+
+			if (c == '&')
+			{
+				entity = "&amp;";
+			}
+			else if (c == '<')
+			{
+				entity = "&lt;";
+			}
+			else if (c == '>')
+			{
+				entity = "&gt;";
+			}
+			else if (c == '"' && attribute)
+			{
+				entity = "&quot;";
+			}
+			else if (c < 0x20)
+			{
+				if (attribute || (c != '\t' && c != '\n'))
+				{
+					entity = "&#" + (int) c + ";";
+				}
+			}
+			else if (c >= 0x7f && c <= 0x9f && !attribute)
+			{
+				entity = "&#" + (int) c + ";";
+			}
+			else if (Character.isHighSurrogate(c) && next < len
+					&& Character.isLowSurrogate(text.charAt(next)))
+			{
+				entity = "&#" + text.codePointAt(i) + ";";
+				next++;
+			}
+
+			if (entity != null)
+			{
+				out.write(text, start, i - start);
+				out.write(entity);
+				start = next;
+				i = next - 1;
+			}
+		}
+
+		out.write(text, start, len - start);
+	}
+
 }
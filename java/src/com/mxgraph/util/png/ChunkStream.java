@@ -0,0 +1,188 @@
+/* Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+ */
+/*
+ * Copyright (c) 2001 Sun Microsystems, Inc. All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * -Redistributions of source code must retain the above copyright notice, this 
+ * list of conditions and the following disclaimer.
+ *
+ * -Redistribution in binary form must reproduct the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * 
+ * Neither the name of Sun Microsystems, Inc. or the names of contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * 
+ * This software is provided "AS IS," without a warranty of any kind. ALL
+ * EXPRESS OR IMPLIED CONDITIONS, REPRESENTATIONS AND WARRANTIES, INCLUDING ANY
+ * IMPLIED WARRANTY OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE OR
+ * NON-INFRINGEMENT, ARE HEREBY EXCLUDED. SUN AND ITS LICENSORS SHALL NOT BE
+ * LIABLE FOR ANY DAMAGES SUFFERED BY LICENSEE AS A RESULT OF USING, MODIFYING
+ * OR DISTRIBUTING THE SOFTWARE OR ITS DERIVATIVES. IN NO EVENT WILL SUN OR ITS
+ * LICENSORS BE LIABLE FOR ANY LOST REVENUE, PROFIT OR DATA, OR FOR DIRECT,
+ * INDIRECT, SPECIAL, CONSEQUENTIAL, INCIDENTAL OR PUNITIVE DAMAGES, HOWEVER
+ * CAUSED AND REGARDLESS OF THE THEORY OF LIABILITY, ARISING OUT OF THE USE OF
+ * OR INABILITY TO USE SOFTWARE, EVEN IF SUN HAS BEEN ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGES.
+ * 
+ * You acknowledge that Software is not designed,licensed or intended for use in 
+ * the design, construction, operation or maintenance of any nuclear facility.
+ */
+package com.mxgraph.util.png;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+class ChunkStream extends OutputStream implements DataOutput
+{
+
+	private String type;
+
+	private ByteArrayOutputStream baos;
+
+	private DataOutputStream dos;
+
+	ChunkStream(String type)
+	{
+		this.type = type;
+
+		this.baos = new ByteArrayOutputStream();
+		this.dos = new DataOutputStream(baos);
+	}
+
+	public void write(byte[] b) throws IOException
+	{
+		dos.write(b);
+	}
+
+	public void write(byte[] b, int off, int len) throws IOException
+	{
+		dos.write(b, off, len);
+	}
+
+	public void write(int b) throws IOException
+	{
+		dos.write(b);
+	}
+
+	public void writeBoolean(boolean v) throws IOException
+	{
+		dos.writeBoolean(v);
+	}
+
+	public void writeByte(int v) throws IOException
+	{
+		dos.writeByte(v);
+	}
+
+	public void writeBytes(String s) throws IOException
+	{
+		dos.writeBytes(s);
+	}
+
+	public void writeChar(int v) throws IOException
+	{
+		dos.writeChar(v);
+	}
+
+	public void writeChars(String s) throws IOException
+	{
+		dos.writeChars(s);
+	}
+
+	public void writeDouble(double v) throws IOException
+	{
+		dos.writeDouble(v);
+	}
+
+	public void writeFloat(float v) throws IOException
+	{
+		dos.writeFloat(v);
+	}
+
+	public void writeInt(int v) throws IOException
+	{
+		dos.writeInt(v);
+	}
+
+	public void writeLong(long v) throws IOException
+	{
+		dos.writeLong(v);
+	}
+
+	public void writeShort(int v) throws IOException
+	{
+		dos.writeShort(v);
+	}
+
+	public void writeUTF(String str) throws IOException
+	{
+		dos.writeUTF(str);
+	}
+
+	public void writeToStream(DataOutputStream output) throws IOException
+	{
+		byte[] typeSignature = new byte[4];
+		typeSignature[0] = (byte) type.charAt(0);
+		typeSignature[1] = (byte) type.charAt(1);
+		typeSignature[2] = (byte) type.charAt(2);
+		typeSignature[3] = (byte) type.charAt(3);
+
+		dos.flush();
+		baos.flush();
+
+		byte[] data = baos.toByteArray();
+		int len = data.length;
+
+		output.writeInt(len);
+		output.write(typeSignature);
+		output.write(data, 0, len);
+
+		int crc = 0xffffffff;
+		crc = CRC.updateCRC(crc, typeSignature, 0, 4);
+		crc = CRC.updateCRC(crc, data, 0, len);
+		output.writeInt(crc ^ 0xffffffff);
+	}
+
+	/**
+	 * this doesnt do much, its main purpose is to stop complaints
+	 * about 'outputStream not closed...'.
+	 * 
+	 * @throws IOException
+	 */
+	public void close() throws IOException
+	{
+
+		if (baos != null)
+		{
+			baos.close();
+			baos = null;
+		}
+		if (dos != null)
+		{
+			dos.close();
+			dos = null;
+		}
+	}
+}
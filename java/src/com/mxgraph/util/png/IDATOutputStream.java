@@ -0,0 +1,137 @@
+/* Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+ */
+/*
+ * Copyright (c) 2001 Sun Microsystems, Inc. All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * -Redistributions of source code must retain the above copyright notice, this 
+ * list of conditions and the following disclaimer.
+ *
+ * -Redistribution in binary form must reproduct the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * 
+ * Neither the name of Sun Microsystems, Inc. or the names of contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * 
+ * This software is provided "AS IS," without a warranty of any kind. ALL
+ * EXPRESS OR IMPLIED CONDITIONS, REPRESENTATIONS AND WARRANTIES, INCLUDING ANY
+ * IMPLIED WARRANTY OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE OR
+ * NON-INFRINGEMENT, ARE HEREBY EXCLUDED. SUN AND ITS LICENSORS SHALL NOT BE
+ * LIABLE FOR ANY DAMAGES SUFFERED BY LICENSEE AS A RESULT OF USING, MODIFYING
+ * OR DISTRIBUTING THE SOFTWARE OR ITS DERIVATIVES. IN NO EVENT WILL SUN OR ITS
+ * LICENSORS BE LIABLE FOR ANY LOST REVENUE, PROFIT OR DATA, OR FOR DIRECT,
+ * INDIRECT, SPECIAL, CONSEQUENTIAL, INCIDENTAL OR PUNITIVE DAMAGES, HOWEVER
+ * CAUSED AND REGARDLESS OF THE THEORY OF LIABILITY, ARISING OUT OF THE USE OF
+ * OR INABILITY TO USE SOFTWARE, EVEN IF SUN HAS BEEN ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGES.
+ * 
+ * You acknowledge that Software is not designed,licensed or intended for use in 
+ * the design, construction, operation or maintenance of any nuclear facility.
+ */
+package com.mxgraph.util.png;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+class IDATOutputStream extends FilterOutputStream
+{
+
+	private static final byte[] typeSignature = { (byte) 'I', (byte) 'D',
+			(byte) 'A', (byte) 'T' };
+
+	private int bytesWritten = 0;
+
+	private int segmentLength;
+
+	byte[] buffer;
+
+	public IDATOutputStream(OutputStream output, int segmentLength)
+	{
+		super(output);
+		this.segmentLength = segmentLength;
+		this.buffer = new byte[segmentLength];
+	}
+
+	public void close() throws IOException
+	{
+		flush();
+	}
+
+	private void writeInt(int x) throws IOException
+	{
+		out.write(x >> 24);
+		out.write((x >> 16) & 0xff);
+		out.write((x >> 8) & 0xff);
+		out.write(x & 0xff);
+	}
+
+	public void flush() throws IOException
+	{
+		// Length
+		writeInt(bytesWritten);
+		// 'IDAT' signature
+		out.write(typeSignature);
+		// Data
+		out.write(buffer, 0, bytesWritten);
+
+		int crc = 0xffffffff;
+		crc = CRC.updateCRC(crc, typeSignature, 0, 4);
+		crc = CRC.updateCRC(crc, buffer, 0, bytesWritten);
+
+		// CRC
+		writeInt(crc ^ 0xffffffff);
+
+		// Reset buffer
+		bytesWritten = 0;
+	}
+
+	public void write(byte[] b) throws IOException
+	{
+		this.write(b, 0, b.length);
+	}
+
+	public void write(byte[] b, int off, int len) throws IOException
+	{
+		while (len > 0)
+		{
+			int bytes = Math.min(segmentLength - bytesWritten, len);
+			System.arraycopy(b, off, buffer, bytesWritten, bytes);
+			off += bytes;
+			len -= bytes;
+			bytesWritten += bytes;
+
+			if (bytesWritten == segmentLength)
+			{
+				flush();
+			}
+		}
+	}
+
+	public void write(int b) throws IOException
+	{
+		buffer[bytesWritten++] = (byte) b;
+		if (bytesWritten == segmentLength)
+		{
+			flush();
+		}
+	}
+}
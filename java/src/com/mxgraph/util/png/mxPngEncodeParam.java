@@ -680,6 +680,30 @@ public abstract class mxPngEncodeParam
 		return useInterlacing;
 	}
 
+	private int compressionLevel = 9;
+
+	/**
+	 * Sets the compression level of the image data between 0 (no
+	 * compression) and 9 (best compression). Default is 9.
+	 */
+	public void setCompressionLevel(int compressionLevel)
+	{
+		if (compressionLevel < 0 || compressionLevel > 9)
+		{
+			throw new IllegalArgumentException("compressionLevel");
+		}
+
+		this.compressionLevel = compressionLevel;
+	}
+
+	/**
+	 * Returns the compression level of the image data.
+	 */
+	public int getCompressionLevel()
+	{
+		return compressionLevel;
+	}
+
 	// bKGD chunk - delegate to subclasses
 
 	// In JAI 1.0, 'backgroundSet' was private.  The JDK 1.2 compiler
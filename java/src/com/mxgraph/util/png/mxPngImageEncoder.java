@@ -56,10 +56,7 @@ import java.awt.image.IndexColorModel;
 import java.awt.image.Raster;
 import java.awt.image.RenderedImage;
 import java.awt.image.SampleModel;
-import java.io.ByteArrayOutputStream;
-import java.io.DataOutput;
 import java.io.DataOutputStream;
-import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.util.Calendar;
@@ -70,263 +67,6 @@ import java.util.logging.Logger;
 import java.util.zip.Deflater;
 import java.util.zip.DeflaterOutputStream;
 
-class CRC
-{
-
-	private static int[] crcTable = new int[256];
-
-	static
-	{
-		// Initialize CRC table
-		for (int n = 0; n < 256; n++)
-		{
-			int c = n;
-			for (int k = 0; k < 8; k++)
-			{
-				if ((c & 1) == 1)
-				{
-					c = 0xedb88320 ^ (c >>> 1);
-				}
-				else
-				{
-					c >>>= 1;
-				}
-
-				crcTable[n] = c;
-			}
-		}
-	}
-
-	public static int updateCRC(int crc, byte[] data, int off, int len)
-	{
-		int c = crc;
-
-		for (int n = 0; n < len; n++)
-		{
-			c = crcTable[(c ^ data[off + n]) & 0xff] ^ (c >>> 8);
-		}
-
-		return c;
-	}
-}
-
-class ChunkStream extends OutputStream implements DataOutput
-{
-
-	private String type;
-
-	private ByteArrayOutputStream baos;
-
-	private DataOutputStream dos;
-
-	ChunkStream(String type)
-	{
-		this.type = type;
-
-		this.baos = new ByteArrayOutputStream();
-		this.dos = new DataOutputStream(baos);
-	}
-
-	public void write(byte[] b) throws IOException
-	{
-		dos.write(b);
-	}
-
-	public void write(byte[] b, int off, int len) throws IOException
-	{
-		dos.write(b, off, len);
-	}
-
-	public void write(int b) throws IOException
-	{
-		dos.write(b);
-	}
-
-	public void writeBoolean(boolean v) throws IOException
-	{
-		dos.writeBoolean(v);
-	}
-
-	public void writeByte(int v) throws IOException
-	{
-		dos.writeByte(v);
-	}
-
-	public void writeBytes(String s) throws IOException
-	{
-		dos.writeBytes(s);
-	}
-
-	public void writeChar(int v) throws IOException
-	{
-		dos.writeChar(v);
-	}
-
-	public void writeChars(String s) throws IOException
-	{
-		dos.writeChars(s);
-	}
-
-	public void writeDouble(double v) throws IOException
-	{
-		dos.writeDouble(v);
-	}
-
-	public void writeFloat(float v) throws IOException
-	{
-		dos.writeFloat(v);
-	}
-
-	public void writeInt(int v) throws IOException
-	{
-		dos.writeInt(v);
-	}
-
-	public void writeLong(long v) throws IOException
-	{
-		dos.writeLong(v);
-	}
-
-	public void writeShort(int v) throws IOException
-	{
-		dos.writeShort(v);
-	}
-
-	public void writeUTF(String str) throws IOException
-	{
-		dos.writeUTF(str);
-	}
-
-	public void writeToStream(DataOutputStream output) throws IOException
-	{
-		byte[] typeSignature = new byte[4];
-		typeSignature[0] = (byte) type.charAt(0);
-		typeSignature[1] = (byte) type.charAt(1);
-		typeSignature[2] = (byte) type.charAt(2);
-		typeSignature[3] = (byte) type.charAt(3);
-
-		dos.flush();
-		baos.flush();
-
-		byte[] data = baos.toByteArray();
-		int len = data.length;
-
-		output.writeInt(len);
-		output.write(typeSignature);
-		output.write(data, 0, len);
-
-		int crc = 0xffffffff;
-		crc = CRC.updateCRC(crc, typeSignature, 0, 4);
-		crc = CRC.updateCRC(crc, data, 0, len);
-		output.writeInt(crc ^ 0xffffffff);
-	}
-
-	/**
-	 * this doesnt do much, its main purpose is to stop complaints
-	 * about 'outputStream not closed...'.
-	 * 
-	 * @throws IOException
-	 */
-	public void close() throws IOException
-	{
-
-		if (baos != null)
-		{
-			baos.close();
-			baos = null;
-		}
-		if (dos != null)
-		{
-			dos.close();
-			dos = null;
-		}
-	}
-}
-
-class IDATOutputStream extends FilterOutputStream
-{
-
-	private static final byte[] typeSignature = { (byte) 'I', (byte) 'D',
-			(byte) 'A', (byte) 'T' };
-
-	private int bytesWritten = 0;
-
-	private int segmentLength;
-
-	byte[] buffer;
-
-	public IDATOutputStream(OutputStream output, int segmentLength)
-	{
-		super(output);
-		this.segmentLength = segmentLength;
-		this.buffer = new byte[segmentLength];
-	}
-
-	public void close() throws IOException
-	{
-		flush();
-	}
-
-	private void writeInt(int x) throws IOException
-	{
-		out.write(x >> 24);
-		out.write((x >> 16) & 0xff);
-		out.write((x >> 8) & 0xff);
-		out.write(x & 0xff);
-	}
-
-	public void flush() throws IOException
-	{
-		// Length
-		writeInt(bytesWritten);
-		// 'IDAT' signature
-		out.write(typeSignature);
-		// Data
-		out.write(buffer, 0, bytesWritten);
-
-		int crc = 0xffffffff;
-		crc = CRC.updateCRC(crc, typeSignature, 0, 4);
-		crc = CRC.updateCRC(crc, buffer, 0, bytesWritten);
-
-		// CRC
-		writeInt(crc ^ 0xffffffff);
-
-		// Reset buffer
-		bytesWritten = 0;
-	}
-
-	public void write(byte[] b) throws IOException
-	{
-		this.write(b, 0, b.length);
-	}
-
-	public void write(byte[] b, int off, int len) throws IOException
-	{
-		while (len > 0)
-		{
-			int bytes = Math.min(segmentLength - bytesWritten, len);
-			System.arraycopy(b, off, buffer, bytesWritten, bytes);
-			off += bytes;
-			len -= bytes;
-			bytesWritten += bytes;
-
-			if (bytesWritten == segmentLength)
-			{
-				flush();
-			}
-		}
-	}
-
-	public void write(int b) throws IOException
-	{
-		buffer[bytesWritten++] = (byte) b;
-		if (bytesWritten == segmentLength)
-		{
-			flush();
-		}
-	}
-}
-
 /**
  * An ImageEncoder for the PNG file format.
  *
@@ -572,8 +312,8 @@ public class mxPngImageEncoder
 	private void writeIDAT() throws IOException
 	{
 		IDATOutputStream ios = new IDATOutputStream(dataOutput, 8192);
-		DeflaterOutputStream dos = new DeflaterOutputStream(ios,
-				new Deflater(9));
+		Deflater deflater = new Deflater(param.getCompressionLevel());
+		DeflaterOutputStream dos = new DeflaterOutputStream(ios, deflater);
 
 		// Future work - don't convert entire image to a Raster It
 		// might seem that you could just call image.getData() but
@@ -631,6 +371,7 @@ public class mxPngImageEncoder
 
 		dos.finish();
 		ios.flush();
+		deflater.end();
 	}
 
 	private void writeIEND() throws IOException
@@ -0,0 +1,518 @@
+/**
+ * Copyright (c) 2007-2017, JGraph Ltd
+ */
+package com.mxgraph.util.png;
+
+import java.awt.image.BufferedImage;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.LinkedList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.Adler32;
+import java.util.zip.Deflater;
+
+/**
+ * Encodes a PNG image that is rendered in horizontal bands. The bands are
+ * rendered, filtered and compressed in parallel and written to the output
+ * stream in order, so that the complete image is never held in memory.
+ *
+ * Each band is compressed into an independent sequence of deflate blocks
+ * that ends on a byte boundary. The sequences are concatenated into a
+ * single zlib stream whose checksum is combined from the checksums of the
+ * bands. The first row of each band only uses the filters that do not
+ * depend on the previous row.
+ *
+ * The image is written as 8 bit RGB, or RGBA if alpha is true, without
+ * interlacing. Only the compression level and filtering of the encode
+ * parameters are used.
+ *
+ * <code>
+ * new mxPngTiledEncoder(out, null).encode(width, height, false, renderer);
+ * </code>
+ */
+public class mxPngTiledEncoder
+{
+
+	/**
+	 * Holds the PNG signature.
+	 */
+	protected static final byte[] MAGIC = { (byte) 137, (byte) 80, (byte) 78,
+			(byte) 71, (byte) 13, (byte) 10, (byte) 26, (byte) 10 };
+
+	/**
+	 * Holds the output stream.
+	 */
+	protected OutputStream output;
+
+	/**
+	 * Holds the encode parameters.
+	 */
+	protected mxPngEncodeParam param;
+
+	/**
+	 * Specifies the height of the bands. Default is 256.
+	 */
+	protected int bandHeight = 256;
+
+	/**
+	 * Specifies the number of threads for rendering and compressing the
+	 * bands. Default is the number of available processors.
+	 */
+	protected int threads = Runtime.getRuntime().availableProcessors();
+
+	/**
+	 * Specifies the maximum length of the IDAT chunks. Default is 65536.
+	 */
+	protected int chunkLength = 65536;
+
+	/**
+	 * Constructs a new encoder for the given output stream and parameters. If
+	 * param is null then the default RGB parameters are used.
+	 */
+	public mxPngTiledEncoder(OutputStream output, mxPngEncodeParam param)
+	{
+		this.output = output;
+		this.param = (param != null) ? param : new mxPngEncodeParam.RGB();
+	}
+
+	/**
+	 * Returns the encode parameters.
+	 */
+	public mxPngEncodeParam getParam()
+	{
+		return param;
+	}
+
+	/**
+	 * Returns the height of the bands.
+	 */
+	public int getBandHeight()
+	{
+		return bandHeight;
+	}
+
+	/**
+	 * Sets the height of the bands.
+	 */
+	public void setBandHeight(int bandHeight)
+	{
+		this.bandHeight = Math.max(1, bandHeight);
+	}
+
+	/**
+	 * Returns the number of threads.
+	 */
+	public int getThreads()
+	{
+		return threads;
+	}
+
+	/**
+	 * Sets the number of threads. If the value is 1 then the bands are
+	 * rendered and compressed in the calling thread.
+	 */
+	public void setThreads(int threads)
+	{
+		this.threads = Math.max(1, threads);
+	}
+
+	/**
+	 * Returns the maximum length of the IDAT chunks.
+	 */
+	public int getChunkLength()
+	{
+		return chunkLength;
+	}
+
+	/**
+	 * Sets the maximum length of the IDAT chunks.
+	 */
+	public void setChunkLength(int chunkLength)
+	{
+		this.chunkLength = Math.max(1, chunkLength);
+	}
+
+	/**
+	 * Encodes an image with the given size using the given renderer for the
+	 * bands. The bands are rendered in parallel if the number of threads is
+	 * greater than 1.
+	 *
+	 * @param width Width of the image.
+	 * @param height Height of the image.
+	 * @param alpha Specifies if the alpha channel should be written.
+	 * @param renderer Renderer that returns the images for the bands.
+	 */
+	public void encode(final int width, final int height, final boolean alpha,
+			final BandRenderer renderer) throws IOException
+	{
+		DataOutputStream dataOutput = new DataOutputStream(output);
+		dataOutput.write(MAGIC);
+		writeIHDR(dataOutput, width, height, alpha);
+
+		IDATOutputStream ios = new IDATOutputStream(dataOutput, chunkLength);
+		ios.write(getZlibHeader());
+
+		int bands = (height + bandHeight - 1) / bandHeight;
+		long adler = 1;
+		ExecutorService executor = (threads > 1 && bands > 1) ? Executors
+				.newFixedThreadPool(Math.min(threads, bands)) : null;
+
+		try
+		{
+			LinkedList<Future<Band>> pending = new LinkedList<Future<Band>>();
+			int next = 0;
+
+			for (int i = 0; i < bands; i++)
+			{
+				Band band = null;
+
+				if (executor != null)
+				{
+					// Keeps a bounded number of bands in memory
+					while (next < bands && next < i + 2 * threads)
+					{
+						final int y = next * bandHeight;
+						final boolean last = ++next == bands;
+
+						pending.add(executor.submit(new Callable<Band>()
+						{
+							public Band call() throws Exception
+							{
+								return encodeBand(renderer, width, y, Math
+										.min(bandHeight, height - y), alpha,
+										last);
+							}
+						}));
+					}
+
+					band = getBand(pending.removeFirst());
+				}
+				else
+				{
+					int y = i * bandHeight;
+					band = encodeBand(renderer, width, y,
+							Math.min(bandHeight, height - y), alpha,
+							i == bands - 1);
+				}
+
+				ios.write(band.data, 0, band.length);
+				adler = combineAdler32(adler, band.adler, band.rawLength);
+			}
+		}
+		finally
+		{
+			if (executor != null)
+			{
+				executor.shutdownNow();
+			}
+		}
+
+		ios.write((int) (adler >>> 24) & 0xff);
+		ios.write((int) (adler >>> 16) & 0xff);
+		ios.write((int) (adler >>> 8) & 0xff);
+		ios.write((int) adler & 0xff);
+		ios.flush();
+
+		ChunkStream cs = new ChunkStream("IEND");
+		cs.writeToStream(dataOutput);
+		cs.close();
+
+		dataOutput.flush();
+	}
+
+	/**
+	 * Writes the IHDR chunk.
+	 */
+	protected void writeIHDR(DataOutputStream dataOutput, int width,
+			int height, boolean alpha) throws IOException
+	{
+		ChunkStream cs = new ChunkStream("IHDR");
+		cs.writeInt(width);
+		cs.writeInt(height);
+		cs.writeByte(8);
+		cs.writeByte((alpha) ? 6 : 2);
+		cs.writeByte(0);
+		cs.writeByte(0);
+		cs.writeByte(0);
+		cs.writeToStream(dataOutput);
+		cs.close();
+	}
+
+	/**
+	 * Returns the zlib header for the compression level.
+	 */
+	protected byte[] getZlibHeader()
+	{
+		int level = param.getCompressionLevel();
+		int flags = (level <= 1) ? 0x01 : ((level <= 5) ? 0x5e
+				: ((level == 6) ? 0x9c : 0xda));
+
+		return new byte[] { 0x78, (byte) flags };
+	}
+
+	/**
+	 * Renders, filters and compresses the band with the given position and
+	 * height. This is called from the worker threads.
+	 */
+	protected Band encodeBand(BandRenderer renderer, int width, int y,
+			int height, boolean alpha, boolean last)
+	{
+		BufferedImage image = renderer.renderBand(y, height);
+		int bpp = (alpha) ? 4 : 3;
+		int bytesPerRow = width * bpp;
+		byte[] filtered = new byte[height * (bytesPerRow + 1)];
+		byte[] prevRow = new byte[bytesPerRow + bpp];
+		byte[] currRow = new byte[bytesPerRow + bpp];
+		byte[][] scratchRows = new byte[5][bytesPerRow + bpp];
+		int[] pixels = new int[width];
+		int pos = 0;
+
+		for (int row = 0; row < height; row++)
+		{
+			image.getRGB(0, row, width, 1, pixels, 0, width);
+			int count = bpp;
+
+			for (int i = 0; i < width; i++)
+			{
+				int rgb = pixels[i];
+				currRow[count++] = (byte) (rgb >> 16);
+				currRow[count++] = (byte) (rgb >> 8);
+				currRow[count++] = (byte) rgb;
+
+				if (alpha)
+				{
+					currRow[count++] = (byte) (rgb >>> 24);
+				}
+			}
+
+			int filterType = (row == 0) ? filterFirstRow(currRow,
+					scratchRows, bytesPerRow, bpp) : param.filterRow(currRow,
+					prevRow, scratchRows, bytesPerRow, bpp);
+
+			filtered[pos++] = (byte) filterType;
+			System.arraycopy(scratchRows[filterType], bpp, filtered, pos,
+					bytesPerRow);
+			pos += bytesPerRow;
+
+			byte[] swap = currRow;
+			currRow = prevRow;
+			prevRow = swap;
+		}
+
+		Adler32 adler = new Adler32();
+		adler.update(filtered, 0, pos);
+
+		Deflater deflater = new Deflater(param.getCompressionLevel(), true);
+		byte[] data = new byte[pos / 4 + 64];
+		int length = 0;
+
+		try
+		{
+			deflater.setInput(filtered, 0, pos);
+
+			if (last)
+			{
+				deflater.finish();
+			}
+
+			while (true)
+			{
+				if (length == data.length)
+				{
+					byte[] tmp = new byte[data.length * 2];
+					System.arraycopy(data, 0, tmp, 0, length);
+					data = tmp;
+				}
+
+				if (last)
+				{
+					length += deflater.deflate(data, length, data.length
+							- length);
+
+					if (deflater.finished())
+					{
+						break;
+					}
+				}
+				else
+				{
+					// Ends the band on a byte boundary without a final block
+					int n = deflater.deflate(data, length,
+							data.length - length, Deflater.SYNC_FLUSH);
+					length += n;
+
+					if (length < data.length)
+					{
+						break;
+					}
+				}
+			}
+		}
+		finally
+		{
+			deflater.end();
+		}
+
+		return new Band(data, length, adler.getValue(), pos);
+	}
+
+	/**
+	 * Filters the first row of a band with the sub filter or no filter,
+	 * whichever results in the smaller sum of absolute differences, and
+	 * returns the filter type.
+	 */
+	protected int filterFirstRow(byte[] currRow, byte[][] scratchRows,
+			int bytesPerRow, int bpp)
+	{
+		long none = 0;
+		long sub = 0;
+
+		for (int i = bpp; i < bytesPerRow + bpp; i++)
+		{
+			int curr = currRow[i] & 0xff;
+			int diff = curr - (currRow[i - bpp] & 0xff);
+			scratchRows[1][i] = (byte) diff;
+			none += curr;
+			sub += (diff >= 0) ? diff : -diff;
+		}
+
+		if (sub < none)
+		{
+			return 1;
+		}
+
+		System.arraycopy(currRow, bpp, scratchRows[0], bpp, bytesPerRow);
+
+		return 0;
+	}
+
+	/**
+	 * Waits for the given band and rethrows any exception.
+	 */
+	protected Band getBand(Future<Band> future) throws IOException
+	{
+		try
+		{
+			return future.get();
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+
+			throw new IOException(e);
+		}
+		catch (ExecutionException e)
+		{
+			Throwable cause = e.getCause();
+
+			if (cause instanceof RuntimeException)
+			{
+				throw (RuntimeException) cause;
+			}
+			else if (cause instanceof Error)
+			{
+				throw (Error) cause;
+			}
+
+			throw new IOException(cause);
+		}
+	}
+
+	/**
+	 * Returns the Adler-32 checksum of the concatenation of two sequences
+	 * with the given checksums, where the second sequence has the given
+	 * length.
+	 */
+	public static long combineAdler32(long adler1, long adler2, long length2)
+	{
+		final long base = 65521;
+		long rem = length2 % base;
+		long sum1 = adler1 & 0xffff;
+		long sum2 = (rem * sum1) % base;
+		sum1 += (adler2 & 0xffff) + base - 1;
+		sum2 += ((adler1 >> 16) & 0xffff) + ((adler2 >> 16) & 0xffff) + base
+				- rem;
+
+		if (sum1 >= base)
+		{
+			sum1 -= base;
+		}
+
+		if (sum1 >= base)
+		{
+			sum1 -= base;
+		}
+
+		if (sum2 >= (base << 1))
+		{
+			sum2 -= (base << 1);
+		}
+
+		if (sum2 >= base)
+		{
+			sum2 -= base;
+		}
+
+		return sum1 | (sum2 << 16);
+	}
+
+	/**
+	 * Holds the compressed data of a band.
+	 */
+	protected static class Band
+	{
+
+		/**
+		 * Holds the compressed data.
+		 */
+		protected byte[] data;
+
+		/**
+		 * Holds the length of the compressed data.
+		 */
+		protected int length;
+
+		/**
+		 * Holds the checksum of the uncompressed data.
+		 */
+		protected long adler;
+
+		/**
+		 * Holds the length of the uncompressed data.
+		 */
+		protected long rawLength;
+
+		/**
+		 * Constructs a new band.
+		 */
+		public Band(byte[] data, int length, long adler, long rawLength)
+		{
+			this.data = data;
+			this.length = length;
+			this.adler = adler;
+			this.rawLength = rawLength;
+		}
+
+	}
+
+	/**
+	 * Renders the bands of the image.
+	 */
+	public static abstract class BandRenderer
+	{
+
+		/**
+		 * Returns an image with the width of the encoded image and the given
+		 * height that contains the rows starting at y. This may be invoked
+		 * from several threads at the same time.
+		 */
+		public abstract BufferedImage renderBand(int y, int height);
+
+	}
+
+}
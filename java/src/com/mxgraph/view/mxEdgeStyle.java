@@ -713,6 +713,11 @@ public class mxEdgeStyle
 	public static double[][] dirVectors = new double[][] { { -1, 0 },
 			{ 0, -1 }, { 1, 0 }, { 0, 1 }, { -1, 0 }, { 0, -1 }, { 1, 0 } };
 
+	/**
+	 * @deprecated No longer used by OrthConnector, which keeps its working
+	 * data in a thread-confined mxOrthRoutingContext.
+	 */
+	@Deprecated
 	public static double[][] wayPoints1 = new double[128][2];
 
 	/**
@@ -742,8 +747,18 @@ public class mxEdgeStyle
 			{ null, { 2114, 2561 }, null, null },
 			{ { 2081, 2562 }, { 1057, 2114, 2568 }, { 2184, 2562 }, null } };
 
+	/**
+	 * @deprecated No longer used by OrthConnector, which keeps its working
+	 * data in a thread-confined mxOrthRoutingContext.
+	 */
+	@Deprecated
 	public static double[] vertexSeperations = new double[5];
 
+	/**
+	 * @deprecated No longer used by OrthConnector, which keeps its working
+	 * data in a thread-confined mxOrthRoutingContext.
+	 */
+	@Deprecated
 	public static double[][] limits = new double[2][9];
 
 	public static int LEFT_MASK = 32;
@@ -777,6 +792,81 @@ public class mxEdgeStyle
 
 	public static double hozBendProportion = 0.5;
 
+	/**
+	 * Holds the working data for a single invocation of OrthConnector. Each
+	 * thread reuses its own instance so that edges can be routed concurrently
+	 * without allocating the arrays for each edge.
+	 */
+	protected static class mxOrthRoutingContext
+	{
+
+		/**
+		 * Holds the way points of the route.
+		 */
+		protected double[][] wayPoints = new double[128][2];
+
+		/**
+		 * Holds the buffered side limits of the source and target.
+		 */
+		protected double[][] limits = new double[2][9];
+
+		/**
+		 * Holds the distances between the vertices per direction.
+		 */
+		protected double[] vertexSeperations = new double[5];
+
+		/**
+		 * Holds the bounds of the source and target as [x, y, width, height].
+		 */
+		protected double[][] geo = new double[2][4];
+
+		/**
+		 * Holds the relative connection points of the source and target.
+		 */
+		protected double[][] constraint = new double[2][2];
+
+		/**
+		 * Holds the port constraints, directions and preferences of the
+		 * source and target.
+		 */
+		protected int[] portConstraint = new int[2], dir = new int[2],
+				dirPref = new int[2], horPref = new int[2],
+				vertPref = new int[2];
+
+		/**
+		 * Holds the ordered preferred directions of the source and target.
+		 */
+		protected int[][] prefOrdering = new int[2][2];
+
+		/**
+		 * Resets the values which are not assigned on each invocation.
+		 */
+		protected void reset()
+		{
+			for (int i = 0; i < 2; i++)
+			{
+				constraint[i][0] = 0.5;
+				constraint[i][1] = 0.5;
+				dir[i] = 0;
+				dirPref[i] = 0;
+				prefOrdering[i][0] = 0;
+				prefOrdering[i][1] = 0;
+			}
+		}
+
+	}
+
+	/**
+	 * Holds the routing context of OrthConnector for the current thread.
+	 */
+	protected static ThreadLocal<mxOrthRoutingContext> orthRoutingContext = new ThreadLocal<mxOrthRoutingContext>()
+	{
+		protected mxOrthRoutingContext initialValue()
+		{
+			return new mxOrthRoutingContext();
+		}
+	};
+
 	/**
 	 * An orthogonal connector that avoids connecting vertices and 
 	 * respects port constraints
@@ -802,25 +892,33 @@ public class mxEdgeStyle
 
 			if (source != null && target != null)
 			{
+				// Uses the working arrays of the current thread
+				mxOrthRoutingContext ctx = orthRoutingContext.get();
+				ctx.reset();
+
+				double[][] wayPoints = ctx.wayPoints;
+				double[][] limits = ctx.limits;
+				double[] vertexSeperations = ctx.vertexSeperations;
+
 				double scaledOrthBuffer = orthBuffer
 						* state.getView().getScale();
 				// Determine the side(s) of the source and target vertices
 				// that the edge may connect to
 				// portConstraint -> [source, target];
-				int portConstraint[] = new int[2];
+				int portConstraint[] = ctx.portConstraint;
 				portConstraint[0] = mxUtils.getPortConstraints(source, state,
 						true);
 				portConstraint[1] = mxUtils.getPortConstraints(target, state,
 						false);
 
 				// dir -> [source, target] initial direction leaving vertices
-				int dir[] = new int[2];
+				int dir[] = ctx.dir;
 
 				// Work out which faces of the vertices present against each other
 				// in a way that would allow a 3-segment connection if port constraints
 				// permitted.
 				// geo -> [source, target] [x, y, width, height]
-				double[][] geo = new double[2][4];
+				double[][] geo = ctx.geo;
 				geo[0][0] = source.getX();
 				geo[0][1] = source.getY();
 				geo[0][2] = source.getWidth();
@@ -883,8 +981,7 @@ public class mxEdgeStyle
 				mxPoint currentTerm = p0;
 
 				// constraint[source, target] [x, y]
-				double constraint[][] = new double[][] { { 0.5, 0.5 },
-						{ 0.5, 0.5 } };
+				double constraint[][] = ctx.constraint;
 
 				for (int i = 0; i < 2; i++)
 				{
@@ -937,9 +1034,9 @@ public class mxEdgeStyle
 
 				// Work through the preferred orientations by relative positioning
 				// of the vertices and list them in preferred and available order
-				int dirPref[] = new int[2];
-				int horPref[] = new int[2];
-				int vertPref[] = new int[2];
+				int dirPref[] = ctx.dirPref;
+				int horPref[] = ctx.horPref;
+				int vertPref[] = ctx.vertPref;
 
 				horPref[0] = sourceLeftDist >= sourceRightDist ? mxConstants.DIRECTION_MASK_WEST
 						: mxConstants.DIRECTION_MASK_EAST;
@@ -954,7 +1051,7 @@ public class mxEdgeStyle
 				double preferredVertDist = sourceTopDist >= sourceBottomDist ? sourceTopDist
 						: sourceBottomDist;
 
-				int prefOrdering[][] = new int[2][2];
+				int prefOrdering[][] = ctx.prefOrdering;
 				boolean preferredOrderSet = false;
 
 				// If the preferred port isn't available, switch it
@@ -1079,26 +1176,26 @@ public class mxEdgeStyle
 
 				}
 
-				wayPoints1[0][0] = geo[0][0];
-				wayPoints1[0][1] = geo[0][1];
+				wayPoints[0][0] = geo[0][0];
+				wayPoints[0][1] = geo[0][1];
 
 				switch (dir[0])
 				{
 					case mxConstants.DIRECTION_MASK_WEST:
-						wayPoints1[0][0] -= scaledOrthBuffer;
-						wayPoints1[0][1] += constraint[0][1] * geo[0][3];
+						wayPoints[0][0] -= scaledOrthBuffer;
+						wayPoints[0][1] += constraint[0][1] * geo[0][3];
 						break;
 					case mxConstants.DIRECTION_MASK_SOUTH:
-						wayPoints1[0][0] += constraint[0][0] * geo[0][2];
-						wayPoints1[0][1] += geo[0][3] + scaledOrthBuffer;
+						wayPoints[0][0] += constraint[0][0] * geo[0][2];
+						wayPoints[0][1] += geo[0][3] + scaledOrthBuffer;
 						break;
 					case mxConstants.DIRECTION_MASK_EAST:
-						wayPoints1[0][0] += geo[0][2] + scaledOrthBuffer;
-						wayPoints1[0][1] += constraint[0][1] * geo[0][3];
+						wayPoints[0][0] += geo[0][2] + scaledOrthBuffer;
+						wayPoints[0][1] += constraint[0][1] * geo[0][3];
 						break;
 					case mxConstants.DIRECTION_MASK_NORTH:
-						wayPoints1[0][0] += constraint[0][0] * geo[0][2];
-						wayPoints1[0][1] -= scaledOrthBuffer;
+						wayPoints[0][0] += constraint[0][0] * geo[0][2];
+						wayPoints[0][1] -= scaledOrthBuffer;
 						break;
 				}
 
@@ -1138,8 +1235,8 @@ public class mxEdgeStyle
 						// We can't base the new position on index - 1
 						// because sometime elbows turn out not to exist,
 						// then we'd have to rewind.
-						wayPoints1[currentIndex][0] = wayPoints1[currentIndex - 1][0];
-						wayPoints1[currentIndex][1] = wayPoints1[currentIndex - 1][1];
+						wayPoints[currentIndex][0] = wayPoints[currentIndex - 1][0];
+						wayPoints[currentIndex][1] = wayPoints[currentIndex - 1][1];
 					}
 
 					boolean tar = (routePattern[i] & TARGET_MASK) > 0;
@@ -1176,23 +1273,23 @@ public class mxEdgeStyle
 
 						if (currentOrientation == 0)
 						{
-							double lastX = wayPoints1[currentIndex][0];
+							double lastX = wayPoints[currentIndex][0];
 							double deltaX = (limit - lastX) * direction[0];
 
 							if (deltaX > 0)
 							{
-								wayPoints1[currentIndex][0] += direction[0]
+								wayPoints[currentIndex][0] += direction[0]
 										* deltaX;
 							}
 						}
 						else
 						{
-							double lastY = wayPoints1[currentIndex][1];
+							double lastY = wayPoints[currentIndex][1];
 							double deltaY = (limit - lastY) * direction[1];
 
 							if (deltaY > 0)
 							{
-								wayPoints1[currentIndex][1] += direction[1]
+								wayPoints[currentIndex][1] += direction[1]
 										* deltaY;
 							}
 						}
@@ -1201,14 +1298,14 @@ public class mxEdgeStyle
 					else if (center)
 					{
 						// Which center we're travelling to depend on the current direction
-						wayPoints1[currentIndex][0] += direction[0]
+						wayPoints[currentIndex][0] += direction[0]
 								* Math.abs(vertexSeperations[directionIndex] / 2);
-						wayPoints1[currentIndex][1] += direction[1]
+						wayPoints[currentIndex][1] += direction[1]
 								* Math.abs(vertexSeperations[directionIndex] / 2);
 					}
 
 					if (currentIndex > 0
-							&& wayPoints1[currentIndex][currentOrientation] == wayPoints1[currentIndex - 1][currentOrientation])
+							&& wayPoints[currentIndex][currentOrientation] == wayPoints[currentIndex - 1][currentOrientation])
 					{
 						currentIndex--;
 					}
@@ -1220,7 +1317,7 @@ public class mxEdgeStyle
 
 				for (int i = 0; i <= currentIndex; i++)
 				{
-					result.add(new mxPoint(wayPoints1[i][0], wayPoints1[i][1]));
+					result.add(new mxPoint(wayPoints[i][0], wayPoints[i][1]));
 				}
 
 			}
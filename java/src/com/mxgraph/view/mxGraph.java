@@ -1206,7 +1206,9 @@ public class mxGraph extends mxEventSource
 	/**
 	 * Tries to resolve the value for the image style in the image bundles and
 	 * turns short data URIs as defined in mxImageBundle to data URIs as
-	 * defined in RFC 2397 of the IETF.
+	 * defined in RFC 2397 of the IETF. The given style is shared by all cells
+	 * with the same style string, so a copy is returned if the image is
+	 * changed.
 	 */
 	protected Map<String, Object> postProcessCellStyle(
 			Map<String, Object> style)
@@ -1216,11 +1218,7 @@ public class mxGraph extends mxEventSource
 			String key = mxUtils.getString(style, mxConstants.STYLE_IMAGE);
 			String image = getImageFromBundles(key);
 
-			if (image != null)
-			{
-				style.put(mxConstants.STYLE_IMAGE, image);
-			}
-			else
+			if (image == null)
 			{
 				image = key;
 			}
@@ -1235,7 +1233,11 @@ public class mxGraph extends mxEventSource
 					image = image.substring(0, comma) + ";base64,"
 							+ image.substring(comma + 1);
 				}
+			}
 
+			if (image != null && !image.equals(key))
+			{
+				style = new Hashtable<String, Object>(style);
 				style.put(mxConstants.STYLE_IMAGE, image);
 			}
 		}
@@ -6,8 +6,12 @@ package com.mxgraph.view;
 import java.awt.geom.Line2D;
 import java.util.ArrayList;
 import java.util.Hashtable;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 import com.mxgraph.model.mxGeometry;
 import com.mxgraph.model.mxGraphModel;
@@ -96,6 +100,71 @@ public class mxGraphView extends mxEventSource
 	 */
 	protected Hashtable<Object, mxCellState> states = new Hashtable<Object, mxCellState>();
 
+	/**
+	 * Spatial index over the bounding boxes of the vertex and edge states.
+	 * This is updated in validateCellState and removeState and rebuilt lazily
+	 * in getSpatialIndex if it is null, eg. after setStates.
+	 */
+	protected mxSpatialIndex spatialIndex = new mxSpatialIndex();
+
+	/**
+	 * Specifies if the spatial index should be maintained and used for region
+	 * queries. Default is true.
+	 */
+	protected boolean spatialIndexEnabled = true;
+
+	/**
+	 * Specifies if validate should only revalidate the cells that have been
+	 * invalidated or cleared since the last validation. This requires the
+	 * spatial index, which is used to update the graph bounds, so validate
+	 * falls back to a full validation if spatialIndexEnabled is false (see
+	 * isIncrementalValidationActive). Default is false.
+	 */
+	protected boolean incrementalValidation = false;
+
+	/**
+	 * Holds the cells that have been invalidated or cleared since the last
+	 * validation.
+	 */
+	protected Set<Object> dirtyCells = new LinkedHashSet<Object>();
+
+	/**
+	 * Specifies if the next validation must validate all cells, eg. after the
+	 * root has been invalidated or the scale or translate have changed.
+	 */
+	protected boolean fullValidation = true;
+
+	/**
+	 * Holds the cell where the last full validation started.
+	 */
+	protected Object validationRoot;
+
+	/**
+	 * Specifies if a full validation should update the vertex states on
+	 * multiple threads before the edge states are updated on the calling
+	 * thread. This requires that all methods involved in updating vertex
+	 * states, eg. getCellStyle, getLabel and getChildOffsetForCell in the
+	 * graph, are thread-safe. Default is false.
+	 */
+	protected boolean parallelValidation = false;
+
+	/**
+	 * Holds the pool for the parallel validation. If this is null then a pool
+	 * shared by all views is used.
+	 */
+	protected ForkJoinPool validationPool;
+
+	/**
+	 * Specifies the number of cells below which the vertex states are updated
+	 * sequentially in a parallel validation task. Default is 256.
+	 */
+	protected int parallelValidationThreshold = 256;
+
+	/**
+	 * Holds the pool that is shared by all views for parallel validation.
+	 */
+	protected static ForkJoinPool sharedValidationPool;
+
 	/**
 	 * Constructs a new view for the given graph.
 	 * 
@@ -131,6 +200,295 @@ public class mxGraphView extends mxEventSource
 	public void setStates(Hashtable<Object, mxCellState> states)
 	{
 		this.states = states;
+		spatialIndex = null;
+		fullValidation = true;
+	}
+
+	/**
+	 * Returns true if validate should only revalidate the cells that have
+	 * been invalidated since the last validation. Note that this is only
+	 * done if the spatial index is enabled.
+	 */
+	public boolean isIncrementalValidation()
+	{
+		return incrementalValidation;
+	}
+
+	/**
+	 * Returns true if incremental validation is enabled and the spatial index,
+	 * which it requires, is enabled as well.
+	 */
+	public boolean isIncrementalValidationActive()
+	{
+		return incrementalValidation && spatialIndexEnabled;
+	}
+
+	/**
+	 * Sets if validate should only revalidate the cells that have been
+	 * invalidated since the last validation. This requires the spatial index
+	 * (see setSpatialIndexEnabled), otherwise all cells are validated. Use
+	 * revalidate to force a validation of all cells.
+	 */
+	public void setIncrementalValidation(boolean value)
+	{
+		incrementalValidation = value;
+	}
+
+	/**
+	 * Returns true if vertex states are updated on multiple threads in a full
+	 * validation.
+	 */
+	public boolean isParallelValidation()
+	{
+		return parallelValidation;
+	}
+
+	/**
+	 * Sets if vertex states are updated on multiple threads in a full
+	 * validation.
+	 */
+	public void setParallelValidation(boolean value)
+	{
+		parallelValidation = value;
+	}
+
+	/**
+	 * Returns the pool for the parallel validation.
+	 */
+	public ForkJoinPool getValidationPool()
+	{
+		return (validationPool != null) ? validationPool
+				: getSharedValidationPool();
+	}
+
+	/**
+	 * Sets the pool for the parallel validation. If the pool is null then a
+	 * pool shared by all views is used.
+	 */
+	public void setValidationPool(ForkJoinPool value)
+	{
+		validationPool = value;
+	}
+
+	/**
+	 * Returns the number of cells below which the vertex states are updated
+	 * sequentially in a parallel validation task.
+	 */
+	public int getParallelValidationThreshold()
+	{
+		return parallelValidationThreshold;
+	}
+
+	/**
+	 * Sets the number of cells below which the vertex states are updated
+	 * sequentially in a parallel validation task.
+	 */
+	public void setParallelValidationThreshold(int value)
+	{
+		parallelValidationThreshold = Math.max(1, value);
+	}
+
+	/**
+	 * Returns the pool that is shared by all views for parallel validation.
+	 * The pool is created on the first call.
+	 */
+	protected static synchronized ForkJoinPool getSharedValidationPool()
+	{
+		if (sharedValidationPool == null)
+		{
+			sharedValidationPool = new ForkJoinPool();
+		}
+
+		return sharedValidationPool;
+	}
+
+	/**
+	 * Returns true if the spatial index is maintained and used for region
+	 * queries.
+	 */
+	public boolean isSpatialIndexEnabled()
+	{
+		return spatialIndexEnabled;
+	}
+
+	/**
+	 * Sets if the spatial index should be maintained and used for region
+	 * queries. The index is rebuilt on the next call to getSpatialIndex.
+	 * Disabling the index also disables incremental validation.
+	 */
+	public void setSpatialIndexEnabled(boolean value)
+	{
+		spatialIndexEnabled = value;
+		spatialIndex = null;
+		fullValidation = true;
+	}
+
+	/**
+	 * Returns the spatial index that maps from cells to the bounding boxes of
+	 * their states or null if the index is disabled. The index is rebuilt
+	 * from the existing states if required.
+	 */
+	public mxSpatialIndex getSpatialIndex()
+	{
+		if (spatialIndex == null && spatialIndexEnabled)
+		{
+			spatialIndex = new mxSpatialIndex();
+
+			for (mxCellState state : states.values())
+			{
+				updateSpatialIndex(state);
+			}
+		}
+
+		return (spatialIndexEnabled) ? spatialIndex : null;
+	}
+
+	/**
+	 * Returns the cells whose bounding boxes intersect the given rectangle.
+	 * The order of the returned cells is undefined. Uses the spatial index if
+	 * it is enabled or checks all states otherwise.
+	 * 
+	 * @param rect
+	 *            Rectangle in screen coordinates.
+	 */
+	public List<Object> getCellsForRegion(mxRectangle rect)
+	{
+		mxSpatialIndex index = getSpatialIndex();
+
+		if (index != null)
+		{
+			return index.query(rect);
+		}
+
+		List<Object> result = new ArrayList<Object>();
+
+		for (mxCellState state : states.values())
+		{
+			mxRectangle bbox = state.getBoundingBox();
+
+			if (bbox != null && bbox.getX() <= rect.getX() + rect.getWidth()
+					&& rect.getX() <= bbox.getX() + bbox.getWidth()
+					&& bbox.getY() <= rect.getY() + rect.getHeight()
+					&& rect.getY() <= bbox.getY() + bbox.getHeight())
+			{
+				result.add(state.getCell());
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Returns the cells whose bounding boxes intersect the given rectangle in
+	 * the order in which they are painted, that is, in preorder of the cell
+	 * hierarchy. Uses the order keys of the spatial index if it is enabled,
+	 * which are only recomputed after cells have been added to the index.
+	 * 
+	 * @param rect
+	 *            Rectangle in screen coordinates.
+	 */
+	public List<Object> getOrderedCellsForRegion(mxRectangle rect)
+	{
+		mxSpatialIndex index = getSpatialIndex();
+
+		if (index != null)
+		{
+			if (!index.isOrdered())
+			{
+				updateOrder(index);
+			}
+
+			List<Object> result = index.query(rect);
+			index.sort(result);
+
+			return result;
+		}
+
+		List<Object> result = new ArrayList<Object>();
+
+		for (Object cell : getCellsInPaintOrder())
+		{
+			mxCellState state = states.get(cell);
+			mxRectangle bbox = (state != null) ? state.getBoundingBox() : null;
+
+			if (bbox != null && bbox.getX() <= rect.getX() + rect.getWidth()
+					&& rect.getX() <= bbox.getX() + bbox.getWidth()
+					&& bbox.getY() <= rect.getY() + rect.getHeight()
+					&& rect.getY() <= bbox.getY() + bbox.getHeight())
+			{
+				result.add(cell);
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Assigns increasing order keys to the cells in the given index in the
+	 * order in which they are painted and marks the index as ordered.
+	 */
+	protected void updateOrder(mxSpatialIndex index)
+	{
+		int order = 0;
+
+		for (Object cell : getCellsInPaintOrder())
+		{
+			index.setOrder(cell, order++);
+		}
+
+		index.setOrdered(true);
+	}
+
+	/**
+	 * Returns all cells in the model in the order in which they are painted,
+	 * that is, in preorder of the cell hierarchy starting at the root.
+	 */
+	protected List<Object> getCellsInPaintOrder()
+	{
+		mxIGraphModel model = graph.getModel();
+		List<Object> result = new ArrayList<Object>();
+		List<Object> stack = new ArrayList<Object>();
+		Object root = model.getRoot();
+
+		if (root != null)
+		{
+			stack.add(root);
+		}
+
+		while (!stack.isEmpty())
+		{
+			Object cell = stack.remove(stack.size() - 1);
+			result.add(cell);
+
+			// Pushes the children in reverse order to visit the first child next
+			for (int i = model.getChildCount(cell) - 1; i >= 0; i--)
+			{
+				stack.add(model.getChildAt(cell, i));
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Updates the entry of the given state in the spatial index. States that
+	 * are no longer in the view or have no bounding box are removed.
+	 */
+	protected void updateSpatialIndex(mxCellState state)
+	{
+		if (spatialIndex != null)
+		{
+			Object cell = state.getCell();
+
+			if (states.get(cell) == state && state.getBoundingBox() != null)
+			{
+				spatialIndex.put(cell, state.getBoundingBox());
+			}
+			else
+			{
+				spatialIndex.remove(cell);
+			}
+		}
 	}
 
 	/**
@@ -362,11 +720,19 @@ public class mxGraphView extends mxEventSource
 	public void reload()
 	{
 		states.clear();
+		fullValidation = true;
+
+		if (spatialIndex != null)
+		{
+			spatialIndex.clear();
+		}
+
 		validate();
 	}
 
 	/**
-	 * 
+	 * Invalidates and validates all cells. This forces a full validation if
+	 * incremental validation is enabled.
 	 */
 	public void revalidate()
 	{
@@ -392,6 +758,7 @@ public class mxGraphView extends mxEventSource
 	 */
 	public void clear(Object cell, boolean force, boolean recurse)
 	{
+		markDirty(cell);
 		removeState(cell);
 
 		if (recurse && (force || cell != currentRoot))
@@ -418,6 +785,7 @@ public class mxGraphView extends mxEventSource
 	{
 		mxIGraphModel model = graph.getModel();
 		cell = (cell != null) ? cell : model.getRoot();
+		markDirty(cell);
 		mxCellState state = getState(cell);
 
 		if (state == null || !state.isInvalid())
@@ -446,17 +814,244 @@ public class mxGraphView extends mxEventSource
 		}
 	}
 
+	/**
+	 * Adds the given cell to the cells to be revalidated in the next
+	 * incremental validation. If the cell is the root of the validation or
+	 * incremental validation is not active then the next validation is a
+	 * full validation and the cell is not stored.
+	 */
+	protected void markDirty(Object cell)
+	{
+		if (cell == currentRoot || cell == graph.getModel().getRoot()
+				|| !isIncrementalValidationActive())
+		{
+			fullValidation = true;
+			dirtyCells.clear();
+		}
+		else if (!fullValidation && cell != null)
+		{
+			dirtyCells.add(cell);
+		}
+	}
+
 	/**
 	 * First validates all bounds and then validates all points recursively on
-	 * all visible cells.
+	 * all visible cells. If incremental validation is active (see
+	 * isIncrementalValidationActive) and the root has not been invalidated
+	 * then only the cells that have been invalidated since the last
+	 * validation are validated.
 	 */
 	public void validate()
 	{
-		mxRectangle graphBounds = getBoundingBox(validateCellState(validateCell((currentRoot != null) ? currentRoot
-				: graph.getModel().getRoot())));
+		Object root = (currentRoot != null) ? currentRoot : graph.getModel()
+				.getRoot();
+
+		if (isIncrementalValidationActive() && !fullValidation
+				&& root == validationRoot)
+		{
+			validateDirtyCells(root);
+		}
+		else
+		{
+			fullValidation = false;
+			dirtyCells.clear();
+			validationRoot = root;
+			Object cell = validateCell(root);
+
+			if (parallelValidation)
+			{
+				validateVertexStates(cell);
+			}
+
+			mxRectangle graphBounds = getBoundingBox(validateCellState(cell));
+			setGraphBounds((graphBounds != null) ? graphBounds
+					: new mxRectangle());
+		}
+	}
+
+	/**
+	 * Updates the invalid states of the descendants of the given cell that
+	 * are not edges, not descendants of edges and do not have HTML labels
+	 * using the validation pool. The children of a cell are updated after the
+	 * cell. All other states are left invalid to be updated by
+	 * validateCellState on the calling thread, which yields the same states
+	 * as a sequential validation. The spatial index is rebuilt on the next
+	 * call to getSpatialIndex.
+	 * 
+	 * @param root
+	 *            Cell whose descendants should be updated.
+	 */
+	protected void validateVertexStates(Object root)
+	{
+		if (root != null && validateCellState(root, false) != null)
+		{
+			List<Object> cells = getParallelValidationCells(root);
+
+			if (!cells.isEmpty())
+			{
+				spatialIndex = null;
+				getValidationPool().invoke(
+						new mxValidationTask(cells, 0, cells.size()));
+			}
+		}
+	}
+
+	/**
+	 * Returns the children of the given cell whose states can be updated in
+	 * validateVertexStates.
+	 */
+	protected List<Object> getParallelValidationCells(Object parent)
+	{
+		mxIGraphModel model = graph.getModel();
+		int childCount = model.getChildCount(parent);
+		List<Object> result = new ArrayList<Object>(childCount);
+
+		for (int i = 0; i < childCount; i++)
+		{
+			Object child = model.getChildAt(parent, i);
+
+			if (!model.isEdge(child) && !graph.isHtmlLabel(child)
+					&& getState(child) != null)
+			{
+				result.add(child);
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Updates the states for a range of cells in a list and then their
+	 * children. Ranges that are larger than the parallel validation threshold
+	 * are split into two tasks.
+	 */
+	protected class mxValidationTask extends RecursiveAction
+	{
+
+		/**
+		 * 
+		 */
+		private static final long serialVersionUID = -2836453410367153436L;
+
+		/**
+		 * Holds the cells to be validated.
+		 */
+		protected List<Object> cells;
+
+		/**
+		 * Holds the start (inclusive) and end (exclusive) of the range.
+		 */
+		protected int from, to;
+
+		/**
+		 * 
+		 */
+		public mxValidationTask(List<Object> cells, int from, int to)
+		{
+			this.cells = cells;
+			this.from = from;
+			this.to = to;
+		}
+
+		/**
+		 * 
+		 */
+		protected void compute()
+		{
+			if (to - from > parallelValidationThreshold)
+			{
+				int mid = (from + to) >>> 1;
+				invokeAll(new mxValidationTask(cells, from, mid),
+						new mxValidationTask(cells, mid, to));
+			}
+			else
+			{
+				List<Object> children = new ArrayList<Object>();
+
+				for (int i = from; i < to; i++)
+				{
+					Object cell = cells.get(i);
+					validateCellState(cell, false);
+					children.addAll(getParallelValidationCells(cell));
+				}
+
+				if (!children.isEmpty())
+				{
+					new mxValidationTask(children, 0, children.size())
+							.compute();
+				}
+			}
+		}
+
+	}
+
+	/**
+	 * Validates the cells that have been invalidated or cleared since the last
+	 * validation and their descendants, and updates the graph bounds from the
+	 * spatial index. Cells that are not descendants of the given root are
+	 * ignored.
+	 * 
+	 * @param root
+	 *            Cell where the validation starts.
+	 */
+	protected void validateDirtyCells(Object root)
+	{
+		Object[] cells = dirtyCells.toArray();
+		dirtyCells.clear();
+
+		mxIGraphModel model = graph.getModel();
+		List<Object> roots = new ArrayList<Object>(cells.length);
+
+		for (int i = 0; i < cells.length; i++)
+		{
+			if (model.isAncestor(root, cells[i]))
+			{
+				roots.add(cells[i]);
+			}
+		}
+
+		// Creates and removes the states first so that all terminals exist
+		for (Object cell : roots)
+		{
+			validateCell(cell, isAncestorVisible(cell, root));
+		}
+
+		for (Object cell : roots)
+		{
+			validateCellState(cell);
+		}
+
+		mxRectangle graphBounds = getSpatialIndex().getBounds();
 		setGraphBounds((graphBounds != null) ? graphBounds : new mxRectangle());
 	}
 
+	/**
+	 * Returns true if all ancestors of the given cell below and including the
+	 * given root are visible and expanded, ie. if validateCell would be
+	 * invoked with visible set to true for the given cell.
+	 */
+	protected boolean isAncestorVisible(Object cell, Object root)
+	{
+		mxIGraphModel model = graph.getModel();
+		Object tmp = model.getParent(cell);
+		boolean visible = true;
+
+		while (visible && tmp != null)
+		{
+			visible = graph.isCellVisible(tmp)
+					&& (!graph.isCellCollapsed(tmp) || tmp == currentRoot);
+
+			if (tmp == root)
+			{
+				break;
+			}
+
+			tmp = model.getParent(tmp);
+		}
+
+		return visible;
+	}
+
 	/**
 	 * Shortcut to validateCell with visible set to true.
 	 */
@@ -611,6 +1206,7 @@ public class mxGraphView extends mxEventSource
 					{
 						updateLabelBounds(state);
 						updateBoundingBox(state);
+						updateSpatialIndex(state);
 					}
 				}
 
@@ -1842,6 +2438,11 @@ public class mxGraphView extends mxEventSource
 	 */
 	public mxCellState removeState(Object cell)
 	{
+		if (cell != null && spatialIndex != null)
+		{
+			spatialIndex.remove(cell);
+		}
+
 		return (cell != null) ? (mxCellState) states.remove(cell) : null;
 	}
 
@@ -0,0 +1,707 @@
+/**
+ * Copyright (c) 2007-2017, JGraph Ltd
+ */
+package com.mxgraph.view;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.Map;
+
+import com.mxgraph.util.mxRectangle;
+
+/**
+ * Implements an R-tree (Guttman, quadratic split) that maps cells to
+ * rectangles for fast region queries. The index is maintained incrementally
+ * by mxGraphView as cell states are validated and removed, so that hit
+ * detection and rubberband selection do not have to visit every state.
+ */
+public class mxSpatialIndex
+{
+
+	/**
+	 * Defines the maximum number of children per node. Default is 16.
+	 */
+	public static int MAX_ENTRIES = 16;
+
+	/**
+	 * Defines the minimum number of children per non-root node. Default is 6.
+	 */
+	public static int MIN_ENTRIES = 6;
+
+	/**
+	 * Maps from cells to their entries in the tree.
+	 */
+	protected Map<Object, Entry> entries = new Hashtable<Object, Entry>();
+
+	/**
+	 * Holds the root node of the tree.
+	 */
+	protected Node root = new Node(true);
+
+	/**
+	 * Specifies if the order keys of all entries are up to date. This is set
+	 * to false if a cell is added to the index. Default is true.
+	 */
+	protected boolean ordered = true;
+
+	/**
+	 * Returns the number of cells in the index.
+	 */
+	public int size()
+	{
+		return entries.size();
+	}
+
+	/**
+	 * Returns true if the given cell is in the index.
+	 */
+	public boolean contains(Object cell)
+	{
+		return entries.containsKey(cell);
+	}
+
+	/**
+	 * Removes all cells from the index.
+	 */
+	public void clear()
+	{
+		entries.clear();
+		root = new Node(true);
+		ordered = true;
+	}
+
+	/**
+	 * Returns true if the order keys of all cells in the index are up to date.
+	 */
+	public boolean isOrdered()
+	{
+		return ordered;
+	}
+
+	/**
+	 * Sets if the order keys of all cells in the index are up to date.
+	 */
+	public void setOrdered(boolean value)
+	{
+		ordered = value;
+	}
+
+	/**
+	 * Returns the order key of the given cell or -1 if the cell is not in the
+	 * index.
+	 */
+	public int getOrder(Object cell)
+	{
+		Entry entry = (cell != null) ? entries.get(cell) : null;
+
+		return (entry != null) ? entry.order : -1;
+	}
+
+	/**
+	 * Sets the order key of the given cell. This does nothing if the cell is
+	 * not in the index.
+	 *
+	 * @param cell Cell whose key should be changed.
+	 * @param order Position of the cell in the paint order.
+	 */
+	public void setOrder(Object cell, int order)
+	{
+		Entry entry = (cell != null) ? entries.get(cell) : null;
+
+		if (entry != null)
+		{
+			entry.order = order;
+		}
+	}
+
+	/**
+	 * Sorts the given cells by their order keys. Cells that are not in the
+	 * index are moved to the front.
+	 */
+	public void sort(List<Object> cells)
+	{
+		Collections.sort(cells, new Comparator<Object>()
+		{
+			public int compare(Object o1, Object o2)
+			{
+				int k1 = getOrder(o1);
+				int k2 = getOrder(o2);
+
+				return (k1 < k2) ? -1 : ((k1 == k2) ? 0 : 1);
+			}
+		});
+	}
+
+	/**
+	 * Adds the given cell with the given bounds to the index or updates the
+	 * bounds if the cell is already in the index. If the bounds are null then
+	 * the cell is removed.
+	 *
+	 * @param cell Cell to be added or updated.
+	 * @param bounds Rectangle that contains the cell.
+	 */
+	public void put(Object cell, mxRectangle bounds)
+	{
+		if (bounds == null)
+		{
+			remove(cell);
+		}
+		else if (cell != null)
+		{
+			Entry entry = entries.get(cell);
+
+			if (entry != null)
+			{
+				if (entry.minX == bounds.getX() && entry.minY == bounds.getY()
+						&& entry.maxX == bounds.getX() + bounds.getWidth()
+						&& entry.maxY == bounds.getY() + bounds.getHeight())
+				{
+					return;
+				}
+
+				removeEntry(entry);
+			}
+			else
+			{
+				entry = new Entry(cell);
+				entries.put(cell, entry);
+				ordered = false;
+			}
+
+			entry.setBounds(bounds.getX(), bounds.getY(),
+					bounds.getX() + bounds.getWidth(),
+					bounds.getY() + bounds.getHeight());
+			insert(entry);
+		}
+	}
+
+	/**
+	 * Removes the given cell from the index.
+	 *
+	 * @param cell Cell to be removed.
+	 * @return Returns true if the cell was in the index.
+	 */
+	public boolean remove(Object cell)
+	{
+		Entry entry = (cell != null) ? entries.remove(cell) : null;
+
+		if (entry != null)
+		{
+			removeEntry(entry);
+
+			return true;
+		}
+
+		return false;
+	}
+
+	/**
+	 * Returns the union of the bounds of all cells in the index or null if
+	 * the index is empty.
+	 */
+	public mxRectangle getBounds()
+	{
+		if (root.count > 0)
+		{
+			return new mxRectangle(root.minX, root.minY, root.maxX - root.minX,
+					root.maxY - root.minY);
+		}
+
+		return null;
+	}
+
+	/**
+	 * Returns the cells whose bounds intersect the given rectangle. The order
+	 * of the cells in the result is undefined.
+	 */
+	public List<Object> query(mxRectangle rect)
+	{
+		return query(rect.getX(), rect.getY(), rect.getWidth(),
+				rect.getHeight());
+	}
+
+	/**
+	 * Returns the cells whose bounds intersect the given rectangle. The order
+	 * of the cells in the result is undefined.
+	 */
+	public List<Object> query(double x, double y, double width, double height)
+	{
+		List<Object> result = new ArrayList<Object>();
+
+		if (root.count > 0)
+		{
+			search(root, x, y, x + width, y + height, result);
+		}
+
+		return result;
+	}
+
+	/**
+	 * Recursively adds all cells below the given node that intersect the given
+	 * area to the result.
+	 */
+	protected void search(Node node, double minX, double minY, double maxX,
+			double maxY, List<Object> result)
+	{
+		for (int i = 0; i < node.count; i++)
+		{
+			Box child = node.children[i];
+
+			if (child.intersects(minX, minY, maxX, maxY))
+			{
+				if (node.leaf)
+				{
+					result.add(((Entry) child).cell);
+				}
+				else
+				{
+					search((Node) child, minX, minY, maxX, maxY, result);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Inserts the given entry into the leaf that requires the least
+	 * enlargement and splits nodes on the way back to the root.
+	 */
+	protected void insert(Entry entry)
+	{
+		Node node = root;
+
+		while (!node.leaf)
+		{
+			node = chooseSubtree(node, entry);
+		}
+
+		node.add(entry);
+		entry.node = node;
+		adjustTree(node);
+	}
+
+	/**
+	 * Returns the child of the given node that needs the least area
+	 * enlargement to contain the given box. Ties are resolved by smallest
+	 * area.
+	 */
+	protected Node chooseSubtree(Node node, Box box)
+	{
+		Node best = null;
+		double bestEnlargement = 0;
+		double bestArea = 0;
+
+		for (int i = 0; i < node.count; i++)
+		{
+			Node child = (Node) node.children[i];
+			double area = child.area();
+			double enlargement = child.unionArea(box) - area;
+
+			if (best == null || enlargement < bestEnlargement
+					|| (enlargement == bestEnlargement && area < bestArea))
+			{
+				best = child;
+				bestEnlargement = enlargement;
+				bestArea = area;
+			}
+		}
+
+		return best;
+	}
+
+	/**
+	 * Recomputes the bounds of the given node and all its ancestors and splits
+	 * overflowing nodes.
+	 */
+	protected void adjustTree(Node node)
+	{
+		while (node != null)
+		{
+			Node sibling = (node.count > MAX_ENTRIES) ? split(node) : null;
+			node.updateBounds();
+			Node parent = node.parent;
+
+			if (sibling != null)
+			{
+				if (parent == null)
+				{
+					parent = new Node(false);
+					parent.add(node);
+					root = parent;
+				}
+
+				parent.add(sibling);
+			}
+
+			node = parent;
+		}
+	}
+
+	/**
+	 * Splits the given node using the quadratic split and returns the new
+	 * sibling which contains the moved children.
+	 */
+	protected Node split(Node node)
+	{
+		Box[] children = new Box[node.count];
+		System.arraycopy(node.children, 0, children, 0, node.count);
+		Arrays.fill(node.children, null);
+
+		// Picks the two seeds that would waste the most area
+		int seed1 = 0;
+		int seed2 = 1;
+		double worst = Double.NEGATIVE_INFINITY;
+
+		for (int i = 0; i < children.length; i++)
+		{
+			for (int j = i + 1; j < children.length; j++)
+			{
+				double waste = children[i].unionArea(children[j])
+						- children[i].area() - children[j].area();
+
+				if (waste > worst)
+				{
+					worst = waste;
+					seed1 = i;
+					seed2 = j;
+				}
+			}
+		}
+
+		Node sibling = new Node(node.leaf);
+		node.count = 0;
+		node.add(children[seed1]);
+		node.updateBounds();
+		sibling.add(children[seed2]);
+		sibling.updateBounds();
+
+		children[seed1] = null;
+		children[seed2] = null;
+		int remaining = children.length - 2;
+
+		while (remaining > 0)
+		{
+			// Assigns all remaining children if one group needs them to
+			// reach the minimum fill
+			if (node.count + remaining == MIN_ENTRIES
+					|| sibling.count + remaining == MIN_ENTRIES)
+			{
+				Node target = (node.count + remaining == MIN_ENTRIES) ? node
+						: sibling;
+
+				for (int i = 0; i < children.length; i++)
+				{
+					if (children[i] != null)
+					{
+						target.add(children[i]);
+						target.include(children[i]);
+						children[i] = null;
+					}
+				}
+
+				break;
+			}
+
+			// Picks the child with the greatest preference for one group
+			int next = -1;
+			double d1 = 0;
+			double d2 = 0;
+			double maxDiff = Double.NEGATIVE_INFINITY;
+
+			for (int i = 0; i < children.length; i++)
+			{
+				if (children[i] != null)
+				{
+					double e1 = node.unionArea(children[i]) - node.area();
+					double e2 = sibling.unionArea(children[i]) - sibling.area();
+					double diff = Math.abs(e1 - e2);
+
+					if (diff > maxDiff)
+					{
+						maxDiff = diff;
+						next = i;
+						d1 = e1;
+						d2 = e2;
+					}
+				}
+			}
+
+			Node target = (d1 < d2 || (d1 == d2 && node.count <= sibling.count)) ? node
+					: sibling;
+			target.add(children[next]);
+			target.include(children[next]);
+			children[next] = null;
+			remaining--;
+		}
+
+		return sibling;
+	}
+
+	/**
+	 * Removes the given entry from its leaf and condenses the tree.
+	 */
+	protected void removeEntry(Entry entry)
+	{
+		Node node = entry.node;
+
+		if (node != null)
+		{
+			node.remove(entry);
+			entry.node = null;
+			List<Entry> orphans = new ArrayList<Entry>();
+
+			// Removes underfull nodes and collects their entries
+			while (node != root)
+			{
+				Node parent = node.parent;
+
+				if (node.count < MIN_ENTRIES)
+				{
+					parent.remove(node);
+					collectEntries(node, orphans);
+				}
+				else
+				{
+					node.updateBounds();
+				}
+
+				node = parent;
+			}
+
+			root.updateBounds();
+
+			// Shortens the tree if the root has a single inner child
+			while (!root.leaf && root.count == 1)
+			{
+				root = (Node) root.children[0];
+				root.parent = null;
+			}
+
+			if (!root.leaf && root.count == 0)
+			{
+				root = new Node(true);
+			}
+
+			for (int i = 0; i < orphans.size(); i++)
+			{
+				insert(orphans.get(i));
+			}
+		}
+	}
+
+	/**
+	 * Adds all entries below the given node to the given list.
+	 */
+	protected void collectEntries(Node node, List<Entry> result)
+	{
+		for (int i = 0; i < node.count; i++)
+		{
+			if (node.leaf)
+			{
+				Entry entry = (Entry) node.children[i];
+				entry.node = null;
+				result.add(entry);
+			}
+			else
+			{
+				collectEntries((Node) node.children[i], result);
+			}
+		}
+	}
+
+	/**
+	 * Axis-aligned bounding box of an entry or node.
+	 */
+	protected static class Box
+	{
+
+		/**
+		 * Holds the bounds.
+		 */
+		protected double minX, minY, maxX, maxY;
+
+		/**
+		 *
+		 */
+		protected void setBounds(double minX, double minY, double maxX,
+				double maxY)
+		{
+			this.minX = minX;
+			this.minY = minY;
+			this.maxX = maxX;
+			this.maxY = maxY;
+		}
+
+		/**
+		 *
+		 */
+		protected double area()
+		{
+			return (maxX - minX) * (maxY - minY);
+		}
+
+		/**
+		 * Returns the area of the union of this box and the given box.
+		 */
+		protected double unionArea(Box box)
+		{
+			return (Math.max(maxX, box.maxX) - Math.min(minX, box.minX))
+					* (Math.max(maxY, box.maxY) - Math.min(minY, box.minY));
+		}
+
+		/**
+		 * Returns true if this box intersects the given area. Boxes that
+		 * touch the area are treated as intersecting.
+		 */
+		protected boolean intersects(double x1, double y1, double x2,
+				double y2)
+		{
+			return minX <= x2 && x1 <= maxX && minY <= y2 && y1 <= maxY;
+		}
+
+		/**
+		 * Grows this box to contain the given box.
+		 */
+		protected void include(Box box)
+		{
+			minX = Math.min(minX, box.minX);
+			minY = Math.min(minY, box.minY);
+			maxX = Math.max(maxX, box.maxX);
+			maxY = Math.max(maxY, box.maxY);
+		}
+
+	}
+
+	/**
+	 * Leaf entry for a single cell.
+	 */
+	protected static class Entry extends Box
+	{
+
+		/**
+		 * Holds the cell.
+		 */
+		protected Object cell;
+
+		/**
+		 * Holds the leaf that contains this entry.
+		 */
+		protected Node node;
+
+		/**
+		 * Holds the key of the cell in the paint order.
+		 */
+		protected int order;
+
+		/**
+		 *
+		 */
+		public Entry(Object cell)
+		{
+			this.cell = cell;
+		}
+
+	}
+
+	/**
+	 * Inner or leaf node of the tree.
+	 */
+	protected static class Node extends Box
+	{
+
+		/**
+		 * Specifies if the children are entries.
+		 */
+		protected boolean leaf;
+
+		/**
+		 * Holds the parent node.
+		 */
+		protected Node parent;
+
+		/**
+		 * Holds the children. One extra slot is reserved for overflow before
+		 * a split.
+		 */
+		protected Box[] children = new Box[MAX_ENTRIES + 1];
+
+		/**
+		 * Holds the number of children.
+		 */
+		protected int count = 0;
+
+		/**
+		 *
+		 */
+		public Node(boolean leaf)
+		{
+			this.leaf = leaf;
+		}
+
+		/**
+		 * Appends the given child without updating the bounds.
+		 */
+		protected void add(Box child)
+		{
+			if (count == children.length)
+			{
+				Box[] tmp = new Box[children.length * 2];
+				System.arraycopy(children, 0, tmp, 0, count);
+				children = tmp;
+			}
+
+			children[count++] = child;
+
+			if (child instanceof Node)
+			{
+				((Node) child).parent = this;
+			}
+			else
+			{
+				((Entry) child).node = this;
+			}
+		}
+
+		/**
+		 * Removes the given child without updating the bounds.
+		 */
+		protected void remove(Box child)
+		{
+			for (int i = 0; i < count; i++)
+			{
+				if (children[i] == child)
+				{
+					children[i] = children[--count];
+					children[count] = null;
+					break;
+				}
+			}
+		}
+
+		/**
+		 * Recomputes the bounds from the children.
+		 */
+		protected void updateBounds()
+		{
+			if (count > 0)
+			{
+				setBounds(children[0].minX, children[0].minY,
+						children[0].maxX, children[0].maxY);
+
+				for (int i = 1; i < count; i++)
+				{
+					include(children[i]);
+				}
+			}
+			else
+			{
+				setBounds(0, 0, 0, 0);
+			}
+		}
+
+	}
+
+}
@@ -3,7 +3,9 @@
  */
 package com.mxgraph.view;
 
+import java.util.Collections;
 import java.util.Hashtable;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 import com.mxgraph.util.mxConstants;
@@ -18,6 +20,13 @@ import com.mxgraph.util.mxConstants;
  * 
  * To change the default font size for all cells, set
  * mxConstants.DEFAULT_FONTSIZE.
+ * 
+ * Parsed cell styles are cached by style string and default style. The
+ * cached styles are shared between cells and cannot be modified. The cache
+ * is cleared in putCellStyle, setDefaultVertexStyle, setDefaultEdgeStyle
+ * and setStyles. Code that changes the default style or a named style
+ * in-place, as in the example above, or that changes the map returned by
+ * getStyles must call clearStyleCache afterwards.
  */
 public class mxStylesheet
 {
@@ -32,6 +41,30 @@ public class mxStylesheet
 	 */
 	protected Map<String, Map<String, Object>> styles = new Hashtable<String, Map<String, Object>>();
 
+	/**
+	 * Specifies the maximum number of parsed styles in the cache. A value of 0
+	 * disables the cache and getCellStyle returns a new mutable style for each
+	 * call. Default is 1000.
+	 */
+	protected int styleCacheSize = 1000;
+
+	/**
+	 * Maps from style keys to parsed styles in access order.
+	 */
+	protected LinkedHashMap<StyleKey, Map<String, Object>> styleCache = new LinkedHashMap<StyleKey, Map<String, Object>>(
+			16, 0.75f, true)
+	{
+
+		private static final long serialVersionUID = 3524418837813283766L;
+
+		protected boolean removeEldestEntry(
+				Map.Entry<StyleKey, Map<String, Object>> eldest)
+		{
+			return size() > styleCacheSize;
+		}
+
+	};
+
 	/**
 	 * Constructs a new stylesheet and assigns default styles.
 	 */
@@ -57,6 +90,37 @@ public class mxStylesheet
 	public void setStyles(Map<String, Map<String, Object>> styles)
 	{
 		this.styles = styles;
+		clearStyleCache();
+	}
+
+	/**
+	 * Returns the maximum number of parsed styles in the cache.
+	 */
+	public int getStyleCacheSize()
+	{
+		return styleCacheSize;
+	}
+
+	/**
+	 * Sets the maximum number of parsed styles in the cache. A value of 0
+	 * disables the cache.
+	 */
+	public void setStyleCacheSize(int value)
+	{
+		styleCacheSize = value;
+		clearStyleCache();
+	}
+
+	/**
+	 * Removes all parsed styles from the cache. This must be called after
+	 * the default style or a named style has been changed in-place.
+	 */
+	public void clearStyleCache()
+	{
+		synchronized (styleCache)
+		{
+			styleCache.clear();
+		}
 	}
 
 	/**
@@ -147,11 +211,15 @@ public class mxStylesheet
 	public void putCellStyle(String name, Map<String, Object> style)
 	{
 		styles.put(name, style);
+		clearStyleCache();
 	}
 
 	/**
 	 * Returns the cell style for the specified cell or the given defaultStyle
-	 * if no style can be found for the given stylename.
+	 * if no style can be found for the given stylename. If the style cache is
+	 * enabled then the returned style is shared and cannot be modified, and
+	 * in-place changes of the styles it was built from are only seen after
+	 * clearStyleCache.
 	 * 
 	 * @param name String of the form [(stylename|key=value);] that represents the
 	 * style.
@@ -160,6 +228,51 @@ public class mxStylesheet
 	 */
 	public Map<String, Object> getCellStyle(String name,
 			Map<String, Object> defaultStyle)
+	{
+		if (name == null || name.length() == 0)
+		{
+			return defaultStyle;
+		}
+		else if (styleCacheSize <= 0)
+		{
+			return parseCellStyle(name, defaultStyle);
+		}
+
+		StyleKey key = new StyleKey(name, defaultStyle);
+		Map<String, Object> style = null;
+
+		synchronized (styleCache)
+		{
+			style = styleCache.get(key);
+		}
+
+		if (style == null)
+		{
+			style = parseCellStyle(name, defaultStyle);
+			style = (style != null) ? Collections.unmodifiableMap(style)
+					: null;
+
+			synchronized (styleCache)
+			{
+				styleCache.put(key, style);
+			}
+		}
+
+		return style;
+	}
+
+	/**
+	 * Parses the given style string and returns a new style that contains the
+	 * given default style and the named styles and key, value pairs in the
+	 * string.
+	 * 
+	 * @param name String of the form [(stylename|key=value);] that represents the
+	 * style.
+	 * @param defaultStyle Default style to be used as the base style.
+	 * @return Returns a new style for the given formatted cell style.
+	 */
+	protected Map<String, Object> parseCellStyle(String name,
+			Map<String, Object> defaultStyle)
 	{
 		Map<String, Object> style = defaultStyle;
 
@@ -210,4 +323,57 @@ public class mxStylesheet
 		return style;
 	}
 
+	/**
+	 * Key for the style cache which compares the style string by value and
+	 * the default style by reference.
+	 */
+	protected static class StyleKey
+	{
+
+		/**
+		 * 
+		 */
+		protected String name;
+
+		/**
+		 * 
+		 */
+		protected Map<String, Object> defaultStyle;
+
+		/**
+		 * 
+		 */
+		public StyleKey(String name, Map<String, Object> defaultStyle)
+		{
+			this.name = name;
+			this.defaultStyle = defaultStyle;
+		}
+
+		/**
+		 * 
+		 */
+		public int hashCode()
+		{
+			return name.hashCode() * 31
+					+ System.identityHashCode(defaultStyle);
+		}
+
+		/**
+		 * 
+		 */
+		public boolean equals(Object obj)
+		{
+			if (obj instanceof StyleKey)
+			{
+				StyleKey key = (StyleKey) obj;
+
+				return key.defaultStyle == defaultStyle
+						&& key.name.equals(name);
+			}
+
+			return false;
+		}
+
+	}
+
 }
@@ -0,0 +1,681 @@
+/**
+ * Copyright (c) 2007-2017, JGraph Ltd
+ */
+package com.mxgraph.test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import junit.textui.TestRunner;
+
+import com.mxgraph.analysis.mxAnalysisGraph;
+import com.mxgraph.analysis.mxConcurrentUnionFind;
+import com.mxgraph.analysis.mxConstantCostFunction;
+import com.mxgraph.analysis.mxCsrGraph;
+import com.mxgraph.analysis.mxDistanceCostFunction;
+import com.mxgraph.analysis.mxDistanceMatrix;
+import com.mxgraph.analysis.mxGraphAnalysis;
+import com.mxgraph.analysis.mxGraphStructure;
+import com.mxgraph.analysis.mxICostFunction;
+import com.mxgraph.analysis.mxTraversal;
+import com.mxgraph.view.mxCellState;
+import com.mxgraph.view.mxGraph;
+
+public class mxAnalysisTest extends TestCase
+{
+
+	/**
+	 * Constructs a new test case for the specified name.
+	 * 
+	 * @param name
+	 *            The name of the test case to be constructed.
+	 */
+	public mxAnalysisTest(String name)
+	{
+		super(name);
+	}
+
+	/**
+	 * Checks that the weights of a snapshot are the costs of the edge states
+	 * in the view.
+	 */
+	public void testCsrWeights() throws Exception
+	{
+		mxGraph graph = new mxGraph();
+		Object parent = graph.getDefaultParent();
+		Object[] v = new Object[4];
+
+		graph.getModel().beginUpdate();
+		try
+		{
+			v[0] = graph.insertVertex(parent, null, "a", 20, 20, 80, 30);
+			v[1] = graph.insertVertex(parent, null, "b", 200, 20, 80, 30);
+			v[2] = graph.insertVertex(parent, null, "c", 20, 200, 80, 30);
+			v[3] = graph.insertVertex(parent, null, "d", 300, 300, 40, 40);
+			graph.insertEdge(parent, null, "", v[0], v[1]);
+			graph.insertEdge(parent, null, "", v[1], v[2]);
+			graph.insertEdge(parent, null, "", v[2], v[3]);
+			graph.insertEdge(parent, null, "", v[3], v[0]);
+		}
+		finally
+		{
+			graph.getModel().endUpdate();
+		}
+
+		mxAnalysisGraph aGraph = new mxAnalysisGraph();
+		aGraph.setGraph(graph);
+		mxICostFunction cf = new mxDistanceCostFunction();
+		mxCsrGraph csr = new mxCsrGraph(aGraph, false, cf);
+		double[] weights = csr.getWeights();
+		assertEquals(4, csr.getEdgeCount());
+
+		for (int e = 0; e < csr.getEdgeCount(); e++)
+		{
+			mxCellState state = graph.getView().getState(csr.getEdge(e));
+			assertNotNull(state);
+			assertTrue(weights[e] > 0);
+			assertEquals(cf.getCost(state), weights[e], 0);
+		}
+	}
+
+	/**
+	 * Checks that the Floyd-Roy-Warshall paths reject vertices that are not
+	 * children of the default parent.
+	 */
+	public void testWFIPathOutsideDefaultParent() throws Exception
+	{
+		mxGraph graph = new mxGraph();
+		Object parent = graph.getDefaultParent();
+		Object v1, v2, v3;
+
+		graph.getModel().beginUpdate();
+		try
+		{
+			v1 = graph.insertVertex(parent, null, "a", 20, 20, 80, 30);
+			v2 = graph.insertVertex(parent, null, "b", 200, 20, 80, 30);
+			Object group = graph.insertVertex(parent, null, "", 20, 200,
+					200, 200);
+			v3 = graph.insertVertex(group, null, "c", 20, 20, 80, 30);
+			graph.insertEdge(parent, null, "", v1, v2);
+			graph.insertEdge(parent, null, "", v2, v3);
+		}
+		finally
+		{
+			graph.getModel().endUpdate();
+		}
+
+		mxAnalysisGraph aGraph = new mxAnalysisGraph();
+		aGraph.setGraph(graph);
+		ArrayList<Object[][]> result = mxTraversal.floydRoyWarshall(aGraph);
+		assertEquals(2, mxTraversal.getWFIPath(aGraph, result, v1, v2).length);
+
+		try
+		{
+			mxTraversal.getWFIPath(aGraph, result, v1, v3);
+			fail("Expected IllegalArgumentException");
+		}
+		catch (IllegalArgumentException e)
+		{
+			// expected
+		}
+
+		try
+		{
+			mxTraversal.getWFIPath(aGraph, result, v3, v1);
+			fail("Expected IllegalArgumentException");
+		}
+		catch (IllegalArgumentException e)
+		{
+			// expected
+		}
+
+		mxDistanceMatrix matrix = mxTraversal.floydRoyWarshall(new mxCsrGraph(
+				aGraph), null);
+		assertEquals(2, mxTraversal.getWFIPath(matrix, v1, v2).length);
+
+		try
+		{
+			mxTraversal.getWFIPath(matrix, v1, v3);
+			fail("Expected IllegalArgumentException");
+		}
+		catch (IllegalArgumentException e)
+		{
+			// expected
+		}
+	}
+
+	/**
+	 * Checks that Dijkstra, A* and the bidirectional search return shortest
+	 * paths with the same cost on random graphs. The vertices have random
+	 * sizes and may overlap, so the lengths of the edges, which are measured
+	 * between the perimeters of the terminals, are often much shorter than
+	 * the distances between the centers.
+	 */
+	public void testShortestPaths() throws Exception
+	{
+		mxGraphAnalysis mga = mxGraphAnalysis.getInstance();
+		mxICostFunction[] costFunctions = { new mxDistanceCostFunction(),
+				new mxConstantCostFunction(1) };
+		Random random = new Random(42);
+
+		for (int round = 0; round < 20; round++)
+		{
+			mxGraph graph = createRandomGraph(random, 40, 100);
+			Object[] vertices = graph.getChildVertices(graph
+					.getDefaultParent());
+
+			for (int i = 0; i < costFunctions.length; i++)
+			{
+				mxICostFunction cf = costFunctions[i];
+
+				for (int d = 0; d < 2; d++)
+				{
+					boolean directed = d == 0;
+					mxCsrGraph csr = mga.createCsrGraph(graph, cf, directed);
+
+					for (int query = 0; query < 20; query++)
+					{
+						Object from = vertices[random.nextInt(vertices.length)];
+						Object to = vertices[random.nextInt(vertices.length)];
+						Object[] dijkstra = mga.getShortestPath(csr, from, to);
+						Object[] astar = mga.getShortestPathAStar(csr, from, to);
+						Object[] bidirectional = mga
+								.getShortestPathBidirectional(csr, from, to);
+						double cost = getCost(graph, dijkstra, from, to, cf,
+								directed);
+
+						assertEquals(cost,
+								getCost(graph, astar, from, to, cf, directed),
+								1e-6);
+						assertEquals(cost,
+								getCost(graph, bidirectional, from, to, cf,
+										directed), 1e-6);
+
+						if (dijkstra.length > 0)
+						{
+							Object[] legacy = mga.getShortestPath(graph, from,
+									to, cf, vertices.length, directed);
+							assertEquals(cost,
+									getCost(graph, legacy, from, to, cf,
+											directed), 1e-6);
+						}
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Checks that the minimum spanning forest of Boruvka has the weight of
+	 * the forest of Kruskal and one edge less than the vertices for each
+	 * component, and that the result with a pool is the same as without. The
+	 * grain is lowered so that the rounds are split into many tasks.
+	 */
+	public void testMinimumSpanningForest() throws Exception
+	{
+		mxGraphAnalysis mga = mxGraphAnalysis.getInstance();
+		mxICostFunction[] costFunctions = { new mxDistanceCostFunction(),
+				new mxConstantCostFunction(1) };
+		Random random = new Random(11);
+		ForkJoinPool pool = new ForkJoinPool(4);
+		int grain = mxConcurrentUnionFind.GRAIN;
+
+		try
+		{
+			mxConcurrentUnionFind.GRAIN = 8;
+
+			for (int round = 0; round < 20; round++)
+			{
+				mxGraph graph = createRandomGraph(random, 100,
+						50 + random.nextInt(300));
+				Object parent = graph.getDefaultParent();
+				Object[] vertices = graph.getChildVertices(parent);
+				Object[] edges = graph.getChildEdges(parent);
+
+				for (int i = 0; i < costFunctions.length; i++)
+				{
+					mxICostFunction cf = costFunctions[i];
+					mxCsrGraph csr = mga.createCsrGraph(graph, cf, false);
+					Object[] forest = mga.getMinimumSpanningForest(csr, null);
+					Object[] kruskal = mga.getMinimumSpanningTree(graph,
+							vertices, edges, cf);
+					int components = mga.getConnectionComponents(csr, null)
+							.getSetCount();
+
+					assertEquals(vertices.length - components, forest.length);
+					assertEquals(kruskal.length, forest.length);
+					assertEquals(getCost(graph, kruskal, cf),
+							getCost(graph, forest, cf), 1e-6);
+					assertEquals(Arrays.asList(forest), Arrays.asList(mga
+							.getMinimumSpanningForest(csr, pool)));
+				}
+			}
+		}
+		finally
+		{
+			mxConcurrentUnionFind.GRAIN = grain;
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Checks the sets of a concurrent union find after parallel unions of
+	 * more than GRAIN pairs against sequential unions.
+	 */
+	public void testConcurrentUnionFind() throws Exception
+	{
+		Random random = new Random(13);
+		ForkJoinPool pool = new ForkJoinPool(4);
+
+		try
+		{
+			int size = 50000;
+			int pairs = 8 * mxConcurrentUnionFind.GRAIN + 17;
+			int[] a = new int[pairs];
+			int[] b = new int[pairs];
+
+			for (int i = 0; i < pairs; i++)
+			{
+				a[i] = random.nextInt(size);
+				b[i] = random.nextInt(size);
+			}
+
+			mxConcurrentUnionFind sequential = new mxConcurrentUnionFind(size);
+			sequential.union(a, b, null);
+			mxConcurrentUnionFind parallel = new mxConcurrentUnionFind(size);
+			parallel.union(a, b, pool);
+
+			int[] parents = new int[size];
+
+			for (int i = 0; i < size; i++)
+			{
+				parents[i] = i;
+			}
+
+			for (int i = 0; i < pairs; i++)
+			{
+				parents[find(parents, a[i])] = find(parents, b[i]);
+			}
+
+			int count = 0;
+
+			for (int i = 0; i < size; i++)
+			{
+				if (parents[i] == i)
+				{
+					count++;
+				}
+			}
+
+			assertEquals(count, sequential.getSetCount());
+			assertEquals(count, parallel.getSetCount());
+
+			for (int i = 0; i < 10000; i++)
+			{
+				int x = random.nextInt(size);
+				int y = (i % 2 == 0) ? random.nextInt(size) : b[random
+						.nextInt(pairs)];
+				boolean expected = find(parents, x) == find(parents, y);
+				assertEquals(expected, sequential.sameSet(x, y));
+				assertEquals(expected, parallel.sameSet(x, y));
+				assertEquals(parallel.find(x) == parallel.find(y), expected);
+			}
+
+			// Joining the remaining sets leaves one set
+			a = new int[size - 1];
+			b = new int[size - 1];
+
+			for (int i = 1; i < size; i++)
+			{
+				a[i - 1] = i - 1;
+				b[i - 1] = i;
+			}
+
+			parallel.union(a, b, pool);
+			assertEquals(1, parallel.getSetCount());
+		}
+		finally
+		{
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Checks the cut vertices, cut edges and biconnectivity of random graphs
+	 * with loops and parallel edges against the number of components after
+	 * removing each vertex and edge.
+	 */
+	public void testCuts() throws Exception
+	{
+		Random random = new Random(7);
+
+		for (int round = 0; round < 200; round++)
+		{
+			int vertexCount = 1 + random.nextInt(25);
+			int edgeCount = random.nextInt(2 * vertexCount);
+			int[] sources = new int[edgeCount];
+			int[] targets = new int[edgeCount];
+
+			for (int i = 0; i < edgeCount; i++)
+			{
+				int kind = random.nextInt(10);
+
+				if (kind == 0 && i > 0)
+				{
+					// Parallel edge, possibly in the opposite direction
+					int other = random.nextInt(i);
+					boolean reverse = random.nextBoolean();
+					sources[i] = (reverse) ? targets[other] : sources[other];
+					targets[i] = (reverse) ? sources[other] : targets[other];
+				}
+				else if (kind == 1)
+				{
+					// Loop
+					sources[i] = random.nextInt(vertexCount);
+					targets[i] = sources[i];
+				}
+				else
+				{
+					sources[i] = random.nextInt(vertexCount);
+					targets[i] = random.nextInt(vertexCount);
+				}
+			}
+
+			assertCuts(vertexCount, sources, targets);
+		}
+	}
+
+	/**
+	 * Checks the cuts of a long path and of a long cycle, which are deep
+	 * enough to overflow the call stack in a recursive depth first search.
+	 */
+	public void testDeepCuts() throws Exception
+	{
+		int vertexCount = 30000;
+		int[] sources = new int[vertexCount - 1];
+		int[] targets = new int[vertexCount - 1];
+
+		for (int i = 0; i < vertexCount - 1; i++)
+		{
+			sources[i] = i;
+			targets[i] = i + 1;
+		}
+
+		mxAnalysisGraph aGraph = createAnalysisGraph(vertexCount, sources,
+				targets, vertexCount - 1);
+		assertEquals(vertexCount - 2,
+				mxGraphStructure.getCutVertices(aGraph).length);
+		assertEquals(vertexCount - 1,
+				mxGraphStructure.getCutEdges(aGraph).length);
+		assertFalse(mxGraphStructure.isBiconnected(aGraph));
+
+		// Closes the path to a cycle
+		mxGraph graph = aGraph.getGraph();
+		Object[] vertices = graph.getChildVertices(graph.getDefaultParent());
+		graph.insertEdge(graph.getDefaultParent(), null, "",
+				vertices[vertexCount - 1], vertices[0]);
+		assertEquals(0, mxGraphStructure.getCutVertices(aGraph).length);
+		assertEquals(0, mxGraphStructure.getCutEdges(aGraph).length);
+		assertTrue(mxGraphStructure.isBiconnected(aGraph));
+	}
+
+	/**
+	 * Checks getCutVertices, getCutEdges, isCutVertex, isCutEdge and
+	 * isBiconnected of the graph with the given edges against the number of
+	 * components after removing each vertex and edge.
+	 */
+	protected void assertCuts(int vertexCount, int[] sources, int[] targets)
+	{
+		int edgeCount = sources.length;
+		mxAnalysisGraph aGraph = createAnalysisGraph(vertexCount, sources,
+				targets, edgeCount);
+		Object parent = aGraph.getGraph().getDefaultParent();
+		Object[] vertices = aGraph.getChildVertices(parent);
+		Object[] edges = aGraph.getChildEdges(parent);
+		Map<Object, Integer> indices = new HashMap<Object, Integer>();
+
+		for (int i = 0; i < vertexCount; i++)
+		{
+			indices.put(vertices[i], i);
+		}
+
+		int components = countComponents(vertexCount, sources, targets, -1, -1);
+		boolean[] cutVertices = new boolean[vertexCount];
+
+		for (Object vertex : mxGraphStructure.getCutVertices(aGraph))
+		{
+			cutVertices[indices.get(vertex)] = true;
+		}
+
+		for (int i = 0; i < vertexCount; i++)
+		{
+			boolean expected = countComponents(vertexCount, sources, targets,
+					i, -1) > components;
+			assertEquals(expected, cutVertices[i]);
+			assertEquals(expected,
+					mxGraphStructure.isCutVertex(aGraph, vertices[i]));
+		}
+
+		boolean[] cutEdges = new boolean[edgeCount];
+
+		for (Object edge : mxGraphStructure.getCutEdges(aGraph))
+		{
+			cutEdges[Arrays.asList(edges).indexOf(edge)] = true;
+		}
+
+		for (int i = 0; i < edgeCount; i++)
+		{
+			boolean expected = countComponents(vertexCount, sources, targets,
+					-1, i) > components;
+			assertEquals(expected, cutEdges[i]);
+			assertEquals(expected, mxGraphStructure.isCutEdge(aGraph, edges[i]));
+		}
+
+		boolean biconnected = edgeCount >= 1;
+
+		for (int i = 0; i < vertexCount; i++)
+		{
+			biconnected &= !cutVertices[i];
+		}
+
+		assertEquals(biconnected, mxGraphStructure.isBiconnected(aGraph));
+
+		// The direction of the edges is ignored in directed snapshots, which
+		// do not contain loops
+		mxCsrGraph directed = new mxCsrGraph(aGraph, true, null);
+		assertEquals(
+				new HashSet<Object>(Arrays.asList(mxGraphStructure
+						.getCutVertices(aGraph))),
+				new HashSet<Object>(Arrays.asList(mxGraphStructure
+						.getCutVertices(directed))));
+		assertEquals(
+				new HashSet<Object>(Arrays.asList(mxGraphStructure
+						.getCutEdges(aGraph))),
+				new HashSet<Object>(Arrays.asList(mxGraphStructure
+						.getCutEdges(directed))));
+		assertEquals(biconnected && directed.getEdgeCount() > 0,
+				mxGraphStructure.isBiconnected(directed));
+	}
+
+	/**
+	 * Returns the number of components of the graph with the given edges
+	 * after removing the given vertex and edge, which are ignored if they
+	 * are -1.
+	 */
+	protected int countComponents(int vertexCount, int[] sources,
+			int[] targets, int removedVertex, int removedEdge)
+	{
+		int[] parents = new int[vertexCount];
+		int components = vertexCount;
+
+		for (int i = 0; i < vertexCount; i++)
+		{
+			parents[i] = i;
+		}
+
+		for (int i = 0; i < sources.length; i++)
+		{
+			if (i != removedEdge && sources[i] != removedVertex
+					&& targets[i] != removedVertex)
+			{
+				int a = find(parents, sources[i]);
+				int b = find(parents, targets[i]);
+
+				if (a != b)
+				{
+					parents[a] = b;
+					components--;
+				}
+			}
+		}
+
+		return (removedVertex >= 0) ? components - 1 : components;
+	}
+
+	/**
+	 * Returns the root of the given element in the given union-find forest.
+	 */
+	protected int find(int[] parents, int element)
+	{
+		while (parents[element] != element)
+		{
+			element = parents[element];
+		}
+
+		return element;
+	}
+
+	/**
+	 * Returns an analysis graph with the given number of vertices and the
+	 * first edgeCount of the given edges.
+	 */
+	protected mxAnalysisGraph createAnalysisGraph(int vertexCount,
+			int[] sources, int[] targets, int edgeCount)
+	{
+		mxGraph graph = new mxGraph();
+		Object parent = graph.getDefaultParent();
+		Object[] v = new Object[vertexCount];
+
+		graph.getModel().beginUpdate();
+		try
+		{
+			for (int i = 0; i < vertexCount; i++)
+			{
+				v[i] = graph.insertVertex(parent, null, "v" + i, 0, 0, 20, 20);
+			}
+
+			for (int i = 0; i < edgeCount; i++)
+			{
+				graph.insertEdge(parent, null, "", v[sources[i]],
+						v[targets[i]]);
+			}
+		}
+		finally
+		{
+			graph.getModel().endUpdate();
+		}
+
+		mxAnalysisGraph aGraph = new mxAnalysisGraph();
+		aGraph.setGraph(graph);
+
+		return aGraph;
+	}
+
+	/**
+	 * Returns a graph with the given number of vertices with random bounds
+	 * and the given number of random edges.
+	 */
+	protected mxGraph createRandomGraph(Random random, int vertexCount,
+			int edgeCount)
+	{
+		mxGraph graph = new mxGraph();
+		Object parent = graph.getDefaultParent();
+		Object[] v = new Object[vertexCount];
+
+		graph.getModel().beginUpdate();
+		try
+		{
+			for (int i = 0; i < vertexCount; i++)
+			{
+				v[i] = graph.insertVertex(parent, null, "v" + i,
+						random.nextInt(1000), random.nextInt(1000),
+						10 + random.nextInt(300), 10 + random.nextInt(300));
+			}
+
+			for (int i = 0; i < edgeCount; i++)
+			{
+				graph.insertEdge(parent, null, "", v[random
+						.nextInt(vertexCount)], v[random.nextInt(vertexCount)]);
+			}
+		}
+		finally
+		{
+			graph.getModel().endUpdate();
+		}
+
+		return graph;
+	}
+
+	/**
+	 * Returns the total cost of the given edges.
+	 */
+	protected double getCost(mxGraph graph, Object[] edges, mxICostFunction cf)
+	{
+		double cost = 0;
+
+		for (int i = 0; i < edges.length; i++)
+		{
+			cost += cf.getCost(graph.getView().getState(edges[i]));
+		}
+
+		return cost;
+	}
+
+	/**
+	 * Checks that the given path is a valid path between the given vertices
+	 * and returns its cost or -1 if the path is empty.
+	 */
+	protected double getCost(mxGraph graph, Object[] path, Object from,
+			Object to, mxICostFunction cf, boolean directed)
+	{
+		if (path.length == 0)
+		{
+			return -1;
+		}
+
+		assertEquals(1, path.length % 2);
+		assertSame(from, path[0]);
+		assertSame(to, path[path.length - 1]);
+		double cost = 0;
+
+		for (int i = 1; i < path.length; i += 2)
+		{
+			Object source = graph.getModel().getTerminal(path[i], true);
+			Object target = graph.getModel().getTerminal(path[i], false);
+			assertTrue((source == path[i - 1] && target == path[i + 1])
+					|| (!directed && source == path[i + 1] && target == path[i - 1]));
+			cost += cf.getCost(graph.getView().getState(path[i]));
+		}
+
+		return cost;
+	}
+
+	/**
+	 * The main method of the template test suite.
+	 * 
+	 * @param args
+	 *            The array of runtime arguments.
+	 */
+	public static void main(String[] args)
+	{
+		TestRunner.runAndWait(new TestSuite(mxAnalysisTest.class));
+	}
+
+}
@@ -3,19 +3,41 @@
  */
 package com.mxgraph.test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.Hashtable;
+import java.util.List;
 import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import junit.framework.TestCase;
 import junit.framework.TestSuite;
 import junit.textui.TestRunner;
 
 import org.w3c.dom.Document;
+import org.w3c.dom.Element;
 import org.w3c.dom.Node;
 
+import com.mxgraph.io.mxBinaryCodec;
 import com.mxgraph.io.mxCodec;
+import com.mxgraph.io.mxObjectCodec;
+import com.mxgraph.io.mxStreamDecoder;
+import com.mxgraph.io.mxStreamEncoder;
 import com.mxgraph.model.mxCell;
+import com.mxgraph.model.mxGeometry;
+import com.mxgraph.model.mxGraphModel;
 import com.mxgraph.util.mxDomUtils;
+import com.mxgraph.util.mxPoint;
 import com.mxgraph.util.mxUtils;
 import com.mxgraph.util.mxXmlUtils;
 import com.mxgraph.view.mxGraph;
@@ -35,7 +57,7 @@ public class mxCodecTest extends TestCase
 	}
 
 	/**
-	 *
+	 * 
 	 */
 	public void test1() throws Exception
 	{
@@ -76,7 +98,7 @@ public class mxCodecTest extends TestCase
 	}
 
 	/**
-	 *
+	 * 
 	 */
 	@SuppressWarnings("unchecked")
 	public void test2() throws Exception
@@ -102,6 +124,351 @@ public class mxCodecTest extends TestCase
 		assertEquals(map.get("a"), map2.get("a"));
 	}
 
+	/**
+	 * Decodes a model with forward references and user objects with CDATA
+	 * sections using the stream decoder and checks that the result is equal
+	 * to the result of the DOM decoder.
+	 */
+	public void testStreamDecoder() throws Exception
+	{
+		String xml = "<mxGraphModel><root><mxCell id=\"0\"/>"
+				+ "<mxCell id=\"e\" edge=\"1\" parent=\"1\" source=\"a\" target=\"b\">"
+				+ "<mxGeometry as=\"geometry\" relative=\"1\">"
+				+ "<Array as=\"points\"><mxPoint x=\"1\" y=\"2\"/></Array>"
+				+ "<mxPoint as=\"offset\" x=\"3\" y=\"4\"/></mxGeometry></mxCell>"
+				+ "<mxCell id=\"a\" parent=\"1\" vertex=\"1\" value=\"a &amp; b\">"
+				+ "<mxGeometry as=\"geometry\" x=\"20\" y=\"20\" width=\"80\" height=\"30\">"
+				+ "<mxRectangle as=\"alternateBounds\" width=\"10\" height=\"20\"/>"
+				+ "</mxGeometry></mxCell><mxCell id=\"1\" parent=\"0\"/>"
+				+ "<Person id=\"b\" name=\"Bob\"> <![CDATA[a < b]]> <mxCell parent=\"1\" vertex=\"1\"/> </Person>"
+				+ "</root></mxGraphModel>";
+
+		Document doc = mxXmlUtils.parseXml(xml);
+		mxGraphModel model = new mxGraphModel();
+		new mxCodec(doc).decode(doc.getDocumentElement(), model);
+		String xml1 = mxXmlUtils.getXml(new mxCodec().encode(model));
+
+		model = new mxStreamDecoder().decode(new StringReader(xml));
+		String xml2 = mxXmlUtils.getXml(new mxCodec().encode(model));
+
+		assertEquals(xml1, xml2);
+		assertEquals(3, model.getChildCount(model.getCell("1")));
+		assertEquals(model.getCell("b"), model.getTerminal(model.getCell("e"),
+				false));
+	}
+
+	/**
+	 * Encodes a model with user objects, control points and special
+	 * characters using the stream encoder and checks that the output is equal
+	 * to the output of the DOM encoder.
+	 */
+	public void testStreamEncoder() throws Exception
+	{
+		mxGraph graph = new mxGraph();
+		Object parent = graph.getDefaultParent();
+		Document doc = mxDomUtils.createDocument();
+		Element person = doc.createElement("Person");
+		person.setAttribute("name", "\"Bob\"\n");
+		person.appendChild(doc.createTextNode(" a < b "));
+
+		graph.getModel().beginUpdate();
+		try
+		{
+			Object v1 = graph.insertVertex(parent, null, "a & b\tc", 20, 20,
+					80, 30, "shape=ellipse");
+			Object v2 = graph.insertVertex(parent, null, person, -0.5, 0,
+					80, 30);
+			Object e1 = graph.insertEdge(parent, null, null, v1, v2);
+			mxGeometry geo = (mxGeometry) graph.getModel().getGeometry(e1)
+					.clone();
+			geo.setPoints(new ArrayList<mxPoint>());
+			geo.getPoints().add(new mxPoint(10, 0));
+			geo.setOffset(new mxPoint(1, 2));
+			graph.getModel().setGeometry(e1, geo);
+			graph.insertVertex(v1, null, Integer.valueOf(42), 0, 0, 10, 10);
+		}
+		finally
+		{
+			graph.getModel().endUpdate();
+		}
+
+		String xml1 = mxXmlUtils.getXml(new mxCodec().encode(graph
+				.getModel()));
+		StringWriter writer = new StringWriter();
+		new mxStreamEncoder().encode((mxGraphModel) graph.getModel(), writer);
+
+		assertEquals(xml1, writer.toString());
+	}
+
+	/**
+	 * Writes a model in the binary format and checks that the model that is
+	 * read back has the same XML.
+	 */
+	public void testBinaryCodec() throws Exception
+	{
+		mxGraph graph = new mxGraph();
+		Object parent = graph.getDefaultParent();
+		Document doc = mxDomUtils.createDocument();
+		Element person = doc.createElement("Person");
+		person.setAttribute("name", "Bob");
+
+		graph.getModel().beginUpdate();
+		try
+		{
+			Object v1 = graph.insertVertex(parent, null, "Hello", 20.5, 20.25,
+					80, 30, "shape=ellipse");
+			Object v2 = graph.insertVertex(parent, "p", person, -1.0 / 3, 0,
+					80, 30, "shape=ellipse");
+			Object e1 = graph.insertEdge(parent, null, null, v1, v2);
+			mxGeometry geo = (mxGeometry) graph.getModel().getGeometry(e1)
+					.clone();
+			geo.setPoints(new ArrayList<mxPoint>());
+			geo.getPoints().add(new mxPoint(10, -20));
+			geo.setSourcePoint(new mxPoint(1, 2));
+			graph.getModel().setGeometry(e1, geo);
+			graph.getModel().setCollapsed(v1, true);
+			graph.insertVertex(v1, null, Integer.valueOf(42), 0, 0, 10, 10);
+		}
+		finally
+		{
+			graph.getModel().endUpdate();
+		}
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		new mxBinaryCodec().encode((mxGraphModel) graph.getModel(), out);
+		mxGraphModel model = new mxBinaryCodec()
+				.decode(new ByteArrayInputStream(out.toByteArray()));
+
+		String xml1 = mxXmlUtils.getXml(new mxCodec().encode(graph
+				.getModel()));
+		String xml2 = mxXmlUtils.getXml(new mxCodec().encode(model));
+
+		assertEquals(xml1, xml2);
+		assertTrue(out.size() < xml1.length());
+	}
+
+	/**
+	 * Object with a private field that is accessed with a getter and setter
+	 * and with a second pair of accessors that are used by a custom codec.
+	 */
+	public static class Bean
+	{
+
+		/**
+		 * Holds the name.
+		 */
+		private String name;
+
+		/**
+		 * Returns the name.
+		 */
+		public String getName()
+		{
+			return name;
+		}
+
+		/**
+		 * Sets the name.
+		 */
+		public void setName(String name)
+		{
+			this.name = name;
+		}
+
+		/**
+		 * Returns the name in upper case.
+		 */
+		public String getUpperName()
+		{
+			return (name != null) ? name.toUpperCase() : null;
+		}
+
+		/**
+		 * Sets the name in lower case.
+		 */
+		public void setUpperName(String name)
+		{
+			this.name = (name != null) ? name.toLowerCase() : null;
+		}
+
+	}
+
+	/**
+	 * Checks that getAccessor is used to read and write fields if it is
+	 * overridden in a subclass.
+	 */
+	public void testCustomAccessors() throws Exception
+	{
+		Bean bean = new Bean();
+		bean.setName("Bob");
+
+		mxObjectCodec codec = new mxObjectCodec(new Bean())
+		{
+			public String getName()
+			{
+				return "Bean";
+			}
+		};
+		Element node = (Element) codec.encode(new mxCodec(), bean);
+		assertEquals("Bob", node.getAttribute("name"));
+
+		mxObjectCodec custom = new mxObjectCodec(new Bean())
+		{
+			public String getName()
+			{
+				return "Bean";
+			}
+
+			protected Method getAccessor(Object obj, Field field,
+					boolean isGetter)
+			{
+				try
+				{
+					return (isGetter) ? Bean.class.getMethod("getUpperName")
+							: Bean.class.getMethod("setUpperName",
+									String.class);
+				}
+				catch (NoSuchMethodException e)
+				{
+					return null;
+				}
+			}
+		};
+
+		node = (Element) custom.encode(new mxCodec(), bean);
+		assertEquals("BOB", node.getAttribute("name"));
+
+		node.setAttribute("name", "ALICE");
+		Bean decoded = (Bean) custom.decode(new mxCodec(), node);
+		assertEquals("alice", decoded.getName());
+		assertEquals("ALICE", ((Bean) codec.decode(new mxCodec(), node))
+				.getName());
+	}
+
+	/**
+	 * Encodes and decodes a model in many threads at the same time using the
+	 * shared codecs of the registry and checks that the XML is equal to the
+	 * XML of a single-threaded run.
+	 */
+	public void testConcurrentCodec() throws Exception
+	{
+		final mxGraphModel model = createRandomModel(new Random(17), 60);
+		final CountDownLatch start = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		List<Future<String[]>> results = new ArrayList<Future<String[]>>();
+
+		try
+		{
+			for (int i = 0; i < 16; i++)
+			{
+				results.add(executor.submit(new Callable<String[]>()
+				{
+					public String[] call() throws Exception
+					{
+						start.await();
+						String xml = mxXmlUtils.getXml(new mxCodec()
+								.encode(model));
+						Document doc = mxXmlUtils.parseXml(xml);
+						mxGraphModel decoded = new mxGraphModel();
+						new mxCodec(doc).decode(doc.getDocumentElement(),
+								decoded);
+
+						return new String[] {
+								xml,
+								mxXmlUtils.getXml(new mxCodec()
+										.encode(decoded)) };
+					}
+				}));
+			}
+
+			start.countDown();
+
+			String xml = mxXmlUtils.getXml(new mxCodec().encode(model));
+			Document doc = mxXmlUtils.parseXml(xml);
+			mxGraphModel decoded = new mxGraphModel();
+			new mxCodec(doc).decode(doc.getDocumentElement(), decoded);
+			String xml2 = mxXmlUtils.getXml(new mxCodec().encode(decoded));
+			assertEquals(xml, xml2);
+
+			for (Future<String[]> result : results)
+			{
+				assertEquals(xml, result.get()[0]);
+				assertEquals(xml2, result.get()[1]);
+			}
+		}
+		finally
+		{
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * Returns a model with the given number of vertices with random styles,
+	 * values and geometries and random edges with control points.
+	 */
+	protected mxGraphModel createRandomModel(Random random, int vertexCount)
+	{
+		mxGraph graph = new mxGraph();
+		Object parent = graph.getDefaultParent();
+		Document doc = mxDomUtils.createDocument();
+		Object[] v = new Object[vertexCount];
+
+		graph.getModel().beginUpdate();
+		try
+		{
+			for (int i = 0; i < vertexCount; i++)
+			{
+				Object value = "v" + i;
+
+				if (i % 3 == 1)
+				{
+					Element person = doc.createElement("Person");
+					person.setAttribute("name", "p" + i);
+					value = person;
+				}
+				else if (i % 3 == 2)
+				{
+					value = Integer.valueOf(i);
+				}
+
+				v[i] = graph.insertVertex((i > 0 && i % 7 == 0) ? v[i - 1]
+						: parent, null, value, random.nextInt(1000),
+						random.nextInt(1000), 10 + random.nextInt(100),
+						10 + random.nextInt(100),
+						(i % 2 == 0) ? "shape=ellipse;fillColor=#"
+								+ Integer.toHexString(random.nextInt())
+								: null);
+			}
+
+			for (int i = 0; i < vertexCount; i++)
+			{
+				Object edge = graph.insertEdge(parent, null, "e" + i,
+						v[random.nextInt(vertexCount)],
+						v[random.nextInt(vertexCount)]);
+
+				if (i % 2 == 0)
+				{
+					mxGeometry geo = (mxGeometry) graph.getModel()
+							.getGeometry(edge).clone();
+					geo.setPoints(new ArrayList<mxPoint>());
+					geo.getPoints().add(
+							new mxPoint(random.nextInt(1000), random
+									.nextInt(1000)));
+					geo.setOffset(new mxPoint(1, 2));
+					graph.getModel().setGeometry(edge, geo);
+				}
+			}
+
+			graph.getModel().setCollapsed(v[1], true);
+		}
+		finally
+		{
+			graph.getModel().endUpdate();
+		}
+
+		return (mxGraphModel) graph.getModel();
+	}
+
 	/**
 	 * The main method of the template test suite.
 	 * 
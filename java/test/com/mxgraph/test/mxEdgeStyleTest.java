@@ -0,0 +1,162 @@
+/**
+ * Copyright (c) 2007-2017, JGraph Ltd
+ */
+package com.mxgraph.test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import junit.textui.TestRunner;
+
+import com.mxgraph.util.mxConstants;
+import com.mxgraph.util.mxPoint;
+import com.mxgraph.view.mxCellState;
+import com.mxgraph.view.mxEdgeStyle;
+import com.mxgraph.view.mxGraph;
+import com.mxgraph.view.mxGraphView;
+
+public class mxEdgeStyleTest extends TestCase
+{
+
+	/**
+	 * Constructs a new test case for the specified name.
+	 *
+	 * @param name
+	 *            The name of the test case to be constructed.
+	 */
+	public mxEdgeStyleTest(String name)
+	{
+		super(name);
+	}
+
+	/**
+	 * Routes the edges of a random graph with the orthogonal connector from
+	 * several threads and checks that all routes are equal to the routes
+	 * computed on a single thread.
+	 */
+	public void testOrthConnectorConcurrency() throws Exception
+	{
+		mxGraph graph = new mxGraph();
+		Object parent = graph.getDefaultParent();
+		Random random = new Random(42);
+		int vertexCount = 200;
+		int edgeCount = 1000;
+		Object[] vertices = new Object[vertexCount];
+
+		graph.getModel().beginUpdate();
+		try
+		{
+			for (int i = 0; i < vertexCount; i++)
+			{
+				vertices[i] = graph.insertVertex(parent, null, "v" + i,
+						random.nextInt(2000), random.nextInt(2000),
+						20 + random.nextInt(60), 20 + random.nextInt(40));
+			}
+
+			for (int i = 0; i < edgeCount; i++)
+			{
+				graph.insertEdge(parent, null, null,
+						vertices[random.nextInt(vertexCount)],
+						vertices[random.nextInt(vertexCount)],
+						mxConstants.STYLE_EDGE + "="
+								+ mxConstants.EDGESTYLE_ORTHOGONAL);
+			}
+		}
+		finally
+		{
+			graph.getModel().endUpdate();
+		}
+
+		mxGraphView view = graph.getView();
+		final List<mxCellState> edges = new ArrayList<mxCellState>();
+
+		for (Object edge : graph.getChildEdges(parent))
+		{
+			mxCellState state = view.getState(edge);
+
+			if (state != null && state.getVisibleTerminalState(true) != null
+					&& state.getVisibleTerminalState(false) != null)
+			{
+				edges.add(state);
+			}
+		}
+
+		assertTrue(edges.size() > 0);
+		final List<List<mxPoint>> expected = route(edges);
+
+		int threads = 8;
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+		try
+		{
+			List<Future<Boolean>> futures = new ArrayList<Future<Boolean>>();
+
+			for (int i = 0; i < threads * 4; i++)
+			{
+				futures.add(executor.submit(new Callable<Boolean>()
+				{
+					public Boolean call() throws Exception
+					{
+						for (int j = 0; j < 20; j++)
+						{
+							if (!expected.equals(route(edges)))
+							{
+								return Boolean.FALSE;
+							}
+						}
+
+						return Boolean.TRUE;
+					}
+				}));
+			}
+
+			for (Future<Boolean> future : futures)
+			{
+				assertTrue(future.get().booleanValue());
+			}
+		}
+		finally
+		{
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * Returns the orthogonal routes for the given edge states.
+	 */
+	protected static List<List<mxPoint>> route(List<mxCellState> edges)
+	{
+		List<List<mxPoint>> result = new ArrayList<List<mxPoint>>(
+				edges.size());
+
+		for (mxCellState state : edges)
+		{
+			List<mxPoint> points = new ArrayList<mxPoint>();
+			mxEdgeStyle.OrthConnector.apply(state,
+					state.getVisibleTerminalState(true),
+					state.getVisibleTerminalState(false), null, points);
+			result.add(points);
+		}
+
+		return result;
+	}
+
+	/**
+	 * The main method of the template test suite.
+	 *
+	 * @param args
+	 *            The array of runtime arguments.
+	 */
+	public static void main(String[] args)
+	{
+		TestRunner.runAndWait(new TestSuite(mxEdgeStyleTest.class));
+	}
+
+}
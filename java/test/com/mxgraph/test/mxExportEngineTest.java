@@ -0,0 +1,373 @@
+/**
+ * Copyright (c) 2007-2017, JGraph Ltd
+ */
+package com.mxgraph.test;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.imageio.ImageIO;
+
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import junit.textui.TestRunner;
+
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+
+import com.mxgraph.reader.mxExportEngine;
+import com.mxgraph.reader.mxSaxOutputHandler;
+
+public class mxExportEngineTest extends TestCase
+{
+
+	static
+	{
+		System.setProperty("java.awt.headless", "true");
+	}
+
+	/**
+	 * Holds the number of worker threads.
+	 */
+	protected static final int THREADS = 4;
+
+	/**
+	 * Holds the number of exports that may wait for a worker.
+	 */
+	protected static final int QUEUE_SIZE = 4;
+
+	/**
+	 * Constructs a new test case for the specified name.
+	 * 
+	 * @param name
+	 *            The name of the test case to be constructed.
+	 */
+	public mxExportEngineTest(String name)
+	{
+		super(name);
+	}
+
+	/**
+	 * Engine that counts the parsers and handlers it creates and the exports
+	 * that are rendered at the same time, and that holds the exports at the
+	 * gate if one is set.
+	 */
+	protected static class TestEngine extends mxExportEngine
+	{
+
+		/**
+		 * Holds the number of created parsers.
+		 */
+		protected AtomicInteger parserCount = new AtomicInteger();
+
+		/**
+		 * Holds the number of created handlers.
+		 */
+		protected AtomicInteger handlerCount = new AtomicInteger();
+
+		/**
+		 * Holds the number of exports that are being rendered.
+		 */
+		protected AtomicInteger active = new AtomicInteger();
+
+		/**
+		 * Holds the maximum number of exports that were rendered at the same
+		 * time.
+		 */
+		protected AtomicInteger maxActive = new AtomicInteger();
+
+		/**
+		 * Holds the gate that the exports wait for before rendering.
+		 */
+		protected volatile CountDownLatch gate;
+
+		/**
+		 * Constructs a new engine with its own image cache.
+		 */
+		public TestEngine()
+		{
+			super(THREADS, QUEUE_SIZE, 10);
+		}
+
+		protected void renderXml(String xml, Graphics2D g)
+				throws IOException, SAXException
+		{
+			int current = active.incrementAndGet();
+
+			try
+			{
+				while (maxActive.get() < current)
+				{
+					maxActive.compareAndSet(maxActive.get(), current);
+				}
+
+				if (gate != null)
+				{
+					gate.await();
+				}
+
+				super.renderXml(xml, g);
+			}
+			catch (InterruptedException e)
+			{
+				throw new IOException(e);
+			}
+			finally
+			{
+				active.decrementAndGet();
+			}
+		}
+
+		protected XMLReader createParser() throws SAXException
+		{
+			parserCount.incrementAndGet();
+
+			return super.createParser();
+		}
+
+		protected mxSaxOutputHandler createHandler()
+		{
+			handlerCount.incrementAndGet();
+
+			return super.createHandler();
+		}
+
+	}
+
+	/**
+	 * Checks that many concurrent exports with HTML labels produce the same
+	 * images as sequential exports and that the pools and the number of
+	 * running exports stay bounded.
+	 */
+	public void testConcurrentExports() throws Exception
+	{
+		final TestEngine engine = new TestEngine();
+		final int exportCount = 64;
+
+		try
+		{
+			// Renders the expected images in the calling thread
+			final List<BufferedImage> expected = new ArrayList<BufferedImage>();
+
+			for (int i = 0; i < exportCount; i++)
+			{
+				ByteArrayOutputStream out = new ByteArrayOutputStream();
+				engine.writeImage(createXml(i), 200, 100, Color.WHITE, "png",
+						out);
+				expected.add(read(out));
+			}
+
+			BufferedImage first = expected.get(0);
+			assertEquals(Color.RED.getRGB(), first.getRGB(30, 25));
+
+			// The rectangles are equal and the labels are different
+			assertTrue(countDifferentPixels(first, expected.get(8)) > 0);
+
+			// Submits the exports from more client threads than workers
+			ExecutorService clients = Executors.newFixedThreadPool(16);
+
+			try
+			{
+				List<Future<BufferedImage>> results = new ArrayList<Future<BufferedImage>>();
+
+				for (int i = 0; i < exportCount; i++)
+				{
+					final int index = i;
+					results.add(clients.submit(new Callable<BufferedImage>()
+					{
+						public BufferedImage call() throws Exception
+						{
+							ByteArrayOutputStream out = new ByteArrayOutputStream();
+							assertNotNull(engine.submit(createXml(index), 200,
+									100, Color.WHITE, "png", out).get());
+
+							return read(out);
+						}
+					}));
+				}
+
+				for (int i = 0; i < exportCount; i++)
+				{
+					assertEquals(0, countDifferentPixels(expected.get(i),
+							results.get(i).get()));
+				}
+			}
+			finally
+			{
+				clients.shutdown();
+			}
+
+			assertTrue(engine.maxActive.get() <= THREADS);
+			assertTrue(engine.parserCount.get() <= THREADS);
+			assertTrue(engine.handlerCount.get() <= THREADS);
+			assertEquals(0, engine.getPendingCount());
+		}
+		finally
+		{
+			engine.shutdown();
+		}
+
+		assertTrue(engine.awaitTermination(10, TimeUnit.SECONDS));
+	}
+
+	/**
+	 * Checks that submit blocks and submit with a timeout throws a
+	 * RejectedExecutionException while the maximum number of exports are
+	 * running or waiting.
+	 */
+	public void testBackPressure() throws Exception
+	{
+		final TestEngine engine = new TestEngine();
+		engine.gate = new CountDownLatch(1);
+
+		try
+		{
+			List<Future<mxExportEngine.Timings>> results = new ArrayList<Future<mxExportEngine.Timings>>();
+
+			for (int i = 0; i < THREADS + QUEUE_SIZE; i++)
+			{
+				results.add(engine.submit(createXml(i), 200, 100, Color.WHITE,
+						"png", new ByteArrayOutputStream(), 1,
+						TimeUnit.SECONDS));
+			}
+
+			assertEquals(THREADS + QUEUE_SIZE, engine.getPendingCount());
+
+			// Waits for the workers to take the first exports
+			for (int i = 0; i < 100 && engine.active.get() < THREADS; i++)
+			{
+				Thread.sleep(50);
+			}
+
+			assertEquals(THREADS, engine.active.get());
+
+			try
+			{
+				engine.submit(createXml(0), 200, 100, Color.WHITE, "png",
+						new ByteArrayOutputStream(), 50, TimeUnit.MILLISECONDS);
+				fail("Submit must be rejected while the engine is busy");
+			}
+			catch (RejectedExecutionException e)
+			{
+				// expected
+			}
+
+			final List<Future<mxExportEngine.Timings>> blocked = new ArrayList<Future<mxExportEngine.Timings>>();
+			Thread client = new Thread()
+			{
+				public void run()
+				{
+					try
+					{
+						blocked.add(engine.submit(createXml(0), 200, 100,
+								Color.WHITE, "png", new ByteArrayOutputStream()));
+					}
+					catch (InterruptedException e)
+					{
+						// ignore
+					}
+				}
+			};
+			client.start();
+			client.join(200);
+			assertTrue(client.isAlive());
+			assertEquals(THREADS + QUEUE_SIZE, engine.getPendingCount());
+
+			engine.gate.countDown();
+			client.join(10000);
+			assertFalse(client.isAlive());
+			assertEquals(1, blocked.size());
+			results.addAll(blocked);
+
+			for (Future<mxExportEngine.Timings> result : results)
+			{
+				assertNotNull(result.get(10, TimeUnit.SECONDS));
+			}
+
+			assertEquals(THREADS, engine.maxActive.get());
+
+			// Accepts new exports after the pending exports have finished
+			assertNotNull(engine.submit(createXml(0), 200, 100, Color.WHITE,
+					"png", new ByteArrayOutputStream(), 1, TimeUnit.SECONDS)
+					.get(10, TimeUnit.SECONDS));
+		}
+		finally
+		{
+			engine.gate.countDown();
+			engine.shutdown();
+		}
+	}
+
+	/**
+	 * Returns the output of mxXmlCanvas2D for a red rectangle and an HTML
+	 * label that both depend on the given index.
+	 */
+	protected static String createXml(int index)
+	{
+		return "<output><fillcolor color=\"#FF0000\"/>"
+				+ "<rect x=\"" + (10 + index % 8) + "\" y=\"10\" w=\"40\" h=\"30\"/>"
+				+ "<fill/><fontcolor color=\"#000000\"/><fontsize size=\"12\"/>"
+				+ "<text x=\"130\" y=\"50\" w=\"120\" h=\"60\" str=\"&lt;b&gt;Export&lt;/b&gt; "
+				+ index + "&lt;br&gt;&lt;i&gt;line " + (index * 7)
+				+ "&lt;/i&gt;\" align=\"center\" valign=\"middle\" wrap=\"1\""
+				+ " format=\"html\" overflow=\"visible\"/></output>";
+	}
+
+	/**
+	 * Returns the image in the given stream.
+	 */
+	protected static BufferedImage read(ByteArrayOutputStream out)
+			throws IOException
+	{
+		return ImageIO.read(new ByteArrayInputStream(out.toByteArray()));
+	}
+
+	/**
+	 * Returns the number of pixels that differ between the given images.
+	 */
+	protected static int countDifferentPixels(BufferedImage a, BufferedImage b)
+	{
+		assertEquals(a.getWidth(), b.getWidth());
+		assertEquals(a.getHeight(), b.getHeight());
+		int count = 0;
+
+		for (int y = 0; y < a.getHeight(); y++)
+		{
+			for (int x = 0; x < a.getWidth(); x++)
+			{
+				if (a.getRGB(x, y) != b.getRGB(x, y))
+				{
+					count++;
+				}
+			}
+		}
+
+		return count;
+	}
+
+	/**
+	 * The main method of the template test suite.
+	 * 
+	 * @param args
+	 *            The array of runtime arguments.
+	 */
+	public static void main(String[] args)
+	{
+		TestRunner.runAndWait(new TestSuite(mxExportEngineTest.class));
+	}
+
+}
@@ -0,0 +1,280 @@
+/**
+ * Copyright (c) 2007-2017, JGraph Ltd
+ */
+package com.mxgraph.test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import junit.textui.TestRunner;
+
+import com.mxgraph.layout.mxFastOrganicLayout;
+import com.mxgraph.model.mxGeometry;
+import com.mxgraph.model.mxIGraphModel;
+import com.mxgraph.view.mxGraph;
+
+public class mxFastOrganicLayoutTest extends TestCase
+{
+
+	/**
+	 * Constructs a new test case for the specified name.
+	 * 
+	 * @param name
+	 *            The name of the test case to be constructed.
+	 */
+	public mxFastOrganicLayoutTest(String name)
+	{
+		super(name);
+	}
+
+	/**
+	 * Layout that computes the repulsive forces of the first iteration with
+	 * all methods before it continues with the configured method.
+	 */
+	protected static class RepulsionLayout extends mxFastOrganicLayout
+	{
+
+		/**
+		 * Holds the exact forces computed in the calling thread.
+		 */
+		protected double[] exact;
+
+		/**
+		 * Holds the exact forces computed in the pool.
+		 */
+		protected double[] exactParallel;
+
+		/**
+		 * Holds the approximated forces for theta 0.
+		 */
+		protected double[] approximatedZero;
+
+		/**
+		 * Holds the approximated forces computed in the calling thread.
+		 */
+		protected double[] approximated;
+
+		/**
+		 * Holds the approximated forces computed in the pool.
+		 */
+		protected double[] approximatedParallel;
+
+		/**
+		 * Constructs a new layout for the given graph.
+		 */
+		public RepulsionLayout(mxGraph graph)
+		{
+			super(graph);
+		}
+
+		/**
+		 * Computes the forces with all methods in the first iteration.
+		 */
+		protected void calcRepulsion()
+		{
+			if (iteration == 0)
+			{
+				exact = calcRepulsion(false, false, theta);
+				exactParallel = calcRepulsion(false, true, theta);
+				approximatedZero = calcRepulsion(true, false, 0);
+				approximated = calcRepulsion(true, false, theta);
+				approximatedParallel = calcRepulsion(true, true, theta);
+			}
+
+			super.calcRepulsion();
+		}
+
+		/**
+		 * Returns the displacements of the vertices after computing the
+		 * repulsive forces with the given method, followed by the
+		 * displacements in y.
+		 */
+		protected double[] calcRepulsion(boolean approximate,
+				boolean parallel, double value)
+		{
+			boolean approximateRepulsion = this.approximateRepulsion;
+			boolean parallelRepulsion = this.parallelRepulsion;
+			double theta = this.theta;
+
+			this.approximateRepulsion = approximate;
+			this.parallelRepulsion = parallel;
+			this.theta = value;
+			super.calcRepulsion();
+
+			double[] result = new double[2 * dispX.length];
+			System.arraycopy(dispX, 0, result, 0, dispX.length);
+			System.arraycopy(dispY, 0, result, dispX.length, dispY.length);
+			Arrays.fill(dispX, 0);
+			Arrays.fill(dispY, 0);
+
+			this.approximateRepulsion = approximateRepulsion;
+			this.parallelRepulsion = parallelRepulsion;
+			this.theta = theta;
+
+			return result;
+		}
+
+	}
+
+	/**
+	 * Checks that the Barnes-Hut forces with theta 0 and the exact forces in
+	 * the pool equal the exact forces, and that the approximated forces in
+	 * the pool equal the approximated forces in the calling thread.
+	 */
+	public void testRepulsion() throws Exception
+	{
+		ForkJoinPool pool = new ForkJoinPool(4);
+
+		try
+		{
+			RepulsionLayout layout = new RepulsionLayout(createGraph(
+					new Random(3), 500));
+			layout.setRepulsionPool(pool);
+			layout.setMaxIterations(1);
+			layout.execute(layout.getGraph().getDefaultParent());
+
+			assertEquals(layout.exact, layout.exactParallel);
+			assertEquals(layout.exact, layout.approximatedZero);
+			assertTrue(Arrays.equals(layout.approximated,
+					layout.approximatedParallel));
+
+			// The approximation is close but not exact
+			assertFalse(Arrays.equals(layout.exact, layout.approximated));
+			assertTrue(getError(layout.exact, layout.approximated) < 0.1);
+		}
+		finally
+		{
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Checks that the approximated layout in the pool is equal to the
+	 * approximated layout in the calling thread.
+	 */
+	public void testParallelLayout() throws Exception
+	{
+		ForkJoinPool pool = new ForkJoinPool(4);
+
+		try
+		{
+			mxGraph sequential = createGraph(new Random(5), 300);
+			mxFastOrganicLayout layout = new mxFastOrganicLayout(sequential);
+			layout.setApproximateRepulsion(true);
+			layout.execute(sequential.getDefaultParent());
+
+			mxGraph parallel = createGraph(new Random(5), 300);
+			layout = new mxFastOrganicLayout(parallel);
+			layout.setApproximateRepulsion(true);
+			layout.setParallelRepulsion(true);
+			layout.setRepulsionPool(pool);
+			layout.execute(parallel.getDefaultParent());
+
+			assertEquals(getGeometries(sequential), getGeometries(parallel));
+		}
+		finally
+		{
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Checks that the given arrays are equal up to rounding errors.
+	 */
+	protected void assertEquals(double[] expected, double[] actual)
+	{
+		assertEquals(expected.length, actual.length);
+
+		for (int i = 0; i < expected.length; i++)
+		{
+			assertEquals(expected[i], actual[i],
+					1e-9 * Math.max(1, Math.abs(expected[i])));
+		}
+	}
+
+	/**
+	 * Returns the norm of the difference of the given vectors relative to
+	 * the norm of the first vector.
+	 */
+	protected double getError(double[] expected, double[] actual)
+	{
+		double error = 0;
+		double norm = 0;
+
+		for (int i = 0; i < expected.length; i++)
+		{
+			double d = expected[i] - actual[i];
+			error += d * d;
+			norm += expected[i] * expected[i];
+		}
+
+		return Math.sqrt(error / norm);
+	}
+
+	/**
+	 * Returns a graph with the given number of vertices at random locations
+	 * and random edges.
+	 */
+	protected mxGraph createGraph(Random random, int vertexCount)
+	{
+		mxGraph graph = new mxGraph();
+		Object parent = graph.getDefaultParent();
+		Object[] v = new Object[vertexCount];
+
+		graph.getModel().beginUpdate();
+		try
+		{
+			for (int i = 0; i < vertexCount; i++)
+			{
+				v[i] = graph.insertVertex(parent, null, "v" + i,
+						random.nextDouble() * 2000, random.nextDouble() * 2000,
+						20 + random.nextInt(40), 20 + random.nextInt(40));
+			}
+
+			for (int i = 0; i < vertexCount; i++)
+			{
+				graph.insertEdge(parent, null, "",
+						v[random.nextInt(vertexCount)],
+						v[random.nextInt(vertexCount)]);
+			}
+		}
+		finally
+		{
+			graph.getModel().endUpdate();
+		}
+
+		return graph;
+	}
+
+	/**
+	 * Returns the locations of the vertices of the given graph as a string.
+	 */
+	protected String getGeometries(mxGraph graph)
+	{
+		StringBuilder result = new StringBuilder();
+		mxIGraphModel model = graph.getModel();
+
+		for (Object vertex : graph.getChildVertices(graph.getDefaultParent()))
+		{
+			mxGeometry geo = model.getGeometry(vertex);
+			result.append(geo.getX() + "," + geo.getY() + "\n");
+		}
+
+		return result.toString();
+	}
+
+	/**
+	 * The main method of the template test suite.
+	 * 
+	 * @param args
+	 *            The array of runtime arguments.
+	 */
+	public static void main(String[] args)
+	{
+		TestRunner.runAndWait(new TestSuite(mxFastOrganicLayoutTest.class));
+	}
+
+}
@@ -0,0 +1,126 @@
+/**
+ * Copyright (c) 2007-2017, JGraph Ltd
+ */
+package com.mxgraph.test;
+
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import junit.textui.TestRunner;
+
+import com.mxgraph.swing.mxGraphComponent;
+import com.mxgraph.swing.util.mxTiledBuffer;
+import com.mxgraph.util.mxUtils;
+import com.mxgraph.view.mxGraph;
+
+public class mxGraphComponentTest extends TestCase
+{
+
+	/**
+	 * Constructs a new test case for the specified name.
+	 * 
+	 * @param name
+	 *            The name of the test case to be constructed.
+	 */
+	public mxGraphComponentTest(String name)
+	{
+		super(name);
+	}
+
+	/**
+	 * Checks that the tiles of the triple buffer equal the graph painted
+	 * without a buffer, also after the graph has been changed, and that the
+	 * deprecated image accessor does not create an image.
+	 */
+	@SuppressWarnings("deprecation")
+	public void testTripleBuffer() throws Exception
+	{
+		mxGraph graph = new mxGraph();
+		Object parent = graph.getDefaultParent();
+		Object v1 = graph.insertVertex(parent, null, "Hello", 20, 20, 80, 30);
+		Object v2 = graph.insertVertex(parent, null, "World", 300, 350, 80,
+				30);
+		graph.insertEdge(parent, null, "Edge", v1, v2);
+
+		mxGraphComponent graphComponent = new mxGraphComponent(graph)
+		{
+
+			/**
+			 * 
+			 */
+			private static final long serialVersionUID = 1L;
+
+			/**
+			 * Drag and drop requires a display.
+			 */
+			protected void createHandlers()
+			{
+				// empty
+			}
+
+		};
+
+		assertNull(graphComponent.getTiledTripleBuffer());
+
+		graphComponent.setTripleBuffered(true);
+		graphComponent.checkTripleBuffer();
+		mxTiledBuffer buffer = graphComponent.getTiledTripleBuffer();
+		assertNotNull(buffer);
+		assertNull(graphComponent.getTripleBuffer());
+		buffer.setTileSize(64);
+
+		assertTiles(graphComponent, 500, 500);
+		assertTrue(buffer.getTileCount() > 1);
+
+		graph.moveCells(new Object[] { v2 }, -150, -200);
+		assertTiles(graphComponent, 500, 500);
+
+		graphComponent.destroyTripleBuffer();
+		assertNull(graphComponent.getTiledTripleBuffer());
+	}
+
+	/**
+	 * Paints the tiles of the triple buffer of the given component and the
+	 * graph without a buffer into images and compares the pixels.
+	 */
+	protected void assertTiles(mxGraphComponent graphComponent, int width,
+			int height)
+	{
+		BufferedImage image = mxUtils.createBufferedImage(width, height, null);
+		Graphics2D g = image.createGraphics();
+		assertTrue(graphComponent.getTiledTripleBuffer().paint(g,
+				new Rectangle(width, height), width, height));
+		g.dispose();
+
+		BufferedImage expected = mxUtils.createBufferedImage(width, height,
+				null);
+		g = expected.createGraphics();
+		mxUtils.setAntiAlias(g, graphComponent.isAntiAlias(),
+				graphComponent.isTextAntiAlias());
+		graphComponent.getGraphControl().drawGraph(g, true);
+		g.dispose();
+
+		for (int y = 0; y < height; y++)
+		{
+			for (int x = 0; x < width; x++)
+			{
+				assertEquals(expected.getRGB(x, y), image.getRGB(x, y));
+			}
+		}
+	}
+
+	/**
+	 * The main method of the template test suite.
+	 * 
+	 * @param args
+	 *            The array of runtime arguments.
+	 */
+	public static void main(String[] args)
+	{
+		TestRunner.runAndWait(new TestSuite(mxGraphComponentTest.class));
+	}
+
+}
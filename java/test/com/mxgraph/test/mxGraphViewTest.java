@@ -0,0 +1,387 @@
+/**
+ * Copyright (c) 2007-2017, JGraph Ltd
+ */
+package com.mxgraph.test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import junit.textui.TestRunner;
+
+import com.mxgraph.model.mxGeometry;
+import com.mxgraph.model.mxIGraphModel;
+import com.mxgraph.util.mxConstants;
+import com.mxgraph.util.mxPoint;
+import com.mxgraph.util.mxRectangle;
+import com.mxgraph.view.mxCellState;
+import com.mxgraph.view.mxGraph;
+import com.mxgraph.view.mxGraphView;
+
+public class mxGraphViewTest extends TestCase
+{
+
+	/**
+	 * Constructs a new test case for the specified name.
+	 * 
+	 * @param name
+	 *            The name of the test case to be constructed.
+	 */
+	public mxGraphViewTest(String name)
+	{
+		super(name);
+	}
+
+	/**
+	 * Checks that incremental validation is off by default and depends on
+	 * the spatial index.
+	 */
+	public void testIncrementalValidationActive() throws Exception
+	{
+		mxGraphView view = new mxGraph().getView();
+		assertFalse(view.isIncrementalValidation());
+		assertFalse(view.isIncrementalValidationActive());
+
+		view.setIncrementalValidation(true);
+		assertTrue(view.isIncrementalValidationActive());
+
+		view.setSpatialIndexEnabled(false);
+		assertTrue(view.isIncrementalValidation());
+		assertFalse(view.isIncrementalValidationActive());
+	}
+
+	/**
+	 * Checks that no dirty cells are stored if incremental validation is not
+	 * active and that the first validation after it is activated is a full
+	 * validation.
+	 */
+	public void testDirtyCellsInactive() throws Exception
+	{
+		mxGraph graph = new mxGraph()
+		{
+			protected mxGraphView createGraphView()
+			{
+				return new DirtyView(this);
+			}
+		};
+		DirtyView view = (DirtyView) graph.getView();
+		Object[][] cells = createGraph(graph, 4, 5);
+		Object[] children = cells[1];
+
+		graph.moveCells(new Object[] { children[0], children[7] }, 15, 25);
+		graph.getModel().getGeometry(children[3]).setX(300);
+		view.invalidate(children[3]);
+		assertEquals(0, view.getDirtyCellCount());
+
+		view.setIncrementalValidation(true);
+		view.validate();
+		assertEquals(300, view.getState(children[3]).getX()
+				- view.getState(graph.getModel().getParent(children[3]))
+						.getX(), 0);
+		assertIncremental(graph);
+
+		graph.moveCells(new Object[] { children[1] }, 15, 25);
+		assertIncremental(graph);
+	}
+
+	/**
+	 * View that exposes the number of dirty cells.
+	 */
+	protected static class DirtyView extends mxGraphView
+	{
+
+		/**
+		 * Constructs a new view for the given graph.
+		 */
+		public DirtyView(mxGraph graph)
+		{
+			super(graph);
+		}
+
+		/**
+		 * Returns the number of cells to be revalidated.
+		 */
+		public int getDirtyCellCount()
+		{
+			return dirtyCells.size();
+		}
+
+	}
+
+	/**
+	 * Checks that incremental validation yields the same states as a full
+	 * validation after moves, style changes, collapsing, expanding and
+	 * removing children.
+	 */
+	public void testIncrementalValidation() throws Exception
+	{
+		mxGraph graph = new mxGraph();
+		graph.getView().setIncrementalValidation(true);
+		Object[][] cells = createGraph(graph, 4, 5);
+		Object[] groups = cells[0];
+		Object[] children = cells[1];
+		Object[] edges = cells[2];
+
+		assertIncremental(graph);
+
+		graph.moveCells(new Object[] { children[0], children[7] }, 15, 25);
+		assertIncremental(graph);
+
+		graph.moveCells(new Object[] { groups[1] }, 100, -30);
+		assertIncremental(graph);
+
+		graph.setCellStyles(mxConstants.STYLE_FONTSIZE, "20", new Object[] {
+				children[3], edges[2] });
+		assertIncremental(graph);
+
+		graph.setCellStyles(mxConstants.STYLE_SHAPE,
+				mxConstants.SHAPE_ELLIPSE, new Object[] { children[4] });
+		graph.setCellStyles(mxConstants.STYLE_PERIMETER,
+				mxConstants.PERIMETER_ELLIPSE, new Object[] { children[4] });
+		assertIncremental(graph);
+
+		graph.setCellStyles(mxConstants.STYLE_EDGE,
+				mxConstants.EDGESTYLE_ORTHOGONAL, new Object[] { edges[0],
+						edges[1] });
+		assertIncremental(graph);
+
+		graph.foldCells(true, false, new Object[] { groups[2] });
+		assertIncremental(graph);
+
+		graph.foldCells(false, false, new Object[] { groups[2] });
+		assertIncremental(graph);
+
+		graph.removeCells(new Object[] { children[5], children[11] });
+		assertIncremental(graph);
+
+		graph.removeCells(new Object[] { groups[3] });
+		assertIncremental(graph);
+	}
+
+	/**
+	 * Checks that a parallel validation yields the same states as a serial
+	 * validation for a graph with nested and collapsed groups, edges and
+	 * labels with different positions and styles.
+	 */
+	public void testParallelValidation() throws Exception
+	{
+		mxGraph serial = new mxGraph();
+		mxGraph parallel = new mxGraph();
+		ForkJoinPool pool = new ForkJoinPool(4);
+
+		try
+		{
+			parallel.getView().setParallelValidation(true);
+			parallel.getView().setValidationPool(pool);
+			parallel.getView().setParallelValidationThreshold(4);
+			createNestedGraph(serial, new Random(5));
+			createNestedGraph(parallel, new Random(5));
+			assertEquals(getStates(serial), getStates(parallel));
+
+			serial.getView().setScale(1.5);
+			parallel.getView().setScale(1.5);
+			serial.getView().setTranslate(new mxPoint(10, 20));
+			parallel.getView().setTranslate(new mxPoint(10, 20));
+			assertEquals(getStates(serial), getStates(parallel));
+		}
+		finally
+		{
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Inserts 20 groups with nested groups of labelled vertices, some of
+	 * which are collapsed, and random labelled edges using the given random
+	 * number generator.
+	 */
+	protected void createNestedGraph(mxGraph graph, Random random)
+	{
+		String[] styles = { null, "verticalLabelPosition=bottom",
+				"labelPosition=left;align=right", "whiteSpace=wrap;fontSize=16",
+				"shape=ellipse;perimeter=ellipsePerimeter",
+				"horizontal=0;fontStyle=1", "spacingTop=8;spacingLeft=4" };
+		Object parent = graph.getDefaultParent();
+		Object[] vertices = new Object[1200];
+		int count = 0;
+
+		graph.getModel().beginUpdate();
+		try
+		{
+			for (int i = 0; i < 20; i++)
+			{
+				Object group = graph.insertVertex(parent, null, "Group " + i,
+						400 * (i % 5), 400 * (i / 5), 380, 380,
+						styles[i % styles.length]);
+
+				for (int j = 0; j < 4; j++)
+				{
+					Object nested = graph.insertVertex(group, null, "Nested "
+							+ i + "." + j, 10 + 180 * (j % 2),
+							10 + 180 * (j / 2), 170, 170,
+							styles[(i + j) % styles.length]);
+
+					for (int k = 0; k < 12; k++)
+					{
+						vertices[count++] = graph.insertVertex(nested, null,
+								"Vertex " + i + "." + j + "." + k
+										+ " with a longer label",
+								random.nextInt(120), random.nextInt(140),
+								20 + random.nextInt(60),
+								10 + random.nextInt(30),
+								styles[random.nextInt(styles.length)]);
+					}
+
+					if ((i + j) % 3 == 0)
+					{
+						graph.getModel().setCollapsed(nested, true);
+					}
+				}
+
+				vertices[count++] = group;
+			}
+
+			for (int i = 0; i < 600; i++)
+			{
+				graph.insertEdge(parent, null, "Edge " + i,
+						vertices[random.nextInt(count)],
+						vertices[random.nextInt(count)],
+						styles[random.nextInt(styles.length)]);
+			}
+		}
+		finally
+		{
+			graph.getModel().endUpdate();
+		}
+	}
+
+	/**
+	 * Inserts the given number of groups with the given number of labelled
+	 * children and labelled edges between consecutive children of different
+	 * groups. Returns the groups, children and edges.
+	 */
+	protected Object[][] createGraph(mxGraph graph, int groupCount,
+			int childCount)
+	{
+		Object parent = graph.getDefaultParent();
+		Object[] groups = new Object[groupCount];
+		Object[] children = new Object[groupCount * childCount];
+		Object[] edges = new Object[children.length - 1];
+
+		graph.getModel().beginUpdate();
+		try
+		{
+			for (int i = 0; i < groupCount; i++)
+			{
+				groups[i] = graph.insertVertex(parent, null, "Group " + i,
+						20 + 260 * i, 20 + 30 * i, 240, 60 + 50 * childCount);
+
+				for (int j = 0; j < childCount; j++)
+				{
+					children[i * childCount + j] = graph.insertVertex(
+							groups[i], null, "Child " + i + "." + j,
+							20 + 10 * j, 30 + 50 * j, 100 + 5 * j, 30);
+				}
+			}
+
+			for (int i = 0; i < edges.length; i++)
+			{
+				edges[i] = graph.insertEdge(parent, null, "Edge " + i,
+						children[i], children[(i + 7) % children.length]);
+
+				if (i % 3 == 0)
+				{
+					mxGeometry geo = graph.getModel().getGeometry(edges[i]);
+					geo.setPoints(Arrays.asList(new mxPoint(
+							40 + 10 * i, 500)));
+				}
+			}
+		}
+		finally
+		{
+			graph.getModel().endUpdate();
+		}
+
+		return new Object[][] { groups, children, edges };
+	}
+
+	/**
+	 * Checks that the current states of the given graph are the same after a
+	 * full validation.
+	 */
+	protected void assertIncremental(mxGraph graph)
+	{
+		String incremental = getStates(graph);
+		graph.getView().revalidate();
+		assertEquals(getStates(graph), incremental);
+	}
+
+	/**
+	 * Returns the bounds, absolute points, label bounds and bounding boxes of
+	 * all states of the given graph and the graph bounds as a string.
+	 */
+	protected String getStates(mxGraph graph)
+	{
+		StringBuilder result = new StringBuilder();
+		mxGraphView view = graph.getView();
+		append(result, view, graph.getModel(), graph.getModel().getRoot());
+		result.append("graph " + toString(view.getGraphBounds()));
+
+		return result.toString();
+	}
+
+	/**
+	 * Appends the states of the given cell and its descendants.
+	 */
+	protected void append(StringBuilder result, mxGraphView view,
+			mxIGraphModel model, Object cell)
+	{
+		mxCellState state = view.getState(cell);
+		result.append(cell + ": ");
+
+		if (state != null)
+		{
+			result.append(toString(state) + " label "
+					+ toString(state.getLabelBounds()) + " box "
+					+ toString(state.getBoundingBox()));
+
+			for (int i = 0; i < state.getAbsolutePointCount(); i++)
+			{
+				mxPoint pt = state.getAbsolutePoint(i);
+				result.append(" " + ((pt != null) ? pt.getX() + "," + pt.getY()
+						: "null"));
+			}
+		}
+
+		result.append("\n");
+		int childCount = model.getChildCount(cell);
+
+		for (int i = 0; i < childCount; i++)
+		{
+			append(result, view, model, model.getChildAt(cell, i));
+		}
+	}
+
+	/**
+	 * Returns the given rectangle as a string.
+	 */
+	protected String toString(mxRectangle rect)
+	{
+		return (rect != null) ? rect.getX() + "," + rect.getY() + ","
+				+ rect.getWidth() + "," + rect.getHeight() : "null";
+	}
+
+	/**
+	 * The main method of the template test suite.
+	 * 
+	 * @param args
+	 *            The array of runtime arguments.
+	 */
+	public static void main(String[] args)
+	{
+		TestRunner.runAndWait(new TestSuite(mxGraphViewTest.class));
+	}
+
+}
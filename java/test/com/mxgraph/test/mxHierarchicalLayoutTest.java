@@ -0,0 +1,300 @@
+/**
+ * Copyright (c) 2007-2017, JGraph Ltd
+ */
+package com.mxgraph.test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import javax.swing.SwingConstants;
+
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import junit.textui.TestRunner;
+
+import com.mxgraph.layout.hierarchical.mxHierarchicalLayout;
+import com.mxgraph.layout.hierarchical.model.mxGraphAbstractHierarchyCell;
+import com.mxgraph.layout.hierarchical.model.mxGraphHierarchyModel;
+import com.mxgraph.model.mxGeometry;
+import com.mxgraph.model.mxIGraphModel;
+import com.mxgraph.util.mxPoint;
+import com.mxgraph.view.mxGraph;
+
+public class mxHierarchicalLayoutTest extends TestCase
+{
+
+	/**
+	 * Holds the expected number of crossings after the crossing stage for
+	 * each graph created by createGraph(i).
+	 */
+	protected static final int[] CROSSINGS = {
+			0, 25, 477, 334, 154, 194, 581, 1570, 703, 312, 258, 38 };
+
+	/**
+	 * Holds the hash codes of the expected layouts in north orientation for
+	 * each graph created by createGraph(i).
+	 */
+	protected static final int[] NORTH_LAYOUTS = {
+			373738404, -1768563550, 1223092421, -1840664638, 396158872,
+			1316055743, -1475452060, -389665061, -1746552530, -1508737537,
+			949391726, 1008194167 };
+
+	/**
+	 * Holds the hash codes of the expected layouts in west orientation for
+	 * each graph created by createGraph(i).
+	 */
+	protected static final int[] WEST_LAYOUTS = {
+			2065088067, 1040737253, -376684584, 989984878, 962245531,
+			-1813236419, 581450526, -1115093256, -1401339718, -1266661440,
+			-887195731, -2073360191 };
+
+	/**
+	 * Holds the number of graphs created by createGraph(i).
+	 */
+	protected static final int GRAPH_COUNT = 12;
+
+	/**
+	 * Constructs a new test case for the specified name.
+	 * 
+	 * @param name
+	 *            The name of the test case to be constructed.
+	 */
+	public mxHierarchicalLayoutTest(String name)
+	{
+		super(name);
+	}
+
+	/**
+	 * Checks the geometries of a small graph with long and parallel edges
+	 * against fixed values.
+	 */
+	public void testLayout() throws Exception
+	{
+		mxGraph graph = new mxGraph();
+		Object parent = graph.getDefaultParent();
+
+		graph.getModel().beginUpdate();
+		try
+		{
+			Object a = graph.insertVertex(parent, null, "a", 0, 0, 80, 30);
+			Object b = graph.insertVertex(parent, null, "b", 0, 0, 40, 30);
+			Object c = graph.insertVertex(parent, null, "c", 0, 0, 60, 30);
+			Object d = graph.insertVertex(parent, null, "d", 0, 0, 40, 50);
+			Object e = graph.insertVertex(parent, null, "e", 0, 0, 40, 30);
+			graph.insertEdge(parent, null, "", a, b);
+			graph.insertEdge(parent, null, "", a, c);
+			graph.insertEdge(parent, null, "", b, d);
+			graph.insertEdge(parent, null, "", c, d);
+			graph.insertEdge(parent, null, "", a, e);
+			graph.insertEdge(parent, null, "", a, e);
+			graph.insertEdge(parent, null, "", d, e);
+		}
+		finally
+		{
+			graph.getModel().endUpdate();
+		}
+
+		String expected = "60.0,0.0\n"
+				+ "0.0,80.0\n"
+				+ "70.0,80.0\n"
+				+ "52.0,160.0\n"
+				+ "80.0,260.0\n"
+				+ "0.0,0.0 73.75,42.0 20.0,68.0\n"
+				+ "0.0,0.0 91.25,44.0 100.0,68.0\n"
+				+ "0.0,0.0 20.0,122.0 64.5,148.0\n"
+				+ "0.0,0.0 100.0,122.0 79.5,148.0\n"
+				+ "0.0,0.0 108.75,44.0 165.0,55.0 165.0,135.0 165.0,135.0"
+				+ " 165.0,235.0 100.0,246.0\n"
+				+ "0.0,0.0 126.25,44.0 175.0,55.0 175.0,135.0 175.0,135.0"
+				+ " 175.0,235.0 110.0,246.0\n"
+				+ "0.0,0.0 72.0,222.0 90.0,248.0\n";
+		assertEquals(expected, layout(graph, SwingConstants.NORTH, false));
+	}
+
+	/**
+	 * Checks the number of crossings after the crossing stages on random
+	 * acyclic and cyclic graphs, and that it is no larger than before the
+	 * crossing stage.
+	 */
+	public void testCrossings() throws Exception
+	{
+		for (int i = 0; i < GRAPH_COUNT; i++)
+		{
+			final int[] crossings = new int[2];
+			mxGraph graph = createGraph(i);
+			mxHierarchicalLayout layout = new mxHierarchicalLayout(graph)
+			{
+				public void crossingStage(Object parent)
+				{
+					crossings[0] += countCrossings(getModel());
+					super.crossingStage(parent);
+					crossings[1] += countCrossings(getModel());
+				}
+			};
+			layout.execute(graph.getDefaultParent());
+
+			assertTrue(crossings[1] <= crossings[0]);
+			assertEquals(CROSSINGS[i], crossings[1]);
+		}
+	}
+
+	/**
+	 * Checks the geometries of the random graphs against fixed values in
+	 * north and west orientation, with sequential and parallel crossing
+	 * counts.
+	 */
+	public void testRandomLayouts() throws Exception
+	{
+		for (int i = 0; i < GRAPH_COUNT; i++)
+		{
+			assertEquals(NORTH_LAYOUTS[i], layout(createGraph(i),
+					SwingConstants.NORTH, false).hashCode());
+			assertEquals(NORTH_LAYOUTS[i], layout(createGraph(i),
+					SwingConstants.NORTH, true).hashCode());
+			assertEquals(WEST_LAYOUTS[i], layout(createGraph(i),
+					SwingConstants.WEST, false).hashCode());
+		}
+	}
+
+	/**
+	 * Returns the number of crossings between the adjacent ranks of the
+	 * given model with the cells in the order of the ranks.
+	 */
+	protected int countCrossings(mxGraphHierarchyModel model)
+	{
+		int result = 0;
+
+		for (int r = 1; r < model.ranks.size(); r++)
+		{
+			List<mxGraphAbstractHierarchyCell> cells = new ArrayList<mxGraphAbstractHierarchyCell>(
+					model.ranks.get(r));
+			List<mxGraphAbstractHierarchyCell> below = new ArrayList<mxGraphAbstractHierarchyCell>(
+					model.ranks.get(r - 1));
+			int count = 0;
+
+			for (mxGraphAbstractHierarchyCell cell : cells)
+			{
+				count += cell.getPreviousLayerConnectedCells(r).size();
+			}
+
+			int[] top = new int[count];
+			int[] bottom = new int[count];
+			count = 0;
+
+			for (int j = 0; j < cells.size(); j++)
+			{
+				for (mxGraphAbstractHierarchyCell connected : cells.get(j)
+						.getPreviousLayerConnectedCells(r))
+				{
+					top[count] = j;
+					bottom[count++] = below.indexOf(connected);
+				}
+			}
+
+			for (int j = 0; j < count; j++)
+			{
+				for (int k = j + 1; k < count; k++)
+				{
+					if ((top[j] - top[k]) * (bottom[j] - bottom[k]) < 0)
+					{
+						result++;
+					}
+				}
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Returns the random graph with the given index. The edges point from
+	 * lower to higher vertices in every third graph.
+	 */
+	protected mxGraph createGraph(int index)
+	{
+		Random random = new Random(index);
+		int vertexCount = 10 + random.nextInt(80);
+		int edgeCount = vertexCount + random.nextInt(2 * vertexCount);
+		boolean cyclic = index % 3 != 2;
+
+		mxGraph graph = new mxGraph();
+		Object parent = graph.getDefaultParent();
+		Object[] v = new Object[vertexCount];
+
+		graph.getModel().beginUpdate();
+		try
+		{
+			for (int i = 0; i < vertexCount; i++)
+			{
+				v[i] = graph.insertVertex(parent, null, "v" + i, 0, 0,
+						20 + random.nextInt(60), 30);
+			}
+
+			for (int i = 0; i < edgeCount; i++)
+			{
+				int a = random.nextInt(vertexCount);
+				int b = random.nextInt(vertexCount);
+
+				if (a != b)
+				{
+					graph.insertEdge(parent, null, "",
+							v[(cyclic) ? a : Math.min(a, b)],
+							v[(cyclic) ? b : Math.max(a, b)]);
+				}
+			}
+		}
+		finally
+		{
+			graph.getModel().endUpdate();
+		}
+
+		return graph;
+	}
+
+	/**
+	 * Runs the hierarchical layout on the given graph and returns the
+	 * resulting geometries as a string.
+	 */
+	protected String layout(mxGraph graph, int orientation, boolean parallel)
+	{
+		mxHierarchicalLayout layout = new mxHierarchicalLayout(graph,
+				orientation);
+		layout.setParallelCrossings(parallel);
+		layout.execute(graph.getDefaultParent());
+
+		StringBuilder result = new StringBuilder();
+		mxIGraphModel model = graph.getModel();
+		Object parent = graph.getDefaultParent();
+
+		for (int i = 0; i < model.getChildCount(parent); i++)
+		{
+			mxGeometry geo = model.getGeometry(model.getChildAt(parent, i));
+			result.append(geo.getX() + "," + geo.getY());
+
+			if (geo.getPoints() != null)
+			{
+				for (mxPoint pt : geo.getPoints())
+				{
+					result.append(" " + pt.getX() + "," + pt.getY());
+				}
+			}
+
+			result.append("\n");
+		}
+
+		return result.toString();
+	}
+
+	/**
+	 * The main method of the template test suite.
+	 * 
+	 * @param args
+	 *            The array of runtime arguments.
+	 */
+	public static void main(String[] args)
+	{
+		TestRunner.runAndWait(new TestSuite(mxHierarchicalLayoutTest.class));
+	}
+
+}
@@ -0,0 +1,209 @@
+/**
+ * Copyright (c) 2007-2017, JGraph Ltd
+ */
+package com.mxgraph.test;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import junit.textui.TestRunner;
+
+import com.mxgraph.canvas.mxGraphics2DCanvas;
+import com.mxgraph.reader.mxExportEngine;
+import com.mxgraph.util.mxImageCache;
+
+public class mxImageCacheTest extends TestCase
+{
+
+	/**
+	 * Constructs a new test case for the specified name.
+	 * 
+	 * @param name
+	 *            The name of the test case to be constructed.
+	 */
+	public mxImageCacheTest(String name)
+	{
+		super(name);
+	}
+
+	/**
+	 * Cache that counts the loads and returns a 10x10 image for all URLs
+	 * except the ones that start with "missing".
+	 */
+	protected static class CountingCache extends mxImageCache
+	{
+
+		protected AtomicInteger count = new AtomicInteger();
+
+		public CountingCache(long maxWeight, int maxSize)
+		{
+			super(maxWeight, maxSize);
+		}
+
+		protected BufferedImage load(String url)
+		{
+			count.incrementAndGet();
+
+			return (url.startsWith("missing")) ? null : new BufferedImage(10,
+					10, BufferedImage.TYPE_INT_ARGB);
+		}
+
+	}
+
+	/**
+	 * Checks that images which cannot be loaded are only requested again
+	 * after the missing timeout.
+	 */
+	public void testMissingImage() throws Exception
+	{
+		CountingCache cache = new CountingCache(1024 * 1024, 10);
+		cache.setMissingTimeout(60000);
+		assertNull(cache.get("missing.png"));
+		assertNull(cache.get("missing.png"));
+		assertEquals(1, cache.count.get());
+		assertEquals(1, cache.getHits());
+		assertEquals(1, cache.size());
+
+		cache.remove("missing.png");
+		assertNull(cache.get("missing.png"));
+		assertEquals(2, cache.count.get());
+
+		cache.setMissingTimeout(1);
+		Thread.sleep(5);
+		assertNull(cache.get("missing.png"));
+		assertEquals(3, cache.count.get());
+
+		cache.setMissingTimeout(0);
+		cache.clear();
+		assertNull(cache.get("missing.png"));
+		assertNull(cache.get("missing.png"));
+		assertEquals(5, cache.count.get());
+		assertEquals(0, cache.size());
+	}
+
+	/**
+	 * Checks that the least recently used images are removed if the number
+	 * of images or the number of bytes exceeds the limit.
+	 */
+	public void testLimits() throws Exception
+	{
+		CountingCache cache = new CountingCache(1024 * 1024, 2);
+		BufferedImage a = cache.get("a");
+		cache.get("b");
+		assertSame(a, cache.get("a"));
+		cache.get("c");
+		assertEquals(2, cache.size());
+		assertEquals(1, cache.getEvictions());
+		assertSame(a, cache.get("a"));
+		assertEquals(3, cache.count.get());
+
+		// Each image has 400 bytes plus two bytes for the URL
+		cache.setMaxSize(10);
+		cache.setMaxWeight(1000);
+		cache.get("d");
+		cache.get("e");
+		assertEquals(2, cache.size());
+		assertTrue(cache.getWeight() <= 1000);
+	}
+
+	/**
+	 * Checks that concurrent requests for the same image load it once.
+	 */
+	public void testConcurrentLoad() throws Exception
+	{
+		final CountingCache cache = new CountingCache(1024 * 1024, 10);
+		final CountDownLatch start = new CountDownLatch(1);
+		final BufferedImage[] result = new BufferedImage[8];
+		Thread[] threads = new Thread[result.length];
+
+		for (int i = 0; i < threads.length; i++)
+		{
+			final int index = i;
+			threads[i] = new Thread()
+			{
+				public void run()
+				{
+					try
+					{
+						start.await();
+						result[index] = cache.get("a");
+					}
+					catch (InterruptedException e)
+					{
+						// ignore
+					}
+				}
+			};
+			threads[i].start();
+		}
+
+		start.countDown();
+
+		for (int i = 0; i < threads.length; i++)
+		{
+			threads[i].join();
+			assertSame(result[0], result[i]);
+		}
+
+		assertNotNull(result[0]);
+		assertEquals(1, cache.count.get());
+	}
+
+	/**
+	 * Checks that canvases use their own cache by default and that flushing
+	 * a canvas that shares a cache only removes the images of the canvas.
+	 */
+	public void testFlushImageCache() throws Exception
+	{
+		CountingCache shared = new CountingCache(1024 * 1024, 10);
+		mxGraphics2DCanvas canvas = new mxGraphics2DCanvas();
+		assertNull(canvas.getSharedImageCache());
+
+		canvas.setSharedImageCache(shared);
+		BufferedImage a = canvas.loadImage("a");
+		assertSame(a, canvas.loadImage("a"));
+		BufferedImage b = shared.get("b");
+		assertEquals(2, shared.count.get());
+
+		canvas.flushImageCache();
+		assertEquals(1, shared.size());
+		assertSame(b, shared.get("b"));
+		assertNotSame(a, canvas.loadImage("a"));
+		assertEquals(3, shared.count.get());
+	}
+
+	/**
+	 * Checks that an export engine with an image cache size has its own
+	 * cache.
+	 */
+	public void testExportEngineImageCache() throws Exception
+	{
+		mxExportEngine engine = new mxExportEngine(1, 1, 5);
+
+		try
+		{
+			assertNotSame(mxImageCache.getSharedInstance(),
+					engine.getImageCache());
+			assertEquals(5, engine.getImageCache().getMaxSize());
+		}
+		finally
+		{
+			engine.shutdown();
+		}
+	}
+
+	/**
+	 * The main method of the template test suite.
+	 * 
+	 * @param args
+	 *            The array of runtime arguments.
+	 */
+	public static void main(String[] args)
+	{
+		TestRunner.runAndWait(new TestSuite(mxImageCacheTest.class));
+	}
+
+}
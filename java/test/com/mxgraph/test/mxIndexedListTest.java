@@ -0,0 +1,267 @@
+/**
+ * Copyright (c) 2007-2017, JGraph Ltd
+ */
+package com.mxgraph.test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import junit.textui.TestRunner;
+
+import com.mxgraph.model.mxCell;
+import com.mxgraph.util.mxIndexedList;
+
+public class mxIndexedListTest extends TestCase
+{
+
+	/**
+	 * Constructs a new test case for the specified name.
+	 * 
+	 * @param name
+	 *            The name of the test case to be constructed.
+	 */
+	public mxIndexedListTest(String name)
+	{
+		super(name);
+	}
+
+	/**
+	 * List that exposes the number of used slots.
+	 */
+	protected static class SlotList<E> extends mxIndexedList<E>
+	{
+
+		/**
+		 * 
+		 */
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * Returns the number of used slots including gaps.
+		 */
+		public int getSlotCount()
+		{
+			return slotCount;
+		}
+
+	}
+
+	/**
+	 * Cell that exposes the list of children.
+	 */
+	protected static class ListCell extends mxCell
+	{
+
+		/**
+		 * 
+		 */
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * Returns the list of children.
+		 */
+		public List<Object> getChildList()
+		{
+			return children;
+		}
+
+	}
+
+	/**
+	 * Checks random inserts, removes and lookups at arbitrary positions
+	 * against an ArrayList, with distinct elements so that the hash index is
+	 * used.
+	 */
+	public void testDistinctElements() throws Exception
+	{
+		Random random = new Random(3);
+		SlotList<Object> list = new SlotList<Object>();
+		List<Object> expected = new ArrayList<Object>();
+		boolean compacted = false;
+		int next = 0;
+
+		for (int step = 0; step < 20000; step++)
+		{
+			int op = random.nextInt(10);
+
+			// Grows the list in the first half and shrinks it in the second
+			if (op < ((step % 4000 < 2000) ? 6 : 3))
+			{
+				Integer element = Integer.valueOf(next++);
+
+				if (random.nextBoolean() || expected.isEmpty())
+				{
+					list.add(element);
+					expected.add(element);
+				}
+				else
+				{
+					int index = random.nextInt(expected.size() + 1);
+					list.add(index, element);
+					expected.add(index, element);
+				}
+			}
+			else if (!expected.isEmpty())
+			{
+				int index = random.nextInt(expected.size());
+
+				if (op < 7)
+				{
+					assertEquals(expected.remove(index), list.remove(index));
+				}
+				else if (op < 8)
+				{
+					Object element = expected.get(index);
+					assertEquals(expected.remove(element), list.remove(element));
+				}
+				else if (op < 9)
+				{
+					Integer element = Integer.valueOf(next++);
+					assertEquals(expected.set(index, element),
+							list.set(index, element));
+				}
+				else
+				{
+					Object element = expected.get(index);
+					assertEquals(index, list.indexOf(element));
+					assertEquals(index, list.lastIndexOf(element));
+					assertTrue(list.contains(element));
+				}
+			}
+
+			assertTrue(list.getSlotCount() - list.size() <= Math.max(16,
+					list.size()));
+
+			if (step % 500 == 0)
+			{
+				assertEquals(expected, list);
+				assertEquals(-1, list.indexOf(Integer.valueOf(-1)));
+				assertFalse(list.remove(Integer.valueOf(-1)));
+			}
+		}
+
+		assertEquals(expected, list);
+		assertEquals(expected, copy(list));
+
+		// Removes elements without inserting until the gaps are compacted
+		for (int i = 0; i < 200; i++)
+		{
+			Integer element = Integer.valueOf(next++);
+			list.add(element);
+			expected.add(element);
+		}
+
+		while (expected.size() > 10)
+		{
+			int slots = list.getSlotCount();
+			int index = random.nextInt(expected.size());
+			assertEquals(expected.remove(index), list.remove(index));
+			compacted |= list.getSlotCount() < slots;
+			assertEquals(expected.get(expected.size() / 2),
+					list.get(expected.size() / 2));
+			assertEquals(expected.size() / 2,
+					list.indexOf(expected.get(expected.size() / 2)));
+		}
+
+		assertTrue(compacted);
+		assertEquals(expected, list);
+
+		list.clear();
+		assertEquals(0, list.size());
+		assertEquals(-1, list.indexOf(Integer.valueOf(0)));
+	}
+
+	/**
+	 * Checks random operations with duplicates and null elements, where the
+	 * lookups fall back to a linear search.
+	 */
+	public void testDuplicateElements() throws Exception
+	{
+		Random random = new Random(5);
+		mxIndexedList<Object> list = new mxIndexedList<Object>();
+		List<Object> expected = new ArrayList<Object>();
+
+		for (int step = 0; step < 5000; step++)
+		{
+			Object element = (random.nextInt(10) == 0) ? null : Integer
+					.valueOf(random.nextInt(50));
+
+			if (random.nextInt(3) > 0 || expected.isEmpty())
+			{
+				int index = random.nextInt(expected.size() + 1);
+				list.add(index, element);
+				expected.add(index, element);
+			}
+			else if (random.nextBoolean())
+			{
+				assertEquals(expected.remove(element), list.remove(element));
+			}
+			else
+			{
+				int index = random.nextInt(expected.size());
+				assertEquals(expected.remove(index), list.remove(index));
+			}
+
+			assertEquals(expected.indexOf(element), list.indexOf(element));
+			assertEquals(expected.lastIndexOf(element),
+					list.lastIndexOf(element));
+		}
+
+		assertEquals(expected, list);
+		assertEquals(expected, copy(list));
+	}
+
+	/**
+	 * Checks that the indexed flag of a cell without children survives
+	 * serialization.
+	 */
+	public void testIndexedCell() throws Exception
+	{
+		ListCell cell = new ListCell();
+		cell.setIndexed(true);
+		ListCell clone = copy(cell);
+		assertTrue(clone.isIndexed());
+
+		clone.insert(new mxCell());
+		assertTrue(clone.getChildList() instanceof mxIndexedList);
+
+		clone = copy(new ListCell());
+		assertFalse(clone.isIndexed());
+	}
+
+	/**
+	 * Returns a copy of the given object using serialization.
+	 */
+	@SuppressWarnings("unchecked")
+	protected <T> T copy(T obj) throws Exception
+	{
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream(bytes);
+		out.writeObject(obj);
+		out.close();
+
+		ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(
+				bytes.toByteArray()));
+
+		return (T) in.readObject();
+	}
+
+	/**
+	 * The main method of the template test suite.
+	 * 
+	 * @param args
+	 *            The array of runtime arguments.
+	 */
+	public static void main(String[] args)
+	{
+		TestRunner.runAndWait(new TestSuite(mxIndexedListTest.class));
+	}
+
+}
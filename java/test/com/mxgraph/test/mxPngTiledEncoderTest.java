@@ -0,0 +1,135 @@
+/**
+ * Copyright (c) 2007-2017, JGraph Ltd
+ */
+package com.mxgraph.test;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Random;
+
+import javax.imageio.ImageIO;
+
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import junit.textui.TestRunner;
+
+import com.mxgraph.util.png.mxPngEncodeParam;
+import com.mxgraph.util.png.mxPngImageEncoder;
+import com.mxgraph.util.png.mxPngTiledEncoder;
+
+public class mxPngTiledEncoderTest extends TestCase
+{
+
+	/**
+	 * Constructs a new test case for the specified name.
+	 * 
+	 * @param name
+	 *            The name of the test case to be constructed.
+	 */
+	public mxPngTiledEncoderTest(String name)
+	{
+		super(name);
+	}
+
+	/**
+	 * Checks that the banded parallel encoder produces the same pixels as
+	 * mxPngImageEncoder for RGB and RGBA images.
+	 */
+	public void testPixelIdentical() throws Exception
+	{
+		checkPixels(false);
+		checkPixels(true);
+	}
+
+	/**
+	 * Encodes a random image with both encoders and compares the decoded
+	 * pixels with each other and with the original image.
+	 */
+	protected void checkPixels(boolean alpha) throws Exception
+	{
+		final BufferedImage image = createImage(301, 517, alpha);
+		ByteArrayOutputStream expected = new ByteArrayOutputStream();
+		mxPngEncodeParam param = mxPngEncodeParam.getDefaultEncodeParam(image);
+		new mxPngImageEncoder(expected, param).encode(image);
+
+		ByteArrayOutputStream actual = new ByteArrayOutputStream();
+		mxPngTiledEncoder encoder = new mxPngTiledEncoder(actual, null);
+		encoder.setBandHeight(64);
+		encoder.setThreads(3);
+		encoder.setChunkLength(1000);
+		encoder.encode(image.getWidth(), image.getHeight(), alpha,
+				new mxPngTiledEncoder.BandRenderer()
+				{
+					public BufferedImage renderBand(int y, int height)
+					{
+						return image.getSubimage(0, y, image.getWidth(), height);
+					}
+				});
+
+		BufferedImage a = ImageIO.read(new ByteArrayInputStream(expected
+				.toByteArray()));
+		BufferedImage b = ImageIO.read(new ByteArrayInputStream(actual
+				.toByteArray()));
+		assertEquals(image.getWidth(), b.getWidth());
+		assertEquals(image.getHeight(), b.getHeight());
+		assertEquals(alpha, b.getColorModel().hasAlpha());
+
+		for (int y = 0; y < image.getHeight(); y++)
+		{
+			for (int x = 0; x < image.getWidth(); x++)
+			{
+				assertEquals(a.getRGB(x, y), b.getRGB(x, y));
+				assertEquals(image.getRGB(x, y), b.getRGB(x, y));
+			}
+		}
+	}
+
+	/**
+	 * Returns an image with shapes on a gradient and a band of noise.
+	 */
+	protected BufferedImage createImage(int w, int h, boolean alpha)
+	{
+		BufferedImage image = new BufferedImage(w, h,
+				(alpha) ? BufferedImage.TYPE_INT_ARGB
+						: BufferedImage.TYPE_INT_RGB);
+		Graphics2D g = image.createGraphics();
+		Random random = new Random(7);
+
+		for (int y = 0; y < h; y++)
+		{
+			g.setColor(new Color(y % 256, (2 * y) % 256, 255 - y % 256,
+					(alpha) ? (3 * y) % 256 : 255));
+			g.drawLine(0, y, w, y);
+		}
+
+		g.setColor(Color.BLUE);
+		g.fillOval(20, 40, 200, 300);
+		g.dispose();
+
+		for (int y = 200; y < 260; y++)
+		{
+			for (int x = 0; x < w; x++)
+			{
+				image.setRGB(x, y, (alpha) ? random.nextInt() : random
+						.nextInt() | 0xff000000);
+			}
+		}
+
+		return image;
+	}
+
+	/**
+	 * The main method of the template test suite.
+	 * 
+	 * @param args
+	 *            The array of runtime arguments.
+	 */
+	public static void main(String[] args)
+	{
+		TestRunner.runAndWait(new TestSuite(mxPngTiledEncoderTest.class));
+	}
+
+}
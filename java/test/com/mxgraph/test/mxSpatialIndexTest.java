@@ -0,0 +1,307 @@
+/**
+ * Copyright (c) 2007-2017, JGraph Ltd
+ */
+package com.mxgraph.test;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import junit.textui.TestRunner;
+
+import com.mxgraph.model.mxIGraphModel;
+import com.mxgraph.swing.mxGraphComponent;
+import com.mxgraph.util.mxRectangle;
+import com.mxgraph.view.mxGraph;
+import com.mxgraph.view.mxSpatialIndex;
+
+public class mxSpatialIndexTest extends TestCase
+{
+
+	/**
+	 * Constructs a new test case for the specified name.
+	 * 
+	 * @param name
+	 *            The name of the test case to be constructed.
+	 */
+	public mxSpatialIndexTest(String name)
+	{
+		super(name);
+	}
+
+	/**
+	 * Checks the results of region queries against a scan of all rectangles
+	 * while cells are added, moved and removed.
+	 */
+	public void testQuery() throws Exception
+	{
+		Random random = new Random(7);
+		mxSpatialIndex index = new mxSpatialIndex();
+		Map<Object, mxRectangle> bounds = new LinkedHashMap<Object, mxRectangle>();
+		List<Object> cells = new ArrayList<Object>();
+
+		for (int i = 0; i < 600; i++)
+		{
+			cells.add("cell" + i);
+		}
+
+		for (int step = 0; step < 3000; step++)
+		{
+			Object cell = cells.get(random.nextInt(cells.size()));
+
+			if (random.nextInt(4) == 0)
+			{
+				assertEquals(bounds.remove(cell) != null, index.remove(cell));
+			}
+			else
+			{
+				mxRectangle rect = createRectangle(random, 1000, 80);
+				bounds.put(cell, rect);
+				index.put(cell, rect);
+			}
+
+			if (step % 50 == 0)
+			{
+				assertEquals(bounds.size(), index.size());
+
+				for (int i = 0; i < 20; i++)
+				{
+					mxRectangle rect = createRectangle(random, 1000, 200);
+					List<Object> expected = new ArrayList<Object>();
+
+					for (Map.Entry<Object, mxRectangle> entry : bounds
+							.entrySet())
+					{
+						if (intersects(entry.getValue(), rect))
+						{
+							expected.add(entry.getKey());
+						}
+					}
+
+					List<Object> result = index.query(rect);
+					assertEquals(result.size(),
+							new HashSet<Object>(result).size());
+					assertEquals(new HashSet<Object>(expected),
+							new HashSet<Object>(result));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Checks that the order keys are reset by new cells and used for sorting.
+	 */
+	public void testOrder() throws Exception
+	{
+		mxSpatialIndex index = new mxSpatialIndex();
+		assertTrue(index.isOrdered());
+
+		index.put("a", new mxRectangle(0, 0, 10, 10));
+		index.put("b", new mxRectangle(5, 5, 10, 10));
+		index.put("c", new mxRectangle(8, 8, 10, 10));
+		assertFalse(index.isOrdered());
+
+		index.setOrder("a", 2);
+		index.setOrder("b", 0);
+		index.setOrder("c", 1);
+		index.setOrder("d", 3);
+		index.setOrdered(true);
+		assertEquals(-1, index.getOrder("d"));
+
+		List<Object> result = index.query(new mxRectangle(9, 9, 1, 1));
+		index.sort(result);
+		assertEquals(Arrays.asList("b", "c", "a"), result);
+
+		// Moving a cell keeps its key
+		index.put("a", new mxRectangle(100, 100, 10, 10));
+		assertTrue(index.isOrdered());
+		assertEquals(2, index.getOrder("a"));
+
+		index.remove("b");
+		index.put("b", new mxRectangle(5, 5, 10, 10));
+		assertFalse(index.isOrdered());
+
+		index.clear();
+		assertTrue(index.isOrdered());
+	}
+
+	/**
+	 * Checks that hit detection and rubberband selection return the same
+	 * cells with the spatial index as the traversal of the cell hierarchy,
+	 * also after cells have been reordered, added and moved to other parents.
+	 */
+	public void testGraphComponent() throws Exception
+	{
+		Random random = new Random(11);
+		mxGraph graph = new mxGraph();
+		mxIGraphModel model = graph.getModel();
+
+		// Uses a second graph for the same model without an index
+		mxGraph reference = new mxGraph(model);
+		reference.getView().setSpatialIndexEnabled(false);
+		mxGraphComponent component = createGraphComponent(graph);
+		mxGraphComponent referenceComponent = createGraphComponent(reference);
+
+		List<Object> vertices = new ArrayList<Object>();
+		Object parent = graph.getDefaultParent();
+		model.beginUpdate();
+		try
+		{
+			for (int i = 0; i < 4; i++)
+			{
+				Object group = graph.insertVertex(parent, null, "Group " + i,
+						random.nextInt(300), random.nextInt(300), 200, 200);
+				vertices.add(group);
+
+				for (int j = 0; j < 10; j++)
+				{
+					vertices.add(graph.insertVertex(group, null, "", random
+							.nextInt(160), random.nextInt(160), 40, 40));
+				}
+			}
+
+			for (int i = 0; i < 20; i++)
+			{
+				vertices.add(graph.insertVertex(parent, null, "", random
+						.nextInt(460), random.nextInt(460), 40, 40));
+			}
+
+			for (int i = 0; i < 30; i++)
+			{
+				graph.insertEdge(parent, null, "", vertices.get(random
+						.nextInt(vertices.size())), vertices.get(random
+						.nextInt(vertices.size())));
+			}
+		}
+		finally
+		{
+			model.endUpdate();
+		}
+
+		assertHitTests(random, component, referenceComponent);
+
+		for (int step = 0; step < 10; step++)
+		{
+			Object cell = vertices.get(random.nextInt(vertices.size()));
+
+			if (step % 3 == 0)
+			{
+				graph.orderCells(random.nextBoolean(), new Object[] { cell });
+			}
+			else if (step % 3 == 1)
+			{
+				vertices.add(graph.insertVertex(model.getParent(cell), null,
+						"", random.nextInt(200), random.nextInt(200), 40, 40));
+			}
+			else if (model.getParent(cell) != parent)
+			{
+				graph.moveCells(new Object[] { cell }, 0, 0, false, parent,
+						null);
+			}
+
+			assertHitTests(random, component, referenceComponent);
+		}
+	}
+
+	/**
+	 * Compares getCellAt and getCells of the given components.
+	 */
+	protected void assertHitTests(Random random, mxGraphComponent component,
+			mxGraphComponent reference)
+	{
+		assertTrue(component.getGraph().getView().isSpatialIndexEnabled());
+		assertFalse(reference.getGraph().getView().isSpatialIndexEnabled());
+		int hits = 0;
+
+		for (int x = 0; x < 520; x += 7)
+		{
+			for (int y = 0; y < 520; y += 7)
+			{
+				Object expected = reference.getCellAt(x, y);
+				assertSame(expected, component.getCellAt(x, y));
+				assertSame(reference.getCellAt(x, y, false),
+						component.getCellAt(x, y, false));
+
+				if (expected != null)
+				{
+					hits++;
+				}
+			}
+		}
+
+		assertTrue(hits > 0);
+
+		for (int i = 0; i < 50; i++)
+		{
+			Rectangle rect = new Rectangle(random.nextInt(400),
+					random.nextInt(400), random.nextInt(300),
+					random.nextInt(300));
+			assertEquals(Arrays.asList(reference.getCells(rect)),
+					Arrays.asList(component.getCells(rect)));
+		}
+	}
+
+	/**
+	 * Returns a graph component for the given graph without the mouse
+	 * handlers, which require a display for drag and drop.
+	 */
+	protected mxGraphComponent createGraphComponent(mxGraph graph)
+	{
+		return new mxGraphComponent(graph)
+		{
+
+			/**
+			 * 
+			 */
+			private static final long serialVersionUID = 1L;
+
+			/**
+			 * 
+			 */
+			protected void createHandlers()
+			{
+				// empty
+			}
+
+		};
+	}
+
+	/**
+	 * Returns a random rectangle inside the given range.
+	 */
+	protected mxRectangle createRectangle(Random random, int range, int size)
+	{
+		return new mxRectangle(random.nextInt(range), random.nextInt(range),
+				random.nextInt(size), random.nextInt(size));
+	}
+
+	/**
+	 * Returns true if the given rectangles intersect including their borders.
+	 */
+	protected boolean intersects(mxRectangle a, mxRectangle b)
+	{
+		return a.getX() <= b.getX() + b.getWidth()
+				&& b.getX() <= a.getX() + a.getWidth()
+				&& a.getY() <= b.getY() + b.getHeight()
+				&& b.getY() <= a.getY() + a.getHeight();
+	}
+
+	/**
+	 * The main method of the template test suite.
+	 * 
+	 * @param args
+	 *            The array of runtime arguments.
+	 */
+	public static void main(String[] args)
+	{
+		TestRunner.runAndWait(new TestSuite(mxSpatialIndexTest.class));
+	}
+
+}
@@ -0,0 +1,96 @@
+/**
+ * Copyright (c) 2007-2017, JGraph Ltd
+ */
+package com.mxgraph.test;
+
+import java.util.Hashtable;
+import java.util.Map;
+
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import junit.textui.TestRunner;
+
+import com.mxgraph.util.mxConstants;
+import com.mxgraph.view.mxStylesheet;
+
+public class mxStylesheetTest extends TestCase
+{
+
+	/**
+	 * Constructs a new test case for the specified name.
+	 * 
+	 * @param name
+	 *            The name of the test case to be constructed.
+	 */
+	public mxStylesheetTest(String name)
+	{
+		super(name);
+	}
+
+	/**
+	 * Checks that parsed styles are shared and that the cache is cleared by
+	 * the setters and by clearStyleCache.
+	 */
+	public void testStyleCache() throws Exception
+	{
+		mxStylesheet stylesheet = new mxStylesheet();
+		Map<String, Object> named = new Hashtable<String, Object>();
+		named.put(mxConstants.STYLE_FONTSIZE, "14");
+		stylesheet.putCellStyle("named", named);
+
+		String name = "named;" + mxConstants.STYLE_FILLCOLOR + "=#FF0000";
+		Map<String, Object> defaultStyle = stylesheet.getDefaultVertexStyle();
+		Map<String, Object> style = stylesheet.getCellStyle(name,
+				defaultStyle);
+		assertEquals("14", style.get(mxConstants.STYLE_FONTSIZE));
+		assertEquals("#FF0000", style.get(mxConstants.STYLE_FILLCOLOR));
+		assertSame(style, stylesheet.getCellStyle(name, defaultStyle));
+
+		try
+		{
+			style.put(mxConstants.STYLE_FONTSIZE, "20");
+			fail("Cached styles must not be modifiable");
+		}
+		catch (UnsupportedOperationException e)
+		{
+			// expected
+		}
+
+		// In-place changes are seen after the cache has been cleared
+		named.put(mxConstants.STYLE_FONTSIZE, "16");
+		stylesheet.clearStyleCache();
+		style = stylesheet.getCellStyle(name, defaultStyle);
+		assertEquals("16", style.get(mxConstants.STYLE_FONTSIZE));
+
+		Map<String, Object> replaced = new Hashtable<String, Object>();
+		replaced.put(mxConstants.STYLE_FONTSIZE, "18");
+		stylesheet.putCellStyle("named", replaced);
+		style = stylesheet.getCellStyle(name, defaultStyle);
+		assertEquals("18", style.get(mxConstants.STYLE_FONTSIZE));
+
+		Map<String, Object> vertexStyle = new Hashtable<String, Object>(
+				defaultStyle);
+		vertexStyle.put(mxConstants.STYLE_STROKECOLOR, "#00FF00");
+		stylesheet.setDefaultVertexStyle(vertexStyle);
+		assertEquals("#00FF00", stylesheet.getCellStyle(name, vertexStyle)
+				.get(mxConstants.STYLE_STROKECOLOR));
+
+		stylesheet.setStyleCacheSize(0);
+		Map<String, Object> uncached = stylesheet.getCellStyle(name,
+				vertexStyle);
+		assertNotSame(uncached, stylesheet.getCellStyle(name, vertexStyle));
+		uncached.put(mxConstants.STYLE_FONTSIZE, "20");
+	}
+
+	/**
+	 * The main method of the template test suite.
+	 * 
+	 * @param args
+	 *            The array of runtime arguments.
+	 */
+	public static void main(String[] args)
+	{
+		TestRunner.runAndWait(new TestSuite(mxStylesheetTest.class));
+	}
+
+}